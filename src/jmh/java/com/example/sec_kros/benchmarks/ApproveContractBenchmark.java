@@ -0,0 +1,113 @@
+package com.example.sec_kros.benchmarks;
+
+import com.example.sec_kros.DTO.ContractApprovalDTO;
+import com.example.sec_kros.Entities.*;
+import com.example.sec_kros.Repositories.*;
+import com.example.sec_kros.Services.ContractService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ContractService.approveContract на in-memory H2: проверки, создание графика смен,
+ * уведомления и обновление агрегатов выручки. Перед каждым вызовом создается новый
+ * неодобренный договор с охранным объектом и новый охранник, чтобы проверка пересечения
+ * смен не отклоняла повторное назначение на те же даты (время подготовки в замер не входит).
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="ApproveContractBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ApproveContractBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private ContractService contractService;
+    private ContractRepository contractRepository;
+    private GuardObjectRepository guardObjectRepository;
+    private EmployeeRepository employeeRepository;
+
+    private Client client;
+    private ServiceEntity service;
+    private ContractApprovalDTO approval;
+    private Long contractId;
+    private long invocations;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = H2BenchmarkContext.start();
+        contractService = context.getBean(ContractService.class);
+        contractRepository = context.getBean(ContractRepository.class);
+        guardObjectRepository = context.getBean(GuardObjectRepository.class);
+        employeeRepository = context.getBean(EmployeeRepository.class);
+
+        client = new Client();
+        client.setLastName("Иванов");
+        client.setFirstName("Иван");
+        client.setPhone("+79991234567");
+        client.setEmail("bench-client@example.com");
+        client.setCreatedAt(LocalDateTime.now());
+        client = context.getBean(ClientRepository.class).save(client);
+
+        service = new ServiceEntity();
+        service.setName("Охрана офиса");
+        service.setPrice(BigDecimal.valueOf(1000));
+        service = context.getBean(ServiceRepository.class).save(service);
+
+        approval = new ContractApprovalDTO();
+        approval.setShiftStartTime(LocalTime.of(8, 0));
+        approval.setShiftEndTime(LocalTime.of(20, 0));
+    }
+
+    @Setup(Level.Invocation)
+    public void createPendingContract() {
+        long n = ++invocations;
+        Employee guard = new Employee();
+        guard.setLastName("Петров" + n);
+        guard.setFirstName("Петр");
+        guard.setPassportSeries((int) (1000 + n % 9000));
+        guard.setPassportNumber((int) (100000 + n % 900000));
+        guard.setPhone("+7999" + (1_000_000 + n));
+        guard.setEmail("bench-guard" + n + "@example.com");
+        guard.setPosition("Охранник");
+        guard = employeeRepository.save(guard);
+        approval.setSecurityEmployeeId(guard.getId());
+
+        Contract contract = new Contract();
+        contract.setClient(client);
+        contract.setService(service);
+        contract.setStartDate(LocalDate.now().plusDays(1));
+        contract.setEndDate(LocalDate.now().plusDays(31));
+        contract.setTotalAmount(BigDecimal.valueOf(30000));
+        contract.setStatus("inactive");
+        contract.setCreatedAt(LocalDateTime.now());
+        contract = contractRepository.save(contract);
+
+        GuardObject guardObject = new GuardObject();
+        guardObject.setClient(client);
+        guardObject.setContract(contract);
+        guardObject.setName("Офис");
+        guardObject.setAddress("ул. Ленина, 1");
+        guardObjectRepository.save(guardObject);
+
+        contractId = contract.getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public Contract approveContract() {
+        return contractService.approveContract(contractId, approval);
+    }
+}
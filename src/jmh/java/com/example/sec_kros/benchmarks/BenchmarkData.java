@@ -0,0 +1,106 @@
+package com.example.sec_kros.benchmarks;
+
+import com.example.sec_kros.DTO.ClientReportRow;
+import com.example.sec_kros.DTO.ContractReportRow;
+import com.example.sec_kros.DTO.RevenueReportRow;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Синтетические данные для бенчмарков: договоры распределены по году, пяти услугам и трем статусам.
+ * Строки генерируются на лету, чтобы 1M договоров не держать в памяти целиком.
+ */
+final class BenchmarkData {
+
+    static final String[] SERVICES = {"Охрана офиса", "Охрана склада", "Пультовая охрана",
+            "Сопровождение грузов", "Охрана мероприятий"};
+    static final String[] STATUSES = {"active", "inactive", "completed"};
+    static final LocalDate PERIOD_START = LocalDate.of(2024, 1, 1);
+    static final int PERIOD_DAYS = 365;
+
+    private BenchmarkData() {}
+
+    static ContractReportRow contractRow(long id) {
+        LocalDate createdDay = PERIOD_START.plusDays(id % PERIOD_DAYS);
+        return new ContractReportRow(id, "Клиентов" + id, "Иван", "+7999" + (1_000_000 + id % 9_000_000),
+                "client" + id + "@example.com", SERVICES[(int) (id % SERVICES.length)],
+                createdDay.plusDays(7), createdDay.plusDays(37), amount(id),
+                STATUSES[(int) (id % STATUSES.length)], createdDay.atTime(12, 0));
+    }
+
+    static ClientReportRow clientRow(long id) {
+        return new ClientReportRow(id, "Клиентов" + id, "Иван", id % 4 == 0 ? null : "Иванович",
+                "+7999" + (1_000_000 + id % 9_000_000), "client" + id + "@example.com",
+                "ул. Ленина, " + (id % 200 + 1), PERIOD_START.plusDays(id % PERIOD_DAYS).atTime(10, 0));
+    }
+
+    static Stream<ContractReportRow> contractRows(long count) {
+        return LongStream.rangeClosed(1, count).mapToObj(BenchmarkData::contractRow);
+    }
+
+    static Stream<ClientReportRow> clientRows(long count) {
+        return LongStream.rangeClosed(1, count).mapToObj(BenchmarkData::clientRow);
+    }
+
+    // То, что лежит в revenue_daily_rollup после записи count договоров
+    static List<RevenueReportRow> revenueRollup(long count) {
+        long[][][] contracts = new long[PERIOD_DAYS][SERVICES.length][STATUSES.length];
+        BigDecimal[][][] sums = new BigDecimal[PERIOD_DAYS][SERVICES.length][STATUSES.length];
+        for (long id = 1; id <= count; id++) {
+            int day = (int) (id % PERIOD_DAYS);
+            int service = (int) (id % SERVICES.length);
+            int status = (int) (id % STATUSES.length);
+            contracts[day][service][status]++;
+            BigDecimal sum = sums[day][service][status];
+            sums[day][service][status] = sum == null ? amount(id) : sum.add(amount(id));
+        }
+
+        List<RevenueReportRow> rows = new ArrayList<>();
+        for (int day = 0; day < PERIOD_DAYS; day++) {
+            for (int service = 0; service < SERVICES.length; service++) {
+                for (int status = 0; status < STATUSES.length; status++) {
+                    if (contracts[day][service][status] > 0) {
+                        rows.add(new RevenueReportRow(PERIOD_START.plusDays(day), (long) service + 1,
+                                SERVICES[service], STATUSES[status], contracts[day][service][status],
+                                sums[day][service][status]));
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Заглушка репозитория без Mockito: отвечает только на перечисленные методы.
+     * Mockito в форке JMH добавил бы к замерам свои перехватчики.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T repository(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer != null) {
+                return answer.apply(args);
+            }
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> type.getSimpleName() + " stub";
+                };
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private static BigDecimal amount(long id) {
+        return BigDecimal.valueOf(10_000 + (id % 90) * 1_000);
+    }
+}
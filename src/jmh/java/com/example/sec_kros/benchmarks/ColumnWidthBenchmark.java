@@ -0,0 +1,83 @@
+package com.example.sec_kros.benchmarks;
+
+import com.example.sec_kros.Services.ColumnWidthEstimator;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sheet.autoSizeColumn против ColumnWidthEstimator на листе отчета по договорам.
+ * Лист строится один раз, замеряется только подбор ширин всех колонок.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColumnWidthBenchmark {
+
+    private static final String[] HEADERS = {"ID договора", "Клиент", "Телефон", "Email", "Услуга",
+            "Дата начала", "Дата окончания", "Статус", "Дата создания"};
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    private XSSFWorkbook workbook;
+    private Sheet sheet;
+
+    @Setup(Level.Trial)
+    public void createSheet() {
+        workbook = new XSSFWorkbook();
+        sheet = workbook.createSheet("Отчет по договорам");
+
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < HEADERS.length; i++) {
+            header.createCell(i).setCellValue(HEADERS[i]);
+        }
+
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        for (int i = 1; i <= rows; i++) {
+            Row row = sheet.createRow(i);
+            row.createCell(0).setCellValue(i);
+            row.createCell(1).setCellValue("Клиентов" + i + " Иван");
+            row.createCell(2).setCellValue("+7999" + (1000000 + i));
+            row.createCell(3).setCellValue("client" + i + "@example.com");
+            row.createCell(4).setCellValue(i % 2 == 0 ? "Охрана офиса" : "Охрана склада");
+            row.createCell(5).setCellValue(start.plusDays(i % 365).toString());
+            row.createCell(6).setCellValue(start.plusDays(i % 365 + 30).toString());
+            row.createCell(7).setCellValue(i % 3 == 0 ? "inactive" : "active");
+            row.createCell(8).setCellValue(LocalDateTime.of(2024, 1, 1, 12, 0).plusMinutes(i).toString());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeWorkbook() throws IOException {
+        workbook.close();
+    }
+
+    @Benchmark
+    public int autoSizeColumn() {
+        for (int i = 0; i < HEADERS.length; i++) {
+            sheet.autoSizeColumn(i);
+        }
+        return sheet.getColumnWidth(1);
+    }
+
+    @Benchmark
+    public int widthEstimator() {
+        ColumnWidthEstimator estimator = new ColumnWidthEstimator(HEADERS.length);
+        estimator.measureHeader(sheet.getRow(0));
+        for (int i = 1; i <= rows; i++) {
+            estimator.measureRow(sheet.getRow(i));
+        }
+        estimator.apply(sheet);
+        return sheet.getColumnWidth(1);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.sec_kros.benchmarks;
+
+import com.example.sec_kros.DTO.GuardAvailability;
+import com.example.sec_kros.Entities.*;
+import com.example.sec_kros.Repositories.*;
+import com.example.sec_kros.Services.GuardAvailabilityService;
+import com.example.sec_kros.Services.RecurrenceRule;
+import com.example.sec_kros.Services.ShiftConflictIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GuardAvailabilityService.rankGuards на in-memory H2: подбор охранника на дневную смену
+ * на месяц вперед. Треть охранников работает по ежедневной серии 08:00-20:00, треть - отдельными
+ * ночными сменами через день, остальные свободны. Битсеты после первого вызова берутся из кэша,
+ * поэтому замеряется установившийся режим формы одобрения.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="GuardAvailabilityBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GuardAvailabilityBenchmark {
+
+    private static final int NIGHT_SHIFTS = 30;
+
+    @Param({"1000", "5000"})
+    private int guards;
+
+    private ConfigurableApplicationContext context;
+    private GuardAvailabilityService availabilityService;
+    private List<Employee> employees;
+    private LocalDate from;
+    private LocalDate to;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = H2BenchmarkContext.start();
+        availabilityService = context.getBean(GuardAvailabilityService.class);
+
+        Client client = new Client();
+        client.setLastName("Иванов");
+        client.setFirstName("Иван");
+        client.setPhone("+79991234567");
+        client.setEmail("bench-client@example.com");
+        client.setCreatedAt(LocalDateTime.now());
+        client = context.getBean(ClientRepository.class).save(client);
+
+        ServiceEntity service = new ServiceEntity();
+        service.setName("Охрана офиса");
+        service.setPrice(BigDecimal.valueOf(1000));
+        service = context.getBean(ServiceRepository.class).save(service);
+
+        Contract contract = new Contract();
+        contract.setClient(client);
+        contract.setService(service);
+        contract.setStartDate(LocalDate.now());
+        contract.setEndDate(LocalDate.now().plusYears(1));
+        contract.setTotalAmount(BigDecimal.valueOf(30000));
+        contract.setStatus("active");
+        contract.setCreatedAt(LocalDateTime.now());
+        contract = context.getBean(ContractRepository.class).save(contract);
+
+        GuardObject guardObject = new GuardObject();
+        guardObject.setClient(client);
+        guardObject.setContract(contract);
+        guardObject.setName("Склад");
+        guardObject.setAddress("ул. Ленина, 1");
+        guardObject = context.getBean(GuardObjectRepository.class).save(guardObject);
+
+        employees = new ArrayList<>(guards);
+        for (int i = 0; i < guards; i++) {
+            Employee employee = new Employee();
+            employee.setLastName("Охранников" + i);
+            employee.setFirstName("Петр");
+            employee.setPassportSeries(1000 + i % 9000);
+            employee.setPassportNumber(100000 + i);
+            employee.setPhone("+7998" + (1_000_000 + i));
+            employee.setEmail("guard" + i + "@example.com");
+            employee.setPosition("Охранник");
+            employees.add(employee);
+        }
+        employees = context.getBean(EmployeeRepository.class).saveAll(employees);
+
+        LocalDate today = LocalDate.now();
+        List<RecurringShift> series = new ArrayList<>();
+        List<Schedule> schedules = new ArrayList<>();
+        for (int i = 0; i < guards; i++) {
+            Employee employee = employees.get(i);
+            if (i % 3 == 0) {
+                RecurringShift shift = new RecurringShift();
+                shift.setEmployee(employee);
+                shift.setGuardObject(guardObject);
+                shift.setRecurrenceRule(RecurrenceRule.daily().toString());
+                shift.setStartDate(today.plusDays(i % 60));
+                shift.setEndDate(today.plusDays(i % 60 + 90));
+                shift.setStartTime(LocalTime.of(8, 0));
+                shift.setEndTime(LocalTime.of(20, 0));
+                shift.setCreatedAt(LocalDateTime.now());
+                series.add(shift);
+            } else if (i % 3 == 1) {
+                for (int n = 0; n < NIGHT_SHIFTS; n++) {
+                    Schedule schedule = new Schedule();
+                    schedule.setEmployee(employee);
+                    schedule.setGuardObject(guardObject);
+                    schedule.setDate(today.plusDays(2L * n + i % 2));
+                    schedule.setStartTime(LocalTime.of(20, 0));
+                    schedule.setEndTime(LocalTime.of(8, 0));
+                    schedules.add(schedule);
+                }
+            }
+        }
+        context.getBean(RecurringShiftRepository.class).saveAll(series);
+        context.getBean(ScheduleRepository.class).saveAll(schedules);
+        context.getBean(ShiftConflictIndex.class).rebuild();
+
+        from = today.plusDays(1);
+        to = today.plusDays(31);
+        // Первый вызов строит битсеты, дальше замеряется работа с кэшем
+        availabilityService.rankGuards(employees, from, to, LocalTime.of(8, 0), LocalTime.of(20, 0));
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<GuardAvailability> rankDayShift() {
+        return availabilityService.rankGuards(employees, from, to, LocalTime.of(8, 0), LocalTime.of(20, 0));
+    }
+
+    @Benchmark
+    public List<GuardAvailability> rankNightShift() {
+        return availabilityService.rankGuards(employees, from, to, LocalTime.of(20, 0), LocalTime.of(8, 0));
+    }
+}
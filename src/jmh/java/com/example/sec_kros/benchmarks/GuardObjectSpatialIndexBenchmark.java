@@ -0,0 +1,134 @@
+package com.example.sec_kros.benchmarks;
+
+import com.example.sec_kros.DTO.GuardObjectLocation;
+import com.example.sec_kros.DTO.MapMarker;
+import com.example.sec_kros.DTO.NearbyGuardObject;
+import com.example.sec_kros.Repositories.GuardObjectRepository;
+import com.example.sec_kros.Services.GuardObjectMapClusterer;
+import com.example.sec_kros.Services.GuardObjectSpatialIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GuardObjectSpatialIndex на синтетических объектах: 90% сосредоточены вокруг десятка городов,
+ * остальные разбросаны по европейской части России. Запросы - окно карты размером с район
+ * (~10 x 6 км) и 10 ближайших объектов к случайному городу. fullScan* - перебор всех объектов,
+ * как без индекса, для сравнения. clusters* - маркеры GuardObjectMapClusterer для всей страны
+ * (масштаб 4) и для города (масштаб 11) из закэшированных сеток.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="GuardObjectSpatialIndexBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class GuardObjectSpatialIndexBenchmark {
+
+    private static final double[][] CITIES = {
+            {55.7558, 37.6173}, {59.9343, 30.3351}, {56.8389, 60.6057}, {55.0084, 82.9357},
+            {56.3269, 44.0059}, {55.7887, 49.1221}, {53.1959, 50.1002}, {47.2357, 39.7015},
+            {54.7388, 55.9721}, {51.6608, 39.2003}
+    };
+
+    @Param({"10000", "100000"})
+    private int objects;
+
+    private GuardObjectSpatialIndex index;
+    private GuardObjectMapClusterer clusterer;
+    private List<GuardObjectLocation> all;
+
+    @Setup(Level.Trial)
+    public void buildIndex() {
+        Random random = new Random(42);
+        all = new ArrayList<>(objects);
+        for (long id = 1; id <= objects; id++) {
+            double latitude;
+            double longitude;
+            if (random.nextInt(10) < 9) {
+                double[] city = CITIES[random.nextInt(CITIES.length)];
+                latitude = city[0] + random.nextGaussian() * 0.15;
+                longitude = city[1] + random.nextGaussian() * 0.25;
+            } else {
+                latitude = 45 + random.nextDouble() * 15;
+                longitude = 30 + random.nextDouble() * 30;
+            }
+            all.add(new GuardObjectLocation(id, "Объект " + id, "ул. Ленина, " + id, latitude, longitude));
+        }
+
+        index = new GuardObjectSpatialIndex();
+        ReflectionTestUtils.setField(index, "guardObjectRepository",
+                BenchmarkData.repository(GuardObjectRepository.class, Map.of("findAllLocations", args -> all)));
+        index.rebuild();
+
+        clusterer = new GuardObjectMapClusterer();
+        ReflectionTestUtils.setField(clusterer, "spatialIndex", index);
+    }
+
+    @Benchmark
+    public List<GuardObjectLocation> boxQuery() {
+        double[] city = randomCity();
+        return index.findInBox(city[0] - 0.03, city[1] - 0.08, city[0] + 0.03, city[1] + 0.08);
+    }
+
+    @Benchmark
+    public List<NearbyGuardObject> nearest10() {
+        double[] city = randomCity();
+        return index.findNearest(city[0] + 0.01, city[1] - 0.01, 10);
+    }
+
+    @Benchmark
+    public List<MapMarker> clustersCountry() {
+        return clusterer.getMarkers(41, 19, 70, 90, 4);
+    }
+
+    @Benchmark
+    public List<MapMarker> clustersCity() {
+        double[] city = randomCity();
+        return clusterer.getMarkers(city[0] - 0.15, city[1] - 0.4, city[0] + 0.15, city[1] + 0.4, 11);
+    }
+
+    @Benchmark
+    public List<GuardObjectLocation> fullScanBoxQuery() {
+        double[] city = randomCity();
+        List<GuardObjectLocation> result = new ArrayList<>();
+        for (GuardObjectLocation location : all) {
+            if (Math.abs(location.getLatitude() - city[0]) <= 0.03
+                    && Math.abs(location.getLongitude() - city[1]) <= 0.08) {
+                result.add(location);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public PriorityQueue<NearbyGuardObject> fullScanNearest10() {
+        double[] city = randomCity();
+        PriorityQueue<NearbyGuardObject> nearest = new PriorityQueue<>(
+                (left, right) -> Double.compare(right.getDistanceKm(), left.getDistanceKm()));
+        for (GuardObjectLocation location : all) {
+            double distance = GuardObjectSpatialIndex.distanceKm(city[0] + 0.01, city[1] - 0.01,
+                    location.getLatitude(), location.getLongitude());
+            if (nearest.size() < 10) {
+                nearest.add(new NearbyGuardObject(location, distance));
+            } else if (distance < nearest.peek().getDistanceKm()) {
+                nearest.poll();
+                nearest.add(new NearbyGuardObject(location, distance));
+            }
+        }
+        return nearest;
+    }
+
+    private static double[] randomCity() {
+        return CITIES[ThreadLocalRandom.current().nextInt(CITIES.length)];
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.sec_kros.benchmarks;
+
+import com.example.sec_kros.Config.RosterSolverConfig;
+import com.example.sec_kros.Entities.Contract;
+import com.example.sec_kros.Repositories.ContractRepository;
+import com.example.sec_kros.Services.ContractService;
+import com.example.sec_kros.Services.CustomUserDetailsService;
+import com.example.sec_kros.Services.EmailService;
+import com.example.sec_kros.Services.GuardAvailabilityService;
+import com.example.sec_kros.Services.PrincipalLookupService;
+import com.example.sec_kros.Services.RevenueRollupService;
+import com.example.sec_kros.Services.RosterSolverService;
+import com.example.sec_kros.Services.ScheduleMaterializationMetrics;
+import com.example.sec_kros.Services.ScheduleService;
+import com.example.sec_kros.Services.ShiftConflictIndex;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Минимальный Spring-контекст на in-memory H2 для бенчмарков сервисного слоя:
+ * JPA, репозитории и только те сервисы, которые замеряются. Почта заменена заглушкой.
+ */
+final class H2BenchmarkContext {
+
+    private H2BenchmarkContext() {}
+
+    static ConfigurableApplicationContext start() {
+        // Аргументы командной строки перекрывают application.properties (PostgreSQL, лог-файл, show-sql)
+        return new SpringApplicationBuilder(BenchmarkConfig.class)
+                .run("--spring.main.web-application-type=none",
+                        "--spring.main.banner-mode=off",
+                        "--spring.datasource.url=jdbc:h2:mem:sec_kros_bench;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.file.name=",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.example.sec_kros=WARN");
+    }
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Contract.class)
+    @EnableJpaRepositories(basePackageClasses = ContractRepository.class)
+    @Import({ContractService.class, RevenueRollupService.class, ScheduleMaterializationMetrics.class,
+            ShiftConflictIndex.class, GuardAvailabilityService.class, CustomUserDetailsService.class,
+            PrincipalLookupService.class, ScheduleService.class, RosterSolverService.class, RosterSolverConfig.class})
+    static class BenchmarkConfig {
+
+        @Bean
+        @Primary
+        EmailService emailService() {
+            return new NoOpEmailService();
+        }
+    }
+
+    static class NoOpEmailService extends EmailService {
+
+        @Override
+        public void sendContractApprovalEmailToClient(String clientEmail, String clientName,
+                                                      String contractNumber, String startDate,
+                                                      String endDate, String guardObjectName,
+                                                      String address, String employeeName,
+                                                      String shiftTime) {
+        }
+
+        @Override
+        public void sendContractApprovalEmailToEmployee(String employeeEmail, String employeeName,
+                                                        String contractNumber, String clientName,
+                                                        String guardObjectName, String address,
+                                                        String shiftTime, String startDate,
+                                                        String endDate, String notes) {
+        }
+    }
+}
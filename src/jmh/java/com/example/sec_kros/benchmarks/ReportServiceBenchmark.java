@@ -0,0 +1,70 @@
+package com.example.sec_kros.benchmarks;
+
+import com.example.sec_kros.Repositories.ClientRepository;
+import com.example.sec_kros.Repositories.ContractRepository;
+import com.example.sec_kros.Repositories.RevenueRollupRepository;
+import com.example.sec_kros.Services.ReportService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Генерация трех Excel-отчетов на синтетических данных (1k / 100k / 1M договоров и клиентов).
+ * Репозитории подменены заглушками, поэтому замеряется только ReportService и POI:
+ * договоры и клиенты идут потоком через SXSSF, выручка читается из дневных агрегатов.
+ *
+ * Запуск с профилировщиком аллокаций:
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="ReportServiceBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class ReportServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public long contracts;
+
+    private final LocalDate startDate = BenchmarkData.PERIOD_START;
+    private final LocalDate endDate = BenchmarkData.PERIOD_START.plusDays(BenchmarkData.PERIOD_DAYS - 1);
+
+    private ReportService reportService;
+
+    @Setup(Level.Trial)
+    public void createService() {
+        reportService = new ReportService();
+
+        var revenueRows = BenchmarkData.revenueRollup(contracts);
+        ReflectionTestUtils.setField(reportService, "revenueRollupRepository",
+                BenchmarkData.repository(RevenueRollupRepository.class,
+                        Map.of("findReportRows", args -> revenueRows)));
+        ReflectionTestUtils.setField(reportService, "contractRepository",
+                BenchmarkData.repository(ContractRepository.class,
+                        Map.of("streamReportRows", args -> BenchmarkData.contractRows(contracts))));
+        ReflectionTestUtils.setField(reportService, "clientRepository",
+                BenchmarkData.repository(ClientRepository.class,
+                        Map.of("streamReportRows", args -> BenchmarkData.clientRows(contracts))));
+    }
+
+    @Benchmark
+    public void revenueReport() throws IOException {
+        reportService.writeRevenueReport(startDate, endDate, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void contractsReport() throws IOException {
+        reportService.writeContractsReport(startDate, endDate, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void clientsReport() throws IOException {
+        reportService.writeClientsReport(startDate, endDate, OutputStream.nullOutputStream());
+    }
+}
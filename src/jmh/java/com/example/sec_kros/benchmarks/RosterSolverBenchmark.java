@@ -0,0 +1,84 @@
+package com.example.sec_kros.benchmarks;
+
+import com.example.sec_kros.DTO.RosterPlan;
+import com.example.sec_kros.DTO.ShiftRequirement;
+import com.example.sec_kros.Entities.Employee;
+import com.example.sec_kros.Entities.GuardObject;
+import com.example.sec_kros.Services.RosterSolverService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RosterSolverService.solve: дневные смены на месяц для objects объектов, разбросанных
+ * по Москве и области, и 2.5 охранника на объект. Уже назначенных смен нет, поэтому
+ * замеряется сам планировщик без обращений к БД.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="RosterSolverBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RosterSolverBenchmark {
+
+    private static final int DAYS = 30;
+
+    @Param({"100", "300"})
+    private int objects;
+
+    private ConfigurableApplicationContext context;
+    private RosterSolverService rosterSolverService;
+    private List<ShiftRequirement> requirements;
+    private List<Employee> guards;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = H2BenchmarkContext.start();
+        rosterSolverService = context.getBean(RosterSolverService.class);
+
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDate start = LocalDate.now().plusDays(1);
+        requirements = new ArrayList<>(objects * DAYS);
+        for (int i = 0; i < objects; i++) {
+            GuardObject guardObject = new GuardObject();
+            guardObject.setId(1_000_000L + i);
+            guardObject.setName("Объект " + i);
+            guardObject.setLatitude(BigDecimal.valueOf(55.4 + random.nextDouble() * 0.8));
+            guardObject.setLongitude(BigDecimal.valueOf(37.0 + random.nextDouble() * 1.2));
+            for (int day = 0; day < DAYS; day++) {
+                requirements.add(new ShiftRequirement(guardObject, start.plusDays(day),
+                        LocalTime.of(8, 0), LocalTime.of(20, 0)));
+            }
+        }
+
+        guards = new ArrayList<>();
+        for (int i = 0; i < objects * 5 / 2; i++) {
+            Employee guard = new Employee();
+            guard.setId(1_000_000L + i);
+            guard.setLastName("Охранников" + i);
+            guard.setFirstName("Петр");
+            guard.setPosition("Охранник");
+            guards.add(guard);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public RosterPlan solveMonth() {
+        return rosterSolverService.solve(requirements, guards);
+    }
+}
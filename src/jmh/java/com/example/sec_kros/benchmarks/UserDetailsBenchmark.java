@@ -0,0 +1,101 @@
+package com.example.sec_kros.benchmarks;
+
+import com.example.sec_kros.Entities.Client;
+import com.example.sec_kros.Entities.Employee;
+import com.example.sec_kros.Repositories.ClientRepository;
+import com.example.sec_kros.Repositories.EmployeeRepository;
+import com.example.sec_kros.Services.CustomUserDetailsService;
+import com.example.sec_kros.Services.PrincipalLookupService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CustomUserDetailsService.loadUserByUsername на in-memory H2 с 10k клиентов и 200 сотрудников.
+ * Учетная запись ищется одним UNION-запросом и дальше берется из кэша PrincipalLookupService;
+ * uncachedClient сбрасывает кэш перед каждым вызовом и показывает стоимость самого запроса.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="UserDetailsBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UserDetailsBenchmark {
+
+    private static final int CLIENTS = 10_000;
+    private static final int EMPLOYEES = 200;
+
+    private ConfigurableApplicationContext context;
+    private CustomUserDetailsService userDetailsService;
+    private PrincipalLookupService principalLookupService;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = H2BenchmarkContext.start();
+        userDetailsService = context.getBean(CustomUserDetailsService.class);
+        principalLookupService = context.getBean(PrincipalLookupService.class);
+
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < EMPLOYEES; i++) {
+            Employee employee = new Employee();
+            employee.setLastName("Сотрудников" + i);
+            employee.setFirstName("Петр");
+            employee.setPassportSeries(1000 + i);
+            employee.setPassportNumber(100000 + i);
+            employee.setPhone("+7998" + (1_000_000 + i));
+            employee.setEmail("employee" + i + "@example.com");
+            employee.setPosition("Охранник");
+            employee.setPasswordHash("$2a$10$benchmarkbenchmarkbenchmarkbenchmarkbenchmarkbenchm");
+            employee.setIsAdmin(i == 0);
+            employees.add(employee);
+        }
+        context.getBean(EmployeeRepository.class).saveAll(employees);
+
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            Client client = new Client();
+            client.setLastName("Клиентов" + i);
+            client.setFirstName("Иван");
+            client.setPhone("+7999" + (1_000_000 + i));
+            client.setEmail("client" + i + "@example.com");
+            client.setPasswordHash("$2a$10$benchmarkbenchmarkbenchmarkbenchmarkbenchmarkbenchm");
+            client.setCreatedAt(LocalDateTime.now());
+            clients.add(client);
+        }
+        context.getBean(ClientRepository.class).saveAll(clients);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserDetails loadClient() {
+        int i = ThreadLocalRandom.current().nextInt(CLIENTS);
+        return userDetailsService.loadUserByUsername("client" + i + "@example.com");
+    }
+
+    @Benchmark
+    public UserDetails loadEmployee() {
+        int i = ThreadLocalRandom.current().nextInt(EMPLOYEES);
+        return userDetailsService.loadUserByUsername("employee" + i + "@example.com");
+    }
+
+    @Benchmark
+    public UserDetails uncachedClient() {
+        int i = ThreadLocalRandom.current().nextInt(CLIENTS);
+        String email = "client" + i + "@example.com";
+        principalLookupService.clientChanged(null, email);
+        return userDetailsService.loadUserByUsername(email);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.sec_kros.Config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.util.Map;
+
+/**
+ * Идентификаторы выдаются пулами из последовательностей (allocationSize = 50), чтобы Hibernate мог
+ * группировать INSERT в JDBC-батчи. В существующей базе строки созданы через IDENTITY, а новые
+ * последовательности после ddl-auto=update начинаются с 1 - сдвигаем их за текущий максимум id.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class IdSequenceInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdSequenceInitializer.class);
+
+    // Последовательность -> таблица, имена совпадают с @SequenceGenerator сущностей
+    private static final Map<String, String> SEQUENCES = Map.ofEntries(
+            Map.entry("clients_seq", "clients"),
+            Map.entry("contracts_seq", "contracts"),
+            Map.entry("device_tokens_seq", "device_tokens"),
+            Map.entry("employees_seq", "employees"),
+            Map.entry("guard_objects_seq", "guard_objects"),
+            Map.entry("notifications_seq", "notifications"),
+            Map.entry("recurring_shifts_seq", "recurring_shifts"),
+            Map.entry("reports_seq", "reports"),
+            Map.entry("revenue_daily_rollup_seq", "revenue_daily_rollup"),
+            Map.entry("schedules_seq", "schedules"),
+            Map.entry("services_seq", "services")
+    );
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void alignSequences() {
+        if (!isPostgreSql()) {
+            return;
+        }
+
+        SEQUENCES.forEach((sequence, table) -> {
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+            Long lastValue = jdbcTemplate.queryForObject("SELECT last_value FROM " + sequence, Long.class);
+            if (maxId != null && lastValue != null && maxId >= lastValue) {
+                // Следующий nextval вернет maxId + 50, пул Hibernate начнется с maxId + 1
+                jdbcTemplate.queryForObject("SELECT setval('" + sequence + "', ?)", Long.class, maxId);
+                logger.info("Sequence {} moved past existing ids of {} (max id {})", sequence, table, maxId);
+            }
+        });
+    }
+
+    private boolean isPostgreSql() {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return "PostgreSQL".equals(product);
+        } catch (MetaDataAccessException e) {
+            logger.warn("Could not detect database product, sequences are not aligned", e);
+            return false;
+        }
+    }
+}
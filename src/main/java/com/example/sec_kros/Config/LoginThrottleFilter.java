@@ -0,0 +1,38 @@
+package com.example.sec_kros.Config;
+
+import com.example.sec_kros.Services.LoginThrottleService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Стоит перед UsernamePasswordAuthenticationFilter: отклоненная попытка входа не доходит до проверки пароля.
+// За обратным прокси getRemoteAddr() - адрес клиента из X-Forwarded-For: его подставляет RemoteIpValve
+// Tomcat, и только для доверенных прокси (server.tomcat.remoteip.internal-proxies)
+// Не бин, чтобы Spring Boot не зарегистрировал его вторым экземпляром в цепочке фильтров сервлета
+public class LoginThrottleFilter extends OncePerRequestFilter {
+
+    private final LoginThrottleService loginThrottleService;
+
+    public LoginThrottleFilter(LoginThrottleService loginThrottleService) {
+        this.loginThrottleService = loginThrottleService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || !"/login".equals(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (!loginThrottleService.tryAcquire(request.getRemoteAddr(), request.getParameter("username"))) {
+            response.sendRedirect(request.getContextPath() + "/login?throttled=true");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.sec_kros.Config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class RosterSolverConfig {
+
+    // Отдельный fork/join-пул планировщика графика, чтобы расчет не занимал общий commonPool.
+    // 0 - по числу процессоров.
+    @Bean(name = "rosterPool", destroyMethod = "shutdown")
+    public ForkJoinPool rosterPool(@Value("${roster.solver.parallelism:0}") int parallelism) {
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.sec_kros.Config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Периодические фоновые задачи (сверка счетчиков панели администратора и т.п.)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -3,15 +3,16 @@ package com.example.sec_kros.Controllers;
 import com.example.sec_kros.Entities.*;
 import com.example.sec_kros.DTO.*;
 import com.example.sec_kros.Services.*;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -19,9 +20,13 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -32,6 +37,29 @@ public class AdminController {
 
     private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
 
+    private static final LocalTime DEFAULT_SHIFT_START = LocalTime.of(8, 0);
+    private static final LocalTime DEFAULT_SHIFT_END = LocalTime.of(20, 0);
+
+    // Покрытие объектов на дашборде: ближайшая неделя и первые окна без охраны
+    private static final int COVERAGE_DAYS = 7;
+    private static final int COVERAGE_GAPS_SHOWN = 10;
+
+    // Ограничения выдачи пространственного индекса для карты и поиска ближайших объектов
+    private static final int MAP_OBJECTS_LIMIT = 1000;
+    private static final int NEAREST_OBJECTS_MAX = 50;
+
+    // Страница серии показывает вхождения за четыре недели
+    private static final int SERIES_VIEW_WEEKS = 4;
+
+    // Правила повторения, доступные в форме создания серии
+    private static final Map<String, String> RECURRENCE_RULES = new LinkedHashMap<>();
+    static {
+        RECURRENCE_RULES.put("FREQ=DAILY", "Ежедневно");
+        RECURRENCE_RULES.put("FREQ=DAILY;INTERVAL=2", "Через день");
+        RECURRENCE_RULES.put("FREQ=WEEKLY;BYDAY=MO,TU,WE,TH,FR", "По будням");
+        RECURRENCE_RULES.put("FREQ=WEEKLY;BYDAY=SA,SU", "По выходным");
+    }
+
     @Autowired
     private ClientService clientService;
 
@@ -53,10 +81,48 @@ public class AdminController {
     @Autowired
     private ReportService reportService;
 
-    private Employee getCurrentEmployee() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        return employeeService.findByEmail(username);
+    @Autowired
+    private ReportJobService reportJobService;
+
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    @Autowired
+    private DashboardStatisticsService dashboardStatisticsService;
+
+    @Autowired
+    private ScheduleMaterializationMetrics scheduleMaterializationMetrics;
+
+    @Autowired
+    private PasswordHashingMetrics passwordHashingMetrics;
+
+    @Autowired
+    private LoginThrottleService loginThrottleService;
+
+    @Autowired
+    private GuardAvailabilityService guardAvailabilityService;
+
+    @Autowired
+    private RosterSolverService rosterSolverService;
+
+    @Autowired
+    private CoverageAnalysisService coverageAnalysisService;
+
+    @Autowired
+    private CalendarFeedService calendarFeedService;
+
+    @Autowired
+    private GuardObjectSpatialIndex guardObjectSpatialIndex;
+
+    @Autowired
+    private CustomUserDetailsService customUserDetailsService;
+
+    @Autowired
+    private GuardObjectMapClusterer guardObjectMapClusterer;
+
+    // Текущий администратор из SecurityContext: id, email и имя заполнены при входе, запроса к базе нет
+    private UserPrincipal getCurrentEmployee() {
+        return customUserDetailsService.getCurrentUser();
     }
 
     // ==================== ДАШБОРД ====================
@@ -65,28 +131,42 @@ public class AdminController {
     public String adminDashboard(Model model) {
         logger.info("Admin dashboard accessed");
 
-        Employee employee = getCurrentEmployee();
+        UserPrincipal employee = getCurrentEmployee();
         if (employee == null) {
             logger.warn("Attempt to access dashboard without authentication");
             return "redirect:/login";
         }
 
         try {
-            long clientsCount = clientService.getAllClients().size();
-            long employeesCount = employeeService.getAllEmployees().size();
-            long contractsCount = contractService.getAllContracts().size();
-            long objectsCount = guardObjectService.getAllGuardObjects().size();
-            long schedulesCount = scheduleService.getAllSchedules().size();
+            long clientsCount = dashboardStatisticsService.getClientsCount();
+            long employeesCount = dashboardStatisticsService.getEmployeesCount();
+            long contractsCount = dashboardStatisticsService.getContractsCount();
+            long objectsCount = dashboardStatisticsService.getObjectsCount();
+            // Графики - это и разовые смены, и повторяющиеся серии (вхождения серий строками не хранятся)
+            long recurringShiftsCount = dashboardStatisticsService.getRecurringShiftsCount();
+            long schedulesCount = dashboardStatisticsService.getSchedulesCount() + recurringShiftsCount;
 
             List<Contract> pendingContracts = contractService.getContractsByStatus("inactive");
 
+            LocalDate today = LocalDate.now();
+            BigDecimal monthRevenue = revenueRollupService.getTotalRevenue(today.withDayOfMonth(1), today);
+            BigDecimal yearRevenue = revenueRollupService.getTotalRevenue(today.withDayOfYear(1), today);
+
             model.addAttribute("employee", employee);
             model.addAttribute("clientsCount", clientsCount);
             model.addAttribute("employeesCount", employeesCount);
             model.addAttribute("contractsCount", contractsCount);
             model.addAttribute("objectsCount", objectsCount);
             model.addAttribute("schedulesCount", schedulesCount);
+            model.addAttribute("recurringShiftsCount", recurringShiftsCount);
             model.addAttribute("pendingContracts", pendingContracts);
+            model.addAttribute("monthRevenue", monthRevenue);
+            model.addAttribute("yearRevenue", yearRevenue);
+            model.addAttribute("scheduleMetrics", scheduleMaterializationMetrics);
+            model.addAttribute("hashingMetrics", passwordHashingMetrics);
+            model.addAttribute("loginThrottle", loginThrottleService);
+            model.addAttribute("coverage", coverageAnalysisService.getSummary(today, today.plusDays(COVERAGE_DAYS - 1),
+                    COVERAGE_GAPS_SHOWN));
 
             logger.info("Dashboard loaded successfully for admin: {}", employee.getEmail());
             return "admin/dashboard";
@@ -101,19 +181,22 @@ public class AdminController {
     // ==================== ОДОБРЕНИЕ КОНТРАКТОВ ====================
 
     @GetMapping("/contracts/approve/{id}")
-    public String showApproveContractForm(@PathVariable Long id, Model model) {
+    public String showApproveContractForm(@PathVariable Long id,
+                                          @ModelAttribute("approvalDTO") ContractApprovalDTO approvalDTO,
+                                          Model model) {
         logger.info("Showing approve contract form for contract ID: {}", id);
 
         try {
             Optional<Contract> contract = contractService.getContractById(id);
             if (contract.isPresent() && "inactive".equals(contract.get().getStatus())) {
-                List<Employee> securityEmployees = employeeService.getSecurityEmployees();
-                ValidationResult validationResult = contractService.validateContractForApproval(id);
-
-                model.addAttribute("contract", contract.get());
-                model.addAttribute("securityEmployees", securityEmployees);
-                model.addAttribute("approvalDTO", new ContractApprovalDTO());
-                model.addAttribute("validationResult", validationResult);
+                // Время смены по умолчанию - дневная смена; форма может запросить занятость для другого времени
+                if (approvalDTO.getShiftStartTime() == null) {
+                    approvalDTO.setShiftStartTime(DEFAULT_SHIFT_START);
+                }
+                if (approvalDTO.getShiftEndTime() == null) {
+                    approvalDTO.setShiftEndTime(DEFAULT_SHIFT_END);
+                }
+                addApprovalFormAttributes(model, contract.get(), approvalDTO);
 
                 logger.info("Approve contract form loaded successfully for contract ID: {}", id);
                 return "admin/contracts/approve";
@@ -134,7 +217,7 @@ public class AdminController {
                                   RedirectAttributes redirectAttributes,
                                   Model model) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to approve contract ID: {}",
                 currentEmployee.getEmail(), id);
 
@@ -147,12 +230,7 @@ public class AdminController {
 
         if (bindingResult.hasErrors()) {
             logger.warn("Validation errors in contract approval for contract ID: {}", id);
-            List<Employee> securityEmployees = employeeService.getSecurityEmployees();
-            ValidationResult validationResult = contractService.validateContractForApproval(id);
-
-            model.addAttribute("contract", contract.get());
-            model.addAttribute("securityEmployees", securityEmployees);
-            model.addAttribute("validationResult", validationResult);
+            addApprovalFormAttributes(model, contract.get(), approvalDTO);
 
             return "admin/contracts/approve";
         }
@@ -172,12 +250,7 @@ public class AdminController {
                     id, currentEmployee.getEmail(), e);
             redirectAttributes.addFlashAttribute("error", e.getMessage());
 
-            List<Employee> securityEmployees = employeeService.getSecurityEmployees();
-            ValidationResult validationResult = contractService.validateContractForApproval(id);
-
-            model.addAttribute("contract", contract.get());
-            model.addAttribute("securityEmployees", securityEmployees);
-            model.addAttribute("validationResult", validationResult);
+            addApprovalFormAttributes(model, contract.get(), approvalDTO);
             model.addAttribute("approvalDTO", approvalDTO);
 
             return "admin/contracts/approve";
@@ -186,15 +259,35 @@ public class AdminController {
         return "redirect:/admin/dashboard";
     }
 
+    // Охранники для формы одобрения ранжируются по занятости на период договора и выбранное время смены
+    private void addApprovalFormAttributes(Model model, Contract contract, ContractApprovalDTO approvalDTO) {
+        List<Employee> securityEmployees = employeeService.getSecurityEmployees();
+        List<GuardAvailability> guardAvailability = securityEmployees.stream()
+                .map(employee -> new GuardAvailability(employee, true, 0, null))
+                .toList();
+        if (approvalDTO.getShiftStartTime() != null && approvalDTO.getShiftEndTime() != null) {
+            guardAvailability = guardAvailabilityService.rankGuards(securityEmployees, contract.getStartDate(),
+                    contract.getEndDate(), approvalDTO.getShiftStartTime(), approvalDTO.getShiftEndTime());
+        }
+
+        model.addAttribute("contract", contract);
+        model.addAttribute("guardAvailability", guardAvailability);
+        model.addAttribute("validationResult", contractService.validateContractForApproval(contract.getId()));
+    }
+
     // ==================== КЛИЕНТЫ ====================
 
     @GetMapping("/clients")
-    public String clientsList(Model model) {
+    public String clientsList(@RequestParam(required = false) String cursor,
+                              @RequestParam(required = false) Integer size,
+                              Model model) {
         logger.info("Accessing clients list");
 
         try {
-            List<Client> clients = clientService.getAllClients();
+            KeysetPage<Client> page = clientService.getClientsPage(cursor, size);
+            List<Client> clients = page.getItems();
             model.addAttribute("clients", clients);
+            model.addAttribute("page", page);
             logger.info("Loaded {} clients", clients.size());
             return "admin/clients/list";
         } catch (Exception e) {
@@ -216,7 +309,7 @@ public class AdminController {
                                BindingResult bindingResult,
                                RedirectAttributes redirectAttributes) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to create client: {}",
                 currentEmployee.getEmail(), clientDTO.getEmail());
 
@@ -274,7 +367,7 @@ public class AdminController {
                                BindingResult bindingResult,
                                RedirectAttributes redirectAttributes) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to update client ID: {}",
                 currentEmployee.getEmail(), id);
 
@@ -303,7 +396,7 @@ public class AdminController {
     @PostMapping("/clients/delete/{id}")
     public String deleteClient(@PathVariable Long id, RedirectAttributes redirectAttributes) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to delete client ID: {}",
                 currentEmployee.getEmail(), id);
 
@@ -326,12 +419,20 @@ public class AdminController {
     // ==================== СОТРУДНИКИ ====================
 
     @GetMapping("/employees")
-    public String employeesList(Model model) {
+    public String employeesList(@RequestParam(required = false) String cursor,
+                                @RequestParam(required = false) Integer size,
+                                Model model) {
         logger.info("Accessing employees list");
 
         try {
-            List<Employee> employees = employeeService.getAllEmployees();
+            KeysetPage<Employee> page = employeeService.getEmployeesPage(cursor, size);
+            List<Employee> employees = page.getItems();
+            Map<Long, String> calendarLinks = new HashMap<>();
+            employees.forEach(employee -> calendarLinks.put(employee.getId(),
+                    calendarFeedService.getFeedPath(employee.getId())));
             model.addAttribute("employees", employees);
+            model.addAttribute("calendarLinks", calendarLinks);
+            model.addAttribute("page", page);
             logger.info("Loaded {} employees", employees.size());
             return "admin/employees/list";
         } catch (Exception e) {
@@ -346,7 +447,7 @@ public class AdminController {
                                  BindingResult bindingResult,
                                  RedirectAttributes redirectAttributes) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to create employee: {}",
                 currentEmployee.getEmail(), employeeDTO.getEmail());
 
@@ -385,7 +486,7 @@ public class AdminController {
                                  BindingResult bindingResult,
                                  RedirectAttributes redirectAttributes) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to update employee ID: {}",
                 currentEmployee.getEmail(), id);
 
@@ -414,7 +515,7 @@ public class AdminController {
     @PostMapping("/employees/delete/{id}")
     public String deleteEmployee(@PathVariable Long id, RedirectAttributes redirectAttributes) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to delete employee ID: {}",
                 currentEmployee.getEmail(), id);
 
@@ -437,12 +538,16 @@ public class AdminController {
     // ==================== ДОГОВОРЫ ====================
 
     @GetMapping("/contracts")
-    public String contractsList(Model model) {
+    public String contractsList(@RequestParam(required = false) String cursor,
+                                @RequestParam(required = false) Integer size,
+                                Model model) {
         logger.info("Accessing contracts list");
 
         try {
-            List<Contract> contracts = contractService.getAllContracts();
+            KeysetPage<Contract> page = contractService.getContractsPage(cursor, size);
+            List<Contract> contracts = page.getItems();
             model.addAttribute("contracts", contracts);
+            model.addAttribute("page", page);
             logger.info("Loaded {} contracts", contracts.size());
             return "admin/contracts/list";
         } catch (Exception e) {
@@ -458,7 +563,7 @@ public class AdminController {
                                  RedirectAttributes redirectAttributes,
                                  Model model) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to create contract for client ID: {}",
                 currentEmployee.getEmail(), contractDTO.getClientId());
 
@@ -495,7 +600,7 @@ public class AdminController {
                                  RedirectAttributes redirectAttributes,
                                  Model model) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to update contract ID: {}",
                 currentEmployee.getEmail(), id);
 
@@ -530,7 +635,7 @@ public class AdminController {
                                  @RequestParam(defaultValue = "false") boolean confirm,
                                  RedirectAttributes redirectAttributes) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to delete contract ID: {}",
                 currentEmployee.getEmail(), id);
 
@@ -559,18 +664,17 @@ public class AdminController {
     // ==================== ОХРАНЯЕМЫЕ ОБЪЕКТЫ ====================
 
     @GetMapping("/objects")
-    public String objectsList(Model model) {
+    public String objectsList(@RequestParam(required = false) String cursor,
+                              @RequestParam(required = false) Integer size,
+                              Model model) {
         logger.info("Accessing guard objects list");
 
         try {
-            List<GuardObject> objects = guardObjectService.getAllGuardObjects();
+            KeysetPage<GuardObject> page = guardObjectService.getGuardObjectsPage(cursor, size);
+            List<GuardObject> objects = page.getItems();
             model.addAttribute("objects", objects);
-
-            Map<Long, Boolean> canDelete = new HashMap<>();
-            for (GuardObject object : objects) {
-                canDelete.put(object.getId(), guardObjectService.canDeleteGuardObject(object.getId()));
-            }
-            model.addAttribute("canDelete", canDelete);
+            model.addAttribute("page", page);
+            model.addAttribute("canDelete", guardObjectService.getDeletableMap(objects));
 
             logger.info("Loaded {} guard objects", objects.size());
             return "admin/objects/list";
@@ -587,7 +691,7 @@ public class AdminController {
                                RedirectAttributes redirectAttributes,
                                Model model) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to create guard object: {}",
                 currentEmployee.getEmail(), guardObjectDTO.getName());
 
@@ -630,7 +734,7 @@ public class AdminController {
                                RedirectAttributes redirectAttributes,
                                Model model) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to update guard object ID: {}",
                 currentEmployee.getEmail(), id);
 
@@ -669,7 +773,7 @@ public class AdminController {
     @PostMapping("/objects/delete/{id}")
     public String deleteObject(@PathVariable Long id, RedirectAttributes redirectAttributes) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to delete guard object ID: {}",
                 currentEmployee.getEmail(), id);
 
@@ -698,6 +802,61 @@ public class AdminController {
         return "redirect:/admin/objects";
     }
 
+    // Объекты в видимой области карты
+    @GetMapping("/objects/map/in-box")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> guardObjectsInBox(@RequestParam double minLat,
+                                                                 @RequestParam double minLon,
+                                                                 @RequestParam double maxLat,
+                                                                 @RequestParam double maxLon) {
+        try {
+            List<GuardObjectLocation> found = guardObjectSpatialIndex.findInBox(minLat, minLon, maxLat, maxLon);
+            Map<String, Object> result = new HashMap<>();
+            result.put("total", found.size());
+            result.put("truncated", found.size() > MAP_OBJECTS_LIMIT);
+            result.put("objects", found.size() > MAP_OBJECTS_LIMIT ? found.subList(0, MAP_OBJECTS_LIMIT) : found);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid map area requested: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Маркеры карты для окна и масштаба: кластеры с количеством объектов, на крупном масштабе - сами объекты
+    @GetMapping("/objects/map/clusters")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> guardObjectMapClusters(@RequestParam double minLat,
+                                                                      @RequestParam double minLon,
+                                                                      @RequestParam double maxLat,
+                                                                      @RequestParam double maxLon,
+                                                                      @RequestParam int zoom) {
+        try {
+            List<MapMarker> markers = guardObjectMapClusterer.getMarkers(minLat, minLon, maxLat, maxLon, zoom);
+            Map<String, Object> result = new HashMap<>();
+            result.put("zoom", zoom);
+            result.put("total", markers.stream().mapToInt(MapMarker::getCount).sum());
+            result.put("truncated", markers.size() > MAP_OBJECTS_LIMIT);
+            result.put("markers", markers.size() > MAP_OBJECTS_LIMIT ? markers.subList(0, MAP_OBJECTS_LIMIT) : markers);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid map clusters request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Ближайшие к точке объекты с расстоянием в километрах
+    @GetMapping("/objects/nearest")
+    @ResponseBody
+    public ResponseEntity<List<NearbyGuardObject>> nearestGuardObjects(@RequestParam double lat,
+                                                                       @RequestParam double lon,
+                                                                       @RequestParam(defaultValue = "10") int k) {
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(guardObjectSpatialIndex.findNearest(lat, lon,
+                Math.max(0, Math.min(k, NEAREST_OBJECTS_MAX))));
+    }
+
     // ==================== УСЛУГИ ====================
 
     @GetMapping("/services")
@@ -721,7 +880,7 @@ public class AdminController {
                                 BindingResult bindingResult,
                                 RedirectAttributes redirectAttributes) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to create service: {}",
                 currentEmployee.getEmail(), serviceDTO.getName());
 
@@ -755,7 +914,7 @@ public class AdminController {
                                 BindingResult bindingResult,
                                 RedirectAttributes redirectAttributes) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to update service ID: {}",
                 currentEmployee.getEmail(), id);
 
@@ -796,7 +955,7 @@ public class AdminController {
     @PostMapping("/services/delete/{id}")
     public String deleteService(@PathVariable Long id, RedirectAttributes redirectAttributes) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to delete service ID: {}",
                 currentEmployee.getEmail(), id);
 
@@ -819,13 +978,27 @@ public class AdminController {
     // ==================== ГРАФИКИ РАБОТЫ ====================
 
     @GetMapping("/schedules")
-    public String schedulesList(Model model) {
-        logger.info("Accessing schedules list");
+    public String schedulesList(@RequestParam(required = false) LocalDate week,
+                                @RequestParam(required = false) String cursor,
+                                @RequestParam(required = false) Integer size,
+                                Model model) {
+        logger.info("Accessing schedules list for week of {}", week);
+
+        // По умолчанию - текущая неделя; любая дата приводится к понедельнику своей недели
+        LocalDate weekStart = ScheduleService.weekStart(week != null ? week : LocalDate.now());
+        LocalDate weekEnd = weekStart.plusDays(6);
+        model.addAttribute("weekStart", weekStart);
+        model.addAttribute("weekEnd", weekEnd);
+        model.addAttribute("previousWeek", weekStart.minusWeeks(1));
+        model.addAttribute("nextWeek", weekStart.plusWeeks(1));
+        model.addAttribute("currentWeek", ScheduleService.weekStart(LocalDate.now()));
 
         try {
-            List<Schedule> schedules = scheduleService.getAllSchedules();
+            KeysetPage<ShiftOccurrence> page = scheduleService.getSchedulesPage(weekStart, weekEnd, cursor, size);
+            List<ShiftOccurrence> schedules = page.getItems();
             model.addAttribute("schedules", schedules);
-            logger.info("Loaded {} schedules", schedules.size());
+            model.addAttribute("page", page);
+            logger.info("Loaded {} schedules for {} - {}", schedules.size(), weekStart, weekEnd);
             return "admin/schedules/list";
         } catch (Exception e) {
             logger.error("Error loading schedules list", e);
@@ -840,7 +1013,7 @@ public class AdminController {
                                  RedirectAttributes redirectAttributes,
                                  Model model) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to create schedule for employee ID: {} and object ID: {}",
                 currentEmployee.getEmail(), scheduleDTO.getEmployeeId(), scheduleDTO.getGuardObjectId());
 
@@ -878,7 +1051,7 @@ public class AdminController {
                                  RedirectAttributes redirectAttributes,
                                  Model model) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to update schedule ID: {}",
                 currentEmployee.getEmail(), id);
 
@@ -912,7 +1085,7 @@ public class AdminController {
     @PostMapping("/schedules/delete/{id}")
     public String deleteSchedule(@PathVariable Long id, RedirectAttributes redirectAttributes) {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} attempting to delete schedule ID: {}",
                 currentEmployee.getEmail(), id);
 
@@ -932,92 +1105,314 @@ public class AdminController {
         return "redirect:/admin/schedules";
     }
 
+    // ==================== ПОВТОРЯЮЩИЕСЯ СМЕНЫ ====================
+
+    @GetMapping("/schedules/series")
+    public String recurringShiftsList(@RequestParam(required = false) String cursor,
+                                      @RequestParam(required = false) Integer size,
+                                      Model model) {
+        logger.info("Accessing recurring shifts list");
+
+        try {
+            KeysetPage<RecurringShift> page = scheduleService.getRecurringShiftsPage(cursor, size);
+            model.addAttribute("recurringShifts", page.getItems());
+            model.addAttribute("page", page);
+            model.addAttribute("employees", employeeService.getAllEmployees());
+            model.addAttribute("guardObjects", guardObjectService.getAllGuardObjects());
+            model.addAttribute("rules", RECURRENCE_RULES);
+            if (!model.containsAttribute("scheduleDTO")) {
+                model.addAttribute("scheduleDTO", new ScheduleDTO());
+            }
+            return "admin/schedules/series/list";
+        } catch (Exception e) {
+            logger.error("Error loading recurring shifts list", e);
+            model.addAttribute("error", "Ошибка при загрузке списка повторяющихся смен");
+            return "admin/schedules/series/list";
+        }
+    }
+
+    @PostMapping("/schedules/series/create")
+    public String createRecurringShift(@Valid @ModelAttribute ScheduleDTO scheduleDTO,
+                                       BindingResult bindingResult,
+                                       @RequestParam String rule,
+                                       @RequestParam(required = false) LocalDate endDate,
+                                       RedirectAttributes redirectAttributes) {
+
+        UserPrincipal currentEmployee = getCurrentEmployee();
+        logger.info("Admin {} attempting to create recurring shift ({}) for employee ID: {} and object ID: {}",
+                currentEmployee.getEmail(), rule, scheduleDTO.getEmployeeId(), scheduleDTO.getGuardObjectId());
+
+        if (bindingResult.hasErrors()) {
+            logger.warn("Validation errors in recurring shift creation");
+            redirectAttributes.addFlashAttribute("error", "Заполните сотрудника, объект, дату начала и время смены");
+            redirectAttributes.addFlashAttribute("scheduleDTO", scheduleDTO);
+            return "redirect:/admin/schedules/series";
+        }
+
+        try {
+            RecurringShift created = scheduleService.createRecurringShift(scheduleDTO, rule, endDate);
+            logger.info("Recurring shift created successfully with ID: {}", created.getId());
+            redirectAttributes.addFlashAttribute("success", "Повторяющаяся смена создана");
+            return "redirect:/admin/schedules/series/" + created.getId();
+        } catch (RuntimeException e) {
+            logger.error("Error creating recurring shift", e);
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+            redirectAttributes.addFlashAttribute("scheduleDTO", scheduleDTO);
+            return "redirect:/admin/schedules/series";
+        }
+    }
+
+    @GetMapping("/schedules/series/{id}")
+    public String recurringShiftView(@PathVariable Long id,
+                                     @RequestParam(required = false) LocalDate from,
+                                     Model model,
+                                     RedirectAttributes redirectAttributes) {
+        logger.info("Accessing recurring shift ID: {} from {}", id, from);
+
+        Optional<RecurringShift> shift = scheduleService.getRecurringShiftById(id);
+        if (shift.isEmpty()) {
+            logger.warn("Recurring shift not found: {}", id);
+            redirectAttributes.addFlashAttribute("error", "Повторяющаяся смена не найдена");
+            return "redirect:/admin/schedules/series";
+        }
+
+        // По умолчанию - с текущей недели, а для еще не начавшейся серии - с недели ее начала
+        LocalDate startDate = shift.get().getStartDate();
+        LocalDate windowStart = ScheduleService.weekStart(from != null ? from
+                : (startDate.isAfter(LocalDate.now()) ? startDate : LocalDate.now()));
+        LocalDate windowEnd = windowStart.plusWeeks(SERIES_VIEW_WEEKS).minusDays(1);
+
+        model.addAttribute("shift", shift.get());
+        model.addAttribute("windowStart", windowStart);
+        model.addAttribute("windowEnd", windowEnd);
+        model.addAttribute("previousWindow", windowStart.minusWeeks(SERIES_VIEW_WEEKS));
+        model.addAttribute("nextWindow", windowStart.plusWeeks(SERIES_VIEW_WEEKS));
+        model.addAttribute("employees", employeeService.getAllEmployees());
+        try {
+            model.addAttribute("occurrences", scheduleService.getRecurringShiftOccurrences(id, windowStart, windowEnd));
+        } catch (RuntimeException e) {
+            logger.error("Error expanding recurring shift ID: {}", id, e);
+            model.addAttribute("error", "Ошибка при загрузке смен серии");
+        }
+        return "admin/schedules/series/view";
+    }
+
+    // Отменить одно вхождение серии (например, выходной по договоренности с клиентом)
+    @PostMapping("/schedules/series/{id}/skip")
+    public String skipOccurrence(@PathVariable Long id,
+                                 @RequestParam LocalDate date,
+                                 RedirectAttributes redirectAttributes) {
+
+        UserPrincipal currentEmployee = getCurrentEmployee();
+        logger.info("Admin {} skipping {} of recurring shift ID: {}", currentEmployee.getEmail(), date, id);
+
+        try {
+            scheduleService.addException(id, date);
+            redirectAttributes.addFlashAttribute("success", "Смена на " + date + " отменена");
+        } catch (RuntimeException e) {
+            logger.error("Error skipping {} of recurring shift ID: {}", date, id, e);
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+        }
+
+        return "redirect:/admin/schedules/series/" + id + "?from=" + date;
+    }
+
+    // Заменить одно вхождение серии: другой сотрудник, время или примечание на эту дату
+    @PostMapping("/schedules/series/{id}/override")
+    public String overrideOccurrence(@PathVariable Long id,
+                                     @ModelAttribute ScheduleDTO scheduleDTO,
+                                     RedirectAttributes redirectAttributes) {
+
+        UserPrincipal currentEmployee = getCurrentEmployee();
+        logger.info("Admin {} overriding {} of recurring shift ID: {} (employee ID: {})",
+                currentEmployee.getEmail(), scheduleDTO.getDate(), id, scheduleDTO.getEmployeeId());
+
+        if (scheduleDTO.getDate() == null || scheduleDTO.getEmployeeId() == null
+                || scheduleDTO.getStartTime() == null || scheduleDTO.getEndTime() == null) {
+            redirectAttributes.addFlashAttribute("error", "Укажите дату, сотрудника и время смены");
+            return "redirect:/admin/schedules/series/" + id;
+        }
+
+        try {
+            Schedule override = scheduleService.overrideOccurrence(id, scheduleDTO.getDate(), scheduleDTO);
+            logger.info("Occurrence {} of recurring shift ID: {} overridden by schedule ID: {}",
+                    scheduleDTO.getDate(), id, override.getId());
+            redirectAttributes.addFlashAttribute("success", "Смена на " + scheduleDTO.getDate() + " изменена");
+        } catch (RuntimeException e) {
+            logger.error("Error overriding {} of recurring shift ID: {}", scheduleDTO.getDate(), id, e);
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+        }
+
+        return "redirect:/admin/schedules/series/" + id + "?from=" + scheduleDTO.getDate();
+    }
+
+    @PostMapping("/schedules/series/{id}/delete")
+    public String deleteRecurringShift(@PathVariable Long id, RedirectAttributes redirectAttributes) {
+
+        UserPrincipal currentEmployee = getCurrentEmployee();
+        logger.info("Admin {} attempting to delete recurring shift ID: {}", currentEmployee.getEmail(), id);
+
+        try {
+            if (scheduleService.deleteRecurringShift(id)) {
+                logger.info("Recurring shift ID: {} deleted successfully", id);
+                redirectAttributes.addFlashAttribute("success", "Повторяющаяся смена удалена");
+            } else {
+                logger.warn("Recurring shift not found for deletion: {}", id);
+                redirectAttributes.addFlashAttribute("error", "Повторяющаяся смена не найдена");
+            }
+        } catch (Exception e) {
+            logger.error("Error deleting recurring shift ID: {}", id, e);
+            redirectAttributes.addFlashAttribute("error", "Ошибка при удалении повторяющейся смены");
+        }
+
+        return "redirect:/admin/schedules/series";
+    }
+
+    // ==================== АВТОМАТИЧЕСКИЙ ГРАФИК ====================
+
+    @GetMapping("/roster")
+    public String rosterPage(@RequestParam(required = false) LocalDate from,
+                             @RequestParam(required = false) LocalDate to,
+                             @RequestParam(required = false) LocalTime shiftStart,
+                             @RequestParam(required = false) LocalTime shiftEnd,
+                             Model model) {
+        logger.info("Accessing roster page for {} - {}", from, to);
+
+        // По умолчанию - месяц начиная с завтрашнего дня
+        LocalDate planFrom = from != null ? from : LocalDate.now().plusDays(1);
+        LocalDate planTo = to != null ? to : planFrom.plusMonths(1).minusDays(1);
+        LocalTime planStart = shiftStart != null ? shiftStart : DEFAULT_SHIFT_START;
+        LocalTime planEnd = shiftEnd != null ? shiftEnd : DEFAULT_SHIFT_END;
+        model.addAttribute("from", planFrom);
+        model.addAttribute("to", planTo);
+        model.addAttribute("shiftStart", planStart);
+        model.addAttribute("shiftEnd", planEnd);
+
+        // План считается только по кнопке, а не при каждом открытии страницы
+        if (from != null && to != null) {
+            try {
+                model.addAttribute("plan", rosterSolverService.planRoster(planFrom, planTo, planStart, planEnd));
+            } catch (RuntimeException e) {
+                logger.error("Error planning roster for {} - {}", planFrom, planTo, e);
+                model.addAttribute("error", e.getMessage());
+            }
+        }
+        return "admin/roster";
+    }
+
+    @PostMapping("/roster/apply")
+    public String applyRoster(@RequestParam LocalDate from,
+                              @RequestParam LocalDate to,
+                              @RequestParam LocalTime shiftStart,
+                              @RequestParam LocalTime shiftEnd,
+                              RedirectAttributes redirectAttributes) {
+
+        UserPrincipal currentEmployee = getCurrentEmployee();
+        logger.info("Admin {} applying roster for {} - {} ({} - {})",
+                currentEmployee.getEmail(), from, to, shiftStart, shiftEnd);
+
+        try {
+            List<Schedule> saved = rosterSolverService.applyRoster(from, to, shiftStart, shiftEnd);
+            redirectAttributes.addFlashAttribute("success", "Автоматический график сохранен, назначено смен: " + saved.size());
+        } catch (RuntimeException e) {
+            logger.error("Error applying roster for {} - {}", from, to, e);
+            redirectAttributes.addFlashAttribute("error", "Ошибка при сохранении графика: " + e.getMessage());
+        }
+
+        return "redirect:/admin/roster";
+    }
+
     // ==================== ОТЧЕТЫ ====================
 
     @PostMapping("/reports/revenue")
-    public ResponseEntity<byte[]> generateRevenueReport(@RequestParam LocalDate startDate,
-                                                        @RequestParam LocalDate endDate) {
+    public void generateRevenueReport(@RequestParam LocalDate startDate,
+                                      @RequestParam LocalDate endDate,
+                                      HttpServletResponse response) throws IOException {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} generating revenue report from {} to {}",
                 currentEmployee.getEmail(), startDate, endDate);
 
-        try {
-            byte[] excelBytes = reportService.generateRevenueReport(startDate, endDate);
-
-            String filename = String.format("revenue_report_%s_%s.xlsx",
-                    startDate, endDate);
+        String filename = String.format("revenue_report_%s_%s.xlsx",
+                startDate, endDate);
+        prepareExcelResponse(response, filename);
 
+        try {
+            reportService.writeRevenueReport(startDate, endDate, response.getOutputStream());
             logger.info("Revenue report generated successfully");
-            return ResponseEntity.ok()
-                    .header("Content-Disposition", "attachment; filename=" + filename)
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(excelBytes);
 
         } catch (IOException e) {
             logger.error("Error generating revenue report", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            sendReportError(response);
         } catch (Exception e) {
             logger.error("Unexpected error generating revenue report", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            sendReportError(response);
         }
     }
 
     @PostMapping("/reports/contracts")
-    public ResponseEntity<byte[]> generateContractsReport(@RequestParam LocalDate startDate,
-                                                          @RequestParam LocalDate endDate) {
+    public void generateContractsReport(@RequestParam LocalDate startDate,
+                                        @RequestParam LocalDate endDate,
+                                        HttpServletResponse response) throws IOException {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} generating contracts report from {} to {}",
                 currentEmployee.getEmail(), startDate, endDate);
 
-        try {
-            byte[] excelBytes = reportService.generateContractsReport(startDate, endDate);
-
-            String filename = String.format("contracts_report_%s_%s.xlsx",
-                    startDate, endDate);
+        String filename = String.format("contracts_report_%s_%s.xlsx",
+                startDate, endDate);
+        prepareExcelResponse(response, filename);
 
+        try {
+            reportService.writeContractsReport(startDate, endDate, response.getOutputStream());
             logger.info("Contracts report generated successfully");
-            return ResponseEntity.ok()
-                    .header("Content-Disposition", "attachment; filename=" + filename)
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(excelBytes);
 
         } catch (IOException e) {
             logger.error("Error generating contracts report", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            sendReportError(response);
         } catch (Exception e) {
             logger.error("Unexpected error generating contracts report", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            sendReportError(response);
         }
     }
 
     @PostMapping("/reports/clients")
-    public ResponseEntity<byte[]> generateClientsReport(@RequestParam LocalDate startDate,
-                                                        @RequestParam LocalDate endDate) {
+    public void generateClientsReport(@RequestParam LocalDate startDate,
+                                      @RequestParam LocalDate endDate,
+                                      HttpServletResponse response) throws IOException {
 
-        Employee currentEmployee = getCurrentEmployee();
+        UserPrincipal currentEmployee = getCurrentEmployee();
         logger.info("Admin {} generating clients report from {} to {}",
                 currentEmployee.getEmail(), startDate, endDate);
 
-        try {
-            byte[] excelBytes = reportService.generateClientsReport(startDate, endDate);
-
-            String filename = String.format("clients_report_%s_%s.xlsx",
-                    startDate, endDate);
+        String filename = String.format("clients_report_%s_%s.xlsx",
+                startDate, endDate);
+        prepareExcelResponse(response, filename);
 
+        try {
+            reportService.writeClientsReport(startDate, endDate, response.getOutputStream());
             logger.info("Clients report generated successfully");
-            return ResponseEntity.ok()
-                    .header("Content-Disposition", "attachment; filename=" + filename)
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(excelBytes);
 
         } catch (IOException e) {
             logger.error("Error generating clients report", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            sendReportError(response);
         } catch (Exception e) {
             logger.error("Unexpected error generating clients report", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            sendReportError(response);
+        }
+    }
+
+    // Отчет пишется прямо в ответ, поэтому заголовки выставляются до начала генерации
+    private void prepareExcelResponse(HttpServletResponse response, String filename) {
+        response.setHeader("Content-Disposition", "attachment; filename=" + filename);
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+    }
+
+    // Если часть файла уже ушла клиенту, статус изменить нельзя - остается только оборвать ответ
+    private void sendReportError(HttpServletResponse response) throws IOException {
+        if (!response.isCommitted()) {
+            response.reset();
+            response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value());
         }
     }
 
@@ -1025,16 +1420,91 @@ public class AdminController {
     public String reportsPage(Model model) {
         logger.info("Accessing reports page");
 
-        Employee employee = getCurrentEmployee();
+        UserPrincipal employee = getCurrentEmployee();
         if (employee == null) {
             logger.warn("Attempt to access reports page without authentication");
             return "redirect:/login";
         }
 
         model.addAttribute("employee", employee);
+        model.addAttribute("reportJobs", reportJobService.getRecentReports());
         return "admin/reports";
     }
 
+    @PostMapping("/reports/jobs")
+    public String submitReportJob(@RequestParam String reportType,
+                                  @RequestParam LocalDate startDate,
+                                  @RequestParam LocalDate endDate,
+                                  RedirectAttributes redirectAttributes) {
+
+        UserPrincipal currentEmployee = getCurrentEmployee();
+        logger.info("Admin {} queueing {} report from {} to {}",
+                currentEmployee.getEmail(), reportType, startDate, endDate);
+
+        try {
+            Report report = reportJobService.submitReport(reportType, startDate, endDate,
+                    employeeService.getReference(currentEmployee.getId()));
+            logger.info("Report job {} queued successfully", report.getId());
+            redirectAttributes.addFlashAttribute("success",
+                    "Отчет №" + report.getId() + " поставлен в очередь на формирование");
+        } catch (RuntimeException e) {
+            logger.error("Error queueing {} report", reportType, e);
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+        }
+
+        return "redirect:/admin/reports";
+    }
+
+    @PostMapping("/reports/revenue/rebuild")
+    public String rebuildRevenueRollup(RedirectAttributes redirectAttributes) {
+        logger.info("Admin {} requested revenue rollup rebuild", getCurrentEmployee().getEmail());
+
+        try {
+            int rows = revenueRollupService.rebuild();
+            redirectAttributes.addFlashAttribute("success", "Агрегаты выручки пересчитаны: " + rows + " строк");
+        } catch (RuntimeException e) {
+            logger.error("Error rebuilding revenue rollup", e);
+            redirectAttributes.addFlashAttribute("error", "Ошибка при пересчете агрегатов выручки");
+        }
+
+        return "redirect:/admin/reports";
+    }
+
+    @GetMapping("/reports/jobs/{id}/status")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getReportJobStatus(@PathVariable Long id) {
+        Optional<Report> report = reportJobService.getReport(id);
+        if (report.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Map<String, Object> status = new HashMap<>();
+        status.put("id", report.get().getId());
+        status.put("reportType", report.get().getReportType());
+        status.put("status", report.get().getStatus());
+        status.put("errorMessage", report.get().getErrorMessage());
+        status.put("createdAt", report.get().getCreatedAt());
+        status.put("completedAt", report.get().getCompletedAt());
+        return ResponseEntity.ok(status);
+    }
+
+    @GetMapping("/reports/jobs/{id}/download")
+    public ResponseEntity<Resource> downloadReportJob(@PathVariable Long id) {
+        UserPrincipal currentEmployee = getCurrentEmployee();
+        logger.info("Admin {} downloading report job {}", currentEmployee.getEmail(), id);
+
+        Optional<Path> file = reportJobService.getReportFile(id);
+        if (file.isEmpty()) {
+            logger.warn("Report file not available for job {}", id);
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok()
+                .header("Content-Disposition", "attachment; filename=" + file.get().getFileName())
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(new FileSystemResource(file.get()));
+    }
+
     // ==================== ОХРАНЯЕМЫЕ ОБЪЕКТЫ ====================
 
     @GetMapping("/objects/create")
@@ -1162,25 +1632,9 @@ public class AdminController {
         logger.info("Showing delete contract form for ID: {}", id);
 
         try {
-            Optional<Contract> contract = contractService.getContractById(id);
-            if (contract.isPresent()) {
-                Contract c = contract.get();
-
-                // Создаем объект с информацией об удалении
-                Map<String, Object> deletionInfo = new HashMap<>();
-                deletionInfo.put("contract", c);
-
-                // Получаем связанные объекты охраны
-                List<GuardObject> guardObjects = guardObjectService.getGuardObjectsByContractId(id);
-                deletionInfo.put("guardObjects", guardObjects);
-                deletionInfo.put("guardObjectsCount", guardObjects.size());
-
-                // Получаем связанные расписания
-                List<Schedule> schedules = scheduleService.getSchedulesByContractId(id);
-                deletionInfo.put("schedules", schedules);
-                deletionInfo.put("schedulesCount", schedules.size());
-
-                model.addAttribute("deletionInfo", deletionInfo);
+            if (contractService.getContractById(id).isPresent()) {
+                // Объекты охраны, разовые смены и повторяющиеся серии, которые удалятся вместе с договором
+                model.addAttribute("deletionInfo", contractService.getDeletionInfo(id));
 
                 logger.info("Delete contract form loaded for ID: {}", id);
                 return "admin/contracts/delete";
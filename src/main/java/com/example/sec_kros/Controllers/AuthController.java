@@ -3,6 +3,7 @@ package com.example.sec_kros.Controllers;
 import com.example.sec_kros.DTO.AuthResponse;
 import com.example.sec_kros.DTO.LoginRequest;
 import com.example.sec_kros.DTO.RegisterRequest;
+import com.example.sec_kros.DTO.UserPrincipal;
 import com.example.sec_kros.Services.AuthService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
@@ -41,7 +42,10 @@ public class AuthController {
         String email = authentication.getName();
         logger.debug("User authenticated: {}", email);
 
-        String userType = authService.determineUserType(email);
+        // Тип пользователя уже в принципале, заполненном при входе
+        String userType = authentication.getPrincipal() instanceof UserPrincipal principal
+                ? principal.getUserType()
+                : authService.determineUserType(email);
         logger.debug("User type determined: {} for email: {}", userType, email);
 
         if (userType != null) {
@@ -71,6 +75,14 @@ public class AuthController {
             logger.warn("Login page loaded with error parameter (invalid credentials attempt)");
             model.addAttribute("error", "Неверный email или пароль");
         }
+        if (request.getParameter("busy") != null) {
+            logger.warn("Login page loaded after rejected login (password hashing pool is full)");
+            model.addAttribute("error", "Сервер перегружен. Пожалуйста, повторите вход через минуту.");
+        }
+        if (request.getParameter("throttled") != null) {
+            logger.warn("Login page loaded after throttled login attempt from IP: {}", remoteAddr);
+            model.addAttribute("error", "Слишком много попыток входа. Подождите немного и попробуйте снова.");
+        }
         if (request.getParameter("logout") != null) {
             logger.info("Login page loaded after successful logout");
             model.addAttribute("success", "Вы успешно вышли из системы");
@@ -0,0 +1,55 @@
+package com.example.sec_kros.Controllers;
+
+import com.example.sec_kros.Services.CalendarFeedService;
+import com.example.sec_kros.Services.EmployeeService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+@Controller
+public class CalendarController {
+
+    private static final Logger logger = LoggerFactory.getLogger(CalendarController.class);
+
+    @Autowired
+    private CalendarFeedService calendarFeedService;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    // Лента открыта без входа в систему: доступ дает токен в ссылке
+    @GetMapping("/calendar/employees/{id}/{token}.ics")
+    public void employeeFeed(@PathVariable Long id, @PathVariable String token,
+                             ServletWebRequest request, HttpServletResponse response) throws IOException {
+        if (!calendarFeedService.isValidToken(id, token)) {
+            logger.warn("Calendar feed requested with invalid token for employee ID: {}", id);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        // Неизменившаяся лента - 304 без запросов к БД
+        CalendarFeedService.FeedVersion version = calendarFeedService.getVersion(id);
+        if (request.checkNotModified(version.getETag(), version.getLastModified())) {
+            return;
+        }
+        if (employeeService.getEmployeeById(id).isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setContentType("text/calendar");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"shifts-" + id + ".ics\"");
+        calendarFeedService.writeFeed(id, version, response.getWriter());
+    }
+}
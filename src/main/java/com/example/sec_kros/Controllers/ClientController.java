@@ -3,14 +3,13 @@ package com.example.sec_kros.Controllers;
 import com.example.sec_kros.DTO.ContractCreateDTO;
 import com.example.sec_kros.DTO.ContractDTO;
 import com.example.sec_kros.DTO.GuardObjectDTO;
+import com.example.sec_kros.DTO.UserPrincipal;
 import com.example.sec_kros.Entities.*;
 import com.example.sec_kros.Services.*;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -45,30 +44,30 @@ public class ClientController {
     @Autowired
     private ServiceService serviceService;
 
-    // Вспомогательный метод для получения текущего клиента
-    private Client getCurrentClient() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            logger.warn("Attempt to get current client without authentication");
-            return null;
-        }
-        String username = authentication.getName();
-        Client client = clientService.findByEmail(username);
+    @Autowired
+    private CustomUserDetailsService customUserDetailsService;
 
-        if (client == null) {
-            logger.warn("Client not found for email: {}", username);
-        } else {
-            logger.debug("Current client retrieved: {} (ID: {})", client.getEmail(), client.getId());
+    // Текущий клиент из SecurityContext: id, email и имя заполнены при входе, запроса к базе нет
+    private UserPrincipal getCurrentClient() {
+        UserPrincipal client = customUserDetailsService.getCurrentUser();
+        if (client == null || !client.isClient()) {
+            logger.warn("Attempt to get current client without client authentication");
+            return null;
         }
-
         return client;
     }
 
+    // Полная карточка клиента - только для страниц, где показываются телефон и адрес
+    private Client loadClient(UserPrincipal principal) {
+        return clientService.getClientById(principal.getId())
+                .orElseThrow(() -> new RuntimeException("Клиент не найден"));
+    }
+
     @GetMapping("/dashboard")
     public String clientDashboard(Model model) {
         logger.info("Client dashboard accessed");
 
-        Client client = getCurrentClient();
+        UserPrincipal client = getCurrentClient();
         if (client == null) {
             logger.warn("Unauthorized access to client dashboard");
             return "redirect:/login";
@@ -99,7 +98,7 @@ public class ClientController {
     public String clientNotifications(Model model) {
         logger.info("Client notifications page accessed");
 
-        Client client = getCurrentClient();
+        UserPrincipal client = getCurrentClient();
         if (client == null) {
             logger.warn("Unauthorized access to notifications");
             return "redirect:/login";
@@ -128,7 +127,7 @@ public class ClientController {
     public String clientContracts(Model model) {
         logger.info("Client contracts page accessed");
 
-        Client client = getCurrentClient();
+        UserPrincipal client = getCurrentClient();
         if (client == null) {
             logger.warn("Unauthorized access to contracts");
             return "redirect:/login";
@@ -157,7 +156,7 @@ public class ClientController {
     public String clientProfile(Model model) {
         logger.info("Client profile page accessed");
 
-        Client client = getCurrentClient();
+        UserPrincipal client = getCurrentClient();
         if (client == null) {
             logger.warn("Unauthorized access to profile");
             return "redirect:/login";
@@ -166,7 +165,7 @@ public class ClientController {
         try {
             List<Notification> unreadNotifications = notificationService.getUnreadNotificationsByClientId(client.getId());
 
-            model.addAttribute("client", client);
+            model.addAttribute("client", loadClient(client));
             model.addAttribute("unreadCount", unreadNotifications.size());
 
             logger.info("Profile loaded for client: {} (unread notifications: {})",
@@ -182,7 +181,7 @@ public class ClientController {
 
     @PostMapping("/notifications/mark-as-read/{id}")
     public String markNotificationAsRead(@PathVariable Long id, RedirectAttributes redirectAttributes) {
-        Client client = getCurrentClient();
+        UserPrincipal client = getCurrentClient();
         if (client == null) {
             logger.warn("Unauthorized attempt to mark notification as read");
             return "redirect:/login";
@@ -203,7 +202,7 @@ public class ClientController {
 
     @PostMapping("/notifications/mark-all-read")
     public String markAllNotificationsAsRead(RedirectAttributes redirectAttributes) {
-        Client client = getCurrentClient();
+        UserPrincipal client = getCurrentClient();
         if (client == null) {
             logger.warn("Unauthorized attempt to mark all notifications as read");
             return "redirect:/login";
@@ -224,7 +223,7 @@ public class ClientController {
 
     @PostMapping("/notifications/delete/{id}")
     public String deleteNotification(@PathVariable Long id, RedirectAttributes redirectAttributes) {
-        Client client = getCurrentClient();
+        UserPrincipal client = getCurrentClient();
         if (client == null) {
             logger.warn("Unauthorized attempt to delete notification");
             return "redirect:/login";
@@ -247,7 +246,7 @@ public class ClientController {
     public String showCreateObjectForm(Model model) {
         logger.info("Client create object form accessed");
 
-        Client client = getCurrentClient();
+        UserPrincipal client = getCurrentClient();
         if (client == null) {
             logger.warn("Unauthorized access to create object form");
             return "redirect:/login";
@@ -288,7 +287,7 @@ public class ClientController {
                                RedirectAttributes redirectAttributes,
                                Model model) {
 
-        Client client = getCurrentClient();
+        UserPrincipal client = getCurrentClient();
         if (client == null) {
             logger.warn("Unauthorized attempt to create object");
             return "redirect:/login";
@@ -363,7 +362,7 @@ public class ClientController {
     public String showEditObjectForm(@PathVariable Long id, Model model) {
         logger.info("Client edit object form accessed for object ID: {}", id);
 
-        Client client = getCurrentClient();
+        UserPrincipal client = getCurrentClient();
         if (client == null) {
             logger.warn("Unauthorized access to edit object form");
             return "redirect:/login";
@@ -424,7 +423,7 @@ public class ClientController {
                                RedirectAttributes redirectAttributes,
                                Model model) {
 
-        Client client = getCurrentClient();
+        UserPrincipal client = getCurrentClient();
         if (client == null) {
             logger.warn("Unauthorized attempt to update object");
             return "redirect:/login";
@@ -505,7 +504,7 @@ public class ClientController {
 
     @PostMapping("/objects/delete/{id}")
     public String deleteObject(@PathVariable Long id, RedirectAttributes redirectAttributes) {
-        Client client = getCurrentClient();
+        UserPrincipal client = getCurrentClient();
         if (client == null) {
             logger.warn("Unauthorized attempt to delete object");
             return "redirect:/login";
@@ -560,7 +559,7 @@ public class ClientController {
     public String clientObjects(Model model) {
         logger.info("Client objects page accessed");
 
-        Client client = getCurrentClient();
+        UserPrincipal client = getCurrentClient();
         if (client == null) {
             logger.warn("Unauthorized access to objects");
             return "redirect:/login";
@@ -582,10 +581,7 @@ public class ClientController {
                     .collect(Collectors.toList());
 
             // Создаем Map с информацией о возможности удаления для каждого объекта
-            Map<Long, Boolean> canDeleteMap = new HashMap<>();
-            for (GuardObject object : objects) {
-                canDeleteMap.put(object.getId(), guardObjectService.canDeleteGuardObject(object.getId()));
-            }
+            Map<Long, Boolean> canDeleteMap = guardObjectService.getDeletableMap(objects);
 
             model.addAttribute("client", client);
             model.addAttribute("objects", objects);
@@ -609,7 +605,7 @@ public class ClientController {
     public String showCreateContractForm(Model model) {
         logger.info("Client create contract form accessed");
 
-        Client client = getCurrentClient();
+        UserPrincipal client = getCurrentClient();
         if (client == null) {
             logger.warn("Unauthorized access to create contract form");
             return "redirect:/login";
@@ -619,7 +615,7 @@ public class ClientController {
             List<Notification> unreadNotifications = notificationService.getUnreadNotificationsByClientId(client.getId());
             List<ServiceEntity> services = serviceService.getAllServices();
 
-            model.addAttribute("client", client);
+            model.addAttribute("client", loadClient(client));
             model.addAttribute("unreadCount", unreadNotifications.size());
             model.addAttribute("services", services);
             model.addAttribute("contractCreateDTO", new ContractCreateDTO());
@@ -641,7 +637,7 @@ public class ClientController {
                                  RedirectAttributes redirectAttributes,
                                  Model model) {
 
-        Client client = getCurrentClient();
+        UserPrincipal client = getCurrentClient();
         if (client == null) {
             logger.warn("Unauthorized attempt to create contract");
             return "redirect:/login";
@@ -661,7 +657,7 @@ public class ClientController {
             List<Notification> unreadNotifications = notificationService.getUnreadNotificationsByClientId(client.getId());
             List<ServiceEntity> services = serviceService.getAllServices();
 
-            model.addAttribute("client", client);
+            model.addAttribute("client", loadClient(client));
             model.addAttribute("unreadCount", unreadNotifications.size());
             model.addAttribute("services", services);
             return "client/contracts-create";
@@ -0,0 +1,37 @@
+package com.example.sec_kros.DTO;
+
+import java.time.LocalDateTime;
+
+// Плоская строка отчета по клиентам (без хеша пароля и прочих лишних колонок)
+public class ClientReportRow {
+    private final Long id;
+    private final String lastName;
+    private final String firstName;
+    private final String patronymic;
+    private final String phone;
+    private final String email;
+    private final String address;
+    private final LocalDateTime createdAt;
+
+    public ClientReportRow(Long id, String lastName, String firstName, String patronymic,
+                           String phone, String email, String address, LocalDateTime createdAt) {
+        this.id = id;
+        this.lastName = lastName;
+        this.firstName = firstName;
+        this.patronymic = patronymic;
+        this.phone = phone;
+        this.email = email;
+        this.address = address;
+        this.createdAt = createdAt;
+    }
+
+    // Геттеры
+    public Long getId() { return id; }
+    public String getLastName() { return lastName; }
+    public String getFirstName() { return firstName; }
+    public String getPatronymic() { return patronymic; }
+    public String getPhone() { return phone; }
+    public String getEmail() { return email; }
+    public String getAddress() { return address; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
@@ -10,6 +10,7 @@ public class ContractDeletionInfo {
     private Contract contract;
     private int guardObjectsCount;
     private int schedulesCount;
+    private int recurringShiftsCount;
     private List<GuardObject> guardObjects;
     private List<Schedule> schedules;
 
@@ -38,6 +39,14 @@ public class ContractDeletionInfo {
         this.schedulesCount = schedulesCount;
     }
 
+    public int getRecurringShiftsCount() {
+        return recurringShiftsCount;
+    }
+
+    public void setRecurringShiftsCount(int recurringShiftsCount) {
+        this.recurringShiftsCount = recurringShiftsCount;
+    }
+
     public List<GuardObject> getGuardObjects() {
         return guardObjects;
     }
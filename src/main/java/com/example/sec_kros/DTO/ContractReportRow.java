@@ -0,0 +1,54 @@
+package com.example.sec_kros.DTO;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Плоская строка отчета по договорам: клиент и услуга подтягиваются одним JOIN-запросом
+public class ContractReportRow {
+    private final Long id;
+    private final String clientLastName;
+    private final String clientFirstName;
+    private final String clientPhone;
+    private final String clientEmail;
+    private final String serviceName;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final BigDecimal totalAmount;
+    private final String status;
+    private final LocalDateTime createdAt;
+
+    public ContractReportRow(Long id, String clientLastName, String clientFirstName,
+                             String clientPhone, String clientEmail, String serviceName,
+                             LocalDate startDate, LocalDate endDate, BigDecimal totalAmount,
+                             String status, LocalDateTime createdAt) {
+        this.id = id;
+        this.clientLastName = clientLastName;
+        this.clientFirstName = clientFirstName;
+        this.clientPhone = clientPhone;
+        this.clientEmail = clientEmail;
+        this.serviceName = serviceName;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.totalAmount = totalAmount;
+        this.status = status;
+        this.createdAt = createdAt;
+    }
+
+    // Геттеры
+    public Long getId() { return id; }
+    public String getClientLastName() { return clientLastName; }
+    public String getClientFirstName() { return clientFirstName; }
+    public String getClientPhone() { return clientPhone; }
+    public String getClientEmail() { return clientEmail; }
+    public String getServiceName() { return serviceName; }
+    public LocalDate getStartDate() { return startDate; }
+    public LocalDate getEndDate() { return endDate; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public String getStatus() { return status; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public String getClientName() {
+        return clientLastName + " " + clientFirstName;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.sec_kros.DTO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Итоги анализа покрытия объектов действующих договоров за период
+ * и самые ранние окна без охраны (для дашборда).
+ */
+public class CoverageSummary {
+    private final LocalDate from;
+    private final LocalDate to;
+    private final int objectsChecked;
+    private final int objectsWithGaps;
+    private final long uncoveredWindows;
+    private final long uncoveredMinutes;
+    private final long doubleBookedWindows;
+    private final long doubleBookedMinutes;
+    private final List<CoverageWindow> earliestGaps;
+
+    public CoverageSummary(LocalDate from, LocalDate to, int objectsChecked, int objectsWithGaps,
+                           long uncoveredWindows, long uncoveredMinutes,
+                           long doubleBookedWindows, long doubleBookedMinutes,
+                           List<CoverageWindow> earliestGaps) {
+        this.from = from;
+        this.to = to;
+        this.objectsChecked = objectsChecked;
+        this.objectsWithGaps = objectsWithGaps;
+        this.uncoveredWindows = uncoveredWindows;
+        this.uncoveredMinutes = uncoveredMinutes;
+        this.doubleBookedWindows = doubleBookedWindows;
+        this.doubleBookedMinutes = doubleBookedMinutes;
+        this.earliestGaps = earliestGaps;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public int getObjectsChecked() {
+        return objectsChecked;
+    }
+
+    public int getObjectsWithGaps() {
+        return objectsWithGaps;
+    }
+
+    public long getUncoveredWindows() {
+        return uncoveredWindows;
+    }
+
+    public long getUncoveredMinutes() {
+        return uncoveredMinutes;
+    }
+
+    public long getUncoveredHours() {
+        return uncoveredMinutes / 60;
+    }
+
+    public long getDoubleBookedWindows() {
+        return doubleBookedWindows;
+    }
+
+    public long getDoubleBookedMinutes() {
+        return doubleBookedMinutes;
+    }
+
+    public long getDoubleBookedHours() {
+        return doubleBookedMinutes / 60;
+    }
+
+    public List<CoverageWindow> getEarliestGaps() {
+        return earliestGaps;
+    }
+
+    public boolean isFullyCovered() {
+        return uncoveredWindows == 0;
+    }
+}
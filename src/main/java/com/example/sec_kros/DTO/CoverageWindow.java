@@ -0,0 +1,52 @@
+package com.example.sec_kros.DTO;
+
+import com.example.sec_kros.Entities.GuardObject;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Окно анализа покрытия объекта: время без охраны (uncovered) или время,
+ * на которое на объект назначено больше одного охранника (double_booked).
+ */
+public class CoverageWindow {
+
+    public static final String TYPE_UNCOVERED = "uncovered";
+    public static final String TYPE_DOUBLE_BOOKED = "double_booked";
+
+    private final GuardObject guardObject;
+    private final String type;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+
+    public CoverageWindow(GuardObject guardObject, String type, LocalDateTime start, LocalDateTime end) {
+        this.guardObject = guardObject;
+        this.type = type;
+        this.start = start;
+        this.end = end;
+    }
+
+    public GuardObject getGuardObject() {
+        return guardObject;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public boolean isUncovered() {
+        return TYPE_UNCOVERED.equals(type);
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    public long getMinutes() {
+        return Duration.between(start, end).toMinutes();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.sec_kros.DTO;
+
+import com.example.sec_kros.Entities.Employee;
+
+import java.time.LocalDate;
+
+/**
+ * Занятость охранника на период договора и время смены: свободен ли он во все дни периода
+ * и сколько часов у него уже запланировано в этом периоде.
+ */
+public class GuardAvailability {
+    private final Employee employee;
+    private final boolean free;
+    private final long loadMinutes;
+    private final LocalDate firstConflictDate;
+
+    public GuardAvailability(Employee employee, boolean free, long loadMinutes, LocalDate firstConflictDate) {
+        this.employee = employee;
+        this.free = free;
+        this.loadMinutes = loadMinutes;
+        this.firstConflictDate = firstConflictDate;
+    }
+
+    public Employee getEmployee() {
+        return employee;
+    }
+
+    public boolean isFree() {
+        return free;
+    }
+
+    public long getLoadMinutes() {
+        return loadMinutes;
+    }
+
+    public long getLoadHours() {
+        return loadMinutes / 60;
+    }
+
+    // Первый день периода, в который смена пересекается с уже назначенной; null - если свободен
+    public LocalDate getFirstConflictDate() {
+        return firstConflictDate;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.sec_kros.DTO;
+
+import com.example.sec_kros.Entities.GuardObject;
+
+import java.math.BigDecimal;
+
+/**
+ * Точка объекта охраны в пространственном индексе: только то, что нужно карте и поиску ближайших.
+ */
+public class GuardObjectLocation {
+    private final Long id;
+    private final String name;
+    private final String address;
+    private final double latitude;
+    private final double longitude;
+
+    public GuardObjectLocation(Long id, String name, String address, double latitude, double longitude) {
+        this.id = id;
+        this.name = name;
+        this.address = address;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    // Конструктор для JPQL-выборки при прогреве индекса
+    public GuardObjectLocation(Long id, String name, String address, BigDecimal latitude, BigDecimal longitude) {
+        this(id, name, address, latitude.doubleValue(), longitude.doubleValue());
+    }
+
+    // null, если у объекта не заданы координаты
+    public static GuardObjectLocation of(GuardObject guardObject) {
+        if (guardObject.getLatitude() == null || guardObject.getLongitude() == null) {
+            return null;
+        }
+        return new GuardObjectLocation(guardObject.getId(), guardObject.getName(), guardObject.getAddress(),
+                guardObject.getLatitude(), guardObject.getLongitude());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+}
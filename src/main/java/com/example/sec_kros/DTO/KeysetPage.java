@@ -0,0 +1,83 @@
+package com.example.sec_kros.DTO;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница списка при keyset-пагинации. Вместо номера страницы используется курсор - ключ сортировки
+ * последней показанной строки, следующая страница читается условием "после курсора" по индексу,
+ * поэтому стоимость запроса не зависит от того, насколько далеко пролистан список.
+ */
+public class KeysetPage<T> {
+
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAX_SIZE = 200;
+
+    private final List<T> items;
+    private final String cursor;
+    private final String nextCursor;
+    private final int size;
+
+    public KeysetPage(List<T> items, String cursor, String nextCursor, int size) {
+        this.items = items;
+        this.cursor = cursor;
+        this.nextCursor = nextCursor;
+        this.size = size;
+    }
+
+    /**
+     * Собирает страницу из выборки размером size + 1: лишняя строка только показывает,
+     * что дальше есть данные, и в страницу не попадает.
+     */
+    public static <T> KeysetPage<T> of(List<T> fetched, String cursor, int size, Function<T, String> cursorOf) {
+        if (fetched.size() > size) {
+            List<T> items = fetched.subList(0, size);
+            return new KeysetPage<>(items, cursor, cursorOf.apply(items.get(size - 1)), size);
+        }
+        return new KeysetPage<>(fetched, cursor, null, size);
+    }
+
+    // Размер страницы из запроса, ограниченный сверху
+    public static int normalizeSize(Integer size) {
+        if (size == null || size <= 0) {
+            return DEFAULT_SIZE;
+        }
+        return Math.min(size, MAX_SIZE);
+    }
+
+    // Курсор списков, отсортированных только по id
+    public static Long parseIdCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(cursor.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный курсор страницы: " + cursor);
+        }
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean isFirst() {
+        return cursor == null;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.sec_kros.DTO;
+
+/**
+ * Маркер карты объектов: кластер из нескольких объектов (count > 1, object == null) в центре масс
+ * своей ячейки или одиночный объект в его координатах.
+ */
+public class MapMarker {
+    private final double latitude;
+    private final double longitude;
+    private final int count;
+    private final GuardObjectLocation object;
+
+    public MapMarker(double latitude, double longitude, int count, GuardObjectLocation object) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.count = count;
+        this.object = object;
+    }
+
+    public static MapMarker of(GuardObjectLocation object) {
+        return new MapMarker(object.getLatitude(), object.getLongitude(), 1, object);
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public GuardObjectLocation getObject() {
+        return object;
+    }
+
+    public boolean isCluster() {
+        return object == null;
+    }
+}
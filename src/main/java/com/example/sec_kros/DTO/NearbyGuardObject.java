@@ -0,0 +1,22 @@
+package com.example.sec_kros.DTO;
+
+/**
+ * Результат поиска ближайших объектов: объект и расстояние до точки запроса по дуге большого круга.
+ */
+public class NearbyGuardObject {
+    private final GuardObjectLocation location;
+    private final double distanceKm;
+
+    public NearbyGuardObject(GuardObjectLocation location, double distanceKm) {
+        this.location = location;
+        this.distanceKm = distanceKm;
+    }
+
+    public GuardObjectLocation getLocation() {
+        return location;
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.sec_kros.DTO;
+
+/**
+ * Строка общего поиска учетной записи по email среди сотрудников и клиентов (нативный UNION-запрос).
+ * role - тип пользователя: admin, employee или client.
+ */
+public interface PrincipalRow {
+    Long getId();
+    String getEmail();
+    String getPassword();
+    String getRole();
+    String getFirstName();
+    String getLastName();
+}
@@ -0,0 +1,32 @@
+package com.example.sec_kros.DTO;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Агрегированная строка выручки: день x услуга x статус
+public class RevenueReportRow {
+    private final LocalDate revenueDate;
+    private final Long serviceId;
+    private final String serviceName;
+    private final String status;
+    private final long contractsCount;
+    private final BigDecimal totalAmount;
+
+    public RevenueReportRow(LocalDate revenueDate, Long serviceId, String serviceName, String status,
+                            Long contractsCount, BigDecimal totalAmount) {
+        this.revenueDate = revenueDate;
+        this.serviceId = serviceId;
+        this.serviceName = serviceName;
+        this.status = status;
+        this.contractsCount = contractsCount != null ? contractsCount : 0L;
+        this.totalAmount = totalAmount != null ? totalAmount : BigDecimal.ZERO;
+    }
+
+    // Геттеры
+    public LocalDate getRevenueDate() { return revenueDate; }
+    public Long getServiceId() { return serviceId; }
+    public String getServiceName() { return serviceName; }
+    public String getStatus() { return status; }
+    public long getContractsCount() { return contractsCount; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+}
@@ -0,0 +1,30 @@
+package com.example.sec_kros.DTO;
+
+import com.example.sec_kros.Entities.Employee;
+
+/**
+ * Охранник, назначенный планировщиком на смену, и сколько километров переезда добавила эта смена.
+ */
+public class RosterAssignment {
+    private final ShiftRequirement requirement;
+    private final Employee employee;
+    private final double travelKm;
+
+    public RosterAssignment(ShiftRequirement requirement, Employee employee, double travelKm) {
+        this.requirement = requirement;
+        this.employee = employee;
+        this.travelKm = travelKm;
+    }
+
+    public ShiftRequirement getRequirement() {
+        return requirement;
+    }
+
+    public Employee getEmployee() {
+        return employee;
+    }
+
+    public double getTravelKm() {
+        return travelKm;
+    }
+}
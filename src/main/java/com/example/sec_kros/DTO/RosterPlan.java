@@ -0,0 +1,105 @@
+package com.example.sec_kros.DTO;
+
+import com.example.sec_kros.Entities.Employee;
+
+import java.util.List;
+
+/**
+ * Результат автоматического планирования графика: назначения, смены без охранника
+ * и добавленные планом сверхурочные и переезды (с разбивкой по охранникам).
+ */
+public class RosterPlan {
+    private final List<RosterAssignment> assignments;
+    private final List<ShiftRequirement> unassigned;
+    private final List<GuardLoad> guardLoads;
+    private final long overtimeMinutes;
+    private final double travelKm;
+    private final double cost;
+
+    public RosterPlan(List<RosterAssignment> assignments, List<ShiftRequirement> unassigned,
+                      List<GuardLoad> guardLoads, long overtimeMinutes, double travelKm, double cost) {
+        this.assignments = assignments;
+        this.unassigned = unassigned;
+        this.guardLoads = guardLoads;
+        this.overtimeMinutes = overtimeMinutes;
+        this.travelKm = travelKm;
+        this.cost = cost;
+    }
+
+    public List<RosterAssignment> getAssignments() {
+        return assignments;
+    }
+
+    public List<ShiftRequirement> getUnassigned() {
+        return unassigned;
+    }
+
+    // Только охранники, получившие хотя бы одну смену
+    public List<GuardLoad> getGuardLoads() {
+        return guardLoads;
+    }
+
+    public long getOvertimeMinutes() {
+        return overtimeMinutes;
+    }
+
+    public long getOvertimeHours() {
+        return overtimeMinutes / 60;
+    }
+
+    public double getTravelKm() {
+        return travelKm;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    public int getRequirementsCount() {
+        return assignments.size() + unassigned.size();
+    }
+
+    public static class GuardLoad {
+        private final Employee employee;
+        private final int shifts;
+        private final long minutes;
+        private final long overtimeMinutes;
+        private final double travelKm;
+
+        public GuardLoad(Employee employee, int shifts, long minutes, long overtimeMinutes, double travelKm) {
+            this.employee = employee;
+            this.shifts = shifts;
+            this.minutes = minutes;
+            this.overtimeMinutes = overtimeMinutes;
+            this.travelKm = travelKm;
+        }
+
+        public Employee getEmployee() {
+            return employee;
+        }
+
+        public int getShifts() {
+            return shifts;
+        }
+
+        public long getHours() {
+            return minutes / 60;
+        }
+
+        public long getMinutes() {
+            return minutes;
+        }
+
+        public long getOvertimeMinutes() {
+            return overtimeMinutes;
+        }
+
+        public long getOvertimeHours() {
+            return overtimeMinutes / 60;
+        }
+
+        public double getTravelKm() {
+            return travelKm;
+        }
+    }
+}
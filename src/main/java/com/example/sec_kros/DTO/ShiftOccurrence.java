@@ -0,0 +1,100 @@
+package com.example.sec_kros.DTO;
+
+import com.example.sec_kros.Entities.Employee;
+import com.example.sec_kros.Entities.GuardObject;
+import com.example.sec_kros.Entities.RecurringShift;
+import com.example.sec_kros.Entities.Schedule;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Смена на конкретную дату: либо строка Schedule (разовая или измененное вхождение серии),
+ * либо вычисленное вхождение повторяющейся смены, которое в БД не хранится.
+ */
+public class ShiftOccurrence {
+    private final LocalDate date;
+    private final LocalTime startTime;
+    private final LocalTime endTime;
+    private final Employee employee;
+    private final GuardObject guardObject;
+    private final String notes;
+    private final Long scheduleId;
+    private final Long recurringShiftId;
+
+    public ShiftOccurrence(LocalDate date, LocalTime startTime, LocalTime endTime, Employee employee,
+                           GuardObject guardObject, String notes, Long scheduleId, Long recurringShiftId) {
+        this.date = date;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.employee = employee;
+        this.guardObject = guardObject;
+        this.notes = notes;
+        this.scheduleId = scheduleId;
+        this.recurringShiftId = recurringShiftId;
+    }
+
+    public static ShiftOccurrence of(Schedule schedule) {
+        Long recurringShiftId = schedule.getRecurringShift() != null ? schedule.getRecurringShift().getId() : null;
+        return new ShiftOccurrence(schedule.getDate(), schedule.getStartTime(), schedule.getEndTime(),
+                schedule.getEmployee(), schedule.getGuardObject(), schedule.getNotes(),
+                schedule.getId(), recurringShiftId);
+    }
+
+    public static ShiftOccurrence of(RecurringShift shift, LocalDate date) {
+        return new ShiftOccurrence(date, shift.getStartTime(), shift.getEndTime(), shift.getEmployee(),
+                shift.getGuardObject(), shift.getNotes(), null, shift.getId());
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public LocalTime getStartTime() {
+        return startTime;
+    }
+
+    public LocalTime getEndTime() {
+        return endTime;
+    }
+
+    public Employee getEmployee() {
+        return employee;
+    }
+
+    public GuardObject getGuardObject() {
+        return guardObject;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public Long getScheduleId() {
+        return scheduleId;
+    }
+
+    public Long getRecurringShiftId() {
+        return recurringShiftId;
+    }
+
+    // Вычисленное вхождение серии, а не строка Schedule
+    public boolean isRecurring() {
+        return scheduleId == null;
+    }
+
+    // Измененное вхождение серии, хранящееся строкой Schedule
+    public boolean isOverride() {
+        return scheduleId != null && recurringShiftId != null;
+    }
+
+    public LocalDateTime getStart() {
+        return date.atTime(startTime);
+    }
+
+    // Ночная смена (окончание не позже начала) заканчивается на следующий день
+    public LocalDateTime getEnd() {
+        return ShiftSlot.endOf(date, startTime, endTime);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.sec_kros.DTO;
+
+import com.example.sec_kros.Entities.GuardObject;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Смена на объекте, которую нужно закрыть охранником при автоматическом планировании графика.
+ */
+public class ShiftRequirement {
+    private final GuardObject guardObject;
+    private final LocalDate date;
+    private final LocalTime startTime;
+    private final LocalTime endTime;
+
+    public ShiftRequirement(GuardObject guardObject, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        this.guardObject = guardObject;
+        this.date = date;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    public GuardObject getGuardObject() {
+        return guardObject;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public LocalTime getStartTime() {
+        return startTime;
+    }
+
+    public LocalTime getEndTime() {
+        return endTime;
+    }
+
+    public LocalDateTime getStart() {
+        return date.atTime(startTime);
+    }
+
+    public LocalDateTime getEnd() {
+        return ShiftSlot.endOf(date, startTime, endTime);
+    }
+}
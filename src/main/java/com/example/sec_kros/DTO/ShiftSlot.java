@@ -0,0 +1,80 @@
+package com.example.sec_kros.DTO;
+
+import com.example.sec_kros.Entities.Schedule;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Интервал занятости сотрудника в индексе конфликтов смен: строка Schedule
+ * (scheduleId заполнен) или вхождение повторяющейся смены (только recurringShiftId).
+ */
+public class ShiftSlot {
+    private final Long scheduleId;
+    private final Long employeeId;
+    private final Long guardObjectId;
+    private final Long recurringShiftId;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+
+    public ShiftSlot(Long scheduleId, Long employeeId, Long guardObjectId, Long recurringShiftId,
+                     LocalDateTime start, LocalDateTime end) {
+        this.scheduleId = scheduleId;
+        this.employeeId = employeeId;
+        this.guardObjectId = guardObjectId;
+        this.recurringShiftId = recurringShiftId;
+        this.start = start;
+        this.end = end;
+    }
+
+    // Конструктор для JPQL-выборки при прогреве индекса
+    public ShiftSlot(Long scheduleId, Long employeeId, Long guardObjectId, Long recurringShiftId,
+                     LocalDate date, LocalTime startTime, LocalTime endTime) {
+        this(scheduleId, employeeId, guardObjectId, recurringShiftId, date.atTime(startTime),
+                endOf(date, startTime, endTime));
+    }
+
+    public static ShiftSlot of(Schedule schedule) {
+        Long recurringShiftId = schedule.getRecurringShift() != null ? schedule.getRecurringShift().getId() : null;
+        return new ShiftSlot(schedule.getId(), schedule.getEmployee().getId(), schedule.getGuardObject().getId(),
+                recurringShiftId, schedule.getDate(), schedule.getStartTime(), schedule.getEndTime());
+    }
+
+    // Ночная смена (окончание не позже начала) заканчивается на следующий день
+    public static LocalDateTime endOf(LocalDate date, LocalTime startTime, LocalTime endTime) {
+        return (endTime.isAfter(startTime) ? date : date.plusDays(1)).atTime(endTime);
+    }
+
+    public boolean overlaps(LocalDateTime otherStart, LocalDateTime otherEnd) {
+        return start.isBefore(otherEnd) && otherStart.isBefore(end);
+    }
+
+    public Long getScheduleId() {
+        return scheduleId;
+    }
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public Long getGuardObjectId() {
+        return guardObjectId;
+    }
+
+    public Long getRecurringShiftId() {
+        return recurringShiftId;
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    public LocalDate getDate() {
+        return start.toLocalDate();
+    }
+}
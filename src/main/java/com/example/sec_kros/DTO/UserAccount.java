@@ -0,0 +1,63 @@
+package com.example.sec_kros.DTO;
+
+/**
+ * Учетная запись для входа, общая для сотрудников и клиентов: то, что нужно Spring Security
+ * и перенаправлению после входа. Неизменяемая, поэтому хранится в кэше PrincipalLookupService.
+ */
+public class UserAccount {
+    private final Long id;
+    private final String email;
+    private final String passwordHash;
+    // admin, employee или client
+    private final String userType;
+    private final String firstName;
+    private final String lastName;
+
+    public UserAccount(Long id, String email, String passwordHash, String userType,
+                       String firstName, String lastName) {
+        this.id = id;
+        this.email = email;
+        this.passwordHash = passwordHash;
+        this.userType = userType;
+        this.firstName = firstName;
+        this.lastName = lastName;
+    }
+
+    public static UserAccount of(PrincipalRow row) {
+        return new UserAccount(row.getId(), row.getEmail(), row.getPassword(), row.getRole(),
+                row.getFirstName(), row.getLastName());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPasswordHash() {
+        return passwordHash;
+    }
+
+    public String getUserType() {
+        return userType;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public boolean isClient() {
+        return "client".equals(userType);
+    }
+
+    // ROLE_ADMIN, ROLE_EMPLOYEE или ROLE_CLIENT
+    public String getAuthority() {
+        return "ROLE_" + userType.toUpperCase();
+    }
+}
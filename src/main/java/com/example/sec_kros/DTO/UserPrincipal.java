@@ -0,0 +1,112 @@
+package com.example.sec_kros.DTO;
+
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Пользователь в SecurityContext: кроме email и роли несет тип пользователя, id сотрудника или клиента
+ * и имя, поэтому контроллерам не нужно искать текущего пользователя в базе на каждом запросе.
+ * Заполняется один раз при входе из учетной записи PrincipalLookupService и хранится в сессии.
+ * Имя в сессии обновится при следующем входе.
+ */
+public class UserPrincipal implements UserDetails, CredentialsContainer {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String email;
+    private String password;
+    // admin, employee или client
+    private final String userType;
+    private final String firstName;
+    private final String lastName;
+    private final List<GrantedAuthority> authorities;
+
+    public UserPrincipal(UserAccount account) {
+        this.id = account.getId();
+        this.email = account.getEmail();
+        this.password = account.getPasswordHash();
+        this.userType = account.getUserType();
+        this.firstName = account.getFirstName();
+        this.lastName = account.getLastName();
+        this.authorities = List.of(new SimpleGrantedAuthority(account.getAuthority()));
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getUserType() {
+        return userType;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getDisplayName() {
+        if (lastName == null) {
+            return firstName;
+        }
+        return firstName == null ? lastName : lastName + " " + firstName;
+    }
+
+    public boolean isClient() {
+        return "client".equals(userType);
+    }
+
+    // Администратор тоже сотрудник
+    public boolean isEmployee() {
+        return "employee".equals(userType) || "admin".equals(userType);
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public void eraseCredentials() {
+        password = null;
+    }
+
+    // Как у User из Spring Security: один и тот же пользователь - один и тот же email
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof UserPrincipal other && Objects.equals(email, other.email);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(email);
+    }
+
+    @Override
+    public String toString() {
+        return "UserPrincipal[" + userType + " " + id + ", " + email + "]";
+    }
+}
@@ -1,13 +1,20 @@
 package com.example.sec_kros.Entities;
 
+import com.example.sec_kros.Services.EntityCountListener;
+import com.example.sec_kros.Services.PrincipalCacheListener;
+import com.example.sec_kros.Services.RegisteredEmailListener;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "clients")
+@EntityListeners({EntityCountListener.class, PrincipalCacheListener.class, RegisteredEmailListener.class})
+@Table(name = "clients", indexes = {
+        @Index(name = "idx_clients_email", columnList = "email")
+})
 public class Client {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "clients_seq")
+    @SequenceGenerator(name = "clients_seq", sequenceName = "clients_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "last_name", nullable = false, length = 50)
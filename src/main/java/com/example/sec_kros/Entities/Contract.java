@@ -1,5 +1,6 @@
 package com.example.sec_kros.Entities;
 
+import com.example.sec_kros.Services.EntityCountListener;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -8,10 +9,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners(EntityCountListener.class)
 @Table(name = "contracts")
 public class Contract {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "contracts_seq")
+    @SequenceGenerator(name = "contracts_seq", sequenceName = "contracts_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
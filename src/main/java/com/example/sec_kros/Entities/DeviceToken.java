@@ -7,7 +7,8 @@ import java.time.LocalDateTime;
 @Table(name = "device_tokens")
 public class DeviceToken {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "device_tokens_seq")
+    @SequenceGenerator(name = "device_tokens_seq", sequenceName = "device_tokens_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
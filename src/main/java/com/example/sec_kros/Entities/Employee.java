@@ -1,12 +1,19 @@
 package com.example.sec_kros.Entities;
 
+import com.example.sec_kros.Services.EntityCountListener;
+import com.example.sec_kros.Services.PrincipalCacheListener;
+import com.example.sec_kros.Services.RegisteredEmailListener;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "employees")
+@EntityListeners({EntityCountListener.class, PrincipalCacheListener.class, RegisteredEmailListener.class})
+@Table(name = "employees", indexes = {
+        @Index(name = "idx_employees_email", columnList = "email")
+})
 public class Employee {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employees_seq")
+    @SequenceGenerator(name = "employees_seq", sequenceName = "employees_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "last_name", nullable = false, length = 50)
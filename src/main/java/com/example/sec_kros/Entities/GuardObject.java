@@ -1,15 +1,19 @@
 package com.example.sec_kros.Entities;
 
+import com.example.sec_kros.Services.EntityCountListener;
+import com.example.sec_kros.Services.SpatialIndexListener;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners({EntityCountListener.class, SpatialIndexListener.class})
 @Table(name = "guard_objects")
 public class GuardObject {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "guard_objects_seq")
+    @SequenceGenerator(name = "guard_objects_seq", sequenceName = "guard_objects_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -67,4 +71,16 @@ public class GuardObject {
     public void setSchedules(List<Schedule> schedules) {
         this.schedules = schedules;
     }
+
+    // Повторяющиеся смены объекта - каскадное удаление
+    @OneToMany(mappedBy = "guardObject", cascade = CascadeType.ALL, orphanRemoval = true)
+    private List<RecurringShift> recurringShifts = new ArrayList<>();
+
+    public List<RecurringShift> getRecurringShifts() {
+        return recurringShifts;
+    }
+
+    public void setRecurringShifts(List<RecurringShift> recurringShifts) {
+        this.recurringShifts = recurringShifts;
+    }
 }
\ No newline at end of file
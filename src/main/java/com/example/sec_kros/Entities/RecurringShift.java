@@ -0,0 +1,98 @@
+package com.example.sec_kros.Entities;
+
+import com.example.sec_kros.Services.EntityCountListener;
+import com.example.sec_kros.Services.ShiftIndexListener;
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Повторяющаяся смена сотрудника на объекте. Вместо строки на каждый день хранится правило
+ * повторения (RecurrenceRule), границы серии и даты-исключения. Вхождения вычисляются
+ * ScheduleService для запрошенного окна дат; конкретные строки Schedule хранятся только
+ * для измененных вхождений (overrides).
+ */
+@Entity
+@EntityListeners({EntityCountListener.class, ShiftIndexListener.class})
+@Table(name = "recurring_shifts")
+public class RecurringShift {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recurring_shifts_seq")
+    @SequenceGenerator(name = "recurring_shifts_seq", sequenceName = "recurring_shifts_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "employee_id", nullable = false)
+    private Employee employee;
+
+    @ManyToOne
+    @JoinColumn(name = "guard_object_id", nullable = false)
+    private GuardObject guardObject;
+
+    // Правило в виде RRULE, например "FREQ=DAILY" или "FREQ=WEEKLY;BYDAY=MO,WE,FR"
+    @Column(name = "recurrence_rule", nullable = false)
+    private String recurrenceRule;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+
+    // null - серия без даты окончания
+    @Column(name = "end_date")
+    private LocalDate endDate;
+
+    @Column(name = "start_time", nullable = false)
+    private LocalTime startTime;
+
+    @Column(name = "end_time", nullable = false)
+    private LocalTime endTime;
+
+    @Column(name = "notes")
+    private String notes;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    // Отмененные вхождения (EXDATE)
+    @ElementCollection
+    @CollectionTable(name = "recurring_shift_exceptions",
+            joinColumns = @JoinColumn(name = "recurring_shift_id"))
+    @Column(name = "exception_date", nullable = false)
+    private Set<LocalDate> exceptionDates = new HashSet<>();
+
+    // Измененные вхождения удаляются вместе с серией
+    @OneToMany(mappedBy = "recurringShift", cascade = CascadeType.REMOVE)
+    private List<Schedule> overrides = new ArrayList<>();
+
+    // Конструкторы, геттеры и сеттеры
+    public RecurringShift() {}
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Employee getEmployee() { return employee; }
+    public void setEmployee(Employee employee) { this.employee = employee; }
+    public GuardObject getGuardObject() { return guardObject; }
+    public void setGuardObject(GuardObject guardObject) { this.guardObject = guardObject; }
+    public String getRecurrenceRule() { return recurrenceRule; }
+    public void setRecurrenceRule(String recurrenceRule) { this.recurrenceRule = recurrenceRule; }
+    public LocalDate getStartDate() { return startDate; }
+    public void setStartDate(LocalDate startDate) { this.startDate = startDate; }
+    public LocalDate getEndDate() { return endDate; }
+    public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
+    public LocalTime getStartTime() { return startTime; }
+    public void setStartTime(LocalTime startTime) { this.startTime = startTime; }
+    public LocalTime getEndTime() { return endTime; }
+    public void setEndTime(LocalTime endTime) { this.endTime = endTime; }
+    public String getNotes() { return notes; }
+    public void setNotes(String notes) { this.notes = notes; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public Set<LocalDate> getExceptionDates() { return exceptionDates; }
+    public void setExceptionDates(Set<LocalDate> exceptionDates) { this.exceptionDates = exceptionDates; }
+    public List<Schedule> getOverrides() { return overrides; }
+    public void setOverrides(List<Schedule> overrides) { this.overrides = overrides; }
+}
@@ -8,7 +8,8 @@ import java.time.LocalDateTime;
 @Table(name = "reports")
 public class Report {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reports_seq")
+    @SequenceGenerator(name = "reports_seq", sequenceName = "reports_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "report_type", nullable = false, length = 50)
@@ -30,6 +31,16 @@ public class Report {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // queued -> running -> completed / failed
+    @Column(name = "status", length = 20)
+    private String status = "queued";
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
     // Конструкторы
     public Report() {}
 
@@ -54,4 +65,13 @@ public class Report {
 
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
 }
\ No newline at end of file
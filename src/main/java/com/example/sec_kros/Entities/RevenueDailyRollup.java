@@ -0,0 +1,64 @@
+package com.example.sec_kros.Entities;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Предагрегированная выручка: день создания договора x услуга x статус
+@Entity
+@Table(name = "revenue_daily_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_revenue_rollup_day_service_status",
+                columnNames = {"revenue_date", "service_id", "status"}))
+public class RevenueDailyRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "revenue_daily_rollup_seq")
+    @SequenceGenerator(name = "revenue_daily_rollup_seq", sequenceName = "revenue_daily_rollup_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "revenue_date", nullable = false)
+    private LocalDate revenueDate;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "service_id", nullable = false)
+    private ServiceEntity service;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "contracts_count", nullable = false)
+    private long contractsCount;
+
+    @Column(name = "total_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    // Конструкторы
+    public RevenueDailyRollup() {}
+
+    public RevenueDailyRollup(LocalDate revenueDate, ServiceEntity service, String status,
+                              long contractsCount, BigDecimal totalAmount) {
+        this.revenueDate = revenueDate;
+        this.service = service;
+        this.status = status;
+        this.contractsCount = contractsCount;
+        this.totalAmount = totalAmount;
+    }
+
+    // Геттеры и сеттеры
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public LocalDate getRevenueDate() { return revenueDate; }
+    public void setRevenueDate(LocalDate revenueDate) { this.revenueDate = revenueDate; }
+
+    public ServiceEntity getService() { return service; }
+    public void setService(ServiceEntity service) { this.service = service; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public long getContractsCount() { return contractsCount; }
+    public void setContractsCount(long contractsCount) { this.contractsCount = contractsCount; }
+
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+}
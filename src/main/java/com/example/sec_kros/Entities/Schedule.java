@@ -1,14 +1,23 @@
 package com.example.sec_kros.Entities;
 
+import com.example.sec_kros.Services.EntityCountListener;
+import com.example.sec_kros.Services.ShiftIndexListener;
 import jakarta.persistence.*;
 import java.time.LocalDate;
 import java.time.LocalTime;
 
 @Entity
-@Table(name = "schedules")
+@EntityListeners({EntityCountListener.class, ShiftIndexListener.class})
+// Выборки графика идут по окну дат: целиком, по сотруднику или по объекту
+@Table(name = "schedules", indexes = {
+        @Index(name = "idx_schedules_date_id", columnList = "date, id"),
+        @Index(name = "idx_schedules_employee_date", columnList = "employee_id, date"),
+        @Index(name = "idx_schedules_guard_object_date", columnList = "guard_object_id, date")
+})
 public class Schedule {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "schedules_seq")
+    @SequenceGenerator(name = "schedules_seq", sequenceName = "schedules_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -31,6 +40,11 @@ public class Schedule {
     @Column(name = "notes")
     private String notes;
 
+    // Заполнено, если строка заменяет вхождение повторяющейся смены на эту дату
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "recurring_shift_id")
+    private RecurringShift recurringShift;
+
     // Конструкторы, геттеры и сеттеры
     public Schedule() {}
 
@@ -48,4 +62,6 @@ public class Schedule {
     public void setEndTime(LocalTime endTime) { this.endTime = endTime; }
     public String getNotes() { return notes; }
     public void setNotes(String notes) { this.notes = notes; }
+    public RecurringShift getRecurringShift() { return recurringShift; }
+    public void setRecurringShift(RecurringShift recurringShift) { this.recurringShift = recurringShift; }
 }
\ No newline at end of file
@@ -7,7 +7,8 @@ import java.math.BigDecimal;
 @Table(name = "services")
 public class ServiceEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "services_seq")
+    @SequenceGenerator(name = "services_seq", sequenceName = "services_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "name", nullable = false, length = 100)
@@ -1,16 +1,46 @@
 package com.example.sec_kros.Repositories;
 
+import com.example.sec_kros.DTO.ClientReportRow;
 import com.example.sec_kros.Entities.Client;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface ClientRepository extends JpaRepository<Client, Long> {
     Optional<Client> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    // Для фильтра занятых email при регистрации
+    @Query("SELECT c.email FROM Client c WHERE c.email IS NOT NULL")
+    List<String> findAllEmails();
+
     List<Client> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
-}
\ No newline at end of file
+
+    // Keyset-пагинация списка: новые клиенты первыми, следующая страница - id меньше курсора
+    List<Client> findByOrderByIdDesc(Pageable pageable);
+    List<Client> findByIdLessThanOrderByIdDesc(Long id, Pageable pageable);
+
+    String REPORT_ROWS_QUERY = "SELECT new com.example.sec_kros.DTO.ClientReportRow(" +
+            "c.id, c.lastName, c.firstName, c.patronymic, c.phone, c.email, c.address, c.createdAt) " +
+            "FROM Client c WHERE c.createdAt BETWEEN :start AND :end ORDER BY c.id";
+
+    @Query(REPORT_ROWS_QUERY)
+    List<ClientReportRow> findReportRows(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Курсорная выборка для потоковых отчетов (требует открытой транзакции)
+    @Query(REPORT_ROWS_QUERY)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<ClientReportRow> streamReportRows(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+}
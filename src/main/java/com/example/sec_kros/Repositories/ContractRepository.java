@@ -1,17 +1,55 @@
 package com.example.sec_kros.Repositories;
 
+import com.example.sec_kros.DTO.ContractReportRow;
+import com.example.sec_kros.DTO.RevenueReportRow;
 import com.example.sec_kros.Entities.Contract;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface ContractRepository extends JpaRepository<Contract, Long> {
     List<Contract> findByClientId(Long clientId);
     List<Contract> findByStatus(String status);
     List<Contract> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
-}
\ No newline at end of file
+
+    // Keyset-пагинация списка: клиент и услуга нужны шаблону, поэтому грузятся тем же запросом
+    @Query("SELECT c FROM Contract c JOIN FETCH c.client JOIN FETCH c.service ORDER BY c.id DESC")
+    List<Contract> findPage(Pageable pageable);
+
+    @Query("SELECT c FROM Contract c JOIN FETCH c.client JOIN FETCH c.service " +
+            "WHERE c.id < :afterId ORDER BY c.id DESC")
+    List<Contract> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Строки отчетов одним запросом: клиент и услуга присоединяются JOIN, без догрузки по каждой строке
+    String REPORT_ROWS_QUERY = "SELECT new com.example.sec_kros.DTO.ContractReportRow(" +
+            "c.id, cl.lastName, cl.firstName, cl.phone, cl.email, s.name, " +
+            "c.startDate, c.endDate, c.totalAmount, c.status, c.createdAt) " +
+            "FROM Contract c JOIN c.client cl JOIN c.service s " +
+            "WHERE c.createdAt BETWEEN :start AND :end ORDER BY c.id";
+
+    @Query(REPORT_ROWS_QUERY)
+    List<ContractReportRow> findReportRows(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Курсорная выборка для потоковых отчетов (требует открытой транзакции)
+    @Query(REPORT_ROWS_QUERY)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<ContractReportRow> streamReportRows(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Полный пересчет дневных агрегатов выручки (используется при перестроении rollup-таблицы)
+    @Query("SELECT new com.example.sec_kros.DTO.RevenueReportRow(" +
+            "CAST(c.createdAt AS LocalDate), s.id, s.name, c.status, COUNT(c), SUM(c.totalAmount)) " +
+            "FROM Contract c JOIN c.service s WHERE c.createdAt IS NOT NULL " +
+            "GROUP BY CAST(c.createdAt AS LocalDate), s.id, s.name, c.status")
+    List<RevenueReportRow> aggregateDailyRevenue();
+}
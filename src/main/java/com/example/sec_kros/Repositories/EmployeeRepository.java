@@ -1,8 +1,11 @@
 package com.example.sec_kros.Repositories;
 
+import com.example.sec_kros.DTO.PrincipalRow;
 import com.example.sec_kros.Entities.Employee;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 import java.util.Optional;
@@ -13,8 +16,29 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
     Optional<Employee> findByLogin(String login);
     boolean existsByEmail(String email);
     boolean existsByLogin(String login);
+
+    // Для фильтра занятых email при регистрации
+    @Query("SELECT e.email FROM Employee e WHERE e.email IS NOT NULL")
+    List<String> findAllEmails();
+
     List<Employee> findByPositionContaining(String position);
     long countByPositionContaining(String position);
     @Query("SELECT e FROM Employee e WHERE e.position LIKE '%охран%' OR e.position LIKE '%security%'")
     List<Employee> findSecurityEmployees();
+
+    // Keyset-пагинация списка: новые сотрудники первыми, следующая страница - id меньше курсора
+    List<Employee> findByOrderByIdDesc(Pageable pageable);
+    List<Employee> findByIdLessThanOrderByIdDesc(Long id, Pageable pageable);
+
+    // Учетная запись для входа одним запросом по индексам email обеих таблиц; сотрудник важнее клиента
+    @Query(value = "SELECT * FROM (" +
+            "SELECT 0 AS priority, e.id AS id, e.email AS email, e.password_hash AS password, " +
+            "CASE WHEN e.is_admin = TRUE THEN 'admin' ELSE 'employee' END AS role, " +
+            "e.first_name AS firstName, e.last_name AS lastName " +
+            "FROM employees e WHERE e.email = :email " +
+            "UNION ALL " +
+            "SELECT 1, c.id, c.email, c.password_hash, 'client', c.first_name, c.last_name " +
+            "FROM clients c WHERE c.email = :email" +
+            ") principals ORDER BY priority LIMIT 1", nativeQuery = true)
+    Optional<PrincipalRow> findPrincipalByEmail(@Param("email") String email);
 }
\ No newline at end of file
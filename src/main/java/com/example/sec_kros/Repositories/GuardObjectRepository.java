@@ -1,11 +1,16 @@
 package com.example.sec_kros.Repositories;
 
+import com.example.sec_kros.DTO.GuardObjectLocation;
 import com.example.sec_kros.Entities.GuardObject;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 @Repository
 public interface GuardObjectRepository extends JpaRepository<GuardObject, Long> {
@@ -17,4 +22,26 @@ public interface GuardObjectRepository extends JpaRepository<GuardObject, Long>
     // Проверяем, есть ли расписания для объекта охраны
     @Query("SELECT COUNT(s) > 0 FROM Schedule s WHERE s.guardObject.id = :guardObjectId")
     boolean hasSchedules(@Param("guardObjectId") Long guardObjectId);
-}
\ No newline at end of file
+    // Идентификаторы объектов из списка, у которых есть расписания - одним запросом для страниц-списков
+    @Query("SELECT s.guardObject.id FROM Schedule s WHERE s.guardObject.id IN :guardObjectIds GROUP BY s.guardObject.id")
+    Set<Long> findIdsWithSchedules(@Param("guardObjectIds") Collection<Long> guardObjectIds);
+
+    // Keyset-пагинация списка объектов вместе с клиентом и договором
+    @Query("SELECT g FROM GuardObject g JOIN FETCH g.client JOIN FETCH g.contract c JOIN FETCH c.service " +
+            "ORDER BY g.id DESC")
+    List<GuardObject> findPage(Pageable pageable);
+
+    @Query("SELECT g FROM GuardObject g JOIN FETCH g.client JOIN FETCH g.contract c JOIN FETCH c.service " +
+            "WHERE g.id < :afterId ORDER BY g.id DESC")
+    List<GuardObject> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Объекты действующих договоров, период которых пересекается с [from, to] - для планировщика графика
+    @Query("SELECT g FROM GuardObject g JOIN FETCH g.contract c WHERE c.status = 'active' " +
+            "AND c.startDate <= :to AND c.endDate >= :from ORDER BY g.id")
+    List<GuardObject> findActiveBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Координаты всех объектов для прогрева пространственного индекса - без загрузки сущностей
+    @Query("SELECT new com.example.sec_kros.DTO.GuardObjectLocation(g.id, g.name, g.address, g.latitude, g.longitude) " +
+            "FROM GuardObject g WHERE g.latitude IS NOT NULL AND g.longitude IS NOT NULL")
+    List<GuardObjectLocation> findAllLocations();
+}
@@ -0,0 +1,62 @@
+package com.example.sec_kros.Repositories;
+
+import com.example.sec_kros.Entities.RecurringShift;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+@Repository
+public interface RecurringShiftRepository extends JpaRepository<RecurringShift, Long> {
+    List<RecurringShift> findByGuardObjectId(Long guardObjectId);
+    List<RecurringShift> findByGuardObject_Contract_Id(Long contractId);
+    List<RecurringShift> findByOrderByIdDesc();
+    boolean existsByGuardObjectId(Long guardObjectId);
+
+    // Серии вместе с сотрудником, объектом и исключениями - одним запросом
+    String FETCH_QUERY = "SELECT DISTINCT r FROM RecurringShift r JOIN FETCH r.employee " +
+            "JOIN FETCH r.guardObject g JOIN FETCH g.client JOIN FETCH g.contract c JOIN FETCH c.service " +
+            "LEFT JOIN FETCH r.exceptionDates ";
+
+    // Серии, пересекающиеся с окном дат
+    String ACTIVE_QUERY = FETCH_QUERY + "WHERE r.startDate <= :to AND (r.endDate IS NULL OR r.endDate >= :from) ";
+
+    @Query(FETCH_QUERY)
+    List<RecurringShift> findAllWithExceptions();
+
+    @Query(FETCH_QUERY + "WHERE r.id = :id")
+    Optional<RecurringShift> findWithExceptionsById(@Param("id") Long id);
+
+    // Keyset-пагинация списка серий: сотрудник и объект нужны шаблону, исключения - нет
+    @Query("SELECT r FROM RecurringShift r JOIN FETCH r.employee JOIN FETCH r.guardObject ORDER BY r.id DESC")
+    List<RecurringShift> findPage(Pageable pageable);
+
+    @Query("SELECT r FROM RecurringShift r JOIN FETCH r.employee JOIN FETCH r.guardObject " +
+            "WHERE r.id < :afterId ORDER BY r.id DESC")
+    List<RecurringShift> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(ACTIVE_QUERY)
+    List<RecurringShift> findActiveBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query(ACTIVE_QUERY + "AND r.employee.id = :employeeId")
+    List<RecurringShift> findActiveByEmployeeBetween(@Param("employeeId") Long employeeId,
+                                                     @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query(ACTIVE_QUERY + "AND r.guardObject.id = :guardObjectId")
+    List<RecurringShift> findActiveByGuardObjectBetween(@Param("guardObjectId") Long guardObjectId,
+                                                        @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query(ACTIVE_QUERY + "AND c.id = :contractId")
+    List<RecurringShift> findActiveByContractBetween(@Param("contractId") Long contractId,
+                                                     @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT r.guardObject.id FROM RecurringShift r WHERE r.guardObject.id IN :guardObjectIds GROUP BY r.guardObject.id")
+    Set<Long> findGuardObjectIdsWithShifts(@Param("guardObjectIds") Collection<Long> guardObjectIds);
+}
@@ -0,0 +1,13 @@
+package com.example.sec_kros.Repositories;
+
+import com.example.sec_kros.Entities.Report;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ReportRepository extends JpaRepository<Report, Long> {
+    List<Report> findTop20ByOrderByCreatedAtDesc();
+    List<Report> findByStatusIn(Collection<String> statuses);
+}
@@ -0,0 +1,42 @@
+package com.example.sec_kros.Repositories;
+
+import com.example.sec_kros.DTO.RevenueReportRow;
+import com.example.sec_kros.Entities.RevenueDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface RevenueRollupRepository extends JpaRepository<RevenueDailyRollup, Long> {
+
+    // Атомарное приращение счетчиков, без чтения строки в память
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE RevenueDailyRollup r SET r.contractsCount = r.contractsCount + :count, " +
+            "r.totalAmount = r.totalAmount + :amount " +
+            "WHERE r.revenueDate = :day AND r.service.id = :serviceId AND r.status = :status")
+    int increment(@Param("day") LocalDate day, @Param("serviceId") Long serviceId, @Param("status") String status,
+                  @Param("count") long count, @Param("amount") BigDecimal amount);
+
+    // Пустые строки держали бы внешний ключ на услугу и мешали ее удалению
+    @Modifying
+    @Query("DELETE FROM RevenueDailyRollup r WHERE r.revenueDate = :day AND r.service.id = :serviceId " +
+            "AND r.status = :status AND r.contractsCount <= 0")
+    int deleteIfEmpty(@Param("day") LocalDate day, @Param("serviceId") Long serviceId, @Param("status") String status);
+
+    @Query("SELECT new com.example.sec_kros.DTO.RevenueReportRow(" +
+            "r.revenueDate, s.id, s.name, r.status, r.contractsCount, r.totalAmount) " +
+            "FROM RevenueDailyRollup r JOIN r.service s " +
+            "WHERE r.revenueDate BETWEEN :start AND :end AND r.contractsCount > 0 " +
+            "ORDER BY r.revenueDate, s.name, r.status")
+    List<RevenueReportRow> findReportRows(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    @Query("SELECT COALESCE(SUM(r.totalAmount), 0) FROM RevenueDailyRollup r " +
+            "WHERE r.revenueDate BETWEEN :start AND :end")
+    BigDecimal sumTotalAmount(@Param("start") LocalDate start, @Param("end") LocalDate end);
+}
@@ -1,11 +1,20 @@
 package com.example.sec_kros.Repositories;
 
+import com.example.sec_kros.DTO.ShiftSlot;
 import com.example.sec_kros.Entities.Schedule;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
@@ -14,4 +23,43 @@ public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
     @Query("SELECT COUNT(s) > 0 FROM Schedule s WHERE s.guardObject.id = :guardObjectId")
     boolean existsByGuardObjectId(@Param("guardObjectId") Long guardObjectId);
     List<Schedule> findByGuardObject_Contract_Id(Long contractId);
+
+    // Смены с объектом, клиентом, договором и услугой одним запросом
+    String PAGE_QUERY = "SELECT s FROM Schedule s JOIN FETCH s.employee JOIN FETCH s.guardObject g " +
+            "JOIN FETCH g.client JOIN FETCH g.contract c JOIN FETCH c.service ";
+
+    // Конкретные смены в окне дат (разовые и измененные вхождения повторяющихся смен)
+    @Query(PAGE_QUERY + "WHERE s.date BETWEEN :from AND :to")
+    List<Schedule> findBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query(PAGE_QUERY + "WHERE s.employee.id = :employeeId AND s.date BETWEEN :from AND :to")
+    List<Schedule> findByEmployeeBetween(@Param("employeeId") Long employeeId,
+                                         @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query(PAGE_QUERY + "WHERE s.guardObject.id = :guardObjectId AND s.date BETWEEN :from AND :to")
+    List<Schedule> findByGuardObjectBetween(@Param("guardObjectId") Long guardObjectId,
+                                            @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query(PAGE_QUERY + "WHERE c.id = :contractId AND s.date BETWEEN :from AND :to")
+    List<Schedule> findByContractBetween(@Param("contractId") Long contractId,
+                                         @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Даты, на которые вхождения серий заменены строками Schedule (строка может быть у другого сотрудника)
+    @Query("SELECT s FROM Schedule s WHERE s.recurringShift.id IN :recurringShiftIds AND s.date BETWEEN :from AND :to")
+    List<Schedule> findOverridesBetween(@Param("recurringShiftIds") Collection<Long> recurringShiftIds,
+                                        @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Интервалы всех смен для прогрева индекса конфликтов - без загрузки сущностей
+    @Query("SELECT new com.example.sec_kros.DTO.ShiftSlot(s.id, s.employee.id, s.guardObject.id, r.id, " +
+            "s.date, s.startTime, s.endTime) FROM Schedule s LEFT JOIN s.recurringShift r")
+    List<ShiftSlot> findAllSlots();
+
+    // Интервалы смен окна по объектам и времени начала - курсором для анализа покрытия (требует открытой транзакции)
+    @Query("SELECT new com.example.sec_kros.DTO.ShiftSlot(s.id, s.employee.id, s.guardObject.id, r.id, " +
+            "s.date, s.startTime, s.endTime) FROM Schedule s LEFT JOIN s.recurringShift r " +
+            "WHERE s.date BETWEEN :from AND :to ORDER BY s.guardObject.id, s.date, s.startTime")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<ShiftSlot> streamSlotsBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    Optional<Schedule> findByRecurringShiftIdAndDate(Long recurringShiftId, LocalDate date);
 }
\ No newline at end of file
@@ -2,15 +2,14 @@ package com.example.sec_kros.Services;
 
 import com.example.sec_kros.DTO.AuthResponse;
 import com.example.sec_kros.DTO.RegisterRequest;
+import com.example.sec_kros.DTO.UserAccount;
 import com.example.sec_kros.Entities.Client;
-import com.example.sec_kros.Entities.Employee;
 import com.example.sec_kros.Repositories.ClientRepository;
 import com.example.sec_kros.Repositories.EmployeeRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.Optional;
 
 @Service
 public class AuthService {
@@ -24,20 +23,16 @@ public class AuthService {
     @Autowired
     private PasswordService passwordService;
 
-    public String determineUserType(String email) {
-        // Теперь пароль проверяется Spring Security, мы только определяем тип пользователя
-        Optional<Employee> employeeOpt = employeeRepository.findByEmail(email);
-        if (employeeOpt.isPresent()) {
-            Employee employee = employeeOpt.get();
-            return Boolean.TRUE.equals(employee.getIsAdmin()) ? "admin" : "employee";
-        }
+    @Autowired
+    private PrincipalLookupService principalLookupService;
 
-        Optional<Client> clientOpt = clientRepository.findByEmail(email);
-        if (clientOpt.isPresent()) {
-            return "client";
-        }
+    @Autowired
+    private RegisteredEmailFilter registeredEmailFilter;
 
-        return null;
+    public String determineUserType(String email) {
+        // Теперь пароль проверяется Spring Security, мы только определяем тип пользователя;
+        // сразу после входа учетная запись уже в кэше, запроса к базе нет
+        return principalLookupService.findByEmail(email).map(UserAccount::getUserType).orElse(null);
     }
 
     public String getRedirectUrl(String userType) {
@@ -63,9 +58,11 @@ public class AuthService {
             return new AuthResponse(false, "Пароли не совпадают", null, null);
         }
 
-        // Проверяем, нет ли уже пользователя с таким email
-        if (clientRepository.existsByEmail(registerRequest.getEmail()) ||
-                employeeRepository.existsByEmail(registerRequest.getEmail())) {
+        // Проверяем, нет ли уже пользователя с таким email; если фильтр говорит, что email
+        // точно свободен, запросы к обеим таблицам не нужны
+        if (registeredEmailFilter.mightContain(registerRequest.getEmail()) &&
+                (clientRepository.existsByEmail(registerRequest.getEmail()) ||
+                        employeeRepository.existsByEmail(registerRequest.getEmail()))) {
             return new AuthResponse(false, "Пользователь с таким email уже существует", null, null);
         }
 
@@ -77,10 +74,11 @@ public class AuthService {
         client.setPhone(registerRequest.getPhone());
         client.setEmail(registerRequest.getEmail());
         client.setAddress(registerRequest.getAddress());
-        client.setPasswordHash(passwordService.hashPassword(registerRequest.getPassword()));
         client.setCreatedAt(LocalDateTime.now());
 
         try {
+            // Хэширование может быть отклонено при перегрузке пула, ответ уйдет пользователю как ошибка регистрации
+            client.setPasswordHash(passwordService.hashPassword(registerRequest.getPassword()));
             clientRepository.save(client);
             return new AuthResponse(true, "Регистрация успешна! Теперь вы можете войти.", "client", "/login");
         } catch (Exception e) {
@@ -0,0 +1,212 @@
+package com.example.sec_kros.Services;
+
+import com.example.sec_kros.DTO.ShiftOccurrence;
+import com.example.sec_kros.DTO.ShiftSlot;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Календарная лента смен сотрудника в формате iCalendar (RFC 5545) для подписки из календаря телефона.
+ * Клиенты календарей опрашивают ленту каждые несколько минут, поэтому версия ленты (ETag и Last-Modified)
+ * берется из ShiftConflictIndex без запросов к БД, и неизменившаяся лента отдается ответом 304.
+ * Сама лента пишется событие за событием прямо в ответ, без сборки всего текста в памяти.
+ * Ссылка на ленту содержит HMAC-токен сотрудника: календарь не умеет входить через форму логина.
+ */
+@Service
+public class CalendarFeedService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CalendarFeedService.class);
+
+    // Окно ленты относительно сегодняшнего дня
+    static final int PAST_DAYS = 30;
+    static final int FUTURE_DAYS = 180;
+
+    private static final String CRLF = "\r\n";
+    // Длина строки iCalendar в байтах; длинные строки переносятся с пробелом в начале продолжения
+    private static final int MAX_LINE_OCTETS = 75;
+    private static final int TOKEN_LENGTH = 22;
+    // Ключ HMAC короче 256 бит слабее самого HmacSHA256
+    private static final int MIN_SECRET_LENGTH = 32;
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final DateTimeFormatter UTC_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private ShiftConflictIndex shiftConflictIndex;
+
+    @Value("${calendar.feed.secret}")
+    private String secret;
+
+    private ZoneId zone = ZoneId.systemDefault();
+
+    // Ключ задается только окружением (CALENDAR_FEED_SECRET): без него любой, кто видел исходники,
+    // мог бы подделать ссылку на ленту чужого сотрудника, поэтому приложение без ключа не стартует
+    @PostConstruct
+    public void checkSecret() {
+        if (secret == null || secret.isBlank() || secret.length() < MIN_SECRET_LENGTH) {
+            throw new IllegalStateException("Не задан ключ календарных лент: переменная окружения "
+                    + "CALENDAR_FEED_SECRET должна содержать не меньше " + MIN_SECRET_LENGTH + " символов");
+        }
+    }
+
+    public String getFeedPath(Long employeeId) {
+        return "/calendar/employees/" + employeeId + "/" + token(employeeId) + ".ics";
+    }
+
+    public boolean isValidToken(Long employeeId, String token) {
+        if (employeeId == null || token == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(token(employeeId).getBytes(StandardCharsets.US_ASCII),
+                token.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Версия ленты: меняется при любом изменении смен сотрудника и при смене дня (окно ленты сдвигается).
+     * Время изменения входит в ETag, поэтому счетчик версий, начатый заново после перезапуска,
+     * не совпадет со старым ETag.
+     */
+    public FeedVersion getVersion(Long employeeId) {
+        LocalDate today = LocalDate.now(zone);
+        long version = shiftConflictIndex.getVersion(employeeId);
+        long changedAt = shiftConflictIndex.getChangedAt(employeeId);
+        long dayStarted = today.atStartOfDay(zone).toInstant().toEpochMilli();
+
+        String eTag = "\"" + employeeId + "-" + Long.toHexString(changedAt) + "-" + version + "-" + today + "\"";
+        return new FeedVersion(eTag, Math.max(changedAt, dayStarted), today);
+    }
+
+    public void writeFeed(Long employeeId, FeedVersion version, Writer writer) throws IOException {
+        LocalDate from = version.getToday().minusDays(PAST_DAYS);
+        LocalDate to = version.getToday().plusDays(FUTURE_DAYS);
+        List<ShiftOccurrence> occurrences = scheduleService.getEmployeeOccurrences(employeeId, from, to);
+        String stamp = UTC_FORMAT.format(Instant.ofEpochMilli(version.getLastModified()));
+
+        line(writer, "BEGIN:VCALENDAR");
+        line(writer, "VERSION:2.0");
+        line(writer, "PRODID:-//SEC//Shift calendar//RU");
+        line(writer, "CALSCALE:GREGORIAN");
+        line(writer, "METHOD:PUBLISH");
+        line(writer, "X-WR-CALNAME:" + escape("Смены SEC"));
+        for (ShiftOccurrence occurrence : occurrences) {
+            writeEvent(writer, occurrence, stamp);
+        }
+        line(writer, "END:VCALENDAR");
+        writer.flush();
+
+        logger.debug("Calendar feed for employee {}: {} events", employeeId, occurrences.size());
+    }
+
+    private void writeEvent(Writer writer, ShiftOccurrence occurrence, String stamp) throws IOException {
+        LocalDateTime start = occurrence.getDate().atTime(occurrence.getStartTime());
+        LocalDateTime end = ShiftSlot.endOf(occurrence.getDate(), occurrence.getStartTime(), occurrence.getEndTime());
+        // Вычисленное вхождение серии в БД не хранится - его UID строится из серии и даты
+        String uid = occurrence.getScheduleId() != null
+                ? "schedule-" + occurrence.getScheduleId()
+                : "recurring-" + occurrence.getRecurringShiftId() + "-" + occurrence.getDate();
+
+        line(writer, "BEGIN:VEVENT");
+        line(writer, "UID:" + uid + "@sec-kros");
+        line(writer, "DTSTAMP:" + stamp);
+        line(writer, "DTSTART:" + utc(start));
+        line(writer, "DTEND:" + utc(end));
+        line(writer, "SUMMARY:" + escape("Смена: " + occurrence.getGuardObject().getName()));
+        if (occurrence.getGuardObject().getAddress() != null) {
+            line(writer, "LOCATION:" + escape(occurrence.getGuardObject().getAddress()));
+        }
+        if (occurrence.getNotes() != null && !occurrence.getNotes().isBlank()) {
+            line(writer, "DESCRIPTION:" + escape(occurrence.getNotes()));
+        }
+        line(writer, "END:VEVENT");
+    }
+
+    private String utc(LocalDateTime time) {
+        return UTC_FORMAT.format(time.atZone(zone));
+    }
+
+    // Перенос по 75 байт UTF-8, не разрывая символы
+    static void line(Writer writer, String content) throws IOException {
+        int octets = 0;
+        int index = 0;
+        while (index < content.length()) {
+            int codePoint = content.codePointAt(index);
+            int size = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            if (octets + size > MAX_LINE_OCTETS) {
+                writer.write(CRLF);
+                writer.write(' ');
+                octets = 1;
+            }
+            writer.write(Character.toChars(codePoint));
+            octets += size;
+            index += Character.charCount(codePoint);
+        }
+        writer.write(CRLF);
+    }
+
+    static String escape(String text) {
+        return text.replace("\\", "\\\\")
+                .replace(";", "\\;")
+                .replace(",", "\\,")
+                .replace("\r\n", "\\n")
+                .replace("\n", "\\n")
+                .replace("\r", "");
+    }
+
+    private String token(Long employeeId) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+            byte[] digest = mac.doFinal(("employee:" + employeeId).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, TOKEN_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Не удалось вычислить токен календаря", e);
+        }
+    }
+
+    public static final class FeedVersion {
+        private final String eTag;
+        private final long lastModified;
+        private final LocalDate today;
+
+        public FeedVersion(String eTag, long lastModified, LocalDate today) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.today = today;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public LocalDate getToday() {
+            return today;
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.sec_kros.Services;
 
 import com.example.sec_kros.DTO.ClientDTO;
+import com.example.sec_kros.DTO.KeysetPage;
 import com.example.sec_kros.Entities.Client;
 import com.example.sec_kros.Repositories.ClientRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -22,6 +24,17 @@ public class ClientService {
         return clientRepository.findAll();
     }
 
+    public KeysetPage<Client> getClientsPage(String cursor, Integer size) {
+        int pageSize = KeysetPage.normalizeSize(size);
+        Long afterId = KeysetPage.parseIdCursor(cursor);
+        // Берем на одну строку больше, чтобы узнать, есть ли следующая страница
+        PageRequest limit = PageRequest.ofSize(pageSize + 1);
+        List<Client> clients = afterId == null
+                ? clientRepository.findByOrderByIdDesc(limit)
+                : clientRepository.findByIdLessThanOrderByIdDesc(afterId, limit);
+        return KeysetPage.of(clients, cursor, pageSize, client -> String.valueOf(client.getId()));
+    }
+
     public Optional<Client> getClientById(Long id) {
         if (id == null) {
             return Optional.empty();
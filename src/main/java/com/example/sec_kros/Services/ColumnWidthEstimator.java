@@ -0,0 +1,186 @@
+package com.example.sec_kros.Services;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Замена Sheet.autoSizeColumn для отчетов. Ширина текста оценивается по таблице ширин символов
+ * шрифта в момент записи строки, а ширины колонок выставляются один раз в конце.
+ * В отличие от autoSizeColumn не нужен второй проход по листу и AWT-метрики,
+ * поэтому работает и с потоковыми SXSSF-листами, где большая часть строк уже сброшена на диск.
+ */
+public class ColumnWidthEstimator {
+
+    // Excel хранит ширину колонки в 1/256 ширины символа '0', максимум 255 символов
+    private static final int WIDTH_UNIT = 256;
+    private static final int MAX_WIDTH = 255 * WIDTH_UNIT;
+
+    // Отступ как у autoSizeColumn: чуть больше одного символа
+    private static final double PADDING = 1.3;
+
+    private static final double BOLD_FACTOR = 1.08;
+
+    private final double[] asciiWidths;
+    private final double[] maxWidths;
+    private final DataFormatter dataFormatter = new DataFormatter(Locale.ROOT);
+
+    public ColumnWidthEstimator(int columns) {
+        this(columns, null);
+    }
+
+    public ColumnWidthEstimator(int columns, String fontName) {
+        this.asciiWidths = GlyphWidths.forFont(fontName);
+        this.maxWidths = new double[columns];
+    }
+
+    public void measureHeader(Row row) {
+        measureRow(row, BOLD_FACTOR);
+    }
+
+    public void measureRow(Row row) {
+        measureRow(row, 1.0);
+    }
+
+    public void measure(int column, String text) {
+        measure(column, text, 1.0);
+    }
+
+    // Выставляет ширины всех отслеживаемых колонок
+    public void apply(Sheet sheet) {
+        for (int i = 0; i < maxWidths.length; i++) {
+            sheet.setColumnWidth(i, getColumnWidth(i));
+        }
+    }
+
+    public int getColumnWidth(int column) {
+        double width = (maxWidths[column] + PADDING) * WIDTH_UNIT;
+        return (int) Math.min(MAX_WIDTH, Math.ceil(width));
+    }
+
+    private void measureRow(Row row, double factor) {
+        int last = Math.min(row.getLastCellNum(), maxWidths.length);
+        for (int i = 0; i < last; i++) {
+            Cell cell = row.getCell(i);
+            if (cell != null) {
+                measure(i, cellText(cell), factor);
+            }
+        }
+    }
+
+    private void measure(int column, String text, double factor) {
+        if (text == null || text.isEmpty() || column >= maxWidths.length) {
+            return;
+        }
+        double width = textWidth(text) * factor;
+        if (width > maxWidths[column]) {
+            maxWidths[column] = width;
+        }
+    }
+
+    private String cellText(Cell cell) {
+        // Строки - основной случай, форматтер нужен только для чисел с форматом ячейки
+        if (cell.getCellType() == CellType.STRING) {
+            return cell.getStringCellValue();
+        }
+        return dataFormatter.formatCellValue(cell);
+    }
+
+    double textWidth(String text) {
+        double width = 0;
+        double lineWidth = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                width = Math.max(width, lineWidth);
+                lineWidth = 0;
+            } else {
+                lineWidth += charWidth(c);
+            }
+        }
+        return Math.max(width, lineWidth);
+    }
+
+    private double charWidth(char c) {
+        if (c < 128) {
+            return c >= 32 ? asciiWidths[c - 32] : 0;
+        }
+        if (c >= 'А' && c <= 'я' || c == 'Ё' || c == 'ё') {
+            return cyrillicWidth(c);
+        }
+        // Иероглифы и прочие полноширинные символы
+        if (c >= '⺀') {
+            return 2.0;
+        }
+        return 1.0;
+    }
+
+    private double cyrillicWidth(char c) {
+        switch (c) {
+            case 'Ш': case 'Щ': case 'Ж': case 'Ю': case 'Ы': case 'М':
+                return 1.65;
+            case 'ш': case 'щ': case 'ж': case 'ю': case 'ы': case 'м':
+                return 1.45;
+            case 'Г': case 'Е': case 'Ё': case 'З': case 'Р': case 'С': case 'Т': case 'Э': case 'Ь':
+                return 1.0;
+            case 'г': case 'з': case 'с': case 'т': case 'ь': case 'э': case 'я': case 'ч': case 'к':
+                return 0.85;
+            default:
+                return Character.isUpperCase(c) ? 1.2 : 0.98;
+        }
+    }
+
+    /**
+     * Ширины печатных ASCII-символов (32..126) относительно ширины '0'.
+     * Получены из advance width глифов шрифта (единицы на em, 2048).
+     */
+    static final class GlyphWidths {
+
+        private static final int[] CALIBRI = {
+                463, 544, 745, 1014, 1036, 1465, 1386, 452, 621, 621, 1020, 1020, 511, 627, 517, 791,
+                1038, 1038, 1038, 1038, 1038, 1038, 1038, 1038, 1038, 1038, 548, 548, 1020, 1020, 1020, 941,
+                1823, 1185, 1114, 1092, 1260, 1000, 941, 1292, 1276, 516, 653, 1064, 861, 1751, 1322, 1356,
+                1058, 1378, 1112, 941, 998, 1314, 1162, 1822, 1063, 998, 959, 628, 791, 628, 1020, 1020,
+                587, 981, 1076, 866, 1076, 1019, 625, 964, 1076, 470, 490, 931, 470, 1636, 1076, 1080,
+                1076, 1076, 714, 801, 686, 1076, 925, 1464, 887, 927, 809, 643, 927, 643, 1020
+        };
+
+        private static final int[] ARIAL = {
+                569, 569, 727, 1139, 1139, 1821, 1366, 391, 682, 682, 797, 1196, 569, 682, 569, 569,
+                1139, 1139, 1139, 1139, 1139, 1139, 1139, 1139, 1139, 1139, 569, 569, 1196, 1196, 1196, 1139,
+                2079, 1366, 1366, 1479, 1479, 1366, 1251, 1593, 1479, 569, 1024, 1366, 1139, 1706, 1479, 1593,
+                1366, 1593, 1479, 1366, 1251, 1479, 1366, 1933, 1366, 1366, 1251, 569, 569, 569, 961, 1139,
+                682, 1139, 1139, 1024, 1139, 1139, 569, 1139, 1139, 455, 455, 1024, 455, 1706, 1139, 1139,
+                1139, 1139, 682, 1024, 569, 1139, 1024, 1479, 1024, 1024, 1024, 684, 532, 684, 1196
+        };
+
+        private static final Map<String, double[]> TABLES = Map.of(
+                "calibri", normalize(CALIBRI),
+                "arial", normalize(ARIAL)
+        );
+
+        private GlyphWidths() {}
+
+        // По умолчанию Calibri - шрифт новых книг POI
+        static double[] forFont(String fontName) {
+            if (fontName != null) {
+                double[] table = TABLES.get(fontName.toLowerCase(Locale.ROOT));
+                if (table != null) {
+                    return table;
+                }
+            }
+            return TABLES.get("calibri");
+        }
+
+        private static double[] normalize(int[] advances) {
+            double zero = advances['0' - 32];
+            return Arrays.stream(advances).mapToDouble(advance -> advance / zero).toArray();
+        }
+    }
+}
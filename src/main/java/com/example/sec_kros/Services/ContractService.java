@@ -3,12 +3,16 @@ package com.example.sec_kros.Services;
 import com.example.sec_kros.DTO.ContractApprovalDTO;
 import com.example.sec_kros.DTO.ContractDTO;
 import com.example.sec_kros.DTO.ContractDeletionInfo;
+import com.example.sec_kros.DTO.KeysetPage;
 import com.example.sec_kros.DTO.ValidationResult;
 import com.example.sec_kros.Entities.*;
 import com.example.sec_kros.Repositories.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -45,14 +49,37 @@ public class ContractService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    @Autowired
+    private RecurringShiftRepository recurringShiftRepository;
+
+    @Autowired
+    private ScheduleMaterializationMetrics scheduleMaterializationMetrics;
+
+    @Autowired
+    private ShiftConflictIndex shiftConflictIndex;
+
     public List<Contract> getAllContracts() {
         return contractRepository.findAll();
     }
 
+    public KeysetPage<Contract> getContractsPage(String cursor, Integer size) {
+        int pageSize = KeysetPage.normalizeSize(size);
+        Long afterId = KeysetPage.parseIdCursor(cursor);
+        PageRequest limit = PageRequest.ofSize(pageSize + 1);
+        List<Contract> contracts = afterId == null
+                ? contractRepository.findPage(limit)
+                : contractRepository.findPageAfter(afterId, limit);
+        return KeysetPage.of(contracts, cursor, pageSize, contract -> String.valueOf(contract.getId()));
+    }
+
     public Optional<Contract> getContractById(Long id) {
         return contractRepository.findById(id);
     }
 
+    @Transactional
     public Contract createContract(Long clientId, Long serviceId, Contract contract) {
         Optional<Client> client = clientRepository.findById(clientId);
         if (client.isEmpty()) {
@@ -69,19 +96,25 @@ public class ContractService {
         contract.setCreatedAt(LocalDateTime.now());
         contract.setStatus("active");
 
-        return contractRepository.save(contract);
+        Contract savedContract = contractRepository.save(contract);
+        revenueRollupService.contractCreated(savedContract);
+        return savedContract;
     }
 
+    @Transactional
     public Contract updateContract(Long id, Contract contractDetails) {
         Optional<Contract> existingContract = contractRepository.findById(id);
         if (existingContract.isPresent()) {
             Contract contract = existingContract.get();
+            RevenueRollupService.ContractSnapshot before = RevenueRollupService.ContractSnapshot.of(contract);
             contract.setStartDate(contractDetails.getStartDate());
             contract.setEndDate(contractDetails.getEndDate());
             contract.setTotalAmount(contractDetails.getTotalAmount());
             contract.setStatus(contractDetails.getStatus());
 
-            return contractRepository.save(contract);
+            Contract savedContract = contractRepository.save(contract);
+            revenueRollupService.contractChanged(before, savedContract);
+            return savedContract;
         }
         return null;
     }
@@ -102,6 +135,7 @@ public class ContractService {
             }
 
             // Удаляем контракт (каскадно удалятся guardObjects, а через них и schedules)
+            revenueRollupService.contractDeleted(contract);
             contractRepository.delete(contract);
 
             return true;
@@ -118,16 +152,13 @@ public class ContractService {
 
         Contract contract = contractOpt.get();
         List<GuardObject> guardObjects = guardObjectRepository.findByContractId(contractId);
-        List<Schedule> allSchedules = new ArrayList<>();
-
-        for (GuardObject guardObject : guardObjects) {
-            allSchedules.addAll(scheduleRepository.findByGuardObjectId(guardObject.getId()));
-        }
+        List<Schedule> allSchedules = scheduleRepository.findByGuardObject_Contract_Id(contractId);
 
         ContractDeletionInfo info = new ContractDeletionInfo();
         info.setContract(contract);
         info.setGuardObjectsCount(guardObjects.size());
         info.setSchedulesCount(allSchedules.size());
+        info.setRecurringShiftsCount(recurringShiftRepository.findByGuardObject_Contract_Id(contractId).size());
         info.setGuardObjects(guardObjects);
         info.setSchedules(allSchedules);
 
@@ -138,6 +169,7 @@ public class ContractService {
         return contractRepository.findByClientId(clientId);
     }
 
+    @Transactional
     public Contract createContract(ContractDTO contractDTO) {
         // Дополнительная проверка дат на сервере
         if (contractDTO.getStartDate().isBefore(LocalDate.now())) {
@@ -162,9 +194,12 @@ public class ContractService {
         contract.setStatus(contractDTO.getStatus());
         contract.setCreatedAt(LocalDateTime.now());
 
-        return contractRepository.save(contract);
+        Contract savedContract = contractRepository.save(contract);
+        revenueRollupService.contractCreated(savedContract);
+        return savedContract;
     }
 
+    @Transactional
     public Contract updateContract(Long id, ContractDTO contractDTO) {
         return contractRepository.findById(id)
                 .map(contract -> {
@@ -181,6 +216,7 @@ public class ContractService {
                     ServiceEntity service = serviceRepository.findById(contractDTO.getServiceId())
                             .orElseThrow(() -> new RuntimeException("Услуга не найдена"));
 
+                    RevenueRollupService.ContractSnapshot before = RevenueRollupService.ContractSnapshot.of(contract);
                     contract.setClient(client);
                     contract.setService(service);
                     contract.setStartDate(contractDTO.getStartDate());
@@ -189,7 +225,9 @@ public class ContractService {
                             BigDecimal.valueOf(contractDTO.getTotalAmount()) : null);
                     contract.setStatus(contractDTO.getStatus());
 
-                    return contractRepository.save(contract);
+                    Contract savedContract = contractRepository.save(contract);
+                    revenueRollupService.contractChanged(before, savedContract);
+                    return savedContract;
                 })
                 .orElse(null);
     }
@@ -198,11 +236,15 @@ public class ContractService {
         return contractRepository.findByStatus(status);
     }
 
+    @Transactional
     public Contract approveContract(Long id) {
         return contractRepository.findById(id)
                 .map(contract -> {
+                    RevenueRollupService.ContractSnapshot before = RevenueRollupService.ContractSnapshot.of(contract);
                     contract.setStatus("active");
-                    return contractRepository.save(contract);
+                    Contract savedContract = contractRepository.save(contract);
+                    revenueRollupService.contractChanged(before, savedContract);
+                    return savedContract;
                 })
                 .orElse(null);
     }
@@ -282,8 +324,11 @@ public class ContractService {
                             throw new RuntimeException("Время окончания смены не указано");
                         }
 
-                        // Создание расписания охраны (передаем кэшированные объекты)
-                        createSecuritySchedule(contract, approvalDTO, employee, guardObject);
+                        // Создание расписания охраны на весь срок договора (передаем кэшированные объекты)
+                        long started = System.currentTimeMillis();
+                        int plannedShifts = createSecuritySchedule(contract, approvalDTO, employee, guardObject);
+                        scheduleMaterializationMetrics.record(contract.getId(), plannedShifts,
+                                System.currentTimeMillis() - started);
 
                         // Создание уведомлений (передаем кэшированные объекты)
                         createApprovalNotifications(contract, approvalDTO, employee);
@@ -292,8 +337,10 @@ public class ContractService {
                         sendApprovalEmails(contract, approvalDTO, guardObject, employee);
 
                         // Обновление статуса контракта
+                        RevenueRollupService.ContractSnapshot before = RevenueRollupService.ContractSnapshot.of(contract);
                         contract.setStatus("active");
                         Contract savedContract = contractRepository.save(contract);
+                        revenueRollupService.contractChanged(before, savedContract);
 
                         return savedContract;
 
@@ -304,31 +351,30 @@ public class ContractService {
                 .orElseThrow(() -> new RuntimeException("Контракт не найден"));
     }
 
-    private void createSecuritySchedule(Contract contract, ContractApprovalDTO approvalDTO,
-                                        Employee employee, GuardObject guardObject) {
-        // Используем переданные объекты вместо повторных вызовов репозиториев
-        LocalDate startDate = contract.getStartDate();
-
-        // Создаем расписание на первую неделю (7 дней)
-        for (int i = 0; i < 7; i++) {
-            LocalDate scheduleDate = startDate.plusDays(i);
-
-            // Проверяем, не выходит ли дата за пределы контракта
-            if (scheduleDate.isAfter(contract.getEndDate())) {
-                break;
-            }
-
-            Schedule schedule = new Schedule();
-            schedule.setEmployee(employee);
-            schedule.setGuardObject(guardObject);
-            schedule.setDate(scheduleDate);
-            schedule.setStartTime(approvalDTO.getShiftStartTime());
-            schedule.setEndTime(approvalDTO.getShiftEndTime());
-            schedule.setNotes("Охрана по контракту №" + contract.getId() +
-                    (approvalDTO.getNotes() != null ? ". " + approvalDTO.getNotes() : ""));
-
-            scheduleRepository.save(schedule);
-        }
+    // График на весь срок договора - одна ежедневная повторяющаяся смена вместо строки на каждый день.
+    // Вхождения разворачиваются при чтении (ScheduleService.getOccurrences), поэтому одобрение
+    // многолетнего договора записывает одну строку. Возвращает число запланированных смен.
+    private int createSecuritySchedule(Contract contract, ContractApprovalDTO approvalDTO,
+                                       Employee employee, GuardObject guardObject) {
+        RecurrenceRule rule = RecurrenceRule.daily();
+
+        RecurringShift shift = new RecurringShift();
+        shift.setEmployee(employee);
+        shift.setGuardObject(guardObject);
+        shift.setRecurrenceRule(rule.toString());
+        shift.setStartDate(contract.getStartDate());
+        shift.setEndDate(contract.getEndDate());
+        shift.setStartTime(approvalDTO.getShiftStartTime());
+        shift.setEndTime(approvalDTO.getShiftEndTime());
+        shift.setNotes("Охрана по контракту №" + contract.getId() +
+                (approvalDTO.getNotes() != null ? ". " + approvalDTO.getNotes() : ""));
+        shift.setCreatedAt(LocalDateTime.now());
+        // Сотрудник не должен быть занят на другом объекте в часы смены
+        shiftConflictIndex.checkNoConflicts(shift);
+        recurringShiftRepository.save(shift);
+
+        return (int) rule.occurrences(contract.getStartDate(), contract.getEndDate(),
+                contract.getStartDate(), contract.getEndDate()).count();
     }
 
     private void createApprovalNotifications(Contract contract, ContractApprovalDTO approvalDTO,
@@ -340,7 +386,6 @@ public class ContractService {
         clientNotification.setMessage("Ваш контракт №" + contract.getId() + " на услугу '" +
                 contract.getService().getName() + "' был одобрен. Охрана начинается с " +
                 contract.getStartDate().format(DateTimeFormatter.ofPattern("dd.MM.yyyy")));
-        notificationRepository.save(clientNotification);
 
         // Уведомление для сотрудника (используем переданный объект)
         Notification employeeNotification = new Notification();
@@ -349,49 +394,86 @@ public class ContractService {
         employeeNotification.setMessage("Вам назначена охрана объекта по контракту №" + contract.getId() +
                 ". Начало: " + contract.getStartDate().format(DateTimeFormatter.ofPattern("dd.MM.yyyy")) +
                 ". Время смены: " + approvalDTO.getShiftStartTime() + " - " + approvalDTO.getShiftEndTime());
-        notificationRepository.save(employeeNotification);
+
+        notificationRepository.saveAll(List.of(clientNotification, employeeNotification));
     }
 
+    /**
+     * Письма уходят только после коммита одобрения и вне блокировки сотрудника в ShiftConflictIndex:
+     * SMTP-отправка внутри транзакции держала бы блокировку все время обмена с почтовым сервером,
+     * а откат после отправки оставил бы письма об одобрении, которого не было.
+     * Все данные писем собираются заранее, пока сущности еще привязаны к сессии.
+     */
     private void sendApprovalEmails(Contract contract, ContractApprovalDTO approvalDTO,
                                     GuardObject guardObject, Employee employee) {
         try {
             // Получаем данные для email (используем переданные объекты)
             Client client = contract.getClient();
+            String clientEmail = client.getEmail();
+            String clientName = client.getFirstName() + " " + client.getLastName();
+            String employeeEmail = employee.getEmail();
+            String employeeName = employee.getFirstName() + " " + employee.getLastName();
+            String contractNumber = contract.getId().toString();
+            String guardObjectName = guardObject.getName();
+            String guardObjectAddress = guardObject.getAddress();
 
             // Форматируем даты для читаемого отображения
             String startDateFormatted = contract.getStartDate().format(DateTimeFormatter.ofPattern("dd.MM.yyyy"));
             String endDateFormatted = contract.getEndDate().format(DateTimeFormatter.ofPattern("dd.MM.yyyy"));
             String shiftTimeFormatted = approvalDTO.getShiftStartTime() + " - " + approvalDTO.getShiftEndTime();
-
-            // Отправляем email клиенту
-            emailService.sendContractApprovalEmailToClient(
-                    client.getEmail(),
-                    client.getFirstName() + " " + client.getLastName(),
-                    contract.getId().toString(),
-                    startDateFormatted,
-                    endDateFormatted,
-                    guardObject.getName(),
-                    guardObject.getAddress(),
-                    employee.getFirstName() + " " + employee.getLastName(),
-                    shiftTimeFormatted
-            );
-
-            // Отправляем email сотруднику
-            emailService.sendContractApprovalEmailToEmployee(
-                    employee.getEmail(),
-                    employee.getFirstName() + " " + employee.getLastName(),
-                    contract.getId().toString(),
-                    client.getFirstName() + " " + client.getLastName(),
-                    guardObject.getName(),
-                    guardObject.getAddress(),
-                    shiftTimeFormatted,
-                    startDateFormatted,
-                    endDateFormatted,
-                    approvalDTO.getNotes() != null ? approvalDTO.getNotes() : "Дополнительные указания отсутствуют"
-            );
-
+            String notes = approvalDTO.getNotes() != null ? approvalDTO.getNotes() : "Дополнительные указания отсутствуют";
+
+            afterCommitCompleted(() -> {
+                try {
+                    // Отправляем email клиенту
+                    emailService.sendContractApprovalEmailToClient(
+                            clientEmail,
+                            clientName,
+                            contractNumber,
+                            startDateFormatted,
+                            endDateFormatted,
+                            guardObjectName,
+                            guardObjectAddress,
+                            employeeName,
+                            shiftTimeFormatted
+                    );
+
+                    // Отправляем email сотруднику
+                    emailService.sendContractApprovalEmailToEmployee(
+                            employeeEmail,
+                            employeeName,
+                            contractNumber,
+                            clientName,
+                            guardObjectName,
+                            guardObjectAddress,
+                            shiftTimeFormatted,
+                            startDateFormatted,
+                            endDateFormatted,
+                            notes
+                    );
+
+                } catch (Exception e) {
+                    System.err.println("Ошибка при отправке email уведомлений: " + e.getMessage());
+                }
+            });
         } catch (Exception e) {
-            System.err.println("Ошибка при отправке email уведомлений: " + e.getMessage());
+            System.err.println("Ошибка при подготовке email уведомлений: " + e.getMessage());
+        }
+    }
+
+    // Выполняет действие после успешного коммита, когда afterCompletion уже сняла блокировки транзакции
+    private void afterCommitCompleted(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        action.run();
+                    }
+                }
+            });
+        } else {
+            action.run();
         }
     }
 }
\ No newline at end of file
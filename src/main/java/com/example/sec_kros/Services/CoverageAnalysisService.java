@@ -0,0 +1,275 @@
+package com.example.sec_kros.Services;
+
+import com.example.sec_kros.DTO.CoverageSummary;
+import com.example.sec_kros.DTO.CoverageWindow;
+import com.example.sec_kros.DTO.ShiftSlot;
+import com.example.sec_kros.Entities.Contract;
+import com.example.sec_kros.Entities.GuardObject;
+import com.example.sec_kros.Entities.RecurringShift;
+import com.example.sec_kros.Entities.Schedule;
+import com.example.sec_kros.Repositories.GuardObjectRepository;
+import com.example.sec_kros.Repositories.RecurringShiftRepository;
+import com.example.sec_kros.Repositories.ScheduleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Анализ покрытия объектов охраной: объект действующего договора должен охраняться круглосуточно
+ * все дни договора. Смены читаются курсором из БД уже упорядоченными по объекту и времени начала
+ * (вхождения повторяющихся смен объекта сливаются с ними на лету), и за один проход заметающей прямой
+ * по каждому объекту находятся окна без охраны и окна, где назначено больше одного охранника.
+ * Память не зависит от числа смен: держится только состояние текущего объекта.
+ */
+@Service
+public class CoverageAnalysisService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoverageAnalysisService.class);
+
+    @Autowired
+    private GuardObjectRepository guardObjectRepository;
+
+    @Autowired
+    private ScheduleRepository scheduleRepository;
+
+    @Autowired
+    private RecurringShiftRepository recurringShiftRepository;
+
+    /**
+     * Итоги за период и не больше gapsLimit самых ранних окон без охраны.
+     */
+    @Transactional(readOnly = true)
+    public CoverageSummary getSummary(LocalDate from, LocalDate to, int gapsLimit) {
+        // Куча с самым поздним окном в вершине: при переполнении вытесняется оно
+        PriorityQueue<CoverageWindow> earliest = new PriorityQueue<>(
+                Comparator.comparing(CoverageWindow::getStart).reversed());
+        CoverageSummary summary = analyze(from, to, window -> {
+            if (window.isUncovered() && gapsLimit > 0) {
+                earliest.add(window);
+                if (earliest.size() > gapsLimit) {
+                    earliest.poll();
+                }
+            }
+        });
+
+        List<CoverageWindow> gaps = new ArrayList<>(earliest);
+        gaps.sort(Comparator.comparing(CoverageWindow::getStart));
+        return new CoverageSummary(from, to, summary.getObjectsChecked(), summary.getObjectsWithGaps(),
+                summary.getUncoveredWindows(), summary.getUncoveredMinutes(),
+                summary.getDoubleBookedWindows(), summary.getDoubleBookedMinutes(), gaps);
+    }
+
+    /**
+     * Передает все окна периода в sink по объектам (в порядке id), внутри объекта - по времени.
+     * Возвращает итоги без списка окон.
+     */
+    @Transactional(readOnly = true)
+    public CoverageSummary analyze(LocalDate from, LocalDate to, Consumer<CoverageWindow> sink) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("Некорректный период анализа покрытия");
+        }
+
+        long started = System.currentTimeMillis();
+        // Ночные смены предыдущего дня закрывают начало периода
+        LocalDate slotsFrom = from.minusDays(1);
+        List<GuardObject> guardObjects = guardObjectRepository.findActiveBetween(from, to);
+        Map<Long, List<RecurringShift>> seriesByObject = recurringShiftRepository.findActiveBetween(slotsFrom, to)
+                .stream().collect(Collectors.groupingBy(shift -> shift.getGuardObject().getId()));
+        Map<Long, Set<LocalDate>> overridden = findOverriddenDates(seriesByObject, slotsFrom, to);
+
+        Totals totals = new Totals();
+        try (Stream<ShiftSlot> stream = scheduleRepository.streamSlotsBetween(slotsFrom, to)) {
+            Iterator<ShiftSlot> slots = stream.iterator();
+            ShiftSlot current = slots.hasNext() ? slots.next() : null;
+
+            for (GuardObject guardObject : guardObjects) {
+                Contract contract = guardObject.getContract();
+                LocalDate first = contract.getStartDate().isAfter(from) ? contract.getStartDate() : from;
+                LocalDate last = contract.getEndDate().isBefore(to) ? contract.getEndDate() : to;
+                Sweep sweep = new Sweep(guardObject, first.atStartOfDay(), last.plusDays(1).atStartOfDay(),
+                        sink, totals);
+
+                List<ShiftSlot> recurring = expandSeries(seriesByObject.getOrDefault(guardObject.getId(), List.of()),
+                        overridden, slotsFrom, to);
+                int next = 0;
+
+                // Смены объектов вне анализа (договор не действует) пропускаем
+                while (current != null && current.getGuardObjectId() < guardObject.getId()) {
+                    current = slots.hasNext() ? slots.next() : null;
+                }
+                while (current != null && current.getGuardObjectId().equals(guardObject.getId())) {
+                    while (next < recurring.size() && !recurring.get(next).getStart().isAfter(current.getStart())) {
+                        sweep.add(recurring.get(next++));
+                    }
+                    sweep.add(current);
+                    current = slots.hasNext() ? slots.next() : null;
+                }
+                while (next < recurring.size()) {
+                    sweep.add(recurring.get(next++));
+                }
+                sweep.finish();
+            }
+        }
+
+        logger.info("Coverage analysis {} - {}: {} objects, {} uncovered windows ({} min), " +
+                        "{} double-booked windows ({} min) in {} ms", from, to, guardObjects.size(),
+                totals.uncoveredWindows, totals.uncoveredMinutes, totals.doubleBookedWindows,
+                totals.doubleBookedMinutes, System.currentTimeMillis() - started);
+        return new CoverageSummary(from, to, guardObjects.size(), totals.objectsWithGaps,
+                totals.uncoveredWindows, totals.uncoveredMinutes,
+                totals.doubleBookedWindows, totals.doubleBookedMinutes, List.of());
+    }
+
+    // Даты серий, замененные строками Schedule: эти строки уже придут в потоке смен
+    private Map<Long, Set<LocalDate>> findOverriddenDates(Map<Long, List<RecurringShift>> seriesByObject,
+                                                          LocalDate from, LocalDate to) {
+        Set<Long> seriesIds = seriesByObject.values().stream()
+                .flatMap(List::stream)
+                .map(RecurringShift::getId)
+                .collect(Collectors.toSet());
+        Map<Long, Set<LocalDate>> overridden = new HashMap<>();
+        if (seriesIds.isEmpty()) {
+            return overridden;
+        }
+        for (Schedule override : scheduleRepository.findOverridesBetween(seriesIds, from, to)) {
+            overridden.computeIfAbsent(override.getRecurringShift().getId(), id -> new HashSet<>())
+                    .add(override.getDate());
+        }
+        return overridden;
+    }
+
+    // Вхождения серий объекта в окне, по времени начала
+    private List<ShiftSlot> expandSeries(List<RecurringShift> series, Map<Long, Set<LocalDate>> overridden,
+                                         LocalDate from, LocalDate to) {
+        if (series.isEmpty()) {
+            return List.of();
+        }
+        List<ShiftSlot> slots = new ArrayList<>();
+        for (RecurringShift shift : series) {
+            Set<LocalDate> skipped = overridden.getOrDefault(shift.getId(), Set.of());
+            RecurrenceRule.parse(shift.getRecurrenceRule())
+                    .occurrences(shift.getStartDate(), shift.getEndDate(), from, to)
+                    .filter(date -> !shift.getExceptionDates().contains(date) && !skipped.contains(date))
+                    .forEach(date -> slots.add(new ShiftSlot(null, shift.getEmployee().getId(),
+                            shift.getGuardObject().getId(), shift.getId(), date,
+                            shift.getStartTime(), shift.getEndTime())));
+        }
+        if (series.size() > 1) {
+            slots.sort(Comparator.comparing(ShiftSlot::getStart));
+        }
+        return slots;
+    }
+
+    private static final class Totals {
+        private int objectsWithGaps;
+        private long uncoveredWindows;
+        private long uncoveredMinutes;
+        private long doubleBookedWindows;
+        private long doubleBookedMinutes;
+    }
+
+    /**
+     * Заметающая прямая по сменам одного объекта в порядке начала. coveredUntil - конец объединения
+     * уже пройденных смен: начало следующей смены правее него - окно без охраны, левее - пересечение
+     * с уже стоящим охранником. Пересечения, идущие подряд, склеиваются в одно окно.
+     */
+    private static final class Sweep {
+        private final GuardObject guardObject;
+        private final LocalDateTime windowStart;
+        private final LocalDateTime windowEnd;
+        private final Consumer<CoverageWindow> sink;
+        private final Totals totals;
+        private LocalDateTime coveredUntil;
+        private LocalDateTime doubleStart;
+        private LocalDateTime doubleEnd;
+        private boolean hasGaps;
+
+        private Sweep(GuardObject guardObject, LocalDateTime windowStart, LocalDateTime windowEnd,
+                      Consumer<CoverageWindow> sink, Totals totals) {
+            this.guardObject = guardObject;
+            this.windowStart = windowStart;
+            this.windowEnd = windowEnd;
+            this.sink = sink;
+            this.totals = totals;
+            this.coveredUntil = windowStart;
+        }
+
+        private void add(ShiftSlot slot) {
+            // Обрезаем смену по окну анализа; после обрезки начала остаются упорядоченными
+            LocalDateTime start = slot.getStart().isBefore(windowStart) ? windowStart : slot.getStart();
+            LocalDateTime end = slot.getEnd().isAfter(windowEnd) ? windowEnd : slot.getEnd();
+            if (end.isAfter(start)) {
+                add(start, end);
+            }
+        }
+
+        private void add(LocalDateTime start, LocalDateTime end) {
+            if (start.isAfter(coveredUntil)) {
+                flushDouble();
+                uncovered(coveredUntil, start);
+            } else if (start.isBefore(coveredUntil)) {
+                LocalDateTime overlapEnd = end.isBefore(coveredUntil) ? end : coveredUntil;
+                if (doubleStart != null && !start.isAfter(doubleEnd)) {
+                    if (overlapEnd.isAfter(doubleEnd)) {
+                        doubleEnd = overlapEnd;
+                    }
+                } else {
+                    flushDouble();
+                    doubleStart = start;
+                    doubleEnd = overlapEnd;
+                }
+            }
+            if (end.isAfter(coveredUntil)) {
+                coveredUntil = end;
+            }
+        }
+
+        private void finish() {
+            flushDouble();
+            if (coveredUntil.isBefore(windowEnd)) {
+                uncovered(coveredUntil, windowEnd);
+            }
+            if (hasGaps) {
+                totals.objectsWithGaps++;
+            }
+        }
+
+        private void uncovered(LocalDateTime start, LocalDateTime end) {
+            CoverageWindow window = new CoverageWindow(guardObject, CoverageWindow.TYPE_UNCOVERED, start, end);
+            hasGaps = true;
+            totals.uncoveredWindows++;
+            totals.uncoveredMinutes += window.getMinutes();
+            sink.accept(window);
+        }
+
+        private void flushDouble() {
+            if (doubleStart == null) {
+                return;
+            }
+            CoverageWindow window = new CoverageWindow(guardObject, CoverageWindow.TYPE_DOUBLE_BOOKED,
+                    doubleStart, doubleEnd);
+            totals.doubleBookedWindows++;
+            totals.doubleBookedMinutes += window.getMinutes();
+            sink.accept(window);
+            doubleStart = null;
+            doubleEnd = null;
+        }
+    }
+}
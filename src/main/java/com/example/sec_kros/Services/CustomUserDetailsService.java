@@ -1,63 +1,45 @@
 package com.example.sec_kros.Services;
 
-import com.example.sec_kros.Entities.Client;
-import com.example.sec_kros.Entities.Employee;
-import com.example.sec_kros.Repositories.ClientRepository;
-import com.example.sec_kros.Repositories.EmployeeRepository;
+import com.example.sec_kros.DTO.UserAccount;
+import com.example.sec_kros.DTO.UserPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
     @Autowired
-    private ClientRepository clientRepository;
-
-    @Autowired
-    private EmployeeRepository employeeRepository;
+    private PrincipalLookupService principalLookupService;
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        Optional<Employee> employeeOpt = employeeRepository.findByEmail(email);
-        if (employeeOpt.isPresent()) {
-            Employee employee = employeeOpt.get();
-            List<GrantedAuthority> authorities = new ArrayList<>();
+        UserAccount account = principalLookupService.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("Пользователь с email " + email + " не найден"));
 
-            if (Boolean.TRUE.equals(employee.getIsAdmin())) {
-                authorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
-            } else {
-                authorities.add(new SimpleGrantedAuthority("ROLE_EMPLOYEE"));
-            }
+        // Новый объект на каждый вход: Spring Security стирает пароль в выданном объекте, кэш он не затронет
+        return new UserPrincipal(account);
+    }
 
-            return new User(
-                    employee.getEmail(),
-                    employee.getPasswordHash(),
-                    authorities
-            );
+    /**
+     * Текущий пользователь из SecurityContext без обращения к базе. Если в контексте другой тип
+     * пользователя (например, сессия создана до появления UserPrincipal), он загружается по email
+     * через кэш учетных записей. null, если вход не выполнен или пользователь уже удален.
+     */
+    public UserPrincipal getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
         }
-
-        Optional<Client> clientOpt = clientRepository.findByEmail(email);
-        if (clientOpt.isPresent()) {
-            Client client = clientOpt.get();
-            List<GrantedAuthority> authorities = new ArrayList<>();
-            authorities.add(new SimpleGrantedAuthority("ROLE_CLIENT"));
-
-            return new User(
-                    client.getEmail(),
-                    client.getPasswordHash(),
-                    authorities
-            );
+        if (authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal;
         }
-
-        throw new UsernameNotFoundException("Пользователь с email " + email + " не найден");
+        return principalLookupService.findByEmail(authentication.getName()).map(UserPrincipal::new).orElse(null);
     }
-}
\ No newline at end of file
+}
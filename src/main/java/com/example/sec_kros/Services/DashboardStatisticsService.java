@@ -0,0 +1,140 @@
+package com.example.sec_kros.Services;
+
+import com.example.sec_kros.Entities.*;
+import com.example.sec_kros.Repositories.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счетчики записей для панели администратора. Значения берутся из COUNT-запросов при старте
+ * и периодической сверке, а между сверками поддерживаются EntityCountListener
+ * по событиям сохранения и удаления сущностей, поэтому обращение к панели не ходит в БД.
+ */
+@Service
+public class DashboardStatisticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardStatisticsService.class);
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Autowired
+    private GuardObjectRepository guardObjectRepository;
+
+    @Autowired
+    private ScheduleRepository scheduleRepository;
+
+    @Autowired
+    private RecurringShiftRepository recurringShiftRepository;
+
+    private final Map<Class<?>, AtomicLong> counters = Map.of(
+            Client.class, new AtomicLong(),
+            Employee.class, new AtomicLong(),
+            Contract.class, new AtomicLong(),
+            GuardObject.class, new AtomicLong(),
+            Schedule.class, new AtomicLong(),
+            RecurringShift.class, new AtomicLong());
+
+    private volatile boolean initialized;
+
+    public long getClientsCount() {
+        return get(Client.class);
+    }
+
+    public long getEmployeesCount() {
+        return get(Employee.class);
+    }
+
+    public long getContractsCount() {
+        return get(Contract.class);
+    }
+
+    public long getObjectsCount() {
+        return get(GuardObject.class);
+    }
+
+    // Разовые смены и измененные вхождения серий (строки schedules)
+    public long getSchedulesCount() {
+        return get(Schedule.class);
+    }
+
+    // Повторяющиеся серии смен: одна строка на серию, вхождения не хранятся
+    public long getRecurringShiftsCount() {
+        return get(RecurringShift.class);
+    }
+
+    // Сверка с БД: исправляет расхождения от массовых удалений и откатов, которые не видны слушателю
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${dashboard.statistics.reconcile-interval-ms:300000}",
+            initialDelayString = "${dashboard.statistics.reconcile-interval-ms:300000}")
+    public synchronized void reconcile() {
+        Map<Class<?>, Long> actual = new LinkedHashMap<>();
+        actual.put(Client.class, clientRepository.count());
+        actual.put(Employee.class, employeeRepository.count());
+        actual.put(Contract.class, contractRepository.count());
+        actual.put(GuardObject.class, guardObjectRepository.count());
+        actual.put(Schedule.class, scheduleRepository.count());
+        actual.put(RecurringShift.class, recurringShiftRepository.count());
+
+        actual.forEach((type, count) -> {
+            long cached = counters.get(type).getAndSet(count);
+            if (initialized && cached != count) {
+                logger.debug("Dashboard counter for {} drifted: cached {}, actual {}",
+                        type.getSimpleName(), cached, count);
+            }
+        });
+        initialized = true;
+    }
+
+    void entityCreated(Class<?> type) {
+        adjust(type, 1);
+    }
+
+    void entityRemoved(Class<?> type) {
+        adjust(type, -1);
+    }
+
+    private long get(Class<?> type) {
+        if (!initialized) {
+            reconcile();
+        }
+        return counters.get(type).get();
+    }
+
+    // Изменение учитывается только после коммита, чтобы откаченные транзакции не сбивали счетчик
+    private void adjust(Class<?> type, long delta) {
+        AtomicLong counter = counters.get(type);
+        if (counter == null) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    counter.addAndGet(delta);
+                }
+            });
+        } else {
+            counter.addAndGet(delta);
+        }
+    }
+}
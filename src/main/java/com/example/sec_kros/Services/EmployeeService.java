@@ -2,8 +2,10 @@ package com.example.sec_kros.Services;
 
 import com.example.sec_kros.Entities.Employee;
 import com.example.sec_kros.DTO.EmployeeDTO;
+import com.example.sec_kros.DTO.KeysetPage;
 import com.example.sec_kros.Repositories.EmployeeRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import java.util.List;
@@ -22,10 +24,25 @@ public class EmployeeService {
         return employeeRepository.findAll();
     }
 
+    public KeysetPage<Employee> getEmployeesPage(String cursor, Integer size) {
+        int pageSize = KeysetPage.normalizeSize(size);
+        Long afterId = KeysetPage.parseIdCursor(cursor);
+        PageRequest limit = PageRequest.ofSize(pageSize + 1);
+        List<Employee> employees = afterId == null
+                ? employeeRepository.findByOrderByIdDesc(limit)
+                : employeeRepository.findByIdLessThanOrderByIdDesc(afterId, limit);
+        return KeysetPage.of(employees, cursor, pageSize, employee -> String.valueOf(employee.getId()));
+    }
+
     public Optional<Employee> getEmployeeById(Long id) {
         return employeeRepository.findById(id);
     }
 
+    // Ссылка на сотрудника по id без загрузки - для внешних ключей (автор отчета и т.п.)
+    public Employee getReference(Long id) {
+        return employeeRepository.getReferenceById(id);
+    }
+
     public Employee createEmployee(EmployeeDTO employeeDTO) {
         if (employeeRepository.existsByEmail(employeeDTO.getEmail())) {
             throw new RuntimeException("Сотрудник с таким email уже существует");
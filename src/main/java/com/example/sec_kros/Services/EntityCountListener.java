@@ -0,0 +1,38 @@
+package com.example.sec_kros.Services;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * JPA-слушатель сущностей, которые считаются на панели администратора.
+ * Создается Hibernate через контейнер Spring; сервис статистики запрашивается лениво,
+ * так как слушатель нужен раньше, чем готовы репозитории, а в урезанных контекстах его может не быть.
+ */
+public class EntityCountListener {
+
+    @Autowired
+    private ObjectProvider<DashboardStatisticsService> statisticsService;
+
+    @PostPersist
+    public void onPersist(Object entity) {
+        DashboardStatisticsService statistics = statistics();
+        if (statistics != null) {
+            statistics.entityCreated(Hibernate.getClass(entity));
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        DashboardStatisticsService statistics = statistics();
+        if (statistics != null) {
+            statistics.entityRemoved(Hibernate.getClass(entity));
+        }
+    }
+
+    private DashboardStatisticsService statistics() {
+        return statisticsService != null ? statisticsService.getIfAvailable() : null;
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.sec_kros.Services;
+
+import com.example.sec_kros.DTO.GuardAvailability;
+import com.example.sec_kros.DTO.ShiftSlot;
+import com.example.sec_kros.Entities.Employee;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Подбор свободных охранников для формы одобрения договора.
+ * Занятость каждого сотрудника хранится битсетом по дням начиная с сегодняшнего: на день
+ * SLOTS_PER_DAY бит по SLOT_MINUTES минут. Запрошенные смены на весь период договора
+ * собираются в такую же маску, и проверка сотрудника сводится к intersects двух битсетов.
+ * Совпадение битов проверяется точно по ShiftConflictIndex только для дней с пересечением,
+ * поэтому округление до слотов не дает ложной занятости.
+ * Битсет сотрудника строится из ShiftConflictIndex и пересчитывается, когда меняется версия его смен.
+ */
+@Service
+public class GuardAvailabilityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GuardAvailabilityService.class);
+
+    static final int SLOT_MINUTES = 30;
+    static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    // Минимальный горизонт битсета, чтобы короткие периоды не пересчитывали его каждый раз
+    static final int MIN_HORIZON_DAYS = 100;
+
+    @Autowired
+    private ShiftConflictIndex shiftConflictIndex;
+
+    private final Map<Long, DayBitset> bitsets = new ConcurrentHashMap<>();
+    private volatile LocalDate base;
+
+    /**
+     * Охранники, отсортированные для назначения на смену shiftStart - shiftEnd каждый день периода:
+     * сначала свободные по возрастанию нагрузки в этом периоде, затем занятые.
+     */
+    public List<GuardAvailability> rankGuards(List<Employee> guards, LocalDate from, LocalDate to,
+                                              LocalTime shiftStart, LocalTime shiftEnd) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("Некорректный период договора");
+        }
+        if (shiftStart == null || shiftEnd == null) {
+            throw new IllegalArgumentException("Не указано время смены");
+        }
+
+        long started = System.nanoTime();
+        LocalDate today = currentBase();
+        // Прошедшие дни уже не назначить - проверяем период начиная с сегодняшнего дня
+        LocalDate first = from.isBefore(today) ? today : from;
+
+        List<GuardAvailability> result = new ArrayList<>(guards.size());
+        if (first.isAfter(to)) {
+            guards.forEach(guard -> result.add(new GuardAvailability(guard, true, 0, null)));
+            return result;
+        }
+
+        int firstDay = dayIndex(today, first);
+        int lastDay = dayIndex(today, to);
+        int startSlot = shiftStart.toSecondOfDay() / 60 / SLOT_MINUTES;
+        BitSet request = requestMask(firstDay, lastDay, shiftStart, shiftEnd);
+        // Ночная смена последнего дня заканчивается на следующий день
+        int horizonDays = lastDay + 2;
+
+        for (Employee guard : guards) {
+            BitSet busy = bitsetFor(guard.getId(), today, horizonDays);
+            long loadMinutes = (long) busy.get(firstDay * SLOTS_PER_DAY, (lastDay + 1) * SLOTS_PER_DAY)
+                    .cardinality() * SLOT_MINUTES;
+            LocalDate conflict = firstConflict(guard.getId(), today, busy, request, startSlot, shiftStart, shiftEnd);
+            result.add(new GuardAvailability(guard, conflict == null, loadMinutes, conflict));
+        }
+
+        result.sort(Comparator.comparing((GuardAvailability availability) -> !availability.isFree())
+                .thenComparingLong(GuardAvailability::getLoadMinutes)
+                .thenComparing(availability -> availability.getEmployee().getLastName(),
+                        Comparator.nullsLast(Comparator.naturalOrder())));
+
+        logger.debug("Ranked {} guards for {} - {} in {} us", guards.size(), from, to,
+                (System.nanoTime() - started) / 1000);
+        return result;
+    }
+
+    // Первая дата, в которую запрошенная смена действительно пересекается с назначенной
+    private LocalDate firstConflict(Long employeeId, LocalDate today, BitSet busy, BitSet request,
+                                    int startSlot, LocalTime shiftStart, LocalTime shiftEnd) {
+        if (!busy.intersects(request)) {
+            return null;
+        }
+
+        BitSet hits = (BitSet) request.clone();
+        hits.and(busy);
+        int bit = hits.nextSetBit(0);
+        while (bit >= 0) {
+            // Бит до начала смены в своем дне - это хвост ночной смены предыдущего дня
+            int day = bit / SLOTS_PER_DAY;
+            int requestDay = bit % SLOTS_PER_DAY >= startSlot ? day : day - 1;
+
+            LocalDate date = today.plusDays(requestDay);
+            LocalDateTime start = date.atTime(shiftStart);
+            if (!shiftConflictIndex.isFree(employeeId, start, ShiftSlot.endOf(date, shiftStart, shiftEnd))) {
+                return date;
+            }
+            bit = hits.nextSetBit((requestDay + 1) * SLOTS_PER_DAY + startSlot);
+        }
+        return null;
+    }
+
+    private BitSet requestMask(int firstDay, int lastDay, LocalTime shiftStart, LocalTime shiftEnd) {
+        BitSet mask = new BitSet((lastDay + 2) * SLOTS_PER_DAY);
+        long minutes = Duration.between(LocalDate.EPOCH.atTime(shiftStart),
+                ShiftSlot.endOf(LocalDate.EPOCH, shiftStart, shiftEnd)).toMinutes();
+        int startMinute = shiftStart.toSecondOfDay() / 60;
+        for (int day = firstDay; day <= lastDay; day++) {
+            long from = (long) day * 24 * 60 + startMinute;
+            setRange(mask, from, from + minutes, Integer.MAX_VALUE);
+        }
+        return mask;
+    }
+
+    private BitSet bitsetFor(Long employeeId, LocalDate today, int horizonDays) {
+        long version = shiftConflictIndex.getVersion(employeeId);
+        DayBitset cached = bitsets.get(employeeId);
+        if (cached != null && cached.version == version && cached.days >= horizonDays) {
+            return cached.bits;
+        }
+
+        int days = Math.max(horizonDays, Math.max(MIN_HORIZON_DAYS, cached != null ? cached.days : 0));
+        int limit = days * SLOTS_PER_DAY;
+        BitSet bits = new BitSet(limit);
+        LocalDateTime origin = today.atStartOfDay();
+        for (ShiftSlot slot : shiftConflictIndex.findConflicts(employeeId, origin, origin.plusDays(days))) {
+            setRange(bits, ChronoUnit.MINUTES.between(origin, slot.getStart()),
+                    ChronoUnit.MINUTES.between(origin, slot.getEnd()), limit);
+        }
+        bitsets.put(employeeId, new DayBitset(version, days, bits));
+        return bits;
+    }
+
+    // Слоты, которых касается интервал в минутах [fromMinute, toMinute), с округлением наружу
+    private static void setRange(BitSet bits, long fromMinute, long toMinute, int limit) {
+        long fromBit = Math.max(0, Math.floorDiv(fromMinute, SLOT_MINUTES));
+        long toBit = Math.min(limit, Math.floorDiv(toMinute + SLOT_MINUTES - 1, SLOT_MINUTES));
+        if (fromBit < toBit) {
+            bits.set((int) fromBit, (int) toBit);
+        }
+    }
+
+    // Битсеты отсчитываются от сегодняшнего дня; со сменой даты они строятся заново
+    private synchronized LocalDate currentBase() {
+        LocalDate today = LocalDate.now();
+        if (!today.equals(base)) {
+            bitsets.clear();
+            base = today;
+        }
+        return base;
+    }
+
+    private static int dayIndex(LocalDate base, LocalDate date) {
+        return (int) ChronoUnit.DAYS.between(base, date);
+    }
+
+    private static final class DayBitset {
+        private final long version;
+        private final int days;
+        private final BitSet bits;
+
+        private DayBitset(long version, int days, BitSet bits) {
+            this.version = version;
+            this.days = days;
+            this.bits = bits;
+        }
+    }
+}
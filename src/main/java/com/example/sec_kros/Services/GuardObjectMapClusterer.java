@@ -0,0 +1,186 @@
+package com.example.sec_kros.Services;
+
+import com.example.sec_kros.DTO.GuardObjectLocation;
+import com.example.sec_kros.DTO.MapMarker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Кластеризация маркеров карты объектов на сервере. Для каждого масштаба карта в проекции
+ * Web Mercator делится на ячейки по 64 пикселя (4 на тайл 256 px); объекты одной ячейки
+ * отдаются одним маркером с количеством и центром масс, одиночные - самим объектом.
+ * Сетка масштаба строится один раз из GuardObjectSpatialIndex и кэшируется до следующего
+ * изменения индекса (сверка по версии), поэтому запрос окна карты обходит только ячейки окна.
+ * Начиная с MAX_CLUSTER_ZOOM + 1 объекты отдаются поштучно прямо из пространственного индекса.
+ */
+@Service
+public class GuardObjectMapClusterer {
+
+    private static final Logger logger = LoggerFactory.getLogger(GuardObjectMapClusterer.class);
+
+    public static final int MAX_CLUSTER_ZOOM = 16;
+    public static final int MAX_ZOOM = 22;
+
+    static final int CELLS_PER_TILE = 4;
+    // Границы Web Mercator: дальше к полюсам проекция не определена
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    @Autowired
+    private GuardObjectSpatialIndex spatialIndex;
+
+    private final AtomicReferenceArray<ZoomGrid> grids = new AtomicReferenceArray<>(MAX_CLUSTER_ZOOM + 1);
+
+    /**
+     * Маркеры, чьи ячейки пересекают окно карты на заданном масштабе.
+     */
+    public List<MapMarker> getMarkers(double minLatitude, double minLongitude,
+                                      double maxLatitude, double maxLongitude, int zoom) {
+        if (zoom < 0 || zoom > MAX_ZOOM) {
+            throw new IllegalArgumentException("Некорректный масштаб карты: " + zoom);
+        }
+        if (minLatitude > maxLatitude || minLongitude > maxLongitude) {
+            throw new IllegalArgumentException("Некорректные границы области карты");
+        }
+        // При прокрутке карты окно может выйти за пределы мира
+        minLatitude = clamp(minLatitude, -MAX_LATITUDE, MAX_LATITUDE);
+        maxLatitude = clamp(maxLatitude, -MAX_LATITUDE, MAX_LATITUDE);
+        minLongitude = clamp(minLongitude, -180, 180);
+        maxLongitude = clamp(maxLongitude, -180, 180);
+
+        if (zoom > MAX_CLUSTER_ZOOM) {
+            List<MapMarker> markers = new ArrayList<>();
+            for (GuardObjectLocation location : spatialIndex.findInBox(minLatitude, minLongitude, maxLatitude, maxLongitude)) {
+                markers.add(MapMarker.of(location));
+            }
+            return markers;
+        }
+
+        ZoomGrid grid = grid(zoom);
+        long cellsPerAxis = cellsPerAxis(zoom);
+        long minX = cell(mercatorX(minLongitude), cellsPerAxis);
+        long maxX = cell(mercatorX(maxLongitude), cellsPerAxis);
+        // Ось Y проекции направлена на юг
+        long minY = cell(mercatorY(maxLatitude), cellsPerAxis);
+        long maxY = cell(mercatorY(minLatitude), cellsPerAxis);
+
+        List<MapMarker> markers = new ArrayList<>();
+        if ((maxX - minX + 1) * (maxY - minY + 1) > grid.markers.size()) {
+            // Окно крупнее заполненной части сетки - быстрее пройти непустые ячейки
+            for (Map.Entry<Long, MapMarker> entry : grid.markers.entrySet()) {
+                long x = entry.getKey() & 0xffffffffL;
+                long y = entry.getKey() >>> 32;
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                    markers.add(entry.getValue());
+                }
+            }
+            return markers;
+        }
+        for (long y = minY; y <= maxY; y++) {
+            for (long x = minX; x <= maxX; x++) {
+                MapMarker marker = grid.markers.get(key(x, y));
+                if (marker != null) {
+                    markers.add(marker);
+                }
+            }
+        }
+        return markers;
+    }
+
+    private ZoomGrid grid(int zoom) {
+        long version = spatialIndex.getVersion();
+        ZoomGrid grid = grids.get(zoom);
+        if (grid != null && grid.version == version) {
+            return grid;
+        }
+        // Параллельные запросы могут построить сетку дважды - это дешевле блокировки на каждом чтении
+        grid = build(zoom, version);
+        grids.set(zoom, grid);
+        return grid;
+    }
+
+    private ZoomGrid build(int zoom, long version) {
+        long started = System.nanoTime();
+        long cellsPerAxis = cellsPerAxis(zoom);
+        Map<Long, CellAccumulator> cells = new HashMap<>();
+        for (GuardObjectLocation location : spatialIndex.getLocations()) {
+            double latitude = clamp(location.getLatitude(), -MAX_LATITUDE, MAX_LATITUDE);
+            long key = key(cell(mercatorX(location.getLongitude()), cellsPerAxis),
+                    cell(mercatorY(latitude), cellsPerAxis));
+            cells.computeIfAbsent(key, k -> new CellAccumulator()).add(location);
+        }
+
+        Map<Long, MapMarker> markers = new HashMap<>(cells.size() * 4 / 3 + 1);
+        cells.forEach((key, accumulator) -> markers.put(key, accumulator.toMarker()));
+
+        logger.debug("Map cluster grid for zoom {} built: {} markers in {} ms", zoom, markers.size(),
+                (System.nanoTime() - started) / 1_000_000);
+        return new ZoomGrid(version, markers);
+    }
+
+    static double mercatorX(double longitude) {
+        return (longitude + 180) / 360;
+    }
+
+    static double mercatorY(double latitude) {
+        double sin = Math.sin(Math.toRadians(latitude));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+
+    private static long cellsPerAxis(int zoom) {
+        return (1L << zoom) * CELLS_PER_TILE;
+    }
+
+    private static long cell(double projected, long cellsPerAxis) {
+        return Math.min(cellsPerAxis - 1, Math.max(0, (long) Math.floor(projected * cellsPerAxis)));
+    }
+
+    private static long key(long x, long y) {
+        return (y << 32) | x;
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    // Неизменяемая после построения сетка одного масштаба
+    private static class ZoomGrid {
+        private final long version;
+        private final Map<Long, MapMarker> markers;
+
+        private ZoomGrid(long version, Map<Long, MapMarker> markers) {
+            this.version = version;
+            this.markers = markers;
+        }
+    }
+
+    private static class CellAccumulator {
+        private int count;
+        private double latitudeSum;
+        private double longitudeSum;
+        private GuardObjectLocation first;
+
+        private void add(GuardObjectLocation location) {
+            if (count == 0) {
+                first = location;
+            }
+            count++;
+            latitudeSum += location.getLatitude();
+            longitudeSum += location.getLongitude();
+        }
+
+        private MapMarker toMarker() {
+            if (count == 1) {
+                return MapMarker.of(first);
+            }
+            return new MapMarker(latitudeSum / count, longitudeSum / count, count, null);
+        }
+    }
+}
@@ -4,14 +4,23 @@ import com.example.sec_kros.Entities.GuardObject;
 import com.example.sec_kros.Entities.Client;
 import com.example.sec_kros.Entities.Contract;
 import com.example.sec_kros.DTO.GuardObjectDTO;
+import com.example.sec_kros.DTO.KeysetPage;
 import com.example.sec_kros.Repositories.GuardObjectRepository;
 import com.example.sec_kros.Repositories.ClientRepository;
 import com.example.sec_kros.Repositories.ContractRepository;
+import com.example.sec_kros.Repositories.RecurringShiftRepository;
 import com.example.sec_kros.Repositories.ScheduleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class GuardObjectService {
@@ -28,10 +37,23 @@ public class GuardObjectService {
     @Autowired
     private ScheduleRepository scheduleRepository;
 
+    @Autowired
+    private RecurringShiftRepository recurringShiftRepository;
+
     public List<GuardObject> getAllGuardObjects() {
         return guardObjectRepository.findAll();
     }
 
+    public KeysetPage<GuardObject> getGuardObjectsPage(String cursor, Integer size) {
+        int pageSize = KeysetPage.normalizeSize(size);
+        Long afterId = KeysetPage.parseIdCursor(cursor);
+        PageRequest limit = PageRequest.ofSize(pageSize + 1);
+        List<GuardObject> objects = afterId == null
+                ? guardObjectRepository.findPage(limit)
+                : guardObjectRepository.findPageAfter(afterId, limit);
+        return KeysetPage.of(objects, cursor, pageSize, object -> String.valueOf(object.getId()));
+    }
+
     public Optional<GuardObject> getGuardObjectById(Long id) {
         return guardObjectRepository.findById(id);
     }
@@ -88,8 +110,9 @@ public class GuardObjectService {
     public boolean deleteGuardObject(Long id) {
         Optional<GuardObject> guardObject = guardObjectRepository.findById(id);
         if (guardObject.isPresent()) {
-            // Проверяем, есть ли связанные расписания
-            boolean hasSchedules = guardObjectRepository.hasSchedules(id);
+            // Проверяем, есть ли связанные расписания (разовые или повторяющиеся)
+            boolean hasSchedules = guardObjectRepository.hasSchedules(id)
+                    || recurringShiftRepository.existsByGuardObjectId(id);
 
             if (hasSchedules) {
                 // Не удаляем объект, если есть связанные расписания
@@ -107,12 +130,40 @@ public class GuardObjectService {
     public boolean canDeleteGuardObject(Long id) {
         Optional<GuardObject> guardObject = guardObjectRepository.findById(id);
         if (guardObject.isPresent()) {
-            boolean hasSchedules = guardObjectRepository.hasSchedules(id);
+            boolean hasSchedules = guardObjectRepository.hasSchedules(id)
+                    || recurringShiftRepository.existsByGuardObjectId(id);
             return !hasSchedules;
         }
         return false;
     }
 
+    // Возможность удаления для списка объектов: один запрос вместо findById + hasSchedules на каждый объект
+    public Map<Long, Boolean> getDeletableMap(List<GuardObject> guardObjects) {
+        Map<Long, Boolean> canDelete = new HashMap<>();
+        if (guardObjects == null || guardObjects.isEmpty()) {
+            return canDelete;
+        }
+
+        Set<Long> ids = guardObjects.stream()
+                .map(GuardObject::getId)
+                .collect(Collectors.toSet());
+        Set<Long> withSchedules = getGuardObjectIdsWithSchedules(ids);
+
+        for (Long id : ids) {
+            canDelete.put(id, !withSchedules.contains(id));
+        }
+        return canDelete;
+    }
+
+    public Set<Long> getGuardObjectIdsWithSchedules(Set<Long> guardObjectIds) {
+        if (guardObjectIds == null || guardObjectIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<Long> withSchedules = new HashSet<>(guardObjectRepository.findIdsWithSchedules(guardObjectIds));
+        withSchedules.addAll(recurringShiftRepository.findGuardObjectIdsWithShifts(guardObjectIds));
+        return withSchedules;
+    }
+
     public List<GuardObject> getGuardObjectsByClientId(Long clientId) {
         return guardObjectRepository.findByClientId(clientId);
     }
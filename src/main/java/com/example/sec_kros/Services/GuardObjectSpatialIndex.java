@@ -0,0 +1,314 @@
+package com.example.sec_kros.Services;
+
+import com.example.sec_kros.DTO.GuardObjectLocation;
+import com.example.sec_kros.DTO.NearbyGuardObject;
+import com.example.sec_kros.Entities.GuardObject;
+import com.example.sec_kros.Repositories.GuardObjectRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Пространственный индекс объектов охраны в памяти: равномерная сетка по широте и долготе
+ * с ячейкой CELL_DEGREES. Запрос по прямоугольнику карты обходит только ячейки прямоугольника,
+ * поиск ближайших - кольца ячеек вокруг точки, пока нижняя оценка расстояния до следующего кольца
+ * не превысит k-е найденное расстояние. Если колец приходится обходить больше, чем непустых ячеек
+ * (точка далеко от всех объектов), проще просмотреть все непустые ячейки.
+ * Ячейка хранится неизменяемым массивом и заменяется целиком при записи: записи редки, чтение без блокировок.
+ * Индекс заполняется при старте и поддерживается SpatialIndexListener при каждой записи объекта.
+ * Переход через 180-й меридиан не поддерживается.
+ */
+@Service
+public class GuardObjectSpatialIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(GuardObjectSpatialIndex.class);
+
+    // Около 2.2 км по широте, 1.3 км по долготе на широте Москвы
+    static final double CELL_DEGREES = 0.02;
+    static final double EARTH_RADIUS_KM = 6371.0;
+
+    private static final GuardObjectLocation[] EMPTY = new GuardObjectLocation[0];
+
+    @Autowired
+    private GuardObjectRepository guardObjectRepository;
+
+    private final Map<Long, GuardObjectLocation[]> cells = new ConcurrentHashMap<>();
+    private final Map<Long, GuardObjectLocation> locations = new ConcurrentHashMap<>();
+    // Самая большая |широта| среди объектов - для нижней оценки расстояния по долготе
+    private volatile double maxAbsLatitude;
+    // Растет при каждом изменении индекса; по нему производные кэши (кластеры карты) понимают, что устарели
+    private volatile long version;
+
+    private volatile boolean initialized;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        cells.clear();
+        locations.clear();
+        maxAbsLatitude = 0;
+        version++;
+
+        List<GuardObjectLocation> all = guardObjectRepository.findAllLocations();
+        all.forEach(this::put);
+        initialized = true;
+
+        logger.info("Guard object spatial index built: {} objects in {} cells in {} ms",
+                all.size(), cells.size(), System.currentTimeMillis() - started);
+    }
+
+    // ---- Запросы ----
+
+    public int size() {
+        ensureInitialized();
+        return locations.size();
+    }
+
+    public long getVersion() {
+        ensureInitialized();
+        return version;
+    }
+
+    // Все объекты индекса, только для чтения; представление отражает последующие изменения
+    public Collection<GuardObjectLocation> getLocations() {
+        ensureInitialized();
+        return Collections.unmodifiableCollection(locations.values());
+    }
+
+    /**
+     * Объекты внутри прямоугольника карты, границы включительно.
+     * Окно карты может выходить за ±90/±180 (мелкий масштаб), поэтому обход ячеек ограничен
+     * допустимыми координатами, иначе число ячеек ничем не ограничено.
+     */
+    public List<GuardObjectLocation> findInBox(double minLatitude, double minLongitude,
+                                               double maxLatitude, double maxLongitude) {
+        if (!Double.isFinite(minLatitude) || !Double.isFinite(minLongitude)
+                || !Double.isFinite(maxLatitude) || !Double.isFinite(maxLongitude)
+                || minLatitude > maxLatitude || minLongitude > maxLongitude) {
+            throw new IllegalArgumentException("Некорректные границы области карты");
+        }
+        ensureInitialized();
+
+        List<GuardObjectLocation> result = new ArrayList<>();
+        long minX = cell(clamp(minLongitude, -180, 180));
+        long maxX = cell(clamp(maxLongitude, -180, 180));
+        long minY = cell(clamp(minLatitude, -90, 90));
+        long maxY = cell(clamp(maxLatitude, -90, 90));
+
+        if ((maxX - minX + 1) * (maxY - minY + 1) > cells.size()) {
+            // Область крупнее заполненной части сетки - быстрее пройти непустые ячейки
+            for (GuardObjectLocation[] points : cells.values()) {
+                collectInBox(points, minLatitude, minLongitude, maxLatitude, maxLongitude, result);
+            }
+            return result;
+        }
+        for (long y = minY; y <= maxY; y++) {
+            for (long x = minX; x <= maxX; x++) {
+                GuardObjectLocation[] points = cells.get(key(x, y));
+                if (points != null) {
+                    collectInBox(points, minLatitude, minLongitude, maxLatitude, maxLongitude, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Не больше k объектов, ближайших к точке, по возрастанию расстояния.
+     */
+    public List<NearbyGuardObject> findNearest(double latitude, double longitude, int k) {
+        ensureInitialized();
+        if (k <= 0 || locations.isEmpty()) {
+            return List.of();
+        }
+
+        // Куча с самым дальним из найденных в вершине
+        PriorityQueue<NearbyGuardObject> nearest = new PriorityQueue<>(
+                Comparator.comparingDouble(NearbyGuardObject::getDistanceKm).reversed());
+        long centerX = cell(longitude);
+        long centerY = cell(latitude);
+        double minCos = Math.cos(Math.toRadians(Math.max(maxAbsLatitude, Math.abs(latitude))));
+        int nonEmptyCells = cells.size();
+        long visited = 0;
+
+        for (int ring = 0; ; ring++) {
+            for (long y = centerY - ring; y <= centerY + ring; y++) {
+                // Внутренние строки кольца - только крайние ячейки
+                long step = (y == centerY - ring || y == centerY + ring) ? 1 : Math.max(1, 2L * ring);
+                for (long x = centerX - ring; x <= centerX + ring; x += step) {
+                    visited++;
+                    GuardObjectLocation[] points = cells.get(key(x, y));
+                    if (points != null) {
+                        collectNearest(points, latitude, longitude, k, nearest);
+                    }
+                }
+            }
+            if (nearest.size() == k
+                    && lowerBoundKm(latitude, longitude, centerX, centerY, ring, minCos) >= nearest.peek().getDistanceKm()) {
+                break;
+            }
+            if (visited > nonEmptyCells) {
+                nearest.clear();
+                for (GuardObjectLocation[] points : cells.values()) {
+                    collectNearest(points, latitude, longitude, k, nearest);
+                }
+                break;
+            }
+        }
+
+        List<NearbyGuardObject> result = new ArrayList<>(nearest);
+        result.sort(Comparator.comparingDouble(NearbyGuardObject::getDistanceKm));
+        return result;
+    }
+
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double dLat = Math.toRadians(latitude2 - latitude1);
+        double dLon = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // ---- Поддержка индекса; изменения применяются после коммита, откат транзакции их не оставляет ----
+
+    public void guardObjectSaved(GuardObject guardObject) {
+        Long id = guardObject.getId();
+        GuardObjectLocation location = GuardObjectLocation.of(guardObject);
+        afterCommit(() -> {
+            if (location != null) {
+                put(location);
+            } else {
+                remove(id);
+            }
+        });
+    }
+
+    public void guardObjectRemoved(GuardObject guardObject) {
+        Long id = guardObject.getId();
+        afterCommit(() -> remove(id));
+    }
+
+    private synchronized void put(GuardObjectLocation location) {
+        remove(location.getId());
+        long key = key(cell(location.getLongitude()), cell(location.getLatitude()));
+        GuardObjectLocation[] points = cells.getOrDefault(key, EMPTY);
+        GuardObjectLocation[] updated = Arrays.copyOf(points, points.length + 1);
+        updated[points.length] = location;
+        cells.put(key, updated);
+        locations.put(location.getId(), location);
+        version++;
+        maxAbsLatitude = Math.max(maxAbsLatitude, Math.abs(location.getLatitude()));
+    }
+
+    private synchronized void remove(Long id) {
+        GuardObjectLocation previous = locations.remove(id);
+        if (previous == null) {
+            return;
+        }
+        version++;
+        long key = key(cell(previous.getLongitude()), cell(previous.getLatitude()));
+        GuardObjectLocation[] points = cells.get(key);
+        if (points == null) {
+            return;
+        }
+        if (points.length == 1) {
+            cells.remove(key);
+            return;
+        }
+        GuardObjectLocation[] updated = new GuardObjectLocation[points.length - 1];
+        int index = 0;
+        for (GuardObjectLocation point : points) {
+            if (point != previous) {
+                updated[index++] = point;
+            }
+        }
+        cells.put(key, updated);
+    }
+
+    private static void collectInBox(GuardObjectLocation[] points, double minLatitude, double minLongitude,
+                                     double maxLatitude, double maxLongitude, List<GuardObjectLocation> result) {
+        for (GuardObjectLocation point : points) {
+            if (point.getLatitude() >= minLatitude && point.getLatitude() <= maxLatitude
+                    && point.getLongitude() >= minLongitude && point.getLongitude() <= maxLongitude) {
+                result.add(point);
+            }
+        }
+    }
+
+    private static void collectNearest(GuardObjectLocation[] points, double latitude, double longitude, int k,
+                                       PriorityQueue<NearbyGuardObject> nearest) {
+        for (GuardObjectLocation point : points) {
+            double distance = distanceKm(latitude, longitude, point.getLatitude(), point.getLongitude());
+            if (nearest.size() < k) {
+                nearest.add(new NearbyGuardObject(point, distance));
+            } else if (distance < nearest.peek().getDistanceKm()) {
+                nearest.poll();
+                nearest.add(new NearbyGuardObject(point, distance));
+            }
+        }
+    }
+
+    /**
+     * Нижняя оценка расстояния от точки до любого объекта вне колец 0..ring: такой объект отстоит
+     * от точки по широте или по долготе не меньше, чем до ближайшей границы пройденного квадрата.
+     * По широте расстояние не меньше R * dφ; по долготе - не меньше 2R * asin(cos φmax * sin(dλ / 2)).
+     */
+    private static double lowerBoundKm(double latitude, double longitude, long centerX, long centerY,
+                                       int ring, double minCos) {
+        double latitudeGap = Math.min(latitude - (centerY - ring) * CELL_DEGREES,
+                (centerY + ring + 1) * CELL_DEGREES - latitude);
+        double longitudeGap = Math.min(longitude - (centerX - ring) * CELL_DEGREES,
+                (centerX + ring + 1) * CELL_DEGREES - longitude);
+        double byLatitude = EARTH_RADIUS_KM * Math.toRadians(latitudeGap);
+        double byLongitude = 2 * EARTH_RADIUS_KM
+                * Math.asin(Math.min(1, minCos * Math.sin(Math.toRadians(longitudeGap) / 2)));
+        return Math.min(byLatitude, byLongitude);
+    }
+
+    private static long cell(double degrees) {
+        return (long) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static long key(long x, long y) {
+        return (y << 32) | (x & 0xffffffffL);
+    }
+
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private void ensureInitialized() {
+        if (!initialized) {
+            rebuild();
+        }
+    }
+}
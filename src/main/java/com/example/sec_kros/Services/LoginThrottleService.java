@@ -0,0 +1,148 @@
+package com.example.sec_kros.Services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограничение частоты попыток входа: отдельное ведро токенов на каждый IP и на каждый email.
+ * Попытка забирает токен из обоих ведер, токены восстанавливаются с постоянной скоростью.
+ * Проверка идет до BCrypt, поэтому перебор паролей не нагружает пул хэширования.
+ * Ведра лежат в ConcurrentHashMap, состояние ведра - одно число в AtomicLong, блокировок нет.
+ * Полностью восстановившиеся ведра удаляются по расписанию, так что память занимают только
+ * адреса и email с недавними попытками.
+ */
+@Service
+public class LoginThrottleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginThrottleService.class);
+
+    // С одного адреса: 20 попыток подряд, затем одна раз в 3 секунды
+    static final int IP_CAPACITY = 20;
+    static final long IP_REFILL_NANOS = TimeUnit.SECONDS.toNanos(3);
+    // На один email: 5 попыток подряд, затем одна раз в 30 секунд
+    static final int EMAIL_CAPACITY = 5;
+    static final long EMAIL_REFILL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    // При таком числе ведер пустые удаляются сразу, не дожидаясь расписания
+    static final int MAX_BUCKETS = 100_000;
+
+    private LongSupplier clock = System::nanoTime;
+
+    private final ConcurrentHashMap<String, TokenBucket> ipBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TokenBucket> emailBuckets = new ConcurrentHashMap<>();
+
+    private final LongAdder rejectedByIp = new LongAdder();
+    private final LongAdder rejectedByEmail = new LongAdder();
+
+    /**
+     * Забирает токен для попытки входа. false - попытку нужно отклонить, не проверяя пароль.
+     * Адрес проверяется первым: при отказе по IP ведро email не тратится.
+     */
+    public boolean tryAcquire(String remoteAddr, String email) {
+        long now = clock.getAsLong();
+        if (remoteAddr != null && !acquire(ipBuckets, remoteAddr, IP_CAPACITY, IP_REFILL_NANOS, now)) {
+            rejectedByIp.increment();
+            logger.warn("Login attempt throttled for IP: {}", remoteAddr);
+            return false;
+        }
+        String key = normalize(email);
+        if (key != null && !acquire(emailBuckets, key, EMAIL_CAPACITY, EMAIL_REFILL_NANOS, now)) {
+            rejectedByEmail.increment();
+            logger.warn("Login attempt throttled for email: {} (IP: {})", key, remoteAddr);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean acquire(ConcurrentHashMap<String, TokenBucket> buckets, String key,
+                            int capacity, long refillNanos, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= MAX_BUCKETS) {
+                evictIdle(buckets, now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(now));
+        }
+        return bucket.tryAcquire(now, capacity, refillNanos);
+    }
+
+    // Ведро, удаленное одновременно с попыткой, было полным: потеря одного токена не важна
+    @Scheduled(fixedDelay = 60_000, initialDelay = 60_000)
+    public void evictIdleBuckets() {
+        long now = clock.getAsLong();
+        int before = ipBuckets.size() + emailBuckets.size();
+        evictIdle(ipBuckets, now);
+        evictIdle(emailBuckets, now);
+        int removed = before - ipBuckets.size() - emailBuckets.size();
+        if (removed > 0) {
+            logger.debug("Removed {} idle login throttle buckets", removed);
+        }
+    }
+
+    private static void evictIdle(ConcurrentHashMap<String, TokenBucket> buckets, long now) {
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private static String normalize(String email) {
+        if (email == null || email.isBlank()) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public long getRejectedByIp() {
+        return rejectedByIp.sum();
+    }
+
+    public long getRejectedByEmail() {
+        return rejectedByEmail.sum();
+    }
+
+    public long getRejectedTotal() {
+        return rejectedByIp.sum() + rejectedByEmail.sum();
+    }
+
+    public int getBucketCount() {
+        return ipBuckets.size() + emailBuckets.size();
+    }
+
+    /**
+     * Ведро токенов, сведенное к одному числу: моменту, когда ведро снова станет полным.
+     * Каждая попытка сдвигает этот момент на период восстановления одного токена; попытка
+     * разрешена, пока он отстоит от текущего времени не больше чем на capacity периодов.
+     * Обновление - цикл compareAndSet без блокировок.
+     */
+    private static final class TokenBucket {
+
+        private final AtomicLong fullAt;
+
+        private TokenBucket(long now) {
+            this.fullAt = new AtomicLong(now);
+        }
+
+        boolean tryAcquire(long now, int capacity, long refillNanos) {
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + refillNanos;
+                if (next - now > capacity * refillNanos) {
+                    return false;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+
+        boolean isFull(long now) {
+            return fullAt.get() - now <= 0;
+        }
+    }
+}
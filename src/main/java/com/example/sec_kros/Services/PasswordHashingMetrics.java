@@ -0,0 +1,78 @@
+package com.example.sec_kros.Services;
+
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики пула хэширования паролей: сколько хэшей и проверок выполнено, сколько заняло само
+ * вычисление BCrypt и сколько задача ждала в очереди. Рост ожидания при неизменном времени
+ * хэширования означает, что пул не справляется с потоком входов. Показываются на панели администратора.
+ */
+@Service
+public class PasswordHashingMetrics {
+
+    private final LongAdder hashes = new LongAdder();
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder totalHashNanos = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public void recordHash(long waitNanos, long hashNanos) {
+        hashes.increment();
+        record(waitNanos, hashNanos);
+    }
+
+    public void recordMatch(long waitNanos, long hashNanos) {
+        matches.increment();
+        record(waitNanos, hashNanos);
+    }
+
+    public void recordRejection() {
+        rejections.increment();
+    }
+
+    private void record(long waitNanos, long hashNanos) {
+        totalWaitNanos.add(waitNanos);
+        totalHashNanos.add(hashNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        maxHashNanos.accumulateAndGet(hashNanos, Math::max);
+    }
+
+    public long getHashes() {
+        return hashes.sum();
+    }
+
+    public long getMatches() {
+        return matches.sum();
+    }
+
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    public long getAverageHashMs() {
+        return average(totalHashNanos);
+    }
+
+    public long getMaxHashMs() {
+        return TimeUnit.NANOSECONDS.toMillis(maxHashNanos.get());
+    }
+
+    public long getAverageQueueWaitMs() {
+        return average(totalWaitNanos);
+    }
+
+    public long getMaxQueueWaitMs() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    private long average(LongAdder totalNanos) {
+        long count = hashes.sum() + matches.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.sum() / count);
+    }
+}
@@ -1,12 +1,38 @@
 package com.example.sec_kros.Services;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * Хэширование и проверка паролей. BCrypt выполняется в ограниченном пуле passwordHashingExecutor:
+ * вызывающий поток ждет результат, но одновременно считается не больше хэшей, чем потоков в пуле,
+ * а при переполненной очереди запрос сразу отклоняется. Без пула (например, в тестах) BCrypt
+ * выполняется в вызывающем потоке.
+ */
 @Service
 public class PasswordService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordService.class);
+
     private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
+    @Autowired
+    @Qualifier("passwordHashingExecutor")
+    private TaskExecutor hashingExecutor;
+
+    @Autowired
+    private PasswordHashingMetrics metrics;
+
     public String hashPassword(String plainPassword) {
         if (plainPassword == null) {
             throw new IllegalArgumentException("Пароль не может быть null");
@@ -14,13 +40,63 @@ public class PasswordService {
         if (plainPassword.length() > 72) {
             throw new IllegalArgumentException("Пароль не может быть длиннее 72 символов");
         }
-        return passwordEncoder.encode(plainPassword);
+        return runHashing(() -> passwordEncoder.encode(plainPassword), true);
     }
 
     public boolean matches(String rawPassword, String encodedPassword) {
         if (rawPassword == null || encodedPassword == null) {
             return false;
         }
-        return passwordEncoder.matches(rawPassword, encodedPassword);
+        return runHashing(() -> passwordEncoder.matches(rawPassword, encodedPassword), false);
+    }
+
+    private <T> T runHashing(Supplier<T> work, boolean hash) {
+        if (hashingExecutor == null) {
+            return work.get();
+        }
+
+        long queuedAt = System.nanoTime();
+        FutureTask<T> task = new FutureTask<>(() -> {
+            long startedAt = System.nanoTime();
+            try {
+                return work.get();
+            } finally {
+                recordTiming(hash, startedAt - queuedAt, System.nanoTime() - startedAt);
+            }
+        });
+
+        try {
+            hashingExecutor.execute(task);
+        } catch (TaskRejectedException e) {
+            if (metrics != null) {
+                metrics.recordRejection();
+            }
+            logger.warn("Password hashing queue is full, rejecting request");
+            throw new RuntimeException("Сервер перегружен, повторите попытку через минуту");
+        }
+
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.cancel(false);
+            throw new RuntimeException("Проверка пароля прервана");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Ошибка хэширования пароля", e.getCause());
+        }
+    }
+
+    private void recordTiming(boolean hash, long waitNanos, long hashNanos) {
+        if (metrics == null) {
+            return;
+        }
+        if (hash) {
+            metrics.recordHash(waitNanos, hashNanos);
+        } else {
+            metrics.recordMatch(waitNanos, hashNanos);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,35 @@
+package com.example.sec_kros.Services;
+
+import com.example.sec_kros.Entities.Client;
+import com.example.sec_kros.Entities.Employee;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * JPA-слушатель сотрудников и клиентов: любая запись сбрасывает закэшированную учетную запись,
+ * так что смена email, пароля или признака администратора через сервисы, контроллеры и каскады
+ * не оставляет в кэше устаревших данных. Сервис запрашивается лениво, как в EntityCountListener.
+ */
+public class PrincipalCacheListener {
+
+    @Autowired
+    private ObjectProvider<PrincipalLookupService> principalLookupService;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        PrincipalLookupService lookup = principalLookupService != null ? principalLookupService.getIfAvailable() : null;
+        if (lookup == null) {
+            return;
+        }
+        if (entity instanceof Employee employee) {
+            lookup.employeeChanged(employee.getId(), employee.getEmail());
+        } else if (entity instanceof Client client) {
+            lookup.clientChanged(client.getId(), client.getEmail());
+        }
+    }
+}
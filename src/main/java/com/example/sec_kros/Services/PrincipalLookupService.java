@@ -0,0 +1,153 @@
+package com.example.sec_kros.Services;
+
+import com.example.sec_kros.DTO.UserAccount;
+import com.example.sec_kros.Repositories.EmployeeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Поиск учетной записи по email для входа и определения типа пользователя. Сотрудники и клиенты
+ * ищутся одним UNION-запросом по индексам email, найденная запись кэшируется не дольше TTL
+ * и не больше MAX_ENTRIES штук (вытесняются самые старые). Отсутствующие email не кэшируются,
+ * поэтому регистрация не требует сброса. Изменения сотрудников и клиентов сбрасывают их записи
+ * после коммита (PrincipalCacheListener) - и по новому email, и по тому, под которым запись лежала в кэше.
+ */
+@Service
+public class PrincipalLookupService {
+
+    static final int MAX_ENTRIES = 10_000;
+    static final long TTL_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    private LongSupplier clock = System::nanoTime;
+
+    // Порядок вставки совпадает с порядком истечения TTL, поэтому вытесняется первая запись
+    private final LinkedHashMap<String, CachedAccount> byEmail = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedAccount> eldest) {
+            if (size() > MAX_ENTRIES) {
+                emailByIdentity.remove(identity(eldest.getValue().account), eldest.getKey());
+                return true;
+            }
+            return false;
+        }
+    };
+    // "employee:5" -> email: после смены email запись в кэше лежит под старым адресом
+    private final Map<String, String> emailByIdentity = new HashMap<>();
+    // Растет при каждом сбросе; загрузка, начатая до сброса, не кладет результат в кэш
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public Optional<UserAccount> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        long loadGeneration;
+        synchronized (this) {
+            CachedAccount cached = byEmail.get(email);
+            if (cached != null && clock.getAsLong() - cached.loadedAt < TTL_NANOS) {
+                hits.incrementAndGet();
+                return Optional.of(cached.account);
+            }
+            if (cached != null) {
+                evict(email);
+            }
+            loadGeneration = generation;
+        }
+        misses.incrementAndGet();
+
+        Optional<UserAccount> loaded = employeeRepository.findPrincipalByEmail(email).map(UserAccount::of);
+        loaded.ifPresent(account -> put(email, account, loadGeneration));
+        return loaded;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return byEmail.size();
+    }
+
+    // ---- Сброс; вызывается из PrincipalCacheListener ----
+
+    public void employeeChanged(Long id, String email) {
+        afterCommit(() -> invalidate("employee:" + id, email));
+    }
+
+    public void clientChanged(Long id, String email) {
+        afterCommit(() -> invalidate("client:" + id, email));
+    }
+
+    private synchronized void invalidate(String identity, String email) {
+        generation++;
+        String cachedEmail = emailByIdentity.get(identity);
+        if (cachedEmail != null) {
+            evict(cachedEmail);
+        }
+        if (email != null) {
+            evict(email);
+        }
+    }
+
+    private synchronized void put(String email, UserAccount account, long loadGeneration) {
+        if (loadGeneration != generation) {
+            return;
+        }
+        evict(email);
+        byEmail.put(email, new CachedAccount(account, clock.getAsLong()));
+        emailByIdentity.put(identity(account), email);
+    }
+
+    private void evict(String email) {
+        CachedAccount removed = byEmail.remove(email);
+        if (removed != null) {
+            emailByIdentity.remove(identity(removed.account), email);
+        }
+    }
+
+    private static String identity(UserAccount account) {
+        return (account.isClient() ? "client:" : "employee:") + account.getId();
+    }
+
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private static class CachedAccount {
+        private final UserAccount account;
+        private final long loadedAt;
+
+        private CachedAccount(UserAccount account, long loadedAt) {
+            this.account = account;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.sec_kros.Services;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.stream.Stream;
+
+/**
+ * Правило повторения смены в стиле RRULE (RFC 5545), подмножество: FREQ=DAILY|WEEKLY, INTERVAL, BYDAY.
+ * Границы серии (начало и окончание) хранятся в RecurringShift, поэтому UNTIL и COUNT не поддерживаются.
+ * Примеры: "FREQ=DAILY", "FREQ=DAILY;INTERVAL=2", "FREQ=WEEKLY;BYDAY=MO,WE,FR".
+ */
+public final class RecurrenceRule {
+
+    public static final String DAILY = "DAILY";
+    public static final String WEEKLY = "WEEKLY";
+
+    private static final Map<String, DayOfWeek> DAYS = Map.of(
+            "MO", DayOfWeek.MONDAY, "TU", DayOfWeek.TUESDAY, "WE", DayOfWeek.WEDNESDAY,
+            "TH", DayOfWeek.THURSDAY, "FR", DayOfWeek.FRIDAY, "SA", DayOfWeek.SATURDAY, "SU", DayOfWeek.SUNDAY);
+
+    private final String frequency;
+    private final int interval;
+    private final EnumSet<DayOfWeek> byDays;
+
+    private RecurrenceRule(String frequency, int interval, EnumSet<DayOfWeek> byDays) {
+        this.frequency = frequency;
+        this.interval = interval;
+        this.byDays = byDays;
+    }
+
+    public static RecurrenceRule daily() {
+        return new RecurrenceRule(DAILY, 1, EnumSet.noneOf(DayOfWeek.class));
+    }
+
+    public static RecurrenceRule parse(String rule) {
+        if (rule == null || rule.isBlank()) {
+            throw new IllegalArgumentException("Правило повторения не задано");
+        }
+
+        String body = rule.trim().toUpperCase(Locale.ROOT);
+        if (body.startsWith("RRULE:")) {
+            body = body.substring("RRULE:".length());
+        }
+
+        String frequency = null;
+        int interval = 1;
+        EnumSet<DayOfWeek> byDays = EnumSet.noneOf(DayOfWeek.class);
+
+        for (String part : body.split(";")) {
+            int eq = part.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Некорректное правило повторения: " + rule);
+            }
+            String key = part.substring(0, eq);
+            String value = part.substring(eq + 1);
+            switch (key) {
+                case "FREQ":
+                    if (!DAILY.equals(value) && !WEEKLY.equals(value)) {
+                        throw new IllegalArgumentException("Неподдерживаемая частота повторения: " + value);
+                    }
+                    frequency = value;
+                    break;
+                case "INTERVAL":
+                    try {
+                        interval = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Некорректный интервал повторения: " + value);
+                    }
+                    if (interval < 1) {
+                        throw new IllegalArgumentException("Некорректный интервал повторения: " + value);
+                    }
+                    break;
+                case "BYDAY":
+                    for (String day : value.split(",")) {
+                        DayOfWeek dayOfWeek = DAYS.get(day);
+                        if (dayOfWeek == null) {
+                            throw new IllegalArgumentException("Некорректный день недели: " + day);
+                        }
+                        byDays.add(dayOfWeek);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Неподдерживаемая часть правила повторения: " + key);
+            }
+        }
+
+        if (frequency == null) {
+            throw new IllegalArgumentException("В правиле повторения не указана частота FREQ");
+        }
+        return new RecurrenceRule(frequency, interval, byDays);
+    }
+
+    /**
+     * Даты вхождений серии, начатой seriesStart, в окне [from, to] (seriesEnd == null - без окончания).
+     * Поток ленивый: даты вычисляются по мере чтения, ничего не материализуется заранее.
+     */
+    public Stream<LocalDate> occurrences(LocalDate seriesStart, LocalDate seriesEnd, LocalDate from, LocalDate to) {
+        LocalDate first = from.isAfter(seriesStart) ? from : seriesStart;
+        LocalDate last = seriesEnd != null && seriesEnd.isBefore(to) ? seriesEnd : to;
+        if (first.isAfter(last)) {
+            return Stream.empty();
+        }
+
+        if (DAILY.equals(frequency) && byDays.isEmpty()) {
+            // Выравниваем первую дату на шаг серии и дальше шагаем сразу на interval дней
+            long offset = ChronoUnit.DAYS.between(seriesStart, first) % interval;
+            LocalDate aligned = offset == 0 ? first : first.plusDays(interval - offset);
+            return Stream.iterate(aligned, date -> !date.isAfter(last), date -> date.plusDays(interval));
+        }
+        return Stream.iterate(first, date -> !date.isAfter(last), date -> date.plusDays(1))
+                .filter(date -> occursOn(seriesStart, date));
+    }
+
+    public boolean occursOn(LocalDate seriesStart, LocalDate date) {
+        if (date.isBefore(seriesStart)) {
+            return false;
+        }
+        if (!byDays.isEmpty() && !byDays.contains(date.getDayOfWeek())) {
+            return false;
+        }
+        if (DAILY.equals(frequency)) {
+            return ChronoUnit.DAYS.between(seriesStart, date) % interval == 0;
+        }
+
+        // WEEKLY: считаем недели от понедельника недели начала серии
+        Set<DayOfWeek> days = byDays.isEmpty() ? EnumSet.of(seriesStart.getDayOfWeek()) : byDays;
+        if (!days.contains(date.getDayOfWeek())) {
+            return false;
+        }
+        LocalDate seriesWeek = seriesStart.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate dateWeek = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        return ChronoUnit.WEEKS.between(seriesWeek, dateWeek) % interval == 0;
+    }
+
+    public String getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public Set<DayOfWeek> getByDays() {
+        return EnumSet.copyOf(byDays);
+    }
+
+    // Каноническая запись правила - в таком виде оно хранится в БД
+    @Override
+    public String toString() {
+        StringBuilder rule = new StringBuilder("FREQ=").append(frequency);
+        if (interval != 1) {
+            rule.append(";INTERVAL=").append(interval);
+        }
+        if (!byDays.isEmpty()) {
+            StringJoiner days = new StringJoiner(",");
+            for (DayOfWeek day : byDays) {
+                days.add(day.name().substring(0, 2));
+            }
+            rule.append(";BYDAY=").append(days);
+        }
+        return rule.toString();
+    }
+}
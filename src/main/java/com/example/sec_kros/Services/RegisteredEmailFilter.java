@@ -0,0 +1,212 @@
+package com.example.sec_kros.Services;
+
+import com.example.sec_kros.Repositories.ClientRepository;
+import com.example.sec_kros.Repositories.EmployeeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Фильтр Блума по email всех клиентов и сотрудников для проверки при регистрации.
+ * false - email точно свободен, запросы existsByEmail к двум таблицам не нужны;
+ * true - email, возможно, занят, и решает индексированная проверка в БД (ложных срабатываний около 1%).
+ * Строится из БД при старте и периодически перестраивается; новые email добавляет
+ * RegisteredEmailListener при создании и изменении записей. Старые email после смены
+ * и удаленные записи остаются в фильтре до перестройки - это лишь ложные срабатывания.
+ * Пока фильтр не построен, каждый email считается возможно занятым.
+ */
+@Service
+public class RegisteredEmailFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegisteredEmailFilter.class);
+
+    static final int MIN_CAPACITY = 10_000;
+    static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    private volatile BloomBits current;
+    // Фильтр, который сейчас строится: новые email пишутся и в него, чтобы не потеряться при замене
+    private volatile BloomBits building;
+
+    private final LongAdder skippedChecks = new LongAdder();
+    private final LongAdder databaseChecks = new LongAdder();
+
+    public boolean mightContain(String email) {
+        String key = normalize(email);
+        BloomBits bits = current;
+        if (key == null || bits == null || bits.mightContain(key)) {
+            databaseChecks.increment();
+            return true;
+        }
+        skippedChecks.increment();
+        return false;
+    }
+
+    /**
+     * Добавляет email сразу и еще раз после коммита: сразу - чтобы параллельная регистрация
+     * с тем же адресом пошла в БД, после коммита - чтобы запись попала в фильтр, который начали
+     * строить, пока транзакция еще не была видна запросу перестройки.
+     */
+    public void add(String email) {
+        String key = normalize(email);
+        if (key == null) {
+            return;
+        }
+        put(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(key);
+                }
+            });
+        }
+    }
+
+    /**
+     * Порядок чтения важен: сначала building, потом current. Перестройка публикует новый фильтр
+     * в current раньше, чем обнуляет building, поэтому если building уже пуст, current - уже новый
+     * фильтр. При обратном порядке запись могла попасть только в старый фильтр, который тут же заменят.
+     */
+    private void put(String key) {
+        BloomBits next = building;
+        if (next != null) {
+            next.put(key);
+        }
+        BloomBits bits = current;
+        if (bits != null && bits != next) {
+            bits.put(key);
+        }
+    }
+
+    // Перестройка убирает email, которые больше не заняты, и подгоняет размер под число записей
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${registration.email-filter.rebuild-interval-ms:21600000}",
+            initialDelayString = "${registration.email-filter.rebuild-interval-ms:21600000}")
+    public synchronized void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        try {
+            long expected = clientRepository.count() + employeeRepository.count();
+            BloomBits next = new BloomBits(Math.max(MIN_CAPACITY, expected * 2));
+            building = next;
+            clientRepository.findAllEmails().forEach(email -> putNormalized(next, email));
+            employeeRepository.findAllEmails().forEach(email -> putNormalized(next, email));
+            // Сначала публикуем новый фильтр и только потом (в finally) обнуляем building - см. put
+            current = next;
+            logger.info("Registered email filter built for {} accounts ({} KB) in {} ms",
+                    expected, next.sizeInBytes() / 1024, System.currentTimeMillis() - startedAt);
+        } catch (RuntimeException e) {
+            // Без фильтра (или со старым) регистрация просто проверяет email в БД
+            logger.error("Failed to build registered email filter", e);
+        } finally {
+            building = null;
+        }
+    }
+
+    private static void putNormalized(BloomBits bits, String email) {
+        String key = normalize(email);
+        if (key != null) {
+            bits.put(key);
+        }
+    }
+
+    // Регистр не учитывается: это только добавляет ложные срабатывания, точную проверку делает БД
+    private static String normalize(String email) {
+        if (email == null || email.isBlank()) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public boolean isWarmedUp() {
+        return current != null;
+    }
+
+    public long getSkippedChecks() {
+        return skippedChecks.sum();
+    }
+
+    public long getDatabaseChecks() {
+        return databaseChecks.sum();
+    }
+
+    /**
+     * Битовый массив фильтра. Число бит и хэш-функций рассчитано на capacity записей
+     * при FALSE_POSITIVE_RATE; k позиций получаются из двух половин 64-битного хэша
+     * (h1 + i * h2). Биты только устанавливаются, поэтому AtomicLongArray хватает без блокировок.
+     */
+    private static final class BloomBits {
+
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashCount;
+
+        private BloomBits(long capacity) {
+            double ln2 = Math.log(2);
+            long bits = (long) Math.ceil(-capacity * Math.log(FALSE_POSITIVE_RATE) / (ln2 * ln2));
+            this.words = new AtomicLongArray((int) ((bits + 63) >>> 6));
+            this.bitCount = (long) words.length() << 6;
+            this.hashCount = Math.max(1, (int) Math.round((double) bits / capacity * ln2));
+        }
+
+        void put(String key) {
+            long h1 = hash(key);
+            long h2 = mix(h1) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                long mask = 1L << bit;
+                int word = (int) (bit >>> 6);
+                if ((words.get(word) & mask) == 0) {
+                    words.getAndAccumulate(word, mask, (a, b) -> a | b);
+                }
+            }
+        }
+
+        boolean mightContain(String key) {
+            long h1 = hash(key);
+            long h2 = mix(h1) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long sizeInBytes() {
+            return (long) words.length() * Long.BYTES;
+        }
+
+        // FNV-1a по символам строки с перемешиванием: String.hashCode дает только 32 бита
+        private static long hash(String key) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                h ^= key.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            return mix(h);
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.sec_kros.Services;
+
+import com.example.sec_kros.Entities.Client;
+import com.example.sec_kros.Entities.Employee;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * JPA-слушатель сотрудников и клиентов: новый или измененный email добавляется в фильтр
+ * занятых email для регистрации. Удаления не обрабатываются - фильтр Блума не умеет удалять,
+ * лишний email уйдет при следующей перестройке. Сервис запрашивается лениво, как в EntityCountListener.
+ */
+public class RegisteredEmailListener {
+
+    @Autowired
+    private ObjectProvider<RegisteredEmailFilter> registeredEmailFilter;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Object entity) {
+        RegisteredEmailFilter filter = registeredEmailFilter != null ? registeredEmailFilter.getIfAvailable() : null;
+        if (filter == null) {
+            return;
+        }
+        if (entity instanceof Employee employee) {
+            filter.add(employee.getEmail());
+        } else if (entity instanceof Client client) {
+            filter.add(client.getEmail());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.sec_kros.Services;
+
+import com.example.sec_kros.Entities.Employee;
+import com.example.sec_kros.Entities.Report;
+import com.example.sec_kros.Repositories.ReportRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+@Service
+public class ReportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobService.class);
+
+    public static final String STATUS_QUEUED = "queued";
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_COMPLETED = "completed";
+    public static final String STATUS_FAILED = "failed";
+
+    public static final Set<String> REPORT_TYPES = Set.of("revenue", "contracts", "clients", "coverage");
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    @Qualifier("reportExecutor")
+    private TaskExecutor reportExecutor;
+
+    @Value("${reports.storage-dir:reports}")
+    private String storageDir;
+
+    public Report submitReport(String reportType, LocalDate startDate, LocalDate endDate, Employee generatedBy) {
+        if (reportType == null || !REPORT_TYPES.contains(reportType)) {
+            throw new IllegalArgumentException("Неизвестный тип отчета: " + reportType);
+        }
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Некорректный период отчета");
+        }
+
+        Report report = new Report();
+        report.setReportType(reportType);
+        report.setPeriodStart(startDate);
+        report.setPeriodEnd(endDate);
+        report.setGeneratedBy(generatedBy);
+        report.setStatus(STATUS_QUEUED);
+        report.setCreatedAt(LocalDateTime.now());
+        Report saved = reportRepository.save(report);
+
+        Long reportId = saved.getId();
+        try {
+            reportExecutor.execute(() -> runReport(reportId));
+        } catch (TaskRejectedException e) {
+            logger.warn("Report queue is full, rejecting report job {}", reportId);
+            markFailed(saved, "Очередь отчетов переполнена");
+            throw new RuntimeException("Очередь отчетов переполнена, попробуйте позже");
+        }
+
+        logger.info("Report job {} ({}) queued for period {} - {}", reportId, reportType, startDate, endDate);
+        return saved;
+    }
+
+    public Optional<Report> getReport(Long id) {
+        return reportRepository.findById(id);
+    }
+
+    public List<Report> getRecentReports() {
+        return reportRepository.findTop20ByOrderByCreatedAtDesc();
+    }
+
+    public Optional<Path> getReportFile(Long id) {
+        return reportRepository.findById(id)
+                .filter(report -> STATUS_COMPLETED.equals(report.getStatus()))
+                .map(Report::getFilePath)
+                .map(Paths::get)
+                .filter(Files::isReadable);
+    }
+
+    // После перезапуска задачи из очереди потеряны - помечаем их как неуспешные
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedReports() {
+        List<Report> interrupted = reportRepository.findByStatusIn(List.of(STATUS_QUEUED, STATUS_RUNNING));
+        for (Report report : interrupted) {
+            markFailed(report, "Генерация прервана перезапуском приложения");
+        }
+        if (!interrupted.isEmpty()) {
+            logger.warn("Marked {} interrupted report jobs as failed", interrupted.size());
+        }
+    }
+
+    void runReport(Long reportId) {
+        Report report = reportRepository.findById(reportId).orElse(null);
+        if (report == null) {
+            logger.warn("Report job {} disappeared before execution", reportId);
+            return;
+        }
+
+        report.setStatus(STATUS_RUNNING);
+        report = reportRepository.save(report);
+
+        Path file = Paths.get(storageDir).resolve(String.format("%d_%s_report_%s_%s.xlsx", report.getId(),
+                report.getReportType(), report.getPeriodStart(), report.getPeriodEnd()));
+        long started = System.currentTimeMillis();
+
+        try {
+            Files.createDirectories(file.getParent());
+            try (OutputStream outputStream = Files.newOutputStream(file)) {
+                writeReport(report, outputStream);
+            }
+
+            report.setFilePath(file.toAbsolutePath().toString());
+            report.setStatus(STATUS_COMPLETED);
+            report.setCompletedAt(LocalDateTime.now());
+            reportRepository.save(report);
+
+            logger.info("Report job {} completed in {} ms", reportId, System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            logger.error("Report job {} failed", reportId, e);
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // файл будет перезаписан при следующей генерации
+            }
+            markFailed(report, e.getMessage());
+        }
+    }
+
+    private void writeReport(Report report, OutputStream outputStream) throws IOException {
+        switch (report.getReportType()) {
+            case "revenue":
+                reportService.writeRevenueReport(report.getPeriodStart(), report.getPeriodEnd(), outputStream);
+                break;
+            case "contracts":
+                reportService.writeContractsReport(report.getPeriodStart(), report.getPeriodEnd(), outputStream);
+                break;
+            case "clients":
+                reportService.writeClientsReport(report.getPeriodStart(), report.getPeriodEnd(), outputStream);
+                break;
+            case "coverage":
+                reportService.writeCoverageReport(report.getPeriodStart(), report.getPeriodEnd(), outputStream);
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестный тип отчета: " + report.getReportType());
+        }
+    }
+
+    private void markFailed(Report report, String message) {
+        report.setStatus(STATUS_FAILED);
+        report.setErrorMessage(message != null && message.length() > 500 ? message.substring(0, 500) : message);
+        report.setCompletedAt(LocalDateTime.now());
+        reportRepository.save(report);
+    }
+}
@@ -1,22 +1,36 @@
 package com.example.sec_kros.Services;
 
-import com.example.sec_kros.Entities.*;
+import com.example.sec_kros.DTO.ClientReportRow;
+import com.example.sec_kros.DTO.ContractReportRow;
+import com.example.sec_kros.DTO.CoverageSummary;
+import com.example.sec_kros.DTO.CoverageWindow;
+import com.example.sec_kros.DTO.RevenueReportRow;
 import com.example.sec_kros.Repositories.*;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class ReportService {
 
+    // Сколько строк SXSSF держит в памяти, остальные сбрасываются во временный файл
+    static final int STREAMING_ROW_WINDOW = 100;
+
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+
     @Autowired
     private ContractRepository contractRepository;
 
@@ -26,11 +40,78 @@ public class ReportService {
     @Autowired
     private ServiceRepository serviceRepository;
 
+    @Autowired
+    private RevenueRollupRepository revenueRollupRepository;
+
+    @Autowired
+    private CoverageAnalysisService coverageAnalysisService;
+
+    // Выручка читается из дневных агрегатов (RevenueRollupService), а не из таблицы договоров
     public byte[] generateRevenueReport(LocalDate startDate, LocalDate endDate) throws IOException {
-        List<Contract> contracts = contractRepository.findByCreatedAtBetween(startDate.atStartOfDay(),
+        List<RevenueReportRow> revenue = revenueRollupRepository.findReportRows(startDate, endDate);
+
+        Workbook workbook = new XSSFWorkbook();
+        fillRevenueSheet(workbook, revenue);
+
+        return workbookToBytes(workbook);
+    }
+
+    public byte[] generateContractsReport(LocalDate startDate, LocalDate endDate) throws IOException {
+        List<ContractReportRow> contracts = contractRepository.findReportRows(startDate.atStartOfDay(),
                 endDate.plusDays(1).atStartOfDay());
 
         Workbook workbook = new XSSFWorkbook();
+        fillContractsSheet(workbook, contracts);
+
+        return workbookToBytes(workbook);
+    }
+
+    public byte[] generateClientsReport(LocalDate startDate, LocalDate endDate) throws IOException {
+        List<ClientReportRow> clients = clientRepository.findReportRows(startDate.atStartOfDay(),
+                endDate.plusDays(1).atStartOfDay());
+
+        Workbook workbook = new XSSFWorkbook();
+        fillClientsSheet(workbook, clients);
+
+        return workbookToBytes(workbook);
+    }
+
+    // ==================== ПОТОКОВАЯ ВЫГРУЗКА ====================
+    // Строки-проекции читаются курсором из БД и сразу пишутся в SXSSF-книгу с ограниченным окном,
+    // поэтому расход памяти не зависит от длины периода.
+
+    @Transactional(readOnly = true)
+    public void writeRevenueReport(LocalDate startDate, LocalDate endDate, OutputStream outputStream) throws IOException {
+        // Агрегатов не больше (дни x услуги x статусы), курсор здесь не нужен
+        List<RevenueReportRow> revenue = revenueRollupRepository.findReportRows(startDate, endDate);
+        writeStreamingWorkbook(workbook -> fillRevenueSheet(workbook, revenue), outputStream);
+    }
+
+    @Transactional(readOnly = true)
+    public void writeContractsReport(LocalDate startDate, LocalDate endDate, OutputStream outputStream) throws IOException {
+        try (Stream<ContractReportRow> contracts = contractRepository.streamReportRows(startDate.atStartOfDay(),
+                endDate.plusDays(1).atStartOfDay())) {
+            writeStreamingWorkbook(workbook -> fillContractsSheet(workbook, contracts::iterator), outputStream);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void writeClientsReport(LocalDate startDate, LocalDate endDate, OutputStream outputStream) throws IOException {
+        try (Stream<ClientReportRow> clients = clientRepository.streamReportRows(startDate.atStartOfDay(),
+                endDate.plusDays(1).atStartOfDay())) {
+            writeStreamingWorkbook(workbook -> fillClientsSheet(workbook, clients::iterator), outputStream);
+        }
+    }
+
+    // Окна без охраны и двойные назначения пишутся в лист по мере прохода анализа, итоги - на второй лист
+    @Transactional(readOnly = true)
+    public void writeCoverageReport(LocalDate startDate, LocalDate endDate, OutputStream outputStream) throws IOException {
+        writeStreamingWorkbook(workbook -> fillCoverageSheets(workbook, startDate, endDate), outputStream);
+    }
+
+    // ==================== ЗАПОЛНЕНИЕ ЛИСТОВ ====================
+
+    private void fillRevenueSheet(Workbook workbook, Iterable<RevenueReportRow> revenue) {
         Sheet sheet = workbook.createSheet("Отчет по выручке");
 
         // Стили
@@ -40,8 +121,7 @@ public class ReportService {
 
         // Заголовки
         Row headerRow = sheet.createRow(0);
-        String[] headers = {"ID договора", "Клиент", "Услуга", "Дата начала", "Дата окончания",
-                "Сумма договора", "Статус", "Дата создания"};
+        String[] headers = {"Дата", "Услуга", "Статус", "Количество договоров", "Выручка"};
 
         for (int i = 0; i < headers.length; i++) {
             Cell cell = headerRow.createCell(i);
@@ -49,62 +129,48 @@ public class ReportService {
             cell.setCellStyle(headerStyle);
         }
 
+        ColumnWidthEstimator columnWidths = new ColumnWidthEstimator(headers.length);
+        columnWidths.measureHeader(headerRow);
+
         // Данные
         int rowNum = 1;
+        long totalContracts = 0;
         BigDecimal totalRevenue = BigDecimal.ZERO;
 
-        for (Contract contract : contracts) {
+        for (RevenueReportRow day : revenue) {
             Row row = sheet.createRow(rowNum++);
 
-            row.createCell(0).setCellValue(contract.getId());
-            row.createCell(1).setCellValue(contract.getClient().getLastName() + " " +
-                    contract.getClient().getFirstName());
-            row.createCell(2).setCellValue(contract.getService().getName());
+            Cell dateCell = row.createCell(0);
+            dateCell.setCellValue(day.getRevenueDate().toString());
+            dateCell.setCellStyle(dateStyle);
 
-            Cell startDateCell = row.createCell(3);
-            startDateCell.setCellValue(contract.getStartDate().toString());
-            startDateCell.setCellStyle(dateStyle);
-
-            Cell endDateCell = row.createCell(4);
-            endDateCell.setCellValue(contract.getEndDate().toString());
-            endDateCell.setCellStyle(dateStyle);
+            row.createCell(1).setCellValue(day.getServiceName());
+            row.createCell(2).setCellValue(day.getStatus());
+            row.createCell(3).setCellValue(day.getContractsCount());
 
-            Cell amountCell = row.createCell(5);
-            if (contract.getTotalAmount() != null) {
-                amountCell.setCellValue(contract.getTotalAmount().doubleValue());
-                totalRevenue = totalRevenue.add(contract.getTotalAmount());
-            } else {
-                amountCell.setCellValue(0);
-            }
+            Cell amountCell = row.createCell(4);
+            amountCell.setCellValue(day.getTotalAmount().doubleValue());
             amountCell.setCellStyle(currencyStyle);
 
-            row.createCell(6).setCellValue(contract.getStatus());
-
-            Cell createdAtCell = row.createCell(7);
-            createdAtCell.setCellValue(contract.getCreatedAt().toString());
-            createdAtCell.setCellStyle(dateStyle);
+            totalContracts += day.getContractsCount();
+            totalRevenue = totalRevenue.add(day.getTotalAmount());
+            columnWidths.measureRow(row);
         }
 
         // Итоговая строка
         Row totalRow = sheet.createRow(rowNum + 1);
-        totalRow.createCell(4).setCellValue("ИТОГО:");
-        Cell totalCell = totalRow.createCell(5);
+        totalRow.createCell(2).setCellValue("ИТОГО:");
+        totalRow.createCell(3).setCellValue(totalContracts);
+        Cell totalCell = totalRow.createCell(4);
         totalCell.setCellValue(totalRevenue.doubleValue());
         totalCell.setCellStyle(currencyStyle);
+        columnWidths.measureRow(totalRow);
 
-        // Авто-размер колонок
-        for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
-        }
-
-        return workbookToBytes(workbook);
+        // Ширины колонок по оценке, собранной при записи строк
+        columnWidths.apply(sheet);
     }
 
-    public byte[] generateContractsReport(LocalDate startDate, LocalDate endDate) throws IOException {
-        List<Contract> contracts = contractRepository.findByCreatedAtBetween(startDate.atStartOfDay(),
-                endDate.plusDays(1).atStartOfDay());
-
-        Workbook workbook = new XSSFWorkbook();
+    private void fillContractsSheet(Workbook workbook, Iterable<ContractReportRow> contracts) {
         Sheet sheet = workbook.createSheet("Отчет по договорам");
 
         CellStyle headerStyle = createHeaderStyle(workbook);
@@ -121,17 +187,19 @@ public class ReportService {
             cell.setCellStyle(headerStyle);
         }
 
+        ColumnWidthEstimator columnWidths = new ColumnWidthEstimator(headers.length);
+        columnWidths.measureHeader(headerRow);
+
         // Данные
         int rowNum = 1;
-        for (Contract contract : contracts) {
+        for (ContractReportRow contract : contracts) {
             Row row = sheet.createRow(rowNum++);
 
             row.createCell(0).setCellValue(contract.getId());
-            row.createCell(1).setCellValue(contract.getClient().getLastName() + " " +
-                    contract.getClient().getFirstName());
-            row.createCell(2).setCellValue(contract.getClient().getPhone());
-            row.createCell(3).setCellValue(contract.getClient().getEmail());
-            row.createCell(4).setCellValue(contract.getService().getName());
+            row.createCell(1).setCellValue(contract.getClientName());
+            row.createCell(2).setCellValue(contract.getClientPhone());
+            row.createCell(3).setCellValue(contract.getClientEmail());
+            row.createCell(4).setCellValue(contract.getServiceName());
 
             Cell startDateCell = row.createCell(5);
             startDateCell.setCellValue(contract.getStartDate().toString());
@@ -146,21 +214,15 @@ public class ReportService {
             Cell createdAtCell = row.createCell(8);
             createdAtCell.setCellValue(contract.getCreatedAt().toString());
             createdAtCell.setCellStyle(dateStyle);
-        }
 
-        // Авто-размер колонок
-        for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
+            columnWidths.measureRow(row);
         }
 
-        return workbookToBytes(workbook);
+        // Ширины колонок по оценке, собранной при записи строк
+        columnWidths.apply(sheet);
     }
 
-    public byte[] generateClientsReport(LocalDate startDate, LocalDate endDate) throws IOException {
-        List<Client> clients = clientRepository.findByCreatedAtBetween(startDate.atStartOfDay(),
-                endDate.plusDays(1).atStartOfDay());
-
-        Workbook workbook = new XSSFWorkbook();
+    private void fillClientsSheet(Workbook workbook, Iterable<ClientReportRow> clients) {
         Sheet sheet = workbook.createSheet("Отчет по клиентам");
 
         CellStyle headerStyle = createHeaderStyle(workbook);
@@ -177,9 +239,12 @@ public class ReportService {
             cell.setCellStyle(headerStyle);
         }
 
+        ColumnWidthEstimator columnWidths = new ColumnWidthEstimator(headers.length);
+        columnWidths.measureHeader(headerRow);
+
         // Данные
         int rowNum = 1;
-        for (Client client : clients) {
+        for (ClientReportRow client : clients) {
             Row row = sheet.createRow(rowNum++);
 
             row.createCell(0).setCellValue(client.getId());
@@ -193,14 +258,79 @@ public class ReportService {
             Cell createdAtCell = row.createCell(7);
             createdAtCell.setCellValue(client.getCreatedAt().toString());
             createdAtCell.setCellStyle(dateStyle);
+
+            columnWidths.measureRow(row);
         }
 
-        // Авто-размер колонок
+        // Ширины колонок по оценке, собранной при записи строк
+        columnWidths.apply(sheet);
+    }
+
+    private void fillCoverageSheets(Workbook workbook, LocalDate startDate, LocalDate endDate) {
+        Sheet sheet = workbook.createSheet("Покрытие объектов");
+        CellStyle headerStyle = createHeaderStyle(workbook);
+
+        // Заголовки
+        Row headerRow = sheet.createRow(0);
+        String[] headers = {"ID объекта", "Объект", "Адрес", "Договор", "Нарушение",
+                "Начало", "Окончание", "Часов"};
+
         for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(headers[i]);
+            cell.setCellStyle(headerStyle);
         }
 
-        return workbookToBytes(workbook);
+        ColumnWidthEstimator columnWidths = new ColumnWidthEstimator(headers.length);
+        columnWidths.measureHeader(headerRow);
+
+        // Данные
+        int[] rowNum = {1};
+        CoverageSummary summary = coverageAnalysisService.analyze(startDate, endDate, window -> {
+            Row row = sheet.createRow(rowNum[0]++);
+
+            row.createCell(0).setCellValue(window.getGuardObject().getId());
+            row.createCell(1).setCellValue(window.getGuardObject().getName());
+            row.createCell(2).setCellValue(window.getGuardObject().getAddress() != null
+                    ? window.getGuardObject().getAddress() : "");
+            row.createCell(3).setCellValue(window.getGuardObject().getContract().getId());
+            row.createCell(4).setCellValue(CoverageWindow.TYPE_UNCOVERED.equals(window.getType())
+                    ? "Нет охраны" : "Двойное назначение");
+            row.createCell(5).setCellValue(window.getStart().format(DATE_TIME_FORMAT));
+            row.createCell(6).setCellValue(window.getEnd().format(DATE_TIME_FORMAT));
+            row.createCell(7).setCellValue(window.getMinutes() / 60.0);
+
+            columnWidths.measureRow(row);
+        });
+
+        // Ширины колонок по оценке, собранной при записи строк
+        columnWidths.apply(sheet);
+
+        Sheet totals = workbook.createSheet("Итоги");
+        Object[][] lines = {
+                {"Период", startDate.format(DateTimeFormatter.ofPattern("dd.MM.yyyy")) + " - "
+                        + endDate.format(DateTimeFormatter.ofPattern("dd.MM.yyyy"))},
+                {"Проверено объектов", summary.getObjectsChecked()},
+                {"Объектов с окнами без охраны", summary.getObjectsWithGaps()},
+                {"Окон без охраны", summary.getUncoveredWindows()},
+                {"Часов без охраны", summary.getUncoveredMinutes() / 60.0},
+                {"Окон с двойным назначением", summary.getDoubleBookedWindows()},
+                {"Часов с двойным назначением", summary.getDoubleBookedMinutes() / 60.0}
+        };
+        ColumnWidthEstimator totalsWidths = new ColumnWidthEstimator(2);
+        for (int i = 0; i < lines.length; i++) {
+            Row row = totals.createRow(i);
+            Cell label = row.createCell(0);
+            label.setCellValue((String) lines[i][0]);
+            label.setCellStyle(headerStyle);
+            if (lines[i][1] instanceof Number number) {
+                row.createCell(1).setCellValue(number.doubleValue());
+            } else {
+                row.createCell(1).setCellValue((String) lines[i][1]);
+            }
+            totalsWidths.measureRow(row);
+        }
+        totalsWidths.apply(totals);
     }
 
     private CellStyle createHeaderStyle(Workbook workbook) {
@@ -235,4 +365,19 @@ public class ReportService {
         workbook.close();
         return outputStream.toByteArray();
     }
-}
\ No newline at end of file
+
+    // Книга создается здесь, чтобы временные файлы SXSSF удалялись и тогда, когда ошибка
+    // (курсор БД, оборванное соединение) случилась еще при заполнении листов
+    private void writeStreamingWorkbook(Consumer<SXSSFWorkbook> filler, OutputStream outputStream) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(STREAMING_ROW_WINDOW);
+        try {
+            filler.accept(workbook);
+            workbook.write(outputStream);
+            outputStream.flush();
+        } finally {
+            // Удаляем временные файлы SXSSF
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+}
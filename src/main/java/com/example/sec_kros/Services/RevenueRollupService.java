@@ -0,0 +1,185 @@
+package com.example.sec_kros.Services;
+
+import com.example.sec_kros.DTO.RevenueReportRow;
+import com.example.sec_kros.Entities.Contract;
+import com.example.sec_kros.Entities.RevenueDailyRollup;
+import com.example.sec_kros.Entities.ServiceEntity;
+import com.example.sec_kros.Repositories.ContractRepository;
+import com.example.sec_kros.Repositories.RevenueRollupRepository;
+import com.example.sec_kros.Repositories.ServiceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Поддерживает таблицу дневных агрегатов выручки (день x услуга x статус).
+ * ContractService сообщает сюда о каждом создании, изменении, одобрении и удалении договора,
+ * поэтому отчеты по выручке читают несколько сотен готовых строк вместо всей таблицы договоров.
+ */
+@Service
+public class RevenueRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevenueRollupService.class);
+
+    @Autowired
+    private RevenueRollupRepository revenueRollupRepository;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Autowired
+    private ServiceRepository serviceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Transactional
+    public void contractCreated(Contract contract) {
+        apply(ContractSnapshot.of(contract), 1);
+    }
+
+    @Transactional
+    public void contractChanged(ContractSnapshot before, Contract after) {
+        ContractSnapshot current = ContractSnapshot.of(after);
+        if (Objects.equals(before, current)) {
+            return;
+        }
+        apply(before, -1);
+        apply(current, 1);
+    }
+
+    @Transactional
+    public void contractDeleted(Contract contract) {
+        apply(ContractSnapshot.of(contract), -1);
+    }
+
+    @Transactional(readOnly = true)
+    public List<RevenueReportRow> getDailyRevenue(LocalDate startDate, LocalDate endDate) {
+        return revenueRollupRepository.findReportRows(startDate, endDate);
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal getTotalRevenue(LocalDate startDate, LocalDate endDate) {
+        BigDecimal total = revenueRollupRepository.sumTotalAmount(startDate, endDate);
+        return total != null ? total : BigDecimal.ZERO;
+    }
+
+    // Полное перестроение агрегатов из таблицы договоров (исправляет любое расхождение)
+    @Transactional
+    public int rebuild() {
+        long started = System.currentTimeMillis();
+        revenueRollupRepository.deleteAllInBatch();
+
+        List<RevenueReportRow> aggregates = contractRepository.aggregateDailyRevenue();
+        List<RevenueDailyRollup> rows = aggregates.stream()
+                .map(row -> new RevenueDailyRollup(row.getRevenueDate(),
+                        serviceRepository.getReferenceById(row.getServiceId()),
+                        row.getStatus(), row.getContractsCount(), row.getTotalAmount()))
+                .toList();
+        revenueRollupRepository.saveAll(rows);
+
+        logger.info("Revenue rollup rebuilt: {} rows in {} ms", rows.size(), System.currentTimeMillis() - started);
+        return rows.size();
+    }
+
+    // Таблица появляется пустой после обновления схемы - заполняем ее по существующим договорам
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (revenueRollupRepository.count() == 0 && contractRepository.count() > 0) {
+            rebuild();
+        }
+    }
+
+    private void apply(ContractSnapshot snapshot, int sign) {
+        if (snapshot == null) {
+            return;
+        }
+
+        Long serviceId = snapshot.service.getId();
+        if (sign > 0) {
+            if (revenueRollupRepository.increment(snapshot.day, serviceId, snapshot.status, 1, snapshot.amount) == 0) {
+                createEmptyRow(snapshot.day, serviceId, snapshot.status);
+                revenueRollupRepository.increment(snapshot.day, serviceId, snapshot.status, 1, snapshot.amount);
+            }
+        } else {
+            // Вычитаем только из существующей строки: она появилась вместе с договором
+            revenueRollupRepository.increment(snapshot.day, serviceId, snapshot.status, -1, snapshot.amount.negate());
+            revenueRollupRepository.deleteIfEmpty(snapshot.day, serviceId, snapshot.status);
+        }
+    }
+
+    /**
+     * Создает нулевую строку агрегата в отдельной транзакции. Две транзакции могут одновременно
+     * не найти строку; вставка второй упадет на уникальном ключе, но упадет только ее собственная
+     * короткая транзакция (на PostgreSQL ошибка внутри внешней транзакции сделала бы ее непригодной),
+     * и приращение затем пойдет в строку, созданную первой. Нулевая строка, оставшаяся после отката
+     * внешней транзакции, в отчеты не попадает и удаляется при следующем вычитании.
+     */
+    private void createEmptyRow(LocalDate day, Long serviceId, String status) {
+        TransactionTemplate newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            newTransaction.executeWithoutResult(tx -> revenueRollupRepository.saveAndFlush(
+                    new RevenueDailyRollup(day, serviceRepository.getReferenceById(serviceId), status,
+                            0, BigDecimal.ZERO)));
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Revenue rollup row {} / {} / {} created concurrently", day, serviceId, status);
+        }
+    }
+
+    /**
+     * Значения договора, от которых зависят агрегаты. Снимается до изменения договора,
+     * чтобы вычесть старый вклад и добавить новый.
+     */
+    public static final class ContractSnapshot {
+        private final LocalDate day;
+        private final ServiceEntity service;
+        private final String status;
+        private final BigDecimal amount;
+
+        private ContractSnapshot(LocalDate day, ServiceEntity service, String status, BigDecimal amount) {
+            this.day = day;
+            this.service = service;
+            this.status = status;
+            this.amount = amount;
+        }
+
+        // null, если договор еще не учитывается в агрегатах (нет даты создания или услуги)
+        public static ContractSnapshot of(Contract contract) {
+            if (contract == null || contract.getCreatedAt() == null || contract.getService() == null
+                    || contract.getService().getId() == null || contract.getStatus() == null) {
+                return null;
+            }
+            return new ContractSnapshot(contract.getCreatedAt().toLocalDate(), contract.getService(),
+                    contract.getStatus(),
+                    contract.getTotalAmount() != null ? contract.getTotalAmount() : BigDecimal.ZERO);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ContractSnapshot that)) return false;
+            return day.equals(that.day) && service.getId().equals(that.service.getId())
+                    && status.equals(that.status) && amount.compareTo(that.amount) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(day, service.getId(), status);
+        }
+    }
+}
@@ -0,0 +1,526 @@
+package com.example.sec_kros.Services;
+
+import com.example.sec_kros.DTO.RosterAssignment;
+import com.example.sec_kros.DTO.RosterPlan;
+import com.example.sec_kros.DTO.ShiftOccurrence;
+import com.example.sec_kros.DTO.ShiftRequirement;
+import com.example.sec_kros.DTO.ShiftSlot;
+import com.example.sec_kros.Entities.Contract;
+import com.example.sec_kros.Entities.Employee;
+import com.example.sec_kros.Entities.GuardObject;
+import com.example.sec_kros.Entities.Schedule;
+import com.example.sec_kros.Repositories.EmployeeRepository;
+import com.example.sec_kros.Repositories.GuardObjectRepository;
+import com.example.sec_kros.Repositories.ScheduleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+
+/**
+ * Автоматическое планирование графика: смены на объектах действующих договоров распределяются
+ * между охранниками без пересечений с уже назначенными сменами и с отдыхом не меньше MIN_REST_MINUTES.
+ * Стоимость назначения - добавленные сверхурочные (сверх WEEKLY_NORM_MINUTES за календарную неделю)
+ * и добавленный переезд между объектами соседних смен охранника по координатам объектов.
+ * Смены разбираются жадно в хронологическом порядке; STARTS запусков с разным порядком смен
+ * одного времени и небольшим шумом в стоимости идут параллельно в fork/join-пуле, берется самый дешевый план.
+ * Результат детерминирован: при равной стоимости выигрывает запуск с меньшим номером.
+ */
+@Service
+public class RosterSolverService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RosterSolverService.class);
+
+    static final long WEEKLY_NORM_MINUTES = 40 * 60;
+    static final long MIN_REST_MINUTES = 8 * 60;
+    static final int MAX_HORIZON_DAYS = 62;
+    static final int STARTS = 8;
+    // Минута сверхурочных и километр переезда стоят одинаково; смена без охранника дороже любого назначения
+    static final double OVERTIME_WEIGHT = 1.0;
+    static final double TRAVEL_WEIGHT = 1.0;
+    static final double UNASSIGNED_PENALTY = 1_000_000;
+    static final String NOTES = "Автоматический график";
+
+    private static final double JITTER = 0.05;
+    private static final long MAX_SHIFT_MINUTES = 24 * 60;
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private GuardObjectRepository guardObjectRepository;
+
+    @Autowired
+    private ScheduleRepository scheduleRepository;
+
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private ShiftConflictIndex shiftConflictIndex;
+
+    @Autowired
+    @Qualifier("rosterPool")
+    private ForkJoinPool rosterPool;
+
+    /**
+     * План на период: каждый день каждый объект действующего договора закрывается сменой
+     * shiftStart - shiftEnd, если на это время на объекте еще никто не назначен.
+     */
+    @Transactional(readOnly = true)
+    public RosterPlan planRoster(LocalDate from, LocalDate to, LocalTime shiftStart, LocalTime shiftEnd) {
+        List<ShiftRequirement> requirements = buildRequirements(from, to, shiftStart, shiftEnd);
+        return solve(requirements, employeeRepository.findByPositionContaining("Охранник"));
+    }
+
+    /**
+     * Пересчитывает план и сохраняет назначения строками графика. Каждое назначение еще раз
+     * проверяется по индексу конфликтов: пока план смотрели, график могли изменить вручную.
+     */
+    @Transactional
+    public List<Schedule> applyRoster(LocalDate from, LocalDate to, LocalTime shiftStart, LocalTime shiftEnd) {
+        RosterPlan plan = planRoster(from, to, shiftStart, shiftEnd);
+
+        List<Schedule> schedules = new ArrayList<>(plan.getAssignments().size());
+        for (RosterAssignment assignment : plan.getAssignments()) {
+            ShiftRequirement requirement = assignment.getRequirement();
+            shiftConflictIndex.checkNoConflicts(assignment.getEmployee().getId(), requirement.getStart(),
+                    requirement.getEnd(), slot -> false);
+
+            Schedule schedule = new Schedule();
+            schedule.setEmployee(assignment.getEmployee());
+            schedule.setGuardObject(requirement.getGuardObject());
+            schedule.setDate(requirement.getDate());
+            schedule.setStartTime(requirement.getStartTime());
+            schedule.setEndTime(requirement.getEndTime());
+            schedule.setNotes(NOTES);
+            schedules.add(schedule);
+        }
+
+        List<Schedule> saved = scheduleRepository.saveAll(schedules);
+        logger.info("Roster applied for {} - {}: {} shifts saved, {} left unassigned",
+                from, to, saved.size(), plan.getUnassigned().size());
+        return saved;
+    }
+
+    public List<ShiftRequirement> buildRequirements(LocalDate from, LocalDate to,
+                                                    LocalTime shiftStart, LocalTime shiftEnd) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("Некорректный период планирования");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_HORIZON_DAYS) {
+            throw new IllegalArgumentException("Период планирования не может быть длиннее " + MAX_HORIZON_DAYS + " дней");
+        }
+        if (shiftStart == null || shiftEnd == null) {
+            throw new IllegalArgumentException("Не указано время смены");
+        }
+
+        List<GuardObject> guardObjects = guardObjectRepository.findActiveBetween(from, to);
+        if (guardObjects.isEmpty()) {
+            return List.of();
+        }
+
+        // Смены, уже закрытые вручную, серией или при одобрении договора, повторно не планируем
+        Map<Long, List<ShiftOccurrence>> occupied = scheduleService.getOccurrences(from, to).stream()
+                .collect(Collectors.groupingBy(occurrence -> occurrence.getGuardObject().getId()));
+
+        List<ShiftRequirement> requirements = new ArrayList<>();
+        for (GuardObject guardObject : guardObjects) {
+            Contract contract = guardObject.getContract();
+            LocalDate first = contract.getStartDate().isAfter(from) ? contract.getStartDate() : from;
+            LocalDate last = contract.getEndDate().isBefore(to) ? contract.getEndDate() : to;
+            List<ShiftOccurrence> existing = occupied.getOrDefault(guardObject.getId(), List.of());
+
+            for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+                ShiftRequirement requirement = new ShiftRequirement(guardObject, date, shiftStart, shiftEnd);
+                boolean covered = existing.stream().anyMatch(occurrence ->
+                        occurrence.getStart().isBefore(requirement.getEnd())
+                                && requirement.getStart().isBefore(occurrence.getEnd()));
+                if (!covered) {
+                    requirements.add(requirement);
+                }
+            }
+        }
+        return requirements;
+    }
+
+    public RosterPlan solve(List<ShiftRequirement> requirements, List<Employee> guards) {
+        if (requirements.isEmpty()) {
+            return new RosterPlan(List.of(), List.of(), List.of(), 0, 0, 0);
+        }
+
+        long started = System.nanoTime();
+        RosterProblem problem = new RosterProblem(requirements, guards);
+        RosterRun best = rosterPool.invoke(new SolveTask(problem, 0, STARTS));
+        RosterPlan plan = best.toPlan(problem);
+
+        logger.info("Roster planned: {} shifts, {} unassigned, {} guards, overtime {} min, travel {} km, " +
+                        "best start {} of {}, in {} ms", plan.getAssignments().size(), plan.getUnassigned().size(),
+                guards.size(), plan.getOvertimeMinutes(), Math.round(plan.getTravelKm()), best.seed, STARTS,
+                (System.nanoTime() - started) / 1_000_000);
+        return plan;
+    }
+
+    // Равнопромежуточная проекция: для переездов в пределах региона точность та же, что у формулы гаверсинусов,
+    // а на миллионах сравнений кандидатов не нужны sin/asin. Координаты в радианах, cos - косинус широты
+    static double distanceKm(double lat1, double lon1, double cos1, double lat2, double lon2, double cos2) {
+        // Объект без координат переезда не добавляет
+        if (Double.isNaN(lat1) || Double.isNaN(lat2)) {
+            return 0;
+        }
+        double x = (lon2 - lon1) * (cos1 + cos2) / 2;
+        double y = lat2 - lat1;
+        return EARTH_RADIUS_KM * Math.sqrt(x * x + y * y);
+    }
+
+    private static long minuteOf(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    // Номер календарной недели с понедельника (1970-01-01 - четверг)
+    private static long weekOf(long minute) {
+        return Math.floorDiv(Math.floorDiv(minute, 24 * 60) + 3, 7);
+    }
+
+    private static Slot slot(long start, long end, GuardObject guardObject) {
+        if (guardObject == null || guardObject.getLatitude() == null || guardObject.getLongitude() == null) {
+            return new Slot(start, end, Double.NaN, Double.NaN, Double.NaN);
+        }
+        double latitude = Math.toRadians(guardObject.getLatitude().doubleValue());
+        return new Slot(start, end, latitude, Math.toRadians(guardObject.getLongitude().doubleValue()),
+                Math.cos(latitude));
+    }
+
+    /**
+     * Неизменяемые входные данные всех запусков: смены в хронологическом порядке и уже
+     * назначенные смены охранников (из индекса конфликтов) на недели периода.
+     */
+    private final class RosterProblem {
+        private final List<ShiftRequirement> requirements;
+        private final List<Employee> guards;
+        private final Slot[] slots;
+        private final long firstWeek;
+        private final int weeks;
+        // null - у охранника нет назначенных смен рядом с периодом
+        private final List<TreeMap<Long, Slot>> existingSlots = new ArrayList<>();
+        private final long[][] existingWeeks;
+
+        private RosterProblem(List<ShiftRequirement> requirements, List<Employee> guards) {
+            this.requirements = new ArrayList<>(requirements);
+            this.requirements.sort(Comparator.comparing(ShiftRequirement::getStart)
+                    .thenComparing(requirement -> requirement.getGuardObject().getId()));
+            this.guards = guards;
+
+            int size = this.requirements.size();
+            slots = new Slot[size];
+            Map<Long, GuardObject> guardObjects = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                ShiftRequirement requirement = this.requirements.get(i);
+                slots[i] = slot(minuteOf(requirement.getStart()), minuteOf(requirement.getEnd()),
+                        requirement.getGuardObject());
+                guardObjects.putIfAbsent(requirement.getGuardObject().getId(), requirement.getGuardObject());
+            }
+            firstWeek = weekOf(slots[0].start);
+            weeks = (int) (weekOf(slots[size - 1].start) - firstWeek + 1);
+
+            // Уже назначенные смены берем на полные недели периода и на сутки вокруг (для отдыха и переездов)
+            LocalDateTime from = this.requirements.get(0).getDate()
+                    .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).minusDays(1).atStartOfDay();
+            LocalDateTime to = this.requirements.get(size - 1).getDate()
+                    .with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY)).plusDays(2).atStartOfDay();
+            List<List<ShiftSlot>> existing = new ArrayList<>(guards.size());
+            Set<Long> unknownObjects = new HashSet<>();
+            for (Employee guard : guards) {
+                List<ShiftSlot> guardSlots = shiftConflictIndex.findConflicts(guard.getId(), from, to);
+                guardSlots.forEach(slot -> {
+                    if (!guardObjects.containsKey(slot.getGuardObjectId())) {
+                        unknownObjects.add(slot.getGuardObjectId());
+                    }
+                });
+                existing.add(guardSlots);
+            }
+            if (!unknownObjects.isEmpty()) {
+                guardObjectRepository.findAllById(unknownObjects)
+                        .forEach(guardObject -> guardObjects.put(guardObject.getId(), guardObject));
+            }
+
+            existingWeeks = new long[guards.size()][weeks];
+            for (int g = 0; g < existing.size(); g++) {
+                List<ShiftSlot> guardSlots = existing.get(g);
+                if (guardSlots.isEmpty()) {
+                    existingSlots.add(null);
+                    continue;
+                }
+                TreeMap<Long, Slot> byStart = new TreeMap<>();
+                for (ShiftSlot shiftSlot : guardSlots) {
+                    Slot busy = slot(minuteOf(shiftSlot.getStart()), minuteOf(shiftSlot.getEnd()),
+                            guardObjects.get(shiftSlot.getGuardObjectId()));
+                    // Старые пересекающиеся смены с одним началом: для проверки хватает самой длинной
+                    byStart.merge(busy.start, busy, (left, right) -> left.end >= right.end ? left : right);
+                    long week = weekOf(busy.start) - firstWeek;
+                    if (week >= 0 && week < weeks) {
+                        existingWeeks[g][(int) week] += busy.end - busy.start;
+                    }
+                }
+                existingSlots.add(byStart);
+            }
+        }
+
+        // Порядок разбора смен: хронологический, в запусках кроме нулевого смены одного времени перемешаны
+        private int[] order(SplittableRandom random, boolean shuffle) {
+            int[] order = new int[slots.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            if (!shuffle) {
+                return order;
+            }
+            int groupStart = 0;
+            for (int i = 1; i <= order.length; i++) {
+                if (i == order.length || slots[i].start != slots[groupStart].start) {
+                    for (int j = i - 1; j > groupStart; j--) {
+                        int k = groupStart + random.nextInt(j - groupStart + 1);
+                        int swap = order[j];
+                        order[j] = order[k];
+                        order[k] = swap;
+                    }
+                    groupStart = i;
+                }
+            }
+            return order;
+        }
+    }
+
+    private static final class Slot {
+        private final long start;
+        private final long end;
+        private final double latitude;
+        private final double longitude;
+        private final double cos;
+
+        private Slot(long start, long end, double latitude, double longitude, double cos) {
+            this.start = start;
+            this.end = end;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.cos = cos;
+        }
+
+        private double distanceTo(Slot other) {
+            return distanceKm(latitude, longitude, cos, other.latitude, other.longitude, other.cos);
+        }
+    }
+
+    /**
+     * Один жадный запуск со своим порядком смен. Смены разбираются по времени начала, поэтому
+     * запланированные в этом запуске смены охранника всегда раньше текущей: для них достаточно
+     * помнить последнюю. Уже назначенные смены общие для всех запусков и смотрятся в TreeMap.
+     */
+    private static final class RosterRun {
+        private final int seed;
+        private final int[] assigned;
+        private final double[] travel;
+        private final long[] guardMinutes;
+        private final int[] guardShifts;
+        private final long[] guardOvertime;
+        private final double[] guardTravel;
+        private long overtimeMinutes;
+        private double travelKm;
+        private double cost;
+
+        private RosterRun(int seed, int requirements, int guards) {
+            this.seed = seed;
+            assigned = new int[requirements];
+            travel = new double[requirements];
+            guardMinutes = new long[guards];
+            guardShifts = new int[guards];
+            guardOvertime = new long[guards];
+            guardTravel = new double[guards];
+        }
+
+        private static RosterRun solve(RosterProblem problem, int seed) {
+            int guards = problem.guards.size();
+            RosterRun run = new RosterRun(seed, problem.slots.length, guards);
+            SplittableRandom random = new SplittableRandom(seed);
+
+            Slot[] lastPlanned = new Slot[guards];
+            long[][] weekMinutes = new long[guards][];
+            for (int g = 0; g < guards; g++) {
+                weekMinutes[g] = problem.existingWeeks[g].clone();
+            }
+
+            for (int r : problem.order(random, seed > 0)) {
+                Slot requested = problem.slots[r];
+                long minutes = requested.end - requested.start;
+                int week = (int) (weekOf(requested.start) - problem.firstWeek);
+
+                int best = -1;
+                double bestScore = Double.MAX_VALUE;
+                long bestOvertime = 0;
+                double bestTravel = 0;
+                for (int g = 0; g < guards; g++) {
+                    Slot planned = lastPlanned[g];
+                    TreeMap<Long, Slot> existing = problem.existingSlots.get(g);
+                    if (planned != null && planned.end + MIN_REST_MINUTES > requested.start) {
+                        continue;
+                    }
+                    if (existing != null && !fits(existing, requested)) {
+                        continue;
+                    }
+
+                    long before = weekMinutes[g][week];
+                    long overtime = Math.max(0, before + minutes - WEEKLY_NORM_MINUTES)
+                            - Math.max(0, before - WEEKLY_NORM_MINUTES);
+                    double travel = travelDelta(planned, existing, requested);
+                    double score = overtime * OVERTIME_WEIGHT + travel * TRAVEL_WEIGHT;
+                    if (seed > 0) {
+                        score *= 1 + random.nextDouble() * JITTER;
+                    }
+
+                    // При равной стоимости - охранник с меньшей нагрузкой в плане
+                    if (score < bestScore || (score == bestScore && best >= 0
+                            && run.guardMinutes[g] < run.guardMinutes[best])) {
+                        best = g;
+                        bestScore = score;
+                        bestOvertime = overtime;
+                        bestTravel = travel;
+                    }
+                }
+
+                run.assigned[r] = best;
+                if (best < 0) {
+                    run.cost += UNASSIGNED_PENALTY;
+                    continue;
+                }
+
+                lastPlanned[best] = requested;
+                weekMinutes[best][week] += minutes;
+                run.travel[r] = bestTravel;
+                run.guardMinutes[best] += minutes;
+                run.guardShifts[best]++;
+                run.guardOvertime[best] += bestOvertime;
+                run.guardTravel[best] += bestTravel;
+                run.overtimeMinutes += bestOvertime;
+                run.travelKm += bestTravel;
+                run.cost += bestOvertime * OVERTIME_WEIGHT + bestTravel * TRAVEL_WEIGHT;
+            }
+            return run;
+        }
+
+        // Смена не пересекается с назначенными и оставляет отдых с обеих сторон
+        private static boolean fits(TreeMap<Long, Slot> existing, Slot requested) {
+            for (Slot slot : existing.subMap(requested.start - MAX_SHIFT_MINUTES - MIN_REST_MINUTES, true,
+                    requested.end + MIN_REST_MINUTES, false).values()) {
+                if (slot.start < requested.end + MIN_REST_MINUTES && requested.start < slot.end + MIN_REST_MINUTES) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Сколько километров добавляет вставка объекта между предыдущей и следующей сменой охранника
+        private static double travelDelta(Slot planned, TreeMap<Long, Slot> existing, Slot requested) {
+            Slot previous = planned;
+            Slot next = null;
+            if (existing != null) {
+                Map.Entry<Long, Slot> lower = existing.lowerEntry(requested.start);
+                if (lower != null && (previous == null || lower.getValue().start > previous.start)) {
+                    previous = lower.getValue();
+                }
+                Map.Entry<Long, Slot> higher = existing.higherEntry(requested.start);
+                next = higher != null ? higher.getValue() : null;
+            }
+
+            double delta = 0;
+            if (previous != null) {
+                delta += previous.distanceTo(requested);
+            }
+            if (next != null) {
+                delta += requested.distanceTo(next);
+                if (previous != null) {
+                    delta -= previous.distanceTo(next);
+                }
+            }
+            return Math.max(0, delta);
+        }
+
+        private boolean isBetterThan(RosterRun other) {
+            return cost < other.cost || (cost == other.cost && seed < other.seed);
+        }
+
+        private RosterPlan toPlan(RosterProblem problem) {
+            List<RosterAssignment> assignments = new ArrayList<>();
+            List<ShiftRequirement> unassigned = new ArrayList<>();
+            for (int r = 0; r < assigned.length; r++) {
+                ShiftRequirement requirement = problem.requirements.get(r);
+                if (assigned[r] < 0) {
+                    unassigned.add(requirement);
+                } else {
+                    assignments.add(new RosterAssignment(requirement, problem.guards.get(assigned[r]), travel[r]));
+                }
+            }
+
+            List<RosterPlan.GuardLoad> loads = new ArrayList<>();
+            for (int g = 0; g < guardShifts.length; g++) {
+                if (guardShifts[g] > 0) {
+                    loads.add(new RosterPlan.GuardLoad(problem.guards.get(g), guardShifts[g], guardMinutes[g],
+                            guardOvertime[g], guardTravel[g]));
+                }
+            }
+            loads.sort(Comparator.comparingLong(RosterPlan.GuardLoad::getMinutes).reversed());
+
+            return new RosterPlan(assignments, unassigned, loads, overtimeMinutes, travelKm, cost);
+        }
+    }
+
+    /**
+     * Запуски [fromSeed, toSeed) делятся пополам до одного запуска на задачу; из половин берется лучший.
+     */
+    private static final class SolveTask extends RecursiveTask<RosterRun> {
+        private final RosterProblem problem;
+        private final int fromSeed;
+        private final int toSeed;
+
+        private SolveTask(RosterProblem problem, int fromSeed, int toSeed) {
+            this.problem = problem;
+            this.fromSeed = fromSeed;
+            this.toSeed = toSeed;
+        }
+
+        @Override
+        protected RosterRun compute() {
+            if (toSeed - fromSeed == 1) {
+                return RosterRun.solve(problem, fromSeed);
+            }
+            int middle = (fromSeed + toSeed) >>> 1;
+            SolveTask left = new SolveTask(problem, fromSeed, middle);
+            left.fork();
+            RosterRun right = new SolveTask(problem, middle, toSeed).compute();
+            RosterRun leftRun = left.join();
+            return leftRun.isBetterThan(right) ? leftRun : right;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.sec_kros.Services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики записи графиков при одобрении договора: сколько смен запланировано и сколько это заняло.
+ * Смены хранятся правилом повторения, поэтому число смен не равно числу записанных строк.
+ * Каждое одобрение пишется в лог, накопленные значения показываются на панели администратора.
+ */
+@Service
+public class ScheduleMaterializationMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScheduleMaterializationMetrics.class);
+
+    private final LongAdder approvals = new LongAdder();
+    private final LongAdder plannedShifts = new LongAdder();
+    private final LongAdder totalElapsedMs = new LongAdder();
+    private final AtomicLong lastPlannedShifts = new AtomicLong();
+    private final AtomicLong lastElapsedMs = new AtomicLong();
+    private final AtomicLong maxElapsedMs = new AtomicLong();
+
+    public void record(Long contractId, int shifts, long elapsedMs) {
+        approvals.increment();
+        plannedShifts.add(shifts);
+        totalElapsedMs.add(elapsedMs);
+        lastPlannedShifts.set(shifts);
+        lastElapsedMs.set(elapsedMs);
+        maxElapsedMs.accumulateAndGet(elapsedMs, Math::max);
+
+        logger.info("Contract {} approval planned {} shifts in {} ms", contractId, shifts, elapsedMs);
+    }
+
+    public long getApprovals() {
+        return approvals.sum();
+    }
+
+    public long getPlannedShifts() {
+        return plannedShifts.sum();
+    }
+
+    public long getLastPlannedShifts() {
+        return lastPlannedShifts.get();
+    }
+
+    public long getLastElapsedMs() {
+        return lastElapsedMs.get();
+    }
+
+    public long getMaxElapsedMs() {
+        return maxElapsedMs.get();
+    }
+
+    public long getAverageElapsedMs() {
+        long count = approvals.sum();
+        return count == 0 ? 0 : totalElapsedMs.sum() / count;
+    }
+}
@@ -3,18 +3,41 @@ package com.example.sec_kros.Services;
 import com.example.sec_kros.Entities.Schedule;
 import com.example.sec_kros.Entities.Employee;
 import com.example.sec_kros.Entities.GuardObject;
+import com.example.sec_kros.Entities.RecurringShift;
+import com.example.sec_kros.DTO.KeysetPage;
 import com.example.sec_kros.DTO.ScheduleDTO;
+import com.example.sec_kros.DTO.ShiftOccurrence;
+import com.example.sec_kros.DTO.ShiftSlot;
+import com.example.sec_kros.Repositories.RecurringShiftRepository;
 import com.example.sec_kros.Repositories.ScheduleRepository;
 import com.example.sec_kros.Repositories.EmployeeRepository;
 import com.example.sec_kros.Repositories.GuardObjectRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Service
 public class ScheduleService {
 
+    private static final DateTimeFormatter CURSOR_TIME = DateTimeFormatter.ofPattern("HH:mm");
+    private static final Pattern OCCURRENCE_CURSOR = Pattern.compile("\\d{4}-\\d{2}-\\d{2}_\\d{2}:\\d{2}_[rs]\\d{19}");
+
     @Autowired
     private ScheduleRepository scheduleRepository;
 
@@ -24,19 +47,68 @@ public class ScheduleService {
     @Autowired
     private GuardObjectRepository guardObjectRepository;
 
+    @Autowired
+    private RecurringShiftRepository recurringShiftRepository;
+
+    @Autowired
+    private ShiftConflictIndex shiftConflictIndex;
+
+    // Самое длинное окно, которое разворачивается за один запрос
+    static final int MAX_OCCURRENCE_WINDOW_DAYS = 366;
+
+    // Окно списка графиков: страница режется из него в памяти, поэтому оно короче общего предела
+    static final int MAX_PAGE_WINDOW_DAYS = 31;
+
     public List<Schedule> getAllSchedules() {
         return scheduleRepository.findAll();
     }
 
+    // Понедельник недели, в которую попадает дата - начало окна списка графиков
+    public static LocalDate weekStart(LocalDate date) {
+        return date.with(DayOfWeek.MONDAY);
+    }
+
+    // Смены окна дат постранично: и строки Schedule, и вхождения серий, которые строками не хранятся.
+    // Это не keyset-запрос к БД: окно (не длиннее MAX_PAGE_WINDOW_DAYS, список показывает неделю)
+    // разворачивается целиком, а страница - срез отсортированного окна в памяти.
+    // Курсор - ключ сортировки последней строки: "дата_время_s<id графика>" или "..._r<id серии>"
+    @Transactional(readOnly = true)
+    public KeysetPage<ShiftOccurrence> getSchedulesPage(LocalDate from, LocalDate to, String cursor, Integer size) {
+        checkWindow(from, to, MAX_PAGE_WINDOW_DAYS);
+        int pageSize = KeysetPage.normalizeSize(size);
+        String after = cursor == null || cursor.isBlank() ? null : cursor;
+        if (after != null && !OCCURRENCE_CURSOR.matcher(after).matches()) {
+            throw new IllegalArgumentException("Некорректный курсор страницы: " + cursor);
+        }
+
+        List<ShiftOccurrence> page = getOccurrences(from, to).stream()
+                .sorted(Comparator.comparing(ScheduleService::occurrenceKey))
+                .filter(occurrence -> after == null || occurrenceKey(occurrence).compareTo(after) > 0)
+                .limit(pageSize + 1L)
+                .collect(Collectors.toList());
+        return KeysetPage.of(page, cursor, pageSize, ScheduleService::occurrenceKey);
+    }
+
+    // Id дополняется нулями, чтобы строковый порядок ключей совпадал с порядком (дата, время, вид, id)
+    static String occurrenceKey(ShiftOccurrence occurrence) {
+        boolean computed = occurrence.isRecurring();
+        return occurrence.getDate() + "_" + occurrence.getStartTime().format(CURSOR_TIME) + "_"
+                + (computed ? "r" : "s")
+                + String.format("%019d", computed ? occurrence.getRecurringShiftId() : occurrence.getScheduleId());
+    }
+
     public Optional<Schedule> getScheduleById(Long id) {
         return scheduleRepository.findById(id);
     }
 
+    // Транзакция держит блокировку сотрудника от проверки пересечений до коммита
+    @Transactional
     public Schedule createSchedule(ScheduleDTO scheduleDTO) {
         Employee employee = employeeRepository.findById(scheduleDTO.getEmployeeId())
                 .orElseThrow(() -> new RuntimeException("Сотрудник не найден"));
         GuardObject guardObject = guardObjectRepository.findById(scheduleDTO.getGuardObjectId())
                 .orElseThrow(() -> new RuntimeException("Объект охраны не найден"));
+        checkNoConflicts(employee.getId(), scheduleDTO, slot -> false);
 
         Schedule schedule = new Schedule();
         schedule.setEmployee(employee);
@@ -49,6 +121,7 @@ public class ScheduleService {
         return scheduleRepository.save(schedule);
     }
 
+    @Transactional
     public Schedule updateSchedule(Long id, ScheduleDTO scheduleDTO) {
         return scheduleRepository.findById(id)
                 .map(schedule -> {
@@ -56,6 +129,7 @@ public class ScheduleService {
                             .orElseThrow(() -> new RuntimeException("Сотрудник не найден"));
                     GuardObject guardObject = guardObjectRepository.findById(scheduleDTO.getGuardObjectId())
                             .orElseThrow(() -> new RuntimeException("Объект охраны не найден"));
+                    checkNoConflicts(employee.getId(), scheduleDTO, slot -> id.equals(slot.getScheduleId()));
 
                     schedule.setEmployee(employee);
                     schedule.setGuardObject(guardObject);
@@ -80,4 +154,211 @@ public class ScheduleService {
     public List<Schedule> getSchedulesByContractId(Long contractId) {
         return scheduleRepository.findByGuardObject_Contract_Id(contractId);
     }
-}
\ No newline at end of file
+
+    // ---- Повторяющиеся смены ----
+
+    public List<RecurringShift> getAllRecurringShifts() {
+        return recurringShiftRepository.findByOrderByIdDesc();
+    }
+
+    public KeysetPage<RecurringShift> getRecurringShiftsPage(String cursor, Integer size) {
+        int pageSize = KeysetPage.normalizeSize(size);
+        Long afterId = KeysetPage.parseIdCursor(cursor);
+        PageRequest limit = PageRequest.ofSize(pageSize + 1);
+        List<RecurringShift> shifts = afterId == null
+                ? recurringShiftRepository.findPage(limit)
+                : recurringShiftRepository.findPageAfter(afterId, limit);
+        return KeysetPage.of(shifts, cursor, pageSize, shift -> String.valueOf(shift.getId()));
+    }
+
+    // Серия вместе с датами-исключениями - для страницы серии
+    @Transactional(readOnly = true)
+    public Optional<RecurringShift> getRecurringShiftById(Long id) {
+        return recurringShiftRepository.findWithExceptionsById(id);
+    }
+
+    // Вхождения одной серии в окне дат, включая измененные (они могут быть у другого сотрудника)
+    @Transactional(readOnly = true)
+    public List<ShiftOccurrence> getRecurringShiftOccurrences(Long recurringShiftId, LocalDate from, LocalDate to) {
+        checkWindow(from, to);
+        RecurringShift shift = recurringShiftRepository.findWithExceptionsById(recurringShiftId)
+                .orElseThrow(() -> new RuntimeException("Повторяющаяся смена не найдена"));
+        return mergeOccurrences(List.of(shift),
+                scheduleRepository.findOverridesBetween(Set.of(recurringShiftId), from, to), from, to);
+    }
+
+    @Transactional
+    public RecurringShift createRecurringShift(ScheduleDTO scheduleDTO, String rule, LocalDate endDate) {
+        RecurrenceRule recurrenceRule = RecurrenceRule.parse(rule);
+        if (endDate != null && endDate.isBefore(scheduleDTO.getDate())) {
+            throw new IllegalArgumentException("Дата окончания серии раньше даты начала");
+        }
+
+        Employee employee = employeeRepository.findById(scheduleDTO.getEmployeeId())
+                .orElseThrow(() -> new RuntimeException("Сотрудник не найден"));
+        GuardObject guardObject = guardObjectRepository.findById(scheduleDTO.getGuardObjectId())
+                .orElseThrow(() -> new RuntimeException("Объект охраны не найден"));
+
+        RecurringShift shift = new RecurringShift();
+        shift.setEmployee(employee);
+        shift.setGuardObject(guardObject);
+        shift.setRecurrenceRule(recurrenceRule.toString());
+        shift.setStartDate(scheduleDTO.getDate());
+        shift.setEndDate(endDate);
+        shift.setStartTime(scheduleDTO.getStartTime());
+        shift.setEndTime(scheduleDTO.getEndTime());
+        shift.setNotes(scheduleDTO.getNotes());
+        shift.setCreatedAt(LocalDateTime.now());
+        shiftConflictIndex.checkNoConflicts(shift);
+
+        return recurringShiftRepository.save(shift);
+    }
+
+    // Отменяет одно вхождение серии; измененная строка на эту дату тоже удаляется
+    @Transactional
+    public RecurringShift addException(Long recurringShiftId, LocalDate date) {
+        RecurringShift shift = recurringShiftRepository.findById(recurringShiftId)
+                .orElseThrow(() -> new RuntimeException("Повторяющаяся смена не найдена"));
+        if (!occursOn(shift, date)) {
+            throw new IllegalArgumentException("В эту дату смены по серии нет: " + date);
+        }
+
+        shift.getExceptionDates().add(date);
+        scheduleRepository.findByRecurringShiftIdAndDate(recurringShiftId, date)
+                .ifPresent(scheduleRepository::delete);
+        RecurringShift saved = recurringShiftRepository.save(shift);
+        // Изменение только коллекции исключений не вызывает @PostUpdate - обновляем индекс явно
+        shiftConflictIndex.recurringShiftSaved(saved);
+        return saved;
+    }
+
+    // Заменяет одно вхождение серии конкретной строкой Schedule (другое время, сотрудник или примечание)
+    @Transactional
+    public Schedule overrideOccurrence(Long recurringShiftId, LocalDate date, ScheduleDTO scheduleDTO) {
+        RecurringShift shift = recurringShiftRepository.findById(recurringShiftId)
+                .orElseThrow(() -> new RuntimeException("Повторяющаяся смена не найдена"));
+        if (!occursOn(shift, date) || shift.getExceptionDates().contains(date)) {
+            throw new IllegalArgumentException("В эту дату смены по серии нет: " + date);
+        }
+
+        Employee employee = employeeRepository.findById(scheduleDTO.getEmployeeId())
+                .orElseThrow(() -> new RuntimeException("Сотрудник не найден"));
+
+        Schedule schedule = scheduleRepository.findByRecurringShiftIdAndDate(recurringShiftId, date)
+                .orElseGet(Schedule::new);
+        // Заменяемое вхождение и прежняя замена на эту дату не считаются пересечением
+        Long overrideId = schedule.getId();
+        checkNoConflicts(employee.getId(), date, scheduleDTO, slot ->
+                (overrideId != null && overrideId.equals(slot.getScheduleId()))
+                        || (recurringShiftId.equals(slot.getRecurringShiftId()) && date.equals(slot.getDate())));
+        schedule.setRecurringShift(shift);
+        schedule.setEmployee(employee);
+        schedule.setGuardObject(shift.getGuardObject());
+        schedule.setDate(date);
+        schedule.setStartTime(scheduleDTO.getStartTime());
+        schedule.setEndTime(scheduleDTO.getEndTime());
+        schedule.setNotes(scheduleDTO.getNotes());
+
+        return scheduleRepository.save(schedule);
+    }
+
+    public boolean deleteRecurringShift(Long id) {
+        if (recurringShiftRepository.existsById(id)) {
+            recurringShiftRepository.deleteById(id);
+            return true;
+        }
+        return false;
+    }
+
+    // Все смены в окне дат: строки Schedule и вхождения серий, разворачиваемые только для этого окна
+    @Transactional(readOnly = true)
+    public List<ShiftOccurrence> getOccurrences(LocalDate from, LocalDate to) {
+        checkWindow(from, to);
+        return mergeOccurrences(recurringShiftRepository.findActiveBetween(from, to),
+                scheduleRepository.findBetween(from, to), from, to);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ShiftOccurrence> getEmployeeOccurrences(Long employeeId, LocalDate from, LocalDate to) {
+        checkWindow(from, to);
+        return mergeOccurrences(recurringShiftRepository.findActiveByEmployeeBetween(employeeId, from, to),
+                scheduleRepository.findByEmployeeBetween(employeeId, from, to), from, to);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ShiftOccurrence> getGuardObjectOccurrences(Long guardObjectId, LocalDate from, LocalDate to) {
+        checkWindow(from, to);
+        return mergeOccurrences(recurringShiftRepository.findActiveByGuardObjectBetween(guardObjectId, from, to),
+                scheduleRepository.findByGuardObjectBetween(guardObjectId, from, to), from, to);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ShiftOccurrence> getContractOccurrences(Long contractId, LocalDate from, LocalDate to) {
+        checkWindow(from, to);
+        return mergeOccurrences(recurringShiftRepository.findActiveByContractBetween(contractId, from, to),
+                scheduleRepository.findByContractBetween(contractId, from, to), from, to);
+    }
+
+    private List<ShiftOccurrence> mergeOccurrences(List<RecurringShift> shifts, List<Schedule> schedules,
+                                                   LocalDate from, LocalDate to) {
+        List<ShiftOccurrence> occurrences = new ArrayList<>();
+        schedules.forEach(schedule -> occurrences.add(ShiftOccurrence.of(schedule)));
+
+        if (!shifts.isEmpty()) {
+            // Замененные даты берем отдельным запросом: замена могла уйти другому сотруднику
+            // и не попасть в выборку schedules
+            Set<Long> shiftIds = shifts.stream().map(RecurringShift::getId).collect(Collectors.toSet());
+            Map<Long, Set<LocalDate>> overridden = new HashMap<>();
+            for (Schedule override : scheduleRepository.findOverridesBetween(shiftIds, from, to)) {
+                overridden.computeIfAbsent(override.getRecurringShift().getId(), id -> new HashSet<>())
+                        .add(override.getDate());
+            }
+
+            for (RecurringShift shift : shifts) {
+                Set<LocalDate> skipped = overridden.getOrDefault(shift.getId(), Set.of());
+                RecurrenceRule.parse(shift.getRecurrenceRule())
+                        .occurrences(shift.getStartDate(), shift.getEndDate(), from, to)
+                        .filter(date -> !shift.getExceptionDates().contains(date) && !skipped.contains(date))
+                        .forEach(date -> occurrences.add(ShiftOccurrence.of(shift, date)));
+            }
+        }
+
+        occurrences.sort(Comparator.comparing(ShiftOccurrence::getDate)
+                .thenComparing(ShiftOccurrence::getStartTime));
+        return occurrences;
+    }
+
+    public boolean isEmployeeFree(Long employeeId, LocalDateTime start, LocalDateTime end) {
+        return shiftConflictIndex.isFree(employeeId, start, end);
+    }
+
+    private void checkNoConflicts(Long employeeId, ScheduleDTO scheduleDTO, Predicate<ShiftSlot> ignored) {
+        checkNoConflicts(employeeId, scheduleDTO.getDate(), scheduleDTO, ignored);
+    }
+
+    private void checkNoConflicts(Long employeeId, LocalDate date, ScheduleDTO scheduleDTO,
+                                  Predicate<ShiftSlot> ignored) {
+        shiftConflictIndex.checkNoConflicts(employeeId, date.atTime(scheduleDTO.getStartTime()),
+                ShiftSlot.endOf(date, scheduleDTO.getStartTime(), scheduleDTO.getEndTime()), ignored);
+    }
+
+    private boolean occursOn(RecurringShift shift, LocalDate date) {
+        if (shift.getEndDate() != null && date.isAfter(shift.getEndDate())) {
+            return false;
+        }
+        return RecurrenceRule.parse(shift.getRecurrenceRule()).occursOn(shift.getStartDate(), date);
+    }
+
+    private void checkWindow(LocalDate from, LocalDate to) {
+        checkWindow(from, to, MAX_OCCURRENCE_WINDOW_DAYS);
+    }
+
+    private void checkWindow(LocalDate from, LocalDate to, int maxDays) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("Некорректный период графика");
+        }
+        if (from.plusDays(maxDays).isBefore(to)) {
+            throw new IllegalArgumentException("Период графика не может быть длиннее " + maxDays + " дней");
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package com.example.sec_kros.Services;
+
+import com.example.sec_kros.DTO.ShiftSlot;
+import com.example.sec_kros.Entities.RecurringShift;
+import com.example.sec_kros.Entities.Schedule;
+import com.example.sec_kros.Repositories.RecurringShiftRepository;
+import com.example.sec_kros.Repositories.ScheduleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Индекс занятости сотрудников для проверки пересечения смен без запросов к БД.
+ * Для каждого сотрудника смены хранятся в интервальной карте, упорядоченной по началу: смена
+ * длится не больше суток, поэтому пересекающие интервал смены лежат в диапазоне начал
+ * (начало - 24 ч, окончание) и находятся за O(log n + k). Повторяющиеся смены хранятся правилом
+ * и проверяются только на даты запрошенного интервала.
+ * Индекс заполняется при старте и поддерживается ShiftIndexListener при каждой записи смен.
+ */
+@Service
+public class ShiftConflictIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShiftConflictIndex.class);
+
+    // Самая длинная смена - окончание в то же время следующего дня
+    static final Duration MAX_SHIFT = Duration.ofHours(24);
+
+    // Бессрочная серия при создании проверяется на год вперед
+    static final int OPEN_SERIES_HORIZON_DAYS = 366;
+
+    private static final DateTimeFormatter CONFLICT_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+
+    @Autowired
+    private ScheduleRepository scheduleRepository;
+
+    @Autowired
+    private RecurringShiftRepository recurringShiftRepository;
+
+    private final Map<Long, EmployeeTimeline> timelines = new ConcurrentHashMap<>();
+    private final Map<Long, ShiftSlot> slotsBySchedule = new ConcurrentHashMap<>();
+    private final Map<Long, Series> seriesById = new ConcurrentHashMap<>();
+    // Даты вхождений серий, замененные строками Schedule
+    private final Map<Long, Set<LocalDate>> overriddenDates = new ConcurrentHashMap<>();
+
+    // Версия данных сотрудника растет при каждом изменении его смен - по ней кэши
+    // производных структур (GuardAvailabilityService) понимают, что пора пересчитать
+    private final AtomicLong changes = new AtomicLong();
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    // Время последнего изменения смен сотрудника (мс) - для Last-Modified календарной ленты
+    private final Map<Long, Long> changedAt = new ConcurrentHashMap<>();
+    private volatile long rebuiltAt;
+    private volatile long rebuiltAtMillis;
+
+    private volatile boolean initialized;
+
+    // Блокировки сотрудников: проверка пересечений и запись смены сериализуются до конца транзакции
+    private final Map<Long, ReentrantLock> employeeLocks = new ConcurrentHashMap<>();
+    // Ожидание блокировки ограничено: два графика, захватывающие сотрудников в разном порядке,
+    // не зависнут навсегда, а один из них откатится с ошибкой
+    private long lockTimeoutMillis = TimeUnit.SECONDS.toMillis(10);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        timelines.clear();
+        slotsBySchedule.clear();
+        seriesById.clear();
+        overriddenDates.clear();
+        versions.clear();
+        changedAt.clear();
+        rebuiltAt = changes.incrementAndGet();
+        rebuiltAtMillis = started;
+
+        List<ShiftSlot> slots = scheduleRepository.findAllSlots();
+        slots.forEach(this::putSlot);
+        List<RecurringShift> shifts = recurringShiftRepository.findAllWithExceptions();
+        shifts.forEach(shift -> putSeries(Series.of(shift)));
+        initialized = true;
+
+        logger.info("Shift conflict index built: {} schedules, {} recurring shifts in {} ms",
+                slots.size(), shifts.size(), System.currentTimeMillis() - started);
+    }
+
+    // ---- Запросы ----
+
+    public long getVersion(Long employeeId) {
+        ensureInitialized();
+        return versions.getOrDefault(employeeId, rebuiltAt);
+    }
+
+    // После перестроения индекса точное время прошлых изменений неизвестно - считаем им момент перестроения
+    public long getChangedAt(Long employeeId) {
+        ensureInitialized();
+        return changedAt.getOrDefault(employeeId, rebuiltAtMillis);
+    }
+
+    public boolean isFree(Long employeeId, LocalDateTime start, LocalDateTime end) {
+        return findConflicts(employeeId, start, end, slot -> false).isEmpty();
+    }
+
+    public List<ShiftSlot> findConflicts(Long employeeId, LocalDateTime start, LocalDateTime end) {
+        return findConflicts(employeeId, start, end, slot -> false);
+    }
+
+    /**
+     * Смены сотрудника, пересекающиеся с интервалом [start, end), в порядке начала.
+     * ignored исключает из проверки саму изменяемую смену.
+     */
+    public List<ShiftSlot> findConflicts(Long employeeId, LocalDateTime start, LocalDateTime end,
+                                         Predicate<ShiftSlot> ignored) {
+        if (employeeId == null || start == null || end == null || !start.isBefore(end)) {
+            return List.of();
+        }
+        ensureInitialized();
+
+        EmployeeTimeline timeline = timelines.get(employeeId);
+        if (timeline == null) {
+            return List.of();
+        }
+
+        List<ShiftSlot> conflicts = new ArrayList<>();
+        for (ShiftSlot slot : timeline.overlapping(start, end)) {
+            if (!ignored.test(slot)) {
+                conflicts.add(slot);
+            }
+        }
+        for (Series series : timeline.series()) {
+            // Вхождение предыдущего дня может заходить в интервал ночной сменой
+            for (LocalDate date = start.toLocalDate().minusDays(1); date.isBefore(end.toLocalDate().plusDays(1));
+                 date = date.plusDays(1)) {
+                if (series.occursOn(date, overriddenDates.getOrDefault(series.id, Set.of()))) {
+                    ShiftSlot slot = series.slotOn(employeeId, date);
+                    if (slot.overlaps(start, end) && !ignored.test(slot)) {
+                        conflicts.add(slot);
+                    }
+                }
+            }
+        }
+        conflicts.sort(Comparator.comparing(ShiftSlot::getStart));
+        return conflicts;
+    }
+
+    // Бросает исключение с описанием первой пересекающейся смены
+    public void checkNoConflicts(Long employeeId, LocalDateTime start, LocalDateTime end,
+                                 Predicate<ShiftSlot> ignored) {
+        lockEmployee(employeeId);
+        List<ShiftSlot> conflicts = findConflicts(employeeId, start, end, ignored);
+        if (!conflicts.isEmpty()) {
+            ShiftSlot conflict = conflicts.get(0);
+            throw new RuntimeException("Смена пересекается с другой сменой сотрудника: " +
+                    conflict.getStart().format(CONFLICT_FORMAT) + " - " + conflict.getEnd().format(CONFLICT_FORMAT) +
+                    " (объект №" + conflict.getGuardObjectId() + ")");
+        }
+    }
+
+    // Проверяет все вхождения новой или измененной серии; бессрочная - на OPEN_SERIES_HORIZON_DAYS вперед
+    public void checkNoConflicts(RecurringShift shift) {
+        LocalDate first = shift.getStartDate();
+        LocalDate last = shift.getEndDate() != null ? shift.getEndDate() : first.plusDays(OPEN_SERIES_HORIZON_DAYS);
+        Long employeeId = shift.getEmployee().getId();
+        Long shiftId = shift.getId();
+
+        Iterator<LocalDate> dates = RecurrenceRule.parse(shift.getRecurrenceRule())
+                .occurrences(first, shift.getEndDate(), first, last).iterator();
+        while (dates.hasNext()) {
+            LocalDate date = dates.next();
+            if (!shift.getExceptionDates().contains(date)) {
+                checkNoConflicts(employeeId, date.atTime(shift.getStartTime()),
+                        ShiftSlot.endOf(date, shift.getStartTime(), shift.getEndTime()),
+                        slot -> shiftId != null && shiftId.equals(slot.getRecurringShiftId()));
+            }
+        }
+    }
+
+    /**
+     * Захватывает сотрудника до завершения текущей транзакции. Индекс обновляется только после коммита,
+     * поэтому без блокировки две транзакции могли проверить одно и то же свободное время и обе
+     * сохранить смену. Блокировка снимается в afterCompletion, то есть уже после того, как afterCommit
+     * внес смену в индекс, и следующая проверка этого сотрудника ее видит.
+     * Индекс живет в памяти одного экземпляра приложения, поэтому и блокировка локальная.
+     */
+    private void lockEmployee(Long employeeId) {
+        if (employeeId == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        ReentrantLock lock = employeeLocks.computeIfAbsent(employeeId, id -> new ReentrantLock());
+        if (lock.isHeldByCurrentThread()) {
+            return;
+        }
+        try {
+            if (!lock.tryLock(lockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("График сотрудника сейчас изменяется, повторите попытку");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("График сотрудника сейчас изменяется, повторите попытку");
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            // Первой среди afterCompletion: действия после коммита (письма и т.п.) идут уже без блокировки
+            @Override
+            public int getOrder() {
+                return HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+
+    // ---- Поддержка индекса; изменения применяются после коммита, откат транзакции их не оставляет ----
+
+    public void scheduleSaved(Schedule schedule) {
+        ShiftSlot slot = ShiftSlot.of(schedule);
+        afterCommit(() -> putSlot(slot));
+    }
+
+    public void scheduleRemoved(Schedule schedule) {
+        Long scheduleId = schedule.getId();
+        afterCommit(() -> removeSlot(scheduleId));
+    }
+
+    public void recurringShiftSaved(RecurringShift shift) {
+        Series series = Series.of(shift);
+        afterCommit(() -> putSeries(series));
+    }
+
+    public void recurringShiftRemoved(RecurringShift shift) {
+        Long shiftId = shift.getId();
+        afterCommit(() -> removeSeries(shiftId));
+    }
+
+    private void putSlot(ShiftSlot slot) {
+        removeSlot(slot.getScheduleId());
+        slotsBySchedule.put(slot.getScheduleId(), slot);
+        timelines.computeIfAbsent(slot.getEmployeeId(), id -> new EmployeeTimeline()).add(slot);
+        touch(slot.getEmployeeId());
+        if (slot.getRecurringShiftId() != null) {
+            overriddenDates.computeIfAbsent(slot.getRecurringShiftId(), id -> ConcurrentHashMap.newKeySet())
+                    .add(slot.getDate());
+            touchSeriesOwner(slot.getRecurringShiftId());
+        }
+    }
+
+    private void removeSlot(Long scheduleId) {
+        ShiftSlot previous = slotsBySchedule.remove(scheduleId);
+        if (previous == null) {
+            return;
+        }
+        EmployeeTimeline timeline = timelines.get(previous.getEmployeeId());
+        if (timeline != null) {
+            timeline.remove(previous);
+        }
+        touch(previous.getEmployeeId());
+        if (previous.getRecurringShiftId() != null) {
+            Set<LocalDate> dates = overriddenDates.get(previous.getRecurringShiftId());
+            if (dates != null) {
+                dates.remove(previous.getDate());
+            }
+            touchSeriesOwner(previous.getRecurringShiftId());
+        }
+    }
+
+    private void putSeries(Series series) {
+        removeSeries(series.id);
+        seriesById.put(series.id, series);
+        timelines.computeIfAbsent(series.employeeId, id -> new EmployeeTimeline()).putSeries(series);
+        touch(series.employeeId);
+    }
+
+    private void removeSeries(Long shiftId) {
+        Series previous = seriesById.remove(shiftId);
+        if (previous != null) {
+            EmployeeTimeline timeline = timelines.get(previous.employeeId);
+            if (timeline != null) {
+                timeline.removeSeries(shiftId);
+            }
+            touch(previous.employeeId);
+        }
+        overriddenDates.remove(shiftId);
+    }
+
+    private void touch(Long employeeId) {
+        versions.put(employeeId, changes.incrementAndGet());
+        changedAt.put(employeeId, initialized ? System.currentTimeMillis() : rebuiltAtMillis);
+    }
+
+    private void touchSeriesOwner(Long shiftId) {
+        Series series = seriesById.get(shiftId);
+        if (series != null) {
+            touch(series.employeeId);
+        }
+    }
+
+    private void ensureInitialized() {
+        if (!initialized) {
+            rebuild();
+        }
+    }
+
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    /**
+     * Смены одного сотрудника. Упорядочены по началу, затем по id строки,
+     * поэтому смены с одинаковым началом не затирают друг друга.
+     */
+    private static final class EmployeeTimeline {
+        private static final Comparator<ShiftSlot> ORDER = Comparator.comparing(ShiftSlot::getStart)
+                .thenComparing(ShiftSlot::getScheduleId);
+
+        private final NavigableSet<ShiftSlot> slots = new TreeSet<>(ORDER);
+        private final Map<Long, Series> series = new HashMap<>();
+
+        synchronized void add(ShiftSlot slot) {
+            slots.add(slot);
+        }
+
+        synchronized void remove(ShiftSlot slot) {
+            slots.remove(slot);
+        }
+
+        synchronized List<ShiftSlot> overlapping(LocalDateTime start, LocalDateTime end) {
+            ShiftSlot from = probe(start.minus(MAX_SHIFT), Long.MIN_VALUE);
+            ShiftSlot to = probe(end, Long.MIN_VALUE);
+            List<ShiftSlot> result = new ArrayList<>();
+            for (ShiftSlot slot : slots.subSet(from, true, to, false)) {
+                if (slot.overlaps(start, end)) {
+                    result.add(slot);
+                }
+            }
+            return result;
+        }
+
+        synchronized void putSeries(Series value) {
+            series.put(value.id, value);
+        }
+
+        synchronized void removeSeries(Long shiftId) {
+            series.remove(shiftId);
+        }
+
+        synchronized List<Series> series() {
+            return new ArrayList<>(series.values());
+        }
+
+        private static ShiftSlot probe(LocalDateTime start, long scheduleId) {
+            return new ShiftSlot(scheduleId, null, null, null, start, start);
+        }
+    }
+
+    // Снимок повторяющейся смены: правило, границы, время и отмененные даты
+    private static final class Series {
+        private final Long id;
+        private final Long employeeId;
+        private final Long guardObjectId;
+        private final RecurrenceRule rule;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final LocalTime startTime;
+        private final LocalTime endTime;
+        private final Set<LocalDate> exceptionDates;
+
+        private Series(RecurringShift shift) {
+            this.id = shift.getId();
+            this.employeeId = shift.getEmployee().getId();
+            this.guardObjectId = shift.getGuardObject().getId();
+            this.rule = RecurrenceRule.parse(shift.getRecurrenceRule());
+            this.startDate = shift.getStartDate();
+            this.endDate = shift.getEndDate();
+            this.startTime = shift.getStartTime();
+            this.endTime = shift.getEndTime();
+            this.exceptionDates = Set.copyOf(shift.getExceptionDates());
+        }
+
+        static Series of(RecurringShift shift) {
+            return new Series(shift);
+        }
+
+        boolean occursOn(LocalDate date, Set<LocalDate> overridden) {
+            return (endDate == null || !date.isAfter(endDate))
+                    && !exceptionDates.contains(date)
+                    && !overridden.contains(date)
+                    && rule.occursOn(startDate, date);
+        }
+
+        ShiftSlot slotOn(Long employee, LocalDate date) {
+            return new ShiftSlot(null, employee, guardObjectId, id, date.atTime(startTime),
+                    ShiftSlot.endOf(date, startTime, endTime));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.sec_kros.Services;
+
+import com.example.sec_kros.Entities.RecurringShift;
+import com.example.sec_kros.Entities.Schedule;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * JPA-слушатель смен: передает каждую запись и удаление Schedule и RecurringShift
+ * в индекс конфликтов, включая каскадные удаления вместе с договором или объектом.
+ * Индекс запрашивается лениво по той же причине, что и в EntityCountListener.
+ */
+public class ShiftIndexListener {
+
+    @Autowired
+    private ObjectProvider<ShiftConflictIndex> shiftConflictIndex;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Object entity) {
+        ShiftConflictIndex index = index();
+        if (index == null) {
+            return;
+        }
+        if (entity instanceof Schedule schedule) {
+            index.scheduleSaved(schedule);
+        } else if (entity instanceof RecurringShift shift) {
+            index.recurringShiftSaved(shift);
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        ShiftConflictIndex index = index();
+        if (index == null) {
+            return;
+        }
+        if (entity instanceof Schedule schedule) {
+            index.scheduleRemoved(schedule);
+        } else if (entity instanceof RecurringShift shift) {
+            index.recurringShiftRemoved(shift);
+        }
+    }
+
+    private ShiftConflictIndex index() {
+        return shiftConflictIndex != null ? shiftConflictIndex.getIfAvailable() : null;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.sec_kros.Services;
+
+import com.example.sec_kros.Entities.GuardObject;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * JPA-слушатель объектов охраны: передает каждую запись и удаление GuardObject в пространственный
+ * индекс, включая каскадные удаления вместе с договором. Индекс запрашивается лениво по той же
+ * причине, что и в EntityCountListener.
+ */
+public class SpatialIndexListener {
+
+    @Autowired
+    private ObjectProvider<GuardObjectSpatialIndex> spatialIndex;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(GuardObject guardObject) {
+        GuardObjectSpatialIndex index = index();
+        if (index != null) {
+            index.guardObjectSaved(guardObject);
+        }
+    }
+
+    @PostRemove
+    public void onRemove(GuardObject guardObject) {
+        GuardObjectSpatialIndex index = index();
+        if (index != null) {
+            index.guardObjectRemoved(guardObject);
+        }
+    }
+
+    private GuardObjectSpatialIndex index() {
+        return spatialIndex != null ? spatialIndex.getIfAvailable() : null;
+    }
+}
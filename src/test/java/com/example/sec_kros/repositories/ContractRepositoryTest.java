@@ -0,0 +1,152 @@
+package com.example.sec_kros.repositories;
+
+import com.example.sec_kros.DTO.ClientReportRow;
+import com.example.sec_kros.DTO.ContractReportRow;
+import com.example.sec_kros.DTO.RevenueReportRow;
+import com.example.sec_kros.Entities.Client;
+import com.example.sec_kros.Entities.Contract;
+import com.example.sec_kros.Entities.ServiceEntity;
+import com.example.sec_kros.Repositories.ClientRepository;
+import com.example.sec_kros.Repositories.ContractRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class ContractRepositoryTest {
+
+    // Отдельная конфигурация, чтобы не поднимать оба @SpringBootApplication из основного пакета
+    @Configuration
+    @EntityScan(basePackageClasses = Contract.class)
+    @EnableJpaRepositories(basePackageClasses = ContractRepository.class)
+    static class JpaTestConfig {
+    }
+
+    private static final int CONTRACTS = 5;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    private Statistics statistics;
+    private LocalDateTime start;
+    private LocalDateTime end;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 3, 10, 12, 0);
+        start = createdAt.minusDays(1);
+        end = createdAt.plusDays(1);
+
+        // У каждого договора свой клиент и своя услуга - худший случай для N+1
+        for (int i = 0; i < CONTRACTS; i++) {
+            Client client = new Client();
+            client.setLastName("Клиент" + i);
+            client.setFirstName("Имя" + i);
+            client.setPhone("+7999000000" + i);
+            client.setEmail("client" + i + "@example.com");
+            client.setCreatedAt(createdAt);
+            entityManager.persist(client);
+
+            ServiceEntity service = new ServiceEntity();
+            service.setName("Услуга " + i);
+            service.setPrice(BigDecimal.valueOf(1000));
+            entityManager.persist(service);
+
+            Contract contract = new Contract();
+            contract.setClient(client);
+            contract.setService(service);
+            contract.setStartDate(LocalDate.of(2024, 4, 1));
+            contract.setEndDate(LocalDate.of(2024, 4, 30));
+            contract.setTotalAmount(BigDecimal.valueOf(30000));
+            contract.setCreatedAt(createdAt);
+            entityManager.persist(contract);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findReportRows_ShouldLoadContractsWithSingleQuery() {
+        List<ContractReportRow> rows = contractRepository.findReportRows(start, end);
+
+        assertThat(rows).hasSize(CONTRACTS);
+        assertThat(rows.get(0).getClientName()).isEqualTo("Клиент0 Имя0");
+        assertThat(rows.get(0).getServiceName()).isEqualTo("Услуга 0");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void streamReportRows_ShouldLoadContractsWithSingleQuery() {
+        long count;
+        try (Stream<ContractReportRow> rows = contractRepository.streamReportRows(start, end)) {
+            count = rows.filter(row -> row.getServiceName() != null).count();
+        }
+
+        assertThat(count).isEqualTo(CONTRACTS);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findReportRows_ShouldLoadClientsWithSingleQuery() {
+        List<ClientReportRow> rows = clientRepository.findReportRows(start, end);
+
+        assertThat(rows).hasSize(CONTRACTS);
+        assertThat(rows).extracting(ClientReportRow::getEmail).contains("client0@example.com");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findByCreatedAtBetween_ShouldIssueExtraQueriesForAssociations() {
+        List<Contract> contracts = contractRepository.findByCreatedAtBetween(start, end);
+        contracts.forEach(contract -> contract.getService().getName());
+
+        // Сущностный запрос догружает клиентов и услуги отдельными select'ами
+        assertThat(statistics.getPrepareStatementCount()).isGreaterThan(1);
+    }
+
+    @Test
+    void aggregateDailyRevenue_ShouldGroupByDayServiceAndStatus() {
+        List<RevenueReportRow> aggregates = contractRepository.aggregateDailyRevenue();
+
+        // Все договоры созданы в один день, но на разные услуги
+        assertThat(aggregates).hasSize(CONTRACTS);
+        assertThat(aggregates).allSatisfy(row -> {
+            assertThat(row.getRevenueDate()).isEqualTo(LocalDate.of(2024, 3, 10));
+            assertThat(row.getContractsCount()).isEqualTo(1);
+            assertThat(row.getTotalAmount()).isEqualByComparingTo("30000");
+        });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.sec_kros.repositories;
+
+import com.example.sec_kros.Entities.Client;
+import com.example.sec_kros.Entities.Contract;
+import com.example.sec_kros.Repositories.ClientRepository;
+import com.example.sec_kros.Repositories.ContractRepository;
+import com.example.sec_kros.Services.DashboardStatisticsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Проверяет, что Hibernate создает слушатель через Spring и счетчики меняются после коммита
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "logging.file.name="
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EntityCountListenerTest {
+
+    @Configuration
+    @EntityScan(basePackageClasses = Contract.class)
+    @EnableJpaRepositories(basePackageClasses = ContractRepository.class)
+    @Import(DashboardStatisticsService.class)
+    static class JpaTestConfig {
+    }
+
+    @Autowired
+    private DashboardStatisticsService dashboardStatisticsService;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Test
+    void saveAndDelete_ShouldUpdateCachedCount() {
+        long before = dashboardStatisticsService.getClientsCount();
+
+        Client client = new Client();
+        client.setLastName("Сидоров");
+        client.setFirstName("Сидор");
+        client.setPhone("+79990000000");
+        client.setCreatedAt(LocalDateTime.now());
+        client = clientRepository.save(client);
+
+        assertThat(dashboardStatisticsService.getClientsCount()).isEqualTo(before + 1);
+
+        clientRepository.delete(client);
+
+        assertThat(dashboardStatisticsService.getClientsCount()).isEqualTo(before);
+        assertThat(clientRepository.count()).isEqualTo(before);
+    }
+}
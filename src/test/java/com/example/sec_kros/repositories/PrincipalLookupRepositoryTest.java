@@ -0,0 +1,137 @@
+package com.example.sec_kros.repositories;
+
+import com.example.sec_kros.DTO.PrincipalRow;
+import com.example.sec_kros.DTO.UserAccount;
+import com.example.sec_kros.DTO.UserPrincipal;
+import com.example.sec_kros.Entities.Client;
+import com.example.sec_kros.Entities.Contract;
+import com.example.sec_kros.Entities.Employee;
+import com.example.sec_kros.Repositories.ClientRepository;
+import com.example.sec_kros.Repositories.ContractRepository;
+import com.example.sec_kros.Repositories.EmployeeRepository;
+import com.example.sec_kros.Services.PrincipalLookupService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Общий UNION-запрос учетных записей и сброс кэша через JPA-слушатель после коммита
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "logging.file.name="
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PrincipalLookupRepositoryTest {
+
+    @Configuration
+    @EntityScan(basePackageClasses = Contract.class)
+    @EnableJpaRepositories(basePackageClasses = ContractRepository.class)
+    @Import(PrincipalLookupService.class)
+    static class JpaTestConfig {
+    }
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private PrincipalLookupService principalLookupService;
+
+    @Test
+    void findPrincipalByEmail_ShouldFindEmployeesAndClientsWithOneQuery() {
+        Employee admin = employeeRepository.save(employee("lookup-admin@example.com", true));
+        employeeRepository.save(employee("lookup-guard@example.com", null));
+        Client client = clientRepository.save(client("lookup-client@example.com"));
+
+        Optional<PrincipalRow> adminRow = employeeRepository.findPrincipalByEmail("lookup-admin@example.com");
+        Optional<PrincipalRow> clientRow = employeeRepository.findPrincipalByEmail("lookup-client@example.com");
+
+        assertThat(adminRow).isPresent();
+        assertThat(adminRow.get().getId()).isEqualTo(admin.getId());
+        assertThat(adminRow.get().getRole()).isEqualTo("admin");
+        assertThat(adminRow.get().getPassword()).isEqualTo("hash");
+        assertThat(employeeRepository.findPrincipalByEmail("lookup-guard@example.com").get().getRole())
+                .isEqualTo("employee");
+        assertThat(clientRow.get().getId()).isEqualTo(client.getId());
+        assertThat(clientRow.get().getRole()).isEqualTo("client");
+        assertThat(clientRow.get().getLastName()).isEqualTo("Сидоров");
+        assertThat(adminRow.get().getFirstName()).isEqualTo("Петр");
+        assertThat(employeeRepository.findPrincipalByEmail("lookup-missing@example.com")).isEmpty();
+    }
+
+    @Test
+    void findPrincipalByEmail_ShouldTreatNullIsAdminAsEmployee() {
+        // CASE WHEN e.is_admin = TRUE для NULL дает ELSE-ветку, как раньше Boolean.TRUE.equals(isAdmin)
+        Employee employee = employeeRepository.save(employee("lookup-null-admin@example.com", null));
+        assertThat(employeeRepository.findById(employee.getId()).orElseThrow().getIsAdmin()).isNull();
+
+        PrincipalRow row = employeeRepository.findPrincipalByEmail("lookup-null-admin@example.com").orElseThrow();
+        UserPrincipal principal = new UserPrincipal(
+                principalLookupService.findByEmail("lookup-null-admin@example.com").orElseThrow());
+
+        assertThat(row.getRole()).isEqualTo("employee");
+        assertThat(principal.getAuthorities()).extracting("authority").containsExactly("ROLE_EMPLOYEE");
+    }
+
+    @Test
+    void findPrincipalByEmail_ShouldPreferEmployeeOverClient() {
+        clientRepository.save(client("lookup-both@example.com"));
+        Employee employee = employeeRepository.save(employee("lookup-both@example.com", false));
+
+        PrincipalRow row = employeeRepository.findPrincipalByEmail("lookup-both@example.com").orElseThrow();
+
+        assertThat(row.getRole()).isEqualTo("employee");
+        assertThat(row.getId()).isEqualTo(employee.getId());
+    }
+
+    @Test
+    void saveClient_ShouldEvictCachedAccountAfterEmailChange() {
+        Client client = clientRepository.save(client("lookup-renamed@example.com"));
+        assertThat(principalLookupService.findByEmail("lookup-renamed@example.com")).isPresent();
+
+        client.setEmail("lookup-renamed-new@example.com");
+        clientRepository.save(client);
+
+        assertThat(principalLookupService.findByEmail("lookup-renamed@example.com")).isEmpty();
+        assertThat(principalLookupService.findByEmail("lookup-renamed-new@example.com"))
+                .map(UserAccount::getId).contains(client.getId());
+    }
+
+    private static Employee employee(String email, Boolean isAdmin) {
+        Employee employee = new Employee();
+        employee.setLastName("Петров");
+        employee.setFirstName("Петр");
+        employee.setPassportSeries(1234);
+        employee.setPassportNumber(567890);
+        employee.setPhone("+79990000001");
+        employee.setPosition("Охранник");
+        employee.setEmail(email);
+        employee.setPasswordHash("hash");
+        employee.setIsAdmin(isAdmin);
+        return employee;
+    }
+
+    private static Client client(String email) {
+        Client client = new Client();
+        client.setLastName("Сидоров");
+        client.setFirstName("Сидор");
+        client.setPhone("+79990000000");
+        client.setEmail(email);
+        client.setPasswordHash("hash");
+        client.setCreatedAt(LocalDateTime.now());
+        return client;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.sec_kros.repositories;
+
+import com.example.sec_kros.Entities.Client;
+import com.example.sec_kros.Entities.Contract;
+import com.example.sec_kros.Entities.Employee;
+import com.example.sec_kros.Repositories.ClientRepository;
+import com.example.sec_kros.Repositories.ContractRepository;
+import com.example.sec_kros.Repositories.EmployeeRepository;
+import com.example.sec_kros.Services.RegisteredEmailFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Прогрев фильтра занятых email из обеих таблиц и пополнение через JPA-слушатель
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "logging.file.name="
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RegisteredEmailFilterRepositoryTest {
+
+    @Configuration
+    @EntityScan(basePackageClasses = Contract.class)
+    @EnableJpaRepositories(basePackageClasses = ContractRepository.class)
+    @Import(RegisteredEmailFilter.class)
+    static class JpaTestConfig {
+    }
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private RegisteredEmailFilter registeredEmailFilter;
+
+    @BeforeEach
+    void setUp() {
+        employeeRepository.save(employee("filter-guard@example.com"));
+        clientRepository.save(client("filter-client@example.com"));
+        registeredEmailFilter.rebuild();
+    }
+
+    @Test
+    void rebuild_ShouldLoadEmailsOfClientsAndEmployees() {
+        assertThat(registeredEmailFilter.isWarmedUp()).isTrue();
+        assertThat(registeredEmailFilter.mightContain("filter-guard@example.com")).isTrue();
+        assertThat(registeredEmailFilter.mightContain("filter-client@example.com")).isTrue();
+        assertThat(registeredEmailFilter.mightContain("filter-nobody@example.com")).isFalse();
+    }
+
+    @Test
+    void save_ShouldAddCreatedAndChangedEmails() {
+        Client client = clientRepository.save(client("filter-new@example.com"));
+        assertThat(registeredEmailFilter.mightContain("filter-new@example.com")).isTrue();
+
+        client.setEmail("filter-renamed@example.com");
+        clientRepository.save(client);
+
+        assertThat(registeredEmailFilter.mightContain("filter-renamed@example.com")).isTrue();
+    }
+
+    private static Employee employee(String email) {
+        Employee employee = new Employee();
+        employee.setLastName("Петров");
+        employee.setFirstName("Петр");
+        employee.setPassportSeries(1234);
+        employee.setPassportNumber(567890);
+        employee.setPhone("+79990000001");
+        employee.setPosition("Охранник");
+        employee.setEmail(email);
+        employee.setPasswordHash("hash");
+        return employee;
+    }
+
+    private static Client client(String email) {
+        Client client = new Client();
+        client.setLastName("Сидоров");
+        client.setFirstName("Сидор");
+        client.setPhone("+79990000000");
+        client.setEmail(email);
+        client.setPasswordHash("hash");
+        client.setCreatedAt(LocalDateTime.now());
+        return client;
+    }
+}
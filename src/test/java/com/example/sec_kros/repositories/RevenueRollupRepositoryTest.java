@@ -0,0 +1,131 @@
+package com.example.sec_kros.repositories;
+
+import com.example.sec_kros.Entities.Contract;
+import com.example.sec_kros.Entities.RevenueDailyRollup;
+import com.example.sec_kros.Entities.ServiceEntity;
+import com.example.sec_kros.Repositories.ContractRepository;
+import com.example.sec_kros.Repositories.RevenueRollupRepository;
+import com.example.sec_kros.Repositories.ServiceRepository;
+import com.example.sec_kros.Services.RevenueRollupService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Приращения агрегатов выручки на настоящей БД: каждый вызов сервиса - своя транзакция, как в приложении
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "logging.file.name="
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RevenueRollupRepositoryTest {
+
+    @Configuration
+    @EntityScan(basePackageClasses = Contract.class)
+    @EnableJpaRepositories(basePackageClasses = ContractRepository.class)
+    @Import(RevenueRollupService.class)
+    static class JpaTestConfig {
+    }
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 10);
+
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    @Autowired
+    private RevenueRollupRepository revenueRollupRepository;
+
+    @Autowired
+    private ServiceRepository serviceRepository;
+
+    private ServiceEntity service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ServiceEntity();
+        service.setName("Охрана склада");
+        service.setPrice(BigDecimal.valueOf(1000));
+        service = serviceRepository.save(service);
+    }
+
+    @AfterEach
+    void tearDown() {
+        revenueRollupRepository.deleteAllInBatch();
+        serviceRepository.delete(service);
+    }
+
+    @Test
+    void contractCreated_ShouldSumIntoOneRow_ForSameDayServiceAndStatus() {
+        revenueRollupService.contractCreated(contract("inactive", 30000));
+        revenueRollupService.contractCreated(contract("inactive", 12000));
+
+        List<RevenueDailyRollup> rows = revenueRollupRepository.findAll();
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0).getContractsCount()).isEqualTo(2);
+        assertThat(rows.get(0).getTotalAmount()).isEqualByComparingTo("42000");
+    }
+
+    @Test
+    void contractCreated_ShouldNotLoseIncrements_WhenTransactionsRaceForNewRow() throws Exception {
+        int transactions = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(transactions);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < transactions; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                revenueRollupService.contractCreated(contract("active", 1000));
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        List<RevenueDailyRollup> rows = revenueRollupRepository.findAll();
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0).getContractsCount()).isEqualTo(transactions);
+        assertThat(rows.get(0).getTotalAmount()).isEqualByComparingTo(BigDecimal.valueOf(1000L * transactions));
+    }
+
+    @Test
+    void contractDeleted_ShouldDropRow_WhenLastContractRemoved() {
+        Contract contract = contract("inactive", 30000);
+        revenueRollupService.contractCreated(contract);
+
+        revenueRollupService.contractDeleted(contract);
+
+        assertThat(revenueRollupRepository.findAll()).isEmpty();
+        assertThat(revenueRollupService.getDailyRevenue(DAY, DAY)).isEmpty();
+    }
+
+    private Contract contract(String status, long amount) {
+        Contract contract = new Contract();
+        contract.setService(service);
+        contract.setStatus(status);
+        contract.setTotalAmount(BigDecimal.valueOf(amount));
+        contract.setCreatedAt(DAY.atTime(12, 0));
+        return contract;
+    }
+}
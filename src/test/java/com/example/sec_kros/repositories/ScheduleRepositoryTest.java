@@ -0,0 +1,233 @@
+package com.example.sec_kros.repositories;
+
+import com.example.sec_kros.DTO.ShiftSlot;
+import com.example.sec_kros.Entities.*;
+import com.example.sec_kros.Repositories.ContractRepository;
+import com.example.sec_kros.Repositories.RecurringShiftRepository;
+import com.example.sec_kros.Repositories.ScheduleRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.file.name="
+})
+class ScheduleRepositoryTest {
+
+    @Configuration
+    @EntityScan(basePackageClasses = Contract.class)
+    @EnableJpaRepositories(basePackageClasses = ContractRepository.class)
+    static class JpaTestConfig {
+    }
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 5, 1);
+    private static final int DAYS = 4;
+    private static final int SHIFTS_PER_DAY = 3;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ScheduleRepository scheduleRepository;
+
+    @Autowired
+    private RecurringShiftRepository recurringShiftRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Client client = new Client();
+        client.setLastName("Клиент");
+        client.setFirstName("Имя");
+        client.setPhone("+79990000000");
+        client.setCreatedAt(LocalDateTime.of(2024, 4, 1, 10, 0));
+        entityManager.persist(client);
+
+        ServiceEntity service = new ServiceEntity();
+        service.setName("Пультовая охрана");
+        service.setPrice(BigDecimal.valueOf(1000));
+        entityManager.persist(service);
+
+        Contract contract = new Contract();
+        contract.setClient(client);
+        contract.setService(service);
+        contract.setStartDate(FIRST_DAY);
+        contract.setEndDate(FIRST_DAY.plusDays(DAYS));
+        contract.setTotalAmount(BigDecimal.valueOf(30000));
+        contract.setCreatedAt(LocalDateTime.of(2024, 4, 1, 10, 0));
+        entityManager.persist(contract);
+
+        GuardObject guardObject = new GuardObject();
+        guardObject.setClient(client);
+        guardObject.setContract(contract);
+        guardObject.setName("Склад");
+        guardObject.setAddress("ул. Складская, 1");
+        entityManager.persist(guardObject);
+
+        Employee employee = new Employee();
+        employee.setLastName("Охранник");
+        employee.setFirstName("Петр");
+        employee.setPassportSeries(1234);
+        employee.setPassportNumber(567890);
+        employee.setPhone("+79991111111");
+        employee.setPosition("Охранник");
+        entityManager.persist(employee);
+
+        // Несколько смен в один день, чтобы курсор должен был различать строки по id
+        for (int day = 0; day < DAYS; day++) {
+            for (int shift = 0; shift < SHIFTS_PER_DAY; shift++) {
+                Schedule schedule = new Schedule();
+                schedule.setEmployee(employee);
+                schedule.setGuardObject(guardObject);
+                schedule.setDate(FIRST_DAY.plusDays(day));
+                schedule.setStartTime(LocalTime.of(8 * shift, 0));
+                schedule.setEndTime(LocalTime.of(8 * shift + 7, 59));
+                entityManager.persist(schedule);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void saveAll_ShouldWriteYearOfSchedulesInJdbcBatches() {
+        Schedule template = scheduleRepository.findBetween(FIRST_DAY, FIRST_DAY).get(0);
+        List<Schedule> year = new ArrayList<>();
+        for (int day = 0; day < 365; day++) {
+            Schedule schedule = new Schedule();
+            schedule.setEmployee(template.getEmployee());
+            schedule.setGuardObject(template.getGuardObject());
+            schedule.setDate(LocalDate.of(2025, 1, 1).plusDays(day));
+            schedule.setStartTime(LocalTime.of(8, 0));
+            schedule.setEndTime(LocalTime.of(20, 0));
+            year.add(schedule);
+        }
+        statistics.clear();
+
+        scheduleRepository.saveAll(year);
+        entityManager.flush();
+
+        // Пул последовательности и batch_size = 50: около 8 батчей INSERT и 8 обращений к последовательности
+        // вместо 365 отдельных INSERT
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(365);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(20);
+    }
+
+    @Test
+    void findByContractBetween_ShouldReturnOnlyWindowOfContract() {
+        Long contractId = scheduleRepository.findBetween(FIRST_DAY, FIRST_DAY).get(0)
+                .getGuardObject().getContract().getId();
+        statistics.clear();
+
+        List<Schedule> schedules = scheduleRepository.findByContractBetween(contractId, FIRST_DAY, FIRST_DAY);
+        schedules.forEach(schedule -> schedule.getGuardObject().getContract().getService().getName());
+
+        assertThat(schedules).hasSize(SHIFTS_PER_DAY).allMatch(schedule -> schedule.getDate().equals(FIRST_DAY));
+        assertThat(scheduleRepository.findByContractBetween(contractId + 1, FIRST_DAY, FIRST_DAY)).isEmpty();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void findBetween_ShouldLoadWindowWithAssociationsInSingleQuery() {
+        List<Schedule> window = scheduleRepository.findBetween(FIRST_DAY, FIRST_DAY);
+        window.forEach(schedule -> {
+            schedule.getEmployee().getFullName();
+            schedule.getGuardObject().getContract().getService().getName();
+        });
+
+        assertThat(window).hasSize(SHIFTS_PER_DAY);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findActiveBetween_ShouldLoadOverlappingSeriesWithExceptionsInSingleQuery() {
+        Schedule template = scheduleRepository.findBetween(FIRST_DAY, FIRST_DAY).get(0);
+        RecurringShift open = createRecurringShift(template, FIRST_DAY, null);
+        open.getExceptionDates().add(FIRST_DAY.plusDays(1));
+        open.getExceptionDates().add(FIRST_DAY.plusDays(2));
+        entityManager.persist(open);
+        entityManager.persist(createRecurringShift(template, FIRST_DAY.minusDays(30), FIRST_DAY.minusDays(1)));
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        List<RecurringShift> active = recurringShiftRepository.findActiveBetween(FIRST_DAY, FIRST_DAY.plusDays(6));
+        active.forEach(shift -> {
+            shift.getEmployee().getFullName();
+            shift.getGuardObject().getContract().getService().getName();
+            shift.getExceptionDates().size();
+        });
+
+        // Закончившаяся серия не попадает, исключения не размножают строки серии
+        assertThat(active).hasSize(1);
+        assertThat(active.get(0).getExceptionDates()).hasSize(2);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void streamSlotsBetween_ShouldReturnSlotsOrderedByObjectAndStart() {
+        // Смена добавлена последней, но по времени стоит между сменами второго дня
+        Schedule template = scheduleRepository.findBetween(FIRST_DAY, FIRST_DAY).get(0);
+        Schedule late = new Schedule();
+        late.setEmployee(template.getEmployee());
+        late.setGuardObject(template.getGuardObject());
+        late.setDate(FIRST_DAY.plusDays(1));
+        late.setStartTime(LocalTime.of(7, 0));
+        late.setEndTime(LocalTime.of(9, 0));
+        entityManager.persist(late);
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        List<ShiftSlot> slots;
+        try (Stream<ShiftSlot> stream = scheduleRepository.streamSlotsBetween(FIRST_DAY.plusDays(1),
+                FIRST_DAY.plusDays(2))) {
+            slots = stream.toList();
+        }
+
+        assertThat(slots).hasSize(2 * SHIFTS_PER_DAY + 1);
+        assertThat(slots).extracting(ShiftSlot::getStart).isSorted();
+        assertThat(slots.get(1).getScheduleId()).isEqualTo(late.getId());
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    private RecurringShift createRecurringShift(Schedule template, LocalDate startDate, LocalDate endDate) {
+        RecurringShift shift = new RecurringShift();
+        shift.setEmployee(template.getEmployee());
+        shift.setGuardObject(template.getGuardObject());
+        shift.setRecurrenceRule("FREQ=DAILY");
+        shift.setStartDate(startDate);
+        shift.setEndDate(endDate);
+        shift.setStartTime(LocalTime.of(8, 0));
+        shift.setEndTime(LocalTime.of(20, 0));
+        return shift;
+    }
+}
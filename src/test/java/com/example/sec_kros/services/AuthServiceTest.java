@@ -2,12 +2,15 @@ package com.example.sec_kros.services;
 
 import com.example.sec_kros.DTO.AuthResponse;
 import com.example.sec_kros.DTO.RegisterRequest;
+import com.example.sec_kros.DTO.UserAccount;
 import com.example.sec_kros.Entities.Client;
-import com.example.sec_kros.Entities.Employee;
 import com.example.sec_kros.Repositories.ClientRepository;
 import com.example.sec_kros.Repositories.EmployeeRepository;
 import com.example.sec_kros.Services.AuthService;
 import com.example.sec_kros.Services.PasswordService;
+import com.example.sec_kros.Services.PrincipalLookupService;
+import com.example.sec_kros.Services.RegisteredEmailFilter;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -38,82 +41,78 @@ class AuthServiceTest {
     @Mock
     private PasswordService passwordService;
 
+    @Mock
+    private PrincipalLookupService principalLookupService;
+
+    @Mock
+    private RegisteredEmailFilter registeredEmailFilter;
+
     @InjectMocks
     private AuthService authService;
 
+    @BeforeEach
+    void setUp() {
+        // По умолчанию фильтр не отсекает email, и проверка идет в БД
+        lenient().when(registeredEmailFilter.mightContain(any())).thenReturn(true);
+    }
+
     // ========== Тесты для determineUserType() ==========
 
     @Test
     void determineUserType_ShouldReturnAdmin_WhenAdminEmployeeExists() {
         // Arrange
         String email = "admin@example.com";
-        Employee adminEmployee = new Employee();
-        adminEmployee.setEmail(email);
-        adminEmployee.setIsAdmin(true);
-
-        when(employeeRepository.findByEmail(email)).thenReturn(Optional.of(adminEmployee));
+        when(principalLookupService.findByEmail(email))
+                .thenReturn(Optional.of(new UserAccount(1L, email, "hash", "admin", "Иван", "Петров")));
 
         // Act
         String result = authService.determineUserType(email);
 
         // Assert
         assertThat(result).isEqualTo("admin");
-        verify(employeeRepository).findByEmail(email);
-        verifyNoInteractions(clientRepository);
+        verifyNoInteractions(employeeRepository, clientRepository);
     }
 
     @Test
     void determineUserType_ShouldReturnEmployee_WhenNonAdminEmployeeExists() {
         // Arrange
         String email = "employee@example.com";
-        Employee employee = new Employee();
-        employee.setEmail(email);
-        employee.setIsAdmin(false);
-
-        when(employeeRepository.findByEmail(email)).thenReturn(Optional.of(employee));
+        when(principalLookupService.findByEmail(email))
+                .thenReturn(Optional.of(new UserAccount(2L, email, "hash", "employee", "Иван", "Петров")));
 
         // Act
         String result = authService.determineUserType(email);
 
         // Assert
         assertThat(result).isEqualTo("employee");
-        verify(employeeRepository).findByEmail(email);
-        verifyNoInteractions(clientRepository);
     }
 
     @Test
     void determineUserType_ShouldReturnClient_WhenClientExists() {
         // Arrange
         String email = "client@example.com";
-        when(employeeRepository.findByEmail(email)).thenReturn(Optional.empty());
-
-        Client client = new Client();
-        client.setEmail(email);
-        when(clientRepository.findByEmail(email)).thenReturn(Optional.of(client));
+        when(principalLookupService.findByEmail(email))
+                .thenReturn(Optional.of(new UserAccount(3L, email, "hash", "client", "Иван", "Петров")));
 
         // Act
         String result = authService.determineUserType(email);
 
         // Assert
         assertThat(result).isEqualTo("client");
-        verify(employeeRepository).findByEmail(email);
-        verify(clientRepository).findByEmail(email);
     }
 
     @Test
     void determineUserType_ShouldReturnNull_WhenUserNotFound() {
         // Arrange
         String email = "nonexistent@example.com";
-        when(employeeRepository.findByEmail(email)).thenReturn(Optional.empty());
-        when(clientRepository.findByEmail(email)).thenReturn(Optional.empty());
+        when(principalLookupService.findByEmail(email)).thenReturn(Optional.empty());
 
         // Act
         String result = authService.determineUserType(email);
 
         // Assert
         assertThat(result).isNull();
-        verify(employeeRepository).findByEmail(email);
-        verify(clientRepository).findByEmail(email);
+        verify(principalLookupService).findByEmail(email);
     }
 
     // ========== Тесты для getRedirectUrl() ==========
@@ -319,24 +318,39 @@ class AuthServiceTest {
     // ========== Дополнительные edge-case тесты ==========
 
     @Test
-    void determineUserType_ShouldCheckEmployeeFirst_ThenClient() {
+    void register_ShouldSkipDatabaseCheck_WhenFilterSaysEmailIsFree() {
         // Arrange
-        String email = "user@example.com";
-        Employee employee = new Employee();
-        employee.setEmail(email);
-        employee.setIsAdmin(false);
+        RegisterRequest request = createValidRegisterRequest();
+        when(registeredEmailFilter.mightContain(request.getEmail())).thenReturn(false);
+        when(passwordService.hashPassword(request.getPassword())).thenReturn("hashed");
 
-        // Оба репозитория вернут пользователя, но должен вернуться employee
-        when(employeeRepository.findByEmail(email)).thenReturn(Optional.of(employee));
-        // ClientRepository не должен вызываться, т.к. employee уже найден
+        // Act
+        AuthResponse response = authService.register(request);
+
+        // Assert
+        assertThat(response.isSuccess()).isTrue();
+        verify(clientRepository, never()).existsByEmail(anyString());
+        verify(employeeRepository, never()).existsByEmail(anyString());
+        verify(clientRepository).save(any(Client.class));
+    }
+
+    @Test
+    void register_ShouldReturnError_WhenHashingPoolIsOverloaded() {
+        // Arrange
+        RegisterRequest request = createValidRegisterRequest();
+
+        when(clientRepository.existsByEmail(request.getEmail())).thenReturn(false);
+        when(employeeRepository.existsByEmail(request.getEmail())).thenReturn(false);
+        when(passwordService.hashPassword(request.getPassword()))
+                .thenThrow(new RuntimeException("Сервер перегружен, повторите попытку через минуту"));
 
         // Act
-        String result = authService.determineUserType(email);
+        AuthResponse response = authService.register(request);
 
         // Assert
-        assertThat(result).isEqualTo("employee");
-        verify(employeeRepository).findByEmail(email);
-        verify(clientRepository, never()).findByEmail(anyString());
+        assertThat(response.isSuccess()).isFalse();
+        assertThat(response.getMessage()).contains("Сервер перегружен");
+        verify(clientRepository, never()).save(any(Client.class));
     }
 
     @Test
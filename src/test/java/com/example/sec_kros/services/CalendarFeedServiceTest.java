@@ -0,0 +1,144 @@
+package com.example.sec_kros.services;
+
+import com.example.sec_kros.DTO.ShiftOccurrence;
+import com.example.sec_kros.Entities.Employee;
+import com.example.sec_kros.Entities.GuardObject;
+import com.example.sec_kros.Services.CalendarFeedService;
+import com.example.sec_kros.Services.ScheduleService;
+import com.example.sec_kros.Services.ShiftConflictIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CalendarFeedServiceTest {
+
+    @Mock
+    private ScheduleService scheduleService;
+
+    @Mock
+    private ShiftConflictIndex shiftConflictIndex;
+
+    @InjectMocks
+    private CalendarFeedService calendarFeedService;
+
+    private GuardObject guardObject;
+    private Employee employee;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(calendarFeedService, "secret", "test-secret-of-at-least-32-characters");
+        ReflectionTestUtils.setField(calendarFeedService, "zone", ZoneOffset.UTC);
+
+        employee = new Employee();
+        employee.setId(1L);
+        guardObject = new GuardObject();
+        guardObject.setId(5L);
+        guardObject.setName("Склад");
+        guardObject.setAddress("ул. Складская, 1; корпус 2");
+    }
+
+    @Test
+    void checkSecret_ShouldFailStartup_WhenSecretMissingOrShort() {
+        assertThatCode(() -> calendarFeedService.checkSecret()).doesNotThrowAnyException();
+
+        ReflectionTestUtils.setField(calendarFeedService, "secret", "");
+        assertThatThrownBy(() -> calendarFeedService.checkSecret()).isInstanceOf(IllegalStateException.class);
+
+        ReflectionTestUtils.setField(calendarFeedService, "secret", "sec-kros-calendar-feed-8f3c1e2a");
+        assertThatThrownBy(() -> calendarFeedService.checkSecret()).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void isValidToken_ShouldAcceptOnlyTokenFromFeedPath() {
+        String path = calendarFeedService.getFeedPath(1L);
+        String token = path.substring(path.lastIndexOf('/') + 1, path.length() - ".ics".length());
+
+        assertThat(path).startsWith("/calendar/employees/1/");
+        assertThat(calendarFeedService.isValidToken(1L, token)).isTrue();
+        assertThat(calendarFeedService.isValidToken(2L, token)).isFalse();
+        assertThat(calendarFeedService.isValidToken(1L, token.substring(1))).isFalse();
+        assertThat(calendarFeedService.isValidToken(1L, null)).isFalse();
+    }
+
+    @Test
+    void getVersion_ShouldChangeOnlyWhenEmployeeShiftsChange() {
+        when(shiftConflictIndex.getVersion(1L)).thenReturn(7L, 7L, 8L);
+        when(shiftConflictIndex.getChangedAt(1L)).thenReturn(1_000L, 1_000L, 2_000L);
+
+        CalendarFeedService.FeedVersion first = calendarFeedService.getVersion(1L);
+        CalendarFeedService.FeedVersion repeated = calendarFeedService.getVersion(1L);
+        CalendarFeedService.FeedVersion changed = calendarFeedService.getVersion(1L);
+
+        assertThat(repeated.getETag()).isEqualTo(first.getETag());
+        assertThat(changed.getETag()).isNotEqualTo(first.getETag());
+        assertThat(first.getETag()).startsWith("\"").endsWith("\"");
+        // Окно ленты сдвигается каждый день, поэтому Last-Modified не раньше начала дня
+        assertThat(first.getLastModified())
+                .isEqualTo(first.getToday().atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli());
+        verifyNoInteractions(scheduleService);
+    }
+
+    @Test
+    void writeFeed_ShouldWriteEventsForScheduleRowsAndSeriesOccurrences() throws IOException {
+        LocalDate today = LocalDate.of(2025, 3, 10);
+        CalendarFeedService.FeedVersion version = new CalendarFeedService.FeedVersion("\"v\"",
+                today.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli(), today);
+        when(scheduleService.getEmployeeOccurrences(1L, today.minusDays(30), today.plusDays(180))).thenReturn(List.of(
+                new ShiftOccurrence(today, LocalTime.of(20, 0), LocalTime.of(8, 0), employee, guardObject,
+                        "Обход,\nпроверка ворот", 10L, null),
+                new ShiftOccurrence(today.plusDays(1), LocalTime.of(8, 0), LocalTime.of(20, 0), employee,
+                        guardObject, null, null, 3L)));
+
+        StringWriter writer = new StringWriter();
+        calendarFeedService.writeFeed(1L, version, writer);
+        String feed = writer.toString();
+
+        assertThat(feed).startsWith("BEGIN:VCALENDAR\r\n").endsWith("END:VCALENDAR\r\n");
+        assertThat(feed).contains(
+                "UID:schedule-10@sec-kros\r\n",
+                "DTSTART:20250310T200000Z\r\n",
+                "DTEND:20250311T080000Z\r\n",
+                "LOCATION:ул. Складская\\, 1\\; корпус 2\r\n",
+                "DESCRIPTION:Обход\\,\\nпроверка ворот\r\n",
+                "UID:recurring-3-2025-03-11@sec-kros\r\n",
+                "DTSTAMP:20250310T000000Z\r\n");
+        assertThat(feed.split("BEGIN:VEVENT", -1)).hasSize(3);
+    }
+
+    @Test
+    void writeFeed_ShouldFoldLongLinesByOctets() throws IOException {
+        LocalDate today = LocalDate.of(2025, 3, 10);
+        guardObject.setName("Торгово-развлекательный центр на пересечении двух проспектов, главный вход");
+        when(scheduleService.getEmployeeOccurrences(anyLong(), any(), any())).thenReturn(List.of(
+                new ShiftOccurrence(today, LocalTime.of(8, 0), LocalTime.of(20, 0), employee, guardObject,
+                        null, 10L, null)));
+
+        StringWriter writer = new StringWriter();
+        calendarFeedService.writeFeed(1L, new CalendarFeedService.FeedVersion("\"v\"", 0L, today), writer);
+
+        String[] lines = writer.toString().split("\r\n");
+        assertThat(Arrays.stream(lines).mapToInt(line -> line.getBytes(StandardCharsets.UTF_8).length).max()
+                .orElse(0)).isLessThanOrEqualTo(75);
+        String unfolded = writer.toString().replace("\r\n ", "");
+        assertThat(unfolded).contains("SUMMARY:Смена: " + guardObject.getName().replace(",", "\\,"));
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.sec_kros.services;
 
 import com.example.sec_kros.DTO.ClientDTO;
+import com.example.sec_kros.DTO.KeysetPage;
 import com.example.sec_kros.Entities.Client;
 import com.example.sec_kros.Repositories.ClientRepository;
 import com.example.sec_kros.Services.ClientService;
@@ -13,6 +14,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -391,6 +393,66 @@ class ClientServiceTest {
 
     // ========== Вспомогательные методы ==========
 
+    @Test
+    void getClientsPage_ShouldReturnFirstPageWithNextCursor() {
+        // Arrange - репозиторий возвращает на одну строку больше размера страницы
+        List<Client> fetched = Arrays.asList(
+                createTestClient(30L, "c30@example.com"),
+                createTestClient(29L, "c29@example.com"),
+                createTestClient(28L, "c28@example.com")
+        );
+        when(clientRepository.findByOrderByIdDesc(PageRequest.ofSize(3))).thenReturn(fetched);
+
+        // Act
+        KeysetPage<Client> page = clientService.getClientsPage(null, 2);
+
+        // Assert
+        assertThat(page.getItems()).extracting(Client::getId).containsExactly(30L, 29L);
+        assertThat(page.isFirst()).isTrue();
+        assertThat(page.isHasNext()).isTrue();
+        assertThat(page.getNextCursor()).isEqualTo("29");
+        verify(clientRepository, never()).findAll();
+    }
+
+    @Test
+    void getClientsPage_ShouldSeekAfterCursor() {
+        // Arrange
+        when(clientRepository.findByIdLessThanOrderByIdDesc(29L, PageRequest.ofSize(3)))
+                .thenReturn(List.of(createTestClient(28L, "c28@example.com")));
+
+        // Act
+        KeysetPage<Client> page = clientService.getClientsPage("29", 2);
+
+        // Assert
+        assertThat(page.getItems()).extracting(Client::getId).containsExactly(28L);
+        assertThat(page.isFirst()).isFalse();
+        assertThat(page.isHasNext()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void getClientsPage_ShouldLimitPageSize() {
+        // Arrange
+        when(clientRepository.findByOrderByIdDesc(any())).thenReturn(List.of());
+
+        // Act
+        KeysetPage<Client> defaultPage = clientService.getClientsPage(null, null);
+        KeysetPage<Client> hugePage = clientService.getClientsPage(null, 100000);
+
+        // Assert
+        assertThat(defaultPage.getSize()).isEqualTo(KeysetPage.DEFAULT_SIZE);
+        assertThat(hugePage.getSize()).isEqualTo(KeysetPage.MAX_SIZE);
+        verify(clientRepository).findByOrderByIdDesc(PageRequest.ofSize(KeysetPage.MAX_SIZE + 1));
+    }
+
+    @Test
+    void getClientsPage_ShouldThrow_WhenCursorInvalid() {
+        assertThatThrownBy(() -> clientService.getClientsPage("abc", 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Некорректный курсор");
+        verifyNoInteractions(clientRepository);
+    }
+
     private Client createTestClient(Long id, String email) {
         Client client = new Client();
         client.setId(id);
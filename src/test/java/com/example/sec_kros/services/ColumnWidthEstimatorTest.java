@@ -0,0 +1,128 @@
+package com.example.sec_kros.services;
+
+import com.example.sec_kros.Services.ColumnWidthEstimator;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ColumnWidthEstimatorTest {
+
+    @Test
+    void estimate_ShouldStayCloseToAutoSizeColumn() throws IOException {
+        String[] values = {"ID договора", "Иванов Иван", "ivanov@example.com", "+79991234567",
+                "Охрана офиса", "2024-01-20T12:00", "123,456.78"};
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet();
+            Row row = sheet.createRow(0);
+            for (int i = 0; i < values.length; i++) {
+                row.createCell(i).setCellValue(values[i]);
+            }
+
+            ColumnWidthEstimator estimator = new ColumnWidthEstimator(values.length);
+            estimator.measureRow(row);
+
+            for (int i = 0; i < values.length; i++) {
+                sheet.autoSizeColumn(i);
+                int expected = sheet.getColumnWidth(i);
+                // Достаточно попадания в пределах ~20% от AWT-измерения
+                assertThat((double) estimator.getColumnWidth(i))
+                        .as("column %d (%s)", i, values[i])
+                        .isCloseTo(expected, within(expected * 0.2));
+            }
+        }
+    }
+
+    @Test
+    void measureRow_ShouldKeepWidestValuePerColumn() throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet();
+            ColumnWidthEstimator estimator = new ColumnWidthEstimator(2);
+
+            Row first = sheet.createRow(0);
+            first.createCell(0).setCellValue("короткий");
+            first.createCell(1).setCellValue(1);
+            Row second = sheet.createRow(1);
+            second.createCell(0).setCellValue("значительно более длинный текст");
+            second.createCell(1).setCellValue(1234567);
+            Row third = sheet.createRow(2);
+            third.createCell(0).setCellValue("средний текст");
+
+            estimator.measureRow(first);
+            estimator.measureRow(second);
+            int widthAfterSecond = estimator.getColumnWidth(0);
+            estimator.measureRow(third);
+
+            assertThat(estimator.getColumnWidth(0)).isEqualTo(widthAfterSecond);
+            assertThat(estimator.getColumnWidth(1)).isGreaterThan(new ColumnWidthEstimator(2).getColumnWidth(1));
+        }
+    }
+
+    @Test
+    void measureHeader_ShouldAccountForBoldFont() throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet();
+            Row row = sheet.createRow(0);
+            row.createCell(0).setCellValue("Дата окончания");
+
+            ColumnWidthEstimator plain = new ColumnWidthEstimator(1);
+            plain.measureRow(row);
+            ColumnWidthEstimator header = new ColumnWidthEstimator(1);
+            header.measureHeader(row);
+
+            assertThat(header.getColumnWidth(0)).isGreaterThan(plain.getColumnWidth(0));
+        }
+    }
+
+    @Test
+    void apply_ShouldCapWidthAtExcelMaximum() throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet();
+            ColumnWidthEstimator estimator = new ColumnWidthEstimator(1);
+            estimator.measure(0, "W".repeat(1000));
+
+            estimator.apply(sheet);
+
+            assertThat(sheet.getColumnWidth(0)).isEqualTo(255 * 256);
+        }
+    }
+
+    @Test
+    void apply_ShouldWorkWithStreamingSheetAfterRowsFlushed() throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(10);
+        try {
+            Sheet sheet = workbook.createSheet();
+            ColumnWidthEstimator estimator = new ColumnWidthEstimator(1);
+            for (int i = 0; i < 100; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue(i == 5 ? "самое длинное значение в колонке" : "x");
+                estimator.measureRow(row);
+            }
+
+            // Строка с длинным значением уже сброшена на диск, но ширина учтена
+            estimator.apply(sheet);
+
+            assertThat(sheet.getColumnWidth(0)).isGreaterThan(20 * 256);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    @Test
+    void estimator_ShouldUseFontSpecificTable() {
+        ColumnWidthEstimator calibri = new ColumnWidthEstimator(1, "Calibri");
+        ColumnWidthEstimator arial = new ColumnWidthEstimator(1, "Arial");
+        calibri.measure(0, "iiiiiiiiii");
+        arial.measure(0, "iiiiiiiiii");
+
+        assertThat(calibri.getColumnWidth(0)).isNotEqualTo(arial.getColumnWidth(0));
+    }
+}
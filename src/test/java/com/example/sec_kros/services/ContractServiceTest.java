@@ -3,11 +3,15 @@ package com.example.sec_kros.services;
 import com.example.sec_kros.DTO.ContractApprovalDTO;
 import com.example.sec_kros.DTO.ContractDTO;
 import com.example.sec_kros.DTO.ContractDeletionInfo;
+import com.example.sec_kros.DTO.KeysetPage;
 import com.example.sec_kros.DTO.ValidationResult;
 import com.example.sec_kros.Entities.*;
 import com.example.sec_kros.Repositories.*;
 import com.example.sec_kros.Services.ContractService;
 import com.example.sec_kros.Services.EmailService;
+import com.example.sec_kros.Services.RevenueRollupService;
+import com.example.sec_kros.Services.ScheduleMaterializationMetrics;
+import com.example.sec_kros.Services.ShiftConflictIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,6 +19,10 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -37,6 +45,10 @@ class ContractServiceTest {
     @Mock private ScheduleRepository scheduleRepository;
     @Mock private NotificationRepository notificationRepository;
     @Mock private EmailService emailService;
+    @Mock private RevenueRollupService revenueRollupService;
+    @Mock private RecurringShiftRepository recurringShiftRepository;
+    @Mock private ScheduleMaterializationMetrics scheduleMaterializationMetrics;
+    @Mock private ShiftConflictIndex shiftConflictIndex;
 
     @InjectMocks private ContractService contractService;
 
@@ -97,6 +109,16 @@ class ContractServiceTest {
         verify(contractRepository).findAll();
     }
 
+    @Test
+    void getContractsPage_ShouldReturnLastPageWithoutCursor() {
+        when(contractRepository.findPage(PageRequest.ofSize(KeysetPage.DEFAULT_SIZE + 1)))
+                .thenReturn(List.of(testContract));
+        KeysetPage<Contract> page = contractService.getContractsPage(null, null);
+        assertThat(page.getItems()).containsExactly(testContract);
+        assertThat(page.isHasNext()).isFalse();
+        verify(contractRepository, never()).findAll();
+    }
+
     @Test
     void getContractById_ShouldReturnContract() {
         when(contractRepository.findById(1L)).thenReturn(Optional.of(testContract));
@@ -129,6 +151,7 @@ class ContractServiceTest {
         verify(clientRepository).findById(1L);
         verify(serviceRepository).findById(1L);
         verify(contractRepository).save(any(Contract.class));
+        verify(revenueRollupService).contractCreated(result);
     }
 
     @Test
@@ -142,6 +165,7 @@ class ContractServiceTest {
         // Теперь serviceRepository.findById не должен вызываться
         verify(serviceRepository, never()).findById(anyLong());
         verify(contractRepository, never()).save(any());
+        verifyNoInteractions(revenueRollupService);
     }
 
     @Test
@@ -168,6 +192,7 @@ class ContractServiceTest {
         assertThat(result).isTrue();
         verify(contractRepository).findById(1L);
         verify(contractRepository).delete(testContract);
+        verify(revenueRollupService).contractDeleted(testContract);
     }
 
     @Test
@@ -222,8 +247,6 @@ class ContractServiceTest {
         when(contractRepository.findById(1L)).thenReturn(Optional.of(testContract));
         when(employeeRepository.findById(1L)).thenReturn(Optional.of(testEmployee));
         when(guardObjectRepository.findByContractId(1L)).thenReturn(List.of(testGuardObject));
-        when(scheduleRepository.save(any(Schedule.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        when(notificationRepository.save(any(Notification.class))).thenReturn(new Notification());
         when(contractRepository.save(any(Contract.class))).thenReturn(testContract);
 
         // Email моки
@@ -243,13 +266,27 @@ class ContractServiceTest {
         verify(employeeRepository, times(1)).findById(1L);
         verify(guardObjectRepository, times(1)).findByContractId(1L);
         verify(contractRepository).findById(1L);
-        verify(scheduleRepository, times(7)).save(any(Schedule.class));
-        verify(notificationRepository, times(2)).save(any(Notification.class));
+        // График на весь срок договора (31 день) - одна повторяющаяся смена, без строки на каждый день
+        ArgumentCaptor<RecurringShift> shift = ArgumentCaptor.forClass(RecurringShift.class);
+        verify(recurringShiftRepository).save(shift.capture());
+        assertThat(shift.getValue().getRecurrenceRule()).isEqualTo("FREQ=DAILY");
+        assertThat(shift.getValue().getStartDate()).isEqualTo(testContract.getStartDate());
+        assertThat(shift.getValue().getEndDate()).isEqualTo(testContract.getEndDate());
+        assertThat(shift.getValue().getStartTime()).isEqualTo(LocalTime.of(8, 0));
+        assertThat(shift.getValue().getEndTime()).isEqualTo(LocalTime.of(20, 0));
+        assertThat(shift.getValue().getNotes()).isEqualTo("Охрана по контракту №1. Особые указания");
+        verifyNoInteractions(scheduleRepository);
+        verify(scheduleMaterializationMetrics).record(eq(1L), eq(31), anyLong());
+        // Уведомления пишутся пакетно
+        ArgumentCaptor<Iterable<Notification>> notifications = ArgumentCaptor.captor();
+        verify(notificationRepository).saveAll(notifications.capture());
+        assertThat(notifications.getValue()).hasSize(2);
         verify(emailService, times(1)).sendContractApprovalEmailToClient(anyString(), anyString(),
                 anyString(), anyString(), anyString(), anyString(), anyString(), anyString(), anyString());
         verify(emailService, times(1)).sendContractApprovalEmailToEmployee(anyString(), anyString(),
                 anyString(), anyString(), anyString(), anyString(), anyString(), anyString(), anyString(), anyString());
         verify(contractRepository).save(testContract);
+        verify(revenueRollupService).contractChanged(any(RevenueRollupService.ContractSnapshot.class), eq(testContract));
     }
 
     @Test
@@ -291,8 +328,6 @@ class ContractServiceTest {
         when(contractRepository.findById(1L)).thenReturn(Optional.of(testContract));
         when(employeeRepository.findById(1L)).thenReturn(Optional.of(testEmployee));
         when(guardObjectRepository.findByContractId(1L)).thenReturn(List.of(testGuardObject));
-        when(scheduleRepository.save(any(Schedule.class))).thenReturn(new Schedule());
-        when(notificationRepository.save(any(Notification.class))).thenReturn(new Notification());
 
         // Бросаем исключение при отправке email
         doThrow(new RuntimeException("SMTP error")).when(emailService).sendContractApprovalEmailToClient(
@@ -308,6 +343,67 @@ class ContractServiceTest {
         assertThat(result.getStatus()).isEqualTo("active");
     }
 
+    @Test
+    void approveContract_WithDTO_ShouldSendEmailsOnlyAfterCommit() {
+        ContractApprovalDTO approvalDTO = new ContractApprovalDTO();
+        approvalDTO.setSecurityEmployeeId(1L);
+        approvalDTO.setShiftStartTime(LocalTime.of(8, 0));
+        approvalDTO.setShiftEndTime(LocalTime.of(20, 0));
+
+        testContract.setStatus("draft");
+
+        when(contractRepository.findById(1L)).thenReturn(Optional.of(testContract));
+        when(employeeRepository.findById(1L)).thenReturn(Optional.of(testEmployee));
+        when(guardObjectRepository.findByContractId(1L)).thenReturn(List.of(testGuardObject));
+        when(contractRepository.save(any(Contract.class))).thenReturn(testContract);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            contractService.approveContract(1L, approvalDTO);
+
+            // Внутри транзакции письма не отправляются
+            verifyNoInteractions(emailService);
+
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                    TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(emailService).sendContractApprovalEmailToClient(eq(testClient.getEmail()), anyString(), eq("1"),
+                anyString(), anyString(), anyString(), anyString(), anyString(), eq("08:00 - 20:00"));
+        verify(emailService).sendContractApprovalEmailToEmployee(eq(testEmployee.getEmail()), anyString(), eq("1"),
+                anyString(), anyString(), anyString(), eq("08:00 - 20:00"), anyString(), anyString(),
+                eq("Дополнительные указания отсутствуют"));
+    }
+
+    @Test
+    void approveContract_WithDTO_ShouldNotSendEmails_WhenTransactionRolledBack() {
+        ContractApprovalDTO approvalDTO = new ContractApprovalDTO();
+        approvalDTO.setSecurityEmployeeId(1L);
+        approvalDTO.setShiftStartTime(LocalTime.of(8, 0));
+        approvalDTO.setShiftEndTime(LocalTime.of(20, 0));
+
+        testContract.setStatus("draft");
+
+        when(contractRepository.findById(1L)).thenReturn(Optional.of(testContract));
+        when(employeeRepository.findById(1L)).thenReturn(Optional.of(testEmployee));
+        when(guardObjectRepository.findByContractId(1L)).thenReturn(List.of(testGuardObject));
+        when(contractRepository.save(any(Contract.class))).thenReturn(testContract);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            contractService.approveContract(1L, approvalDTO);
+
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                    TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verifyNoInteractions(emailService);
+    }
+
     @Test
     void approveContract_WithDTO_ShouldCreateCorrectSchedule() {
         ContractApprovalDTO approvalDTO = new ContractApprovalDTO();
@@ -324,8 +420,6 @@ class ContractServiceTest {
         when(contractRepository.findById(1L)).thenReturn(Optional.of(testContract));
         when(employeeRepository.findById(1L)).thenReturn(Optional.of(testEmployee));
         when(guardObjectRepository.findByContractId(1L)).thenReturn(List.of(testGuardObject));
-        when(scheduleRepository.save(any(Schedule.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        when(notificationRepository.save(any(Notification.class))).thenReturn(new Notification());
         when(contractRepository.save(any(Contract.class))).thenReturn(testContract);
         doNothing().when(emailService).sendContractApprovalEmailToClient(any(), any(), any(), any(), any(), any(), any(), any(), any());
         doNothing().when(emailService).sendContractApprovalEmailToEmployee(any(), any(), any(), any(), any(), any(), any(), any(), any(), any());
@@ -333,7 +427,70 @@ class ContractServiceTest {
         // Act
         contractService.approveContract(1L, approvalDTO);
 
-        // Assert - должно быть создано 5 расписаний
-        verify(scheduleRepository, times(5)).save(any(Schedule.class));
+        // Assert - серия на 5 дней с сотрудником и объектом договора
+        ArgumentCaptor<RecurringShift> shift = ArgumentCaptor.forClass(RecurringShift.class);
+        verify(recurringShiftRepository).save(shift.capture());
+        assertThat(shift.getValue().getEmployee()).isEqualTo(testEmployee);
+        assertThat(shift.getValue().getGuardObject()).isEqualTo(testGuardObject);
+        verify(scheduleMaterializationMetrics).record(eq(1L), eq(5), anyLong());
+    }
+
+    @Test
+    void approveContract_WithDTO_ShouldPlanMultiYearScheduleWithSingleRow() {
+        ContractApprovalDTO approvalDTO = new ContractApprovalDTO();
+        approvalDTO.setSecurityEmployeeId(1L);
+        approvalDTO.setShiftStartTime(LocalTime.of(8, 0));
+        approvalDTO.setShiftEndTime(LocalTime.of(20, 0));
+
+        // Договор на 3 года: 2024-01-01 .. 2026-12-31 = 1096 дней
+        testContract.setStartDate(LocalDate.of(2024, 1, 1));
+        testContract.setEndDate(LocalDate.of(2026, 12, 31));
+
+        when(contractRepository.findById(1L)).thenReturn(Optional.of(testContract));
+        when(employeeRepository.findById(1L)).thenReturn(Optional.of(testEmployee));
+        when(guardObjectRepository.findByContractId(1L)).thenReturn(List.of(testGuardObject));
+        when(contractRepository.save(any(Contract.class))).thenReturn(testContract);
+
+        // Act
+        contractService.approveContract(1L, approvalDTO);
+
+        // Assert - одна строка серии вместо 1096 строк графика
+        verify(recurringShiftRepository, times(1)).save(any(RecurringShift.class));
+        verifyNoInteractions(scheduleRepository);
+        verify(scheduleMaterializationMetrics).record(eq(1L), eq(1096), anyLong());
+    }
+
+    @Test
+    void approveContract_WithDTO_ShouldFail_WhenEmployeeBusy() {
+        ContractApprovalDTO approvalDTO = new ContractApprovalDTO();
+        approvalDTO.setSecurityEmployeeId(1L);
+        approvalDTO.setShiftStartTime(LocalTime.of(8, 0));
+        approvalDTO.setShiftEndTime(LocalTime.of(20, 0));
+
+        when(contractRepository.findById(1L)).thenReturn(Optional.of(testContract));
+        when(employeeRepository.findById(1L)).thenReturn(Optional.of(testEmployee));
+        when(guardObjectRepository.findByContractId(1L)).thenReturn(List.of(testGuardObject));
+        doThrow(new RuntimeException("Смена пересекается с другой сменой сотрудника"))
+                .when(shiftConflictIndex).checkNoConflicts(any(RecurringShift.class));
+
+        assertThatThrownBy(() -> contractService.approveContract(1L, approvalDTO))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("пересекается");
+        verify(recurringShiftRepository, never()).save(any());
+        verify(contractRepository, never()).save(any());
+    }
+
+    @Test
+    void getDeletionInfo_ShouldCountRecurringShifts() {
+        when(contractRepository.findById(1L)).thenReturn(Optional.of(testContract));
+        when(guardObjectRepository.findByContractId(1L)).thenReturn(List.of(testGuardObject));
+        when(scheduleRepository.findByGuardObject_Contract_Id(1L)).thenReturn(Collections.emptyList());
+        when(recurringShiftRepository.findByGuardObject_Contract_Id(1L)).thenReturn(List.of(new RecurringShift()));
+
+        ContractDeletionInfo info = contractService.getDeletionInfo(1L);
+
+        assertThat(info.getGuardObjectsCount()).isEqualTo(1);
+        assertThat(info.getSchedulesCount()).isZero();
+        assertThat(info.getRecurringShiftsCount()).isEqualTo(1);
     }
-}
\ No newline at end of file
+}
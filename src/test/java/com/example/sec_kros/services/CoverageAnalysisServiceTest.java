@@ -0,0 +1,262 @@
+package com.example.sec_kros.services;
+
+import com.example.sec_kros.DTO.CoverageSummary;
+import com.example.sec_kros.DTO.CoverageWindow;
+import com.example.sec_kros.DTO.ShiftSlot;
+import com.example.sec_kros.Entities.Contract;
+import com.example.sec_kros.Entities.Employee;
+import com.example.sec_kros.Entities.GuardObject;
+import com.example.sec_kros.Entities.RecurringShift;
+import com.example.sec_kros.Entities.Schedule;
+import com.example.sec_kros.Repositories.GuardObjectRepository;
+import com.example.sec_kros.Repositories.RecurringShiftRepository;
+import com.example.sec_kros.Repositories.ScheduleRepository;
+import com.example.sec_kros.Services.CoverageAnalysisService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CoverageAnalysisServiceTest {
+
+    private static final LocalTime DAY = LocalTime.of(8, 0);
+    private static final LocalTime NIGHT = LocalTime.of(20, 0);
+
+    @Mock
+    private GuardObjectRepository guardObjectRepository;
+
+    @Mock
+    private ScheduleRepository scheduleRepository;
+
+    @Mock
+    private RecurringShiftRepository recurringShiftRepository;
+
+    @InjectMocks
+    private CoverageAnalysisService coverageAnalysisService;
+
+    private LocalDate monday;
+    private GuardObject office;
+    private GuardObject warehouse;
+
+    @BeforeEach
+    void setUp() {
+        monday = LocalDate.of(2030, 1, 7);
+        office = guardObject(1L, "Офис", monday.minusDays(30), monday.plusDays(30));
+        warehouse = guardObject(2L, "Склад", monday.minusDays(30), monday.plusDays(30));
+    }
+
+    @Test
+    void analyze_ShouldFindNoGaps_WhenDayAndNightShiftsFollowEachOther() {
+        // Ночная смена воскресенья закрывает утро понедельника
+        givenObjects(office);
+        givenSlots(
+                slot(1L, monday.minusDays(1), NIGHT, DAY),
+                slot(1L, monday, DAY, NIGHT),
+                slot(1L, monday, NIGHT, DAY));
+
+        List<CoverageWindow> windows = new ArrayList<>();
+        CoverageSummary summary = coverageAnalysisService.analyze(monday, monday, windows::add);
+
+        assertThat(windows).isEmpty();
+        assertThat(summary.isFullyCovered()).isTrue();
+        assertThat(summary.getObjectsChecked()).isEqualTo(1);
+    }
+
+    @Test
+    void analyze_ShouldReportGapsBetweenShiftsAndAtTheEnd() {
+        givenObjects(office);
+        givenSlots(
+                slot(1L, monday, LocalTime.of(0, 0), DAY),
+                slot(1L, monday, LocalTime.of(10, 0), NIGHT));
+
+        List<CoverageWindow> windows = new ArrayList<>();
+        CoverageSummary summary = coverageAnalysisService.analyze(monday, monday, windows::add);
+
+        assertThat(windows).extracting(CoverageWindow::getStart)
+                .containsExactly(monday.atTime(8, 0), monday.atTime(20, 0));
+        assertThat(windows).extracting(CoverageWindow::getEnd)
+                .containsExactly(monday.atTime(10, 0), monday.plusDays(1).atStartOfDay());
+        assertThat(windows).allMatch(CoverageWindow::isUncovered);
+        assertThat(summary.getUncoveredWindows()).isEqualTo(2);
+        assertThat(summary.getUncoveredMinutes()).isEqualTo(6 * 60);
+        assertThat(summary.getObjectsWithGaps()).isEqualTo(1);
+    }
+
+    @Test
+    void analyze_ShouldMergeOverlappingAssignmentsIntoOneDoubleBookedWindow() {
+        givenObjects(office);
+        givenSlots(
+                slot(1L, monday, LocalTime.of(0, 0), NIGHT),
+                slot(1L, monday, LocalTime.of(9, 0), LocalTime.of(12, 0)),
+                slot(1L, monday, LocalTime.of(11, 0), LocalTime.of(14, 0)),
+                slot(1L, monday, NIGHT, LocalTime.of(0, 0)));
+
+        List<CoverageWindow> windows = new ArrayList<>();
+        CoverageSummary summary = coverageAnalysisService.analyze(monday, monday, windows::add);
+
+        assertThat(windows).singleElement().satisfies(window -> {
+            assertThat(window.getType()).isEqualTo(CoverageWindow.TYPE_DOUBLE_BOOKED);
+            assertThat(window.getStart()).isEqualTo(monday.atTime(9, 0));
+            assertThat(window.getEnd()).isEqualTo(monday.atTime(14, 0));
+        });
+        assertThat(summary.getDoubleBookedMinutes()).isEqualTo(5 * 60);
+        assertThat(summary.getObjectsWithGaps()).isZero();
+    }
+
+    @Test
+    void analyze_ShouldReportWholeWindow_WhenObjectHasNoShifts() {
+        givenObjects(office);
+        givenSlots();
+
+        List<CoverageWindow> windows = new ArrayList<>();
+        CoverageSummary summary = coverageAnalysisService.analyze(monday, monday.plusDays(1), windows::add);
+
+        assertThat(windows).singleElement().satisfies(window -> {
+            assertThat(window.getStart()).isEqualTo(monday.atStartOfDay());
+            assertThat(window.getEnd()).isEqualTo(monday.plusDays(2).atStartOfDay());
+        });
+        assertThat(summary.getUncoveredHours()).isEqualTo(48);
+    }
+
+    @Test
+    void analyze_ShouldClipWindowToContractPeriod() {
+        // Договор заканчивается во вторник: среда и ночь после вторника не требуют охраны
+        office.getContract().setEndDate(monday.plusDays(1));
+        givenObjects(office);
+        givenSlots(
+                slot(1L, monday, LocalTime.of(0, 0), LocalTime.of(0, 0)),
+                slot(1L, monday.plusDays(1), LocalTime.of(0, 0), LocalTime.of(0, 0)));
+
+        List<CoverageWindow> windows = new ArrayList<>();
+        coverageAnalysisService.analyze(monday, monday.plusDays(2), windows::add);
+
+        assertThat(windows).isEmpty();
+    }
+
+    @Test
+    void analyze_ShouldMergeRecurringOccurrencesWithoutExceptionsAndOverrides() {
+        RecurringShift series = recurringShift(5L, office, "FREQ=DAILY", DAY, NIGHT);
+        series.getExceptionDates().add(monday.plusDays(1));
+        Schedule override = new Schedule();
+        override.setRecurringShift(series);
+        override.setDate(monday.plusDays(2));
+
+        givenObjects(office);
+        when(recurringShiftRepository.findActiveBetween(monday.minusDays(1), monday.plusDays(2)))
+                .thenReturn(List.of(series));
+        when(scheduleRepository.findOverridesBetween(eq(Set.of(5L)), any(), any())).thenReturn(List.of(override));
+        // Замена серии в среду перенесена на вечер и приходит в потоке строк
+        givenSlots(
+                slot(1L, monday.minusDays(1), NIGHT, DAY),
+                slot(1L, monday, NIGHT, DAY),
+                slot(1L, monday.plusDays(1), NIGHT, DAY),
+                slot(1L, monday.plusDays(2), LocalTime.of(12, 0), LocalTime.of(0, 0)));
+
+        List<CoverageWindow> windows = new ArrayList<>();
+        coverageAnalysisService.analyze(monday, monday.plusDays(2), windows::add);
+
+        assertThat(windows).extracting(CoverageWindow::getStart)
+                .containsExactly(monday.plusDays(1).atTime(8, 0), monday.plusDays(2).atTime(8, 0));
+        assertThat(windows).extracting(CoverageWindow::getEnd)
+                .containsExactly(monday.plusDays(1).atTime(20, 0), monday.plusDays(2).atTime(12, 0));
+    }
+
+    @Test
+    void analyze_ShouldSkipShiftsOfObjectsOutsideAnalysis() {
+        // Объект 1 не действует, его смены в потоке не должны попасть на склад
+        givenObjects(warehouse);
+        givenSlots(
+                slot(1L, monday, LocalTime.of(0, 0), LocalTime.of(0, 0)),
+                slot(2L, monday, LocalTime.of(0, 0), NIGHT));
+
+        List<CoverageWindow> windows = new ArrayList<>();
+        coverageAnalysisService.analyze(monday, monday, windows::add);
+
+        assertThat(windows).singleElement().satisfies(window -> {
+            assertThat(window.getGuardObject()).isEqualTo(warehouse);
+            assertThat(window.getStart()).isEqualTo(monday.atTime(20, 0));
+        });
+    }
+
+    @Test
+    void getSummary_ShouldKeepOnlyEarliestGaps() {
+        givenObjects(office, warehouse);
+        givenSlots(
+                slot(1L, monday, LocalTime.of(1, 0), LocalTime.of(0, 0)),
+                slot(2L, monday, LocalTime.of(0, 0), LocalTime.of(3, 0)),
+                slot(2L, monday, LocalTime.of(4, 0), LocalTime.of(0, 0)));
+
+        CoverageSummary summary = coverageAnalysisService.getSummary(monday, monday, 2);
+
+        assertThat(summary.getUncoveredWindows()).isEqualTo(2);
+        assertThat(summary.getEarliestGaps()).extracting(CoverageWindow::getStart)
+                .containsExactly(monday.atStartOfDay(), monday.atTime(3, 0));
+
+        CoverageSummary limited = coverageAnalysisService.getSummary(monday, monday, 1);
+        assertThat(limited.getEarliestGaps()).singleElement()
+                .satisfies(window -> assertThat(window.getGuardObject()).isEqualTo(office));
+    }
+
+    @Test
+    void analyze_ShouldRejectInvalidPeriod() {
+        assertThatThrownBy(() -> coverageAnalysisService.analyze(monday, monday.minusDays(1), window -> {}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Некорректный период");
+        verifyNoInteractions(scheduleRepository);
+    }
+
+    private void givenObjects(GuardObject... guardObjects) {
+        when(guardObjectRepository.findActiveBetween(any(), any())).thenReturn(List.of(guardObjects));
+    }
+
+    private void givenSlots(ShiftSlot... slots) {
+        when(scheduleRepository.streamSlotsBetween(any(), any())).thenAnswer(invocation -> Stream.of(slots));
+    }
+
+    private static ShiftSlot slot(Long guardObjectId, LocalDate date, LocalTime start, LocalTime end) {
+        return new ShiftSlot(null, 1L, guardObjectId, null, date, start, end);
+    }
+
+    private RecurringShift recurringShift(Long id, GuardObject guardObject, String rule,
+                                          LocalTime start, LocalTime end) {
+        Employee employee = new Employee();
+        employee.setId(7L);
+        RecurringShift shift = new RecurringShift();
+        shift.setId(id);
+        shift.setEmployee(employee);
+        shift.setGuardObject(guardObject);
+        shift.setRecurrenceRule(rule);
+        shift.setStartDate(monday.minusDays(10));
+        shift.setStartTime(start);
+        shift.setEndTime(end);
+        return shift;
+    }
+
+    private static GuardObject guardObject(Long id, String name, LocalDate startDate, LocalDate endDate) {
+        Contract contract = new Contract();
+        contract.setStatus("active");
+        contract.setStartDate(startDate);
+        contract.setEndDate(endDate);
+        GuardObject guardObject = new GuardObject();
+        guardObject.setId(id);
+        guardObject.setName(name);
+        guardObject.setContract(contract);
+        return guardObject;
+    }
+}
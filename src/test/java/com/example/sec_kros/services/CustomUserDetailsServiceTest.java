@@ -1,17 +1,21 @@
 package com.example.sec_kros.services;
 
-import com.example.sec_kros.Entities.Client;
-import com.example.sec_kros.Entities.Employee;
-import com.example.sec_kros.Repositories.ClientRepository;
-import com.example.sec_kros.Repositories.EmployeeRepository;
+import com.example.sec_kros.DTO.UserAccount;
+import com.example.sec_kros.DTO.UserPrincipal;
 import com.example.sec_kros.Services.CustomUserDetailsService;
+import com.example.sec_kros.Services.PrincipalLookupService;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
@@ -20,31 +24,28 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
-import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class CustomUserDetailsServiceTest {
 
     @Mock
-    private ClientRepository clientRepository;
-
-    @Mock
-    private EmployeeRepository employeeRepository;
+    private PrincipalLookupService principalLookupService;
 
     @InjectMocks
     private CustomUserDetailsService userDetailsService;
 
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
     @Test
     void loadUserByUsername_ShouldReturnAdminUser_WhenAdminEmployeeExists() {
         // Arrange
         String email = "admin@example.com";
-        Employee adminEmployee = new Employee();
-        adminEmployee.setEmail(email);
-        adminEmployee.setPasswordHash("hashed_password");
-        adminEmployee.setIsAdmin(true);
-
-        when(employeeRepository.findByEmail(email)).thenReturn(Optional.of(adminEmployee));
+        when(principalLookupService.findByEmail(email))
+                .thenReturn(Optional.of(new UserAccount(1L, email, "hashed_password", "admin", "Иван", "Петров")));
 
         // Act
         UserDetails userDetails = userDetailsService.loadUserByUsername(email);
@@ -58,265 +59,136 @@ class CustomUserDetailsServiceTest {
         assertThat(authorities).hasSize(1);
         assertThat(authorities.iterator().next().getAuthority()).isEqualTo("ROLE_ADMIN");
 
-        verify(employeeRepository).findByEmail(email);
-        verify(clientRepository, never()).findByEmail(anyString());
-    }
-
-    @Test
-    void loadUserByUsername_ShouldReturnEmployeeUser_WhenNonAdminEmployeeExists() {
-        // Arrange
-        String email = "employee@example.com";
-        Employee employee = new Employee();
-        employee.setEmail(email);
-        employee.setPasswordHash("hashed_password");
-        employee.setIsAdmin(false);
-
-        when(employeeRepository.findByEmail(email)).thenReturn(Optional.of(employee));
-
-        // Act
-        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
-
-        // Assert
-        assertThat(userDetails).isNotNull();
-        assertThat(userDetails.getUsername()).isEqualTo(email);
-        assertThat(userDetails.getPassword()).isEqualTo("hashed_password");
-
-        Collection<? extends GrantedAuthority> authorities = userDetails.getAuthorities();
-        assertThat(authorities).hasSize(1);
-        assertThat(authorities.iterator().next().getAuthority()).isEqualTo("ROLE_EMPLOYEE");
-
-        verify(employeeRepository).findByEmail(email);
-        verify(clientRepository, never()).findByEmail(anyString());
+        verify(principalLookupService).findByEmail(email);
     }
 
     @Test
-    void loadUserByUsername_ShouldReturnClientUser_WhenClientExists() {
+    void loadUserByUsername_ShouldCarryUserTypeIdAndName() {
         // Arrange
         String email = "client@example.com";
-        Client client = new Client();
-        client.setEmail(email);
-        client.setPasswordHash("hashed_password");
-
-        when(employeeRepository.findByEmail(email)).thenReturn(Optional.empty());
-        when(clientRepository.findByEmail(email)).thenReturn(Optional.of(client));
-
-        // Act
-        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
-
-        // Assert
-        assertThat(userDetails).isNotNull();
-        assertThat(userDetails.getUsername()).isEqualTo(email);
-        assertThat(userDetails.getPassword()).isEqualTo("hashed_password");
-
-        Collection<? extends GrantedAuthority> authorities = userDetails.getAuthorities();
-        assertThat(authorities).hasSize(1);
-        assertThat(authorities.iterator().next().getAuthority()).isEqualTo("ROLE_CLIENT");
-
-        verify(employeeRepository).findByEmail(email);
-        verify(clientRepository).findByEmail(email);
-    }
-
-    @Test
-    void loadUserByUsername_ShouldCheckEmployeeFirst_ThenClient() {
-        // Arrange
-        String email = "user@example.com";
-        Employee employee = new Employee();
-        employee.setEmail(email);
-        employee.setPasswordHash("employee_password");
-        employee.setIsAdmin(false);
-
-        when(employeeRepository.findByEmail(email)).thenReturn(Optional.of(employee));
+        when(principalLookupService.findByEmail(email))
+                .thenReturn(Optional.of(new UserAccount(3L, email, "hash", "client", "Иван", "Петров")));
 
         // Act
-        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+        UserPrincipal principal = (UserPrincipal) userDetailsService.loadUserByUsername(email);
 
         // Assert
-        assertThat(userDetails).isNotNull();
-        assertThat(userDetails.getUsername()).isEqualTo(email);
-        assertThat(userDetails.getPassword()).isEqualTo("employee_password");
-        assertThat(userDetails.getAuthorities()).hasSize(1);
-        assertThat(userDetails.getAuthorities().iterator().next().getAuthority()).isEqualTo("ROLE_EMPLOYEE");
-
-        verify(employeeRepository).findByEmail(email);
-        verify(clientRepository, never()).findByEmail(anyString());
+        assertThat(principal.getId()).isEqualTo(3L);
+        assertThat(principal.getUserType()).isEqualTo("client");
+        assertThat(principal.isClient()).isTrue();
+        assertThat(principal.isEmployee()).isFalse();
+        assertThat(principal.getFirstName()).isEqualTo("Иван");
+        assertThat(principal.getDisplayName()).isEqualTo("Петров Иван");
     }
 
     @Test
-    void loadUserByUsername_ShouldThrowException_WhenUserNotFound() {
+    void getCurrentUser_ShouldReturnPrincipalFromContextWithoutLookup() {
         // Arrange
-        String email = "nonexistent@example.com";
-        when(employeeRepository.findByEmail(email)).thenReturn(Optional.empty());
-        when(clientRepository.findByEmail(email)).thenReturn(Optional.empty());
+        UserPrincipal principal = new UserPrincipal(new UserAccount(1L, "admin@example.com", "hash", "admin", "Иван", "Петров"));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
 
         // Act & Assert
-        assertThatThrownBy(() -> userDetailsService.loadUserByUsername(email))
-                .isInstanceOf(UsernameNotFoundException.class)
-                .hasMessageContaining("Пользователь с email " + email + " не найден");
-
-        verify(employeeRepository).findByEmail(email);
-        verify(clientRepository).findByEmail(email);
+        assertThat(userDetailsService.getCurrentUser()).isSameAs(principal);
+        verifyNoInteractions(principalLookupService);
     }
 
     @Test
-    void loadUserByUsername_ShouldHandleNullEmployeeAdminField() {
-        // Arrange
-        String email = "employee@example.com";
-        Employee employee = new Employee();
-        employee.setEmail(email);
-        employee.setPasswordHash("hashed_password");
-        employee.setIsAdmin(null);
-
-        when(employeeRepository.findByEmail(email)).thenReturn(Optional.of(employee));
+    void getCurrentUser_ShouldLoadAccount_WhenContextHoldsPlainUser() {
+        // Arrange: сессия, созданная до появления UserPrincipal
+        User user = new User("admin@example.com", "hash", AuthorityUtils.createAuthorityList("ROLE_ADMIN"));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        when(principalLookupService.findByEmail("admin@example.com"))
+                .thenReturn(Optional.of(new UserAccount(1L, "admin@example.com", "hash", "admin", "Иван", "Петров")));
 
         // Act
-        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+        UserPrincipal current = userDetailsService.getCurrentUser();
 
         // Assert
-        assertThat(userDetails).isNotNull();
-        assertThat(userDetails.getAuthorities()).hasSize(1);
-        assertThat(userDetails.getAuthorities().iterator().next().getAuthority()).isEqualTo("ROLE_EMPLOYEE");
+        assertThat(current.getId()).isEqualTo(1L);
+        assertThat(current.getUserType()).isEqualTo("admin");
     }
 
     @Test
-    void loadUserByUsername_ShouldHandleEmptyEmail() {
-        // Arrange
-        String email = "";
-        when(employeeRepository.findByEmail(email)).thenReturn(Optional.empty());
-        when(clientRepository.findByEmail(email)).thenReturn(Optional.empty());
+    void getCurrentUser_ShouldReturnNull_WhenNotAuthenticated() {
+        assertThat(userDetailsService.getCurrentUser()).isNull();
 
-        // Act & Assert
-        assertThatThrownBy(() -> userDetailsService.loadUserByUsername(email))
-                .isInstanceOf(UsernameNotFoundException.class)
-                .hasMessageContaining("Пользователь с email " + email + " не найден");
+        SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken("key", "anonymousUser",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+        assertThat(userDetailsService.getCurrentUser()).isNull();
+        verifyNoInteractions(principalLookupService);
     }
 
     @Test
-    void loadUserByUsername_ShouldHandleNullEmail() {
-        // Act & Assert
-        assertThatThrownBy(() -> userDetailsService.loadUserByUsername(null))
-                .isInstanceOf(UsernameNotFoundException.class)
-                .hasMessageContaining("Пользователь с email null не найден");
-    }
-
-    @Test
-    void loadUserByUsername_ShouldCreateUserWithCorrectProperties() {
+    void loadUserByUsername_ShouldReturnEmployeeUser_WhenNonAdminEmployeeExists() {
         // Arrange
-        String email = "test@example.com";
-        Employee employee = new Employee();
-        employee.setEmail(email);
-        employee.setPasswordHash("$2a$10$hashedPassword123");
-        employee.setIsAdmin(true);
-
-        when(employeeRepository.findByEmail(email)).thenReturn(Optional.of(employee));
+        String email = "employee@example.com";
+        when(principalLookupService.findByEmail(email))
+                .thenReturn(Optional.of(new UserAccount(2L, email, "hashed_password", "employee", "Иван", "Петров")));
 
         // Act
         UserDetails userDetails = userDetailsService.loadUserByUsername(email);
 
         // Assert
-        assertThat(userDetails).isNotNull();
         assertThat(userDetails.getUsername()).isEqualTo(email);
-        assertThat(userDetails.getPassword()).isEqualTo("$2a$10$hashedPassword123");
-        assertThat(userDetails.isAccountNonExpired()).isTrue();
-        assertThat(userDetails.isAccountNonLocked()).isTrue();
-        assertThat(userDetails.isCredentialsNonExpired()).isTrue();
-        assertThat(userDetails.isEnabled()).isTrue();
-
-        verify(employeeRepository).findByEmail(email);
+        assertThat(userDetails.getPassword()).isEqualTo("hashed_password");
+        assertThat(userDetails.getAuthorities())
+                .extracting("authority")
+                .containsExactly("ROLE_EMPLOYEE");
     }
 
     @Test
-    void loadUserByUsername_ShouldReturnClientWithCorrectProperties() {
+    void loadUserByUsername_ShouldReturnClientUser_WhenClientExists() {
         // Arrange
         String email = "client@example.com";
-        Client client = new Client();
-        client.setEmail(email);
-        client.setPasswordHash("client_hashed_password");
-
-        when(employeeRepository.findByEmail(email)).thenReturn(Optional.empty());
-        when(clientRepository.findByEmail(email)).thenReturn(Optional.of(client));
+        when(principalLookupService.findByEmail(email))
+                .thenReturn(Optional.of(new UserAccount(3L, email, "client_hashed_password", "client", "Иван", "Петров")));
 
         // Act
         UserDetails userDetails = userDetailsService.loadUserByUsername(email);
 
         // Assert
-        assertThat(userDetails).isNotNull();
         assertThat(userDetails.getUsername()).isEqualTo(email);
         assertThat(userDetails.getPassword()).isEqualTo("client_hashed_password");
         assertThat(userDetails.isAccountNonExpired()).isTrue();
         assertThat(userDetails.isAccountNonLocked()).isTrue();
         assertThat(userDetails.isCredentialsNonExpired()).isTrue();
         assertThat(userDetails.isEnabled()).isTrue();
-
         assertThat(userDetails.getAuthorities())
                 .extracting("authority")
                 .containsExactly("ROLE_CLIENT");
     }
 
     @Test
-    void loadUserByUsername_ShouldHandleEmployeeWithAllFields() {
+    void loadUserByUsername_ShouldThrowException_WhenUserNotFound() {
         // Arrange
-        String email = "full.employee@example.com";
-        Employee employee = new Employee();
-        employee.setId(1L);
-        employee.setFirstName("Иван");
-        employee.setLastName("Иванов");
-        employee.setEmail(email);
-        employee.setPhone("+79991234567");
-        employee.setPosition("Охранник");
-        employee.setPasswordHash("hashed123");
-        employee.setIsAdmin(false);
-        // createdAt может отсутствовать
-
-        when(employeeRepository.findByEmail(email)).thenReturn(Optional.of(employee));
-
-        // Act
-        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+        String email = "nonexistent@example.com";
+        when(principalLookupService.findByEmail(email)).thenReturn(Optional.empty());
 
-        // Assert
-        assertThat(userDetails).isNotNull();
-        assertThat(userDetails.getUsername()).isEqualTo(email);
-        assertThat(userDetails.getPassword()).isEqualTo("hashed123");
-        assertThat(userDetails.getAuthorities())
-                .extracting("authority")
-                .containsExactly("ROLE_EMPLOYEE");
+        // Act & Assert
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername(email))
+                .isInstanceOf(UsernameNotFoundException.class)
+                .hasMessageContaining("Пользователь с email " + email + " не найден");
     }
 
     @Test
-    void loadUserByUsername_ShouldHandleClientWithAllFields() {
+    void loadUserByUsername_ShouldHandleEmptyEmail() {
         // Arrange
-        String email = "full.client@example.com";
-        Client client = new Client();
-        client.setId(1L);
-        client.setFirstName("Петр");
-        client.setLastName("Петров");
-        client.setPatronymic("Петрович");
-        client.setEmail(email);
-        client.setPhone("+79997654321");
-        client.setAddress("ул. Примерная, 1");
-        client.setPasswordHash("client_hash");
-        // createdAt может отсутствовать или быть по-другому
-
-        when(employeeRepository.findByEmail(email)).thenReturn(Optional.empty());
-        when(clientRepository.findByEmail(email)).thenReturn(Optional.of(client));
-
-        // Act
-        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+        String email = "";
+        when(principalLookupService.findByEmail(email)).thenReturn(Optional.empty());
 
-        // Assert
-        assertThat(userDetails).isNotNull();
-        assertThat(userDetails.getUsername()).isEqualTo(email);
-        assertThat(userDetails.getPassword()).isEqualTo("client_hash");
-        assertThat(userDetails.getAuthorities())
-                .extracting("authority")
-                .containsExactly("ROLE_CLIENT");
+        // Act & Assert
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername(email))
+                .isInstanceOf(UsernameNotFoundException.class)
+                .hasMessageContaining("Пользователь с email " + email + " не найден");
     }
 
     @Test
     void loadUserByUsername_ShouldThrowException_WhenEmailIsBlank() {
         // Arrange
         String email = "   ";
-        when(employeeRepository.findByEmail(email)).thenReturn(Optional.empty());
-        when(clientRepository.findByEmail(email)).thenReturn(Optional.empty());
+        when(principalLookupService.findByEmail(email)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThatThrownBy(() -> userDetailsService.loadUserByUsername(email))
@@ -325,24 +197,31 @@ class CustomUserDetailsServiceTest {
     }
 
     @Test
-    void loadUserByUsername_ShouldHandleCaseSensitiveEmail() {
+    void loadUserByUsername_ShouldHandleNullEmail() {
         // Arrange
-        String email = "Test@Example.COM";
-        Employee employee = new Employee();
-        employee.setEmail("test@example.com"); // другой регистр
-        employee.setPasswordHash("hash");
-        employee.setIsAdmin(false);
-
-        // Репозиторий чувствителен к регистру
-        when(employeeRepository.findByEmail(email)).thenReturn(Optional.empty());
-        when(clientRepository.findByEmail(email)).thenReturn(Optional.empty());
+        when(principalLookupService.findByEmail(null)).thenReturn(Optional.empty());
 
         // Act & Assert
-        assertThatThrownBy(() -> userDetailsService.loadUserByUsername(email))
-                .isInstanceOf(UsernameNotFoundException.class);
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername(null))
+                .isInstanceOf(UsernameNotFoundException.class)
+                .hasMessageContaining("Пользователь с email null не найден");
+    }
 
-        verify(employeeRepository).findByEmail(email);
-        verify(clientRepository).findByEmail(email);
+    @Test
+    void loadUserByUsername_ShouldReturnNewUserForEveryLogin() {
+        // Arrange
+        String email = "client@example.com";
+        when(principalLookupService.findByEmail(email))
+                .thenReturn(Optional.of(new UserAccount(3L, email, "client_hash", "client", "Иван", "Петров")));
+
+        // Act: Spring Security стирает пароль у выданного UserDetails после входа
+        UserDetails first = userDetailsService.loadUserByUsername(email);
+        ((UserPrincipal) first).eraseCredentials();
+        UserDetails second = userDetailsService.loadUserByUsername(email);
+
+        // Assert
+        assertThat(first.getPassword()).isNull();
+        assertThat(second.getPassword()).isEqualTo("client_hash");
     }
 
     @Test
@@ -359,22 +238,14 @@ class CustomUserDetailsServiceTest {
         };
 
         for (String email : emails) {
-            Employee employee = new Employee();
-            employee.setEmail(email);
-            employee.setPasswordHash("hash");
-            employee.setIsAdmin(false);
-
-            when(employeeRepository.findByEmail(email)).thenReturn(Optional.of(employee));
+            when(principalLookupService.findByEmail(email))
+                    .thenReturn(Optional.of(new UserAccount(1L, email, "hash", "employee", "Иван", "Петров")));
 
             // Act
             UserDetails userDetails = userDetailsService.loadUserByUsername(email);
 
             // Assert
-            assertThat(userDetails).isNotNull();
             assertThat(userDetails.getUsername()).isEqualTo(email);
-
-            // Reset mock для следующей итерации
-            reset(employeeRepository);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,138 @@
+package com.example.sec_kros.services;
+
+import com.example.sec_kros.Entities.Client;
+import com.example.sec_kros.Entities.Notification;
+import com.example.sec_kros.Entities.RecurringShift;
+import com.example.sec_kros.Entities.Schedule;
+import com.example.sec_kros.Repositories.*;
+import com.example.sec_kros.Services.DashboardStatisticsService;
+import com.example.sec_kros.Services.EntityCountListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DashboardStatisticsServiceTest {
+
+    @Mock private ClientRepository clientRepository;
+    @Mock private EmployeeRepository employeeRepository;
+    @Mock private ContractRepository contractRepository;
+    @Mock private GuardObjectRepository guardObjectRepository;
+    @Mock private ScheduleRepository scheduleRepository;
+    @Mock private RecurringShiftRepository recurringShiftRepository;
+    @Mock private ObjectProvider<DashboardStatisticsService> statisticsProvider;
+
+    @InjectMocks
+    private DashboardStatisticsService dashboardStatisticsService;
+
+    private EntityCountListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new EntityCountListener();
+        ReflectionTestUtils.setField(listener, "statisticsService", statisticsProvider);
+        lenient().when(statisticsProvider.getIfAvailable()).thenReturn(dashboardStatisticsService);
+
+        when(clientRepository.count()).thenReturn(10L);
+        when(employeeRepository.count()).thenReturn(5L);
+        when(contractRepository.count()).thenReturn(7L);
+        when(guardObjectRepository.count()).thenReturn(3L);
+        when(scheduleRepository.count()).thenReturn(100L);
+        when(recurringShiftRepository.count()).thenReturn(4L);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void getCounts_ShouldLoadCountsOnce() {
+        assertThat(dashboardStatisticsService.getClientsCount()).isEqualTo(10);
+        assertThat(dashboardStatisticsService.getEmployeesCount()).isEqualTo(5);
+        assertThat(dashboardStatisticsService.getContractsCount()).isEqualTo(7);
+        assertThat(dashboardStatisticsService.getObjectsCount()).isEqualTo(3);
+        assertThat(dashboardStatisticsService.getSchedulesCount()).isEqualTo(100);
+        assertThat(dashboardStatisticsService.getRecurringShiftsCount()).isEqualTo(4);
+        assertThat(dashboardStatisticsService.getClientsCount()).isEqualTo(10);
+
+        // Повторные обращения обслуживаются из кэша
+        verify(clientRepository, times(1)).count();
+        verify(scheduleRepository, times(1)).count();
+    }
+
+    @Test
+    void listener_ShouldAdjustCountersWithoutQueries() {
+        dashboardStatisticsService.reconcile();
+
+        listener.onPersist(new Client());
+        listener.onPersist(new Schedule());
+        listener.onPersist(new Schedule());
+        listener.onRemove(new Schedule());
+        listener.onPersist(new RecurringShift());
+
+        assertThat(dashboardStatisticsService.getClientsCount()).isEqualTo(11);
+        assertThat(dashboardStatisticsService.getSchedulesCount()).isEqualTo(101);
+        assertThat(dashboardStatisticsService.getRecurringShiftsCount()).isEqualTo(5);
+        verify(clientRepository, times(1)).count();
+    }
+
+    @Test
+    void listener_ShouldApplyChangesOnlyAfterCommit() {
+        dashboardStatisticsService.reconcile();
+        TransactionSynchronizationManager.initSynchronization();
+
+        listener.onPersist(new Client());
+        assertThat(dashboardStatisticsService.getClientsCount()).isEqualTo(10);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(dashboardStatisticsService.getClientsCount()).isEqualTo(11);
+    }
+
+    @Test
+    void listener_ShouldIgnoreRolledBackChanges() {
+        dashboardStatisticsService.reconcile();
+        TransactionSynchronizationManager.initSynchronization();
+
+        listener.onPersist(new Client());
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(dashboardStatisticsService.getClientsCount()).isEqualTo(10);
+    }
+
+    @Test
+    void listener_ShouldIgnoreUntrackedEntities() {
+        dashboardStatisticsService.reconcile();
+
+        listener.onPersist(new Notification());
+
+        assertThat(dashboardStatisticsService.getClientsCount()).isEqualTo(10);
+    }
+
+    @Test
+    void reconcile_ShouldFixDrift() {
+        dashboardStatisticsService.reconcile();
+        listener.onPersist(new Client());
+        assertThat(dashboardStatisticsService.getClientsCount()).isEqualTo(11);
+
+        // Например, клиента удалили массовым запросом в обход слушателя
+        when(clientRepository.count()).thenReturn(9L);
+        dashboardStatisticsService.reconcile();
+
+        assertThat(dashboardStatisticsService.getClientsCount()).isEqualTo(9);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.sec_kros.services;
 
 import com.example.sec_kros.DTO.EmployeeDTO;
+import com.example.sec_kros.DTO.KeysetPage;
 import com.example.sec_kros.Entities.Employee;
 import com.example.sec_kros.Repositories.EmployeeRepository;
 import com.example.sec_kros.Services.EmployeeService;
@@ -12,6 +13,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.Arrays;
@@ -513,6 +515,24 @@ class EmployeeServiceTest {
     }
 
     // Вспомогательные методы
+    @Test
+    void getEmployeesPage_ShouldSeekAfterCursor() {
+        // Arrange
+        List<Employee> fetched = Arrays.asList(
+                createEmployee(9L, "e9@test.ru", "e9"),
+                createEmployee(8L, "e8@test.ru", "e8")
+        );
+        when(employeeRepository.findByIdLessThanOrderByIdDesc(10L, PageRequest.ofSize(2))).thenReturn(fetched);
+
+        // Act
+        KeysetPage<Employee> page = employeeService.getEmployeesPage("10", 1);
+
+        // Assert
+        assertThat(page.getItems()).extracting(Employee::getId).containsExactly(9L);
+        assertThat(page.getNextCursor()).isEqualTo("9");
+        verify(employeeRepository, never()).findAll();
+    }
+
     private Employee createEmployee(Long id, String email, String login) {
         Employee employee = new Employee();
         employee.setId(id);
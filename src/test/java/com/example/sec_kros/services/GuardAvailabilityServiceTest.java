@@ -0,0 +1,143 @@
+package com.example.sec_kros.services;
+
+import com.example.sec_kros.DTO.GuardAvailability;
+import com.example.sec_kros.DTO.ShiftSlot;
+import com.example.sec_kros.Entities.Employee;
+import com.example.sec_kros.Entities.GuardObject;
+import com.example.sec_kros.Entities.Schedule;
+import com.example.sec_kros.Repositories.RecurringShiftRepository;
+import com.example.sec_kros.Repositories.ScheduleRepository;
+import com.example.sec_kros.Services.GuardAvailabilityService;
+import com.example.sec_kros.Services.ShiftConflictIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GuardAvailabilityServiceTest {
+
+    private static final LocalTime DAY_START = LocalTime.of(8, 0);
+    private static final LocalTime DAY_END = LocalTime.of(20, 0);
+
+    @Mock
+    private ScheduleRepository scheduleRepository;
+
+    @Mock
+    private RecurringShiftRepository recurringShiftRepository;
+
+    @InjectMocks
+    private ShiftConflictIndex shiftConflictIndex;
+
+    private GuardAvailabilityService availabilityService;
+
+    private LocalDate start;
+    private Employee free;
+    private Employee loaded;
+    private Employee busy;
+
+    @BeforeEach
+    void setUp() {
+        availabilityService = new GuardAvailabilityService();
+        ReflectionTestUtils.setField(availabilityService, "shiftConflictIndex", shiftConflictIndex);
+
+        start = LocalDate.now().plusDays(1);
+        free = employee(1L, "Свободный");
+        loaded = employee(2L, "Загруженный");
+        busy = employee(3L, "Занятый");
+
+        // loaded работает ночами, busy - днем на пятый день периода
+        List<ShiftSlot> slots = new ArrayList<>();
+        for (int day = 0; day < 10; day++) {
+            slots.add(new ShiftSlot(100L + day, 2L, 1L, null, start.plusDays(day),
+                    LocalTime.of(21, 0), LocalTime.of(7, 0)));
+        }
+        slots.add(new ShiftSlot(200L, 3L, 1L, null, start.plusDays(4), LocalTime.of(12, 0), LocalTime.of(16, 0)));
+        when(scheduleRepository.findAllSlots()).thenReturn(slots);
+        when(recurringShiftRepository.findAllWithExceptions()).thenReturn(List.of());
+        shiftConflictIndex.rebuild();
+    }
+
+    @Test
+    void rankGuards_ShouldPutFreeGuardsFirstOrderedByLoad() {
+        List<GuardAvailability> ranking = availabilityService.rankGuards(List.of(busy, loaded, free),
+                start, start.plusDays(29), DAY_START, DAY_END);
+
+        assertThat(ranking).extracting(GuardAvailability::getEmployee).containsExactly(free, loaded, busy);
+        assertThat(ranking.get(0).getLoadMinutes()).isZero();
+        // Десять ночных смен по 10 часов не мешают дневной смене, но учитываются в нагрузке
+        assertThat(ranking.get(1).isFree()).isTrue();
+        assertThat(ranking.get(1).getLoadHours()).isEqualTo(100);
+        assertThat(ranking.get(2).isFree()).isFalse();
+        assertThat(ranking.get(2).getFirstConflictDate()).isEqualTo(start.plusDays(4));
+    }
+
+    @Test
+    void rankGuards_ShouldDetectNightShiftConflictsAcrossMidnight() {
+        List<GuardAvailability> ranking = availabilityService.rankGuards(List.of(free, loaded),
+                start, start.plusDays(5), LocalTime.of(5, 0), LocalTime.of(9, 0));
+
+        // Утро первого дня периода пересекается с ночной сменой, начатой накануне
+        assertThat(ranking.get(1).getEmployee()).isEqualTo(loaded);
+        assertThat(ranking.get(1).getFirstConflictDate()).isEqualTo(start.plusDays(1));
+    }
+
+    @Test
+    void rankGuards_ShouldNotReportAdjacentShiftsAsConflicts() {
+        // Смена 07:00-21:00 вплотную к ночным сменам loaded, но не пересекается с ними
+        List<GuardAvailability> ranking = availabilityService.rankGuards(List.of(loaded),
+                start, start.plusDays(9), LocalTime.of(7, 0), LocalTime.of(21, 0));
+
+        assertThat(ranking.get(0).isFree()).isTrue();
+    }
+
+    @Test
+    void rankGuards_ShouldSeeNewSchedulesAfterIndexChange() {
+        assertThat(availabilityService.rankGuards(List.of(free), start, start.plusDays(3), DAY_START, DAY_END)
+                .get(0).isFree()).isTrue();
+
+        Schedule schedule = new Schedule();
+        schedule.setId(300L);
+        schedule.setEmployee(free);
+        GuardObject guardObject = new GuardObject();
+        guardObject.setId(1L);
+        schedule.setGuardObject(guardObject);
+        schedule.setDate(start.plusDays(2));
+        schedule.setStartTime(LocalTime.of(10, 0));
+        schedule.setEndTime(LocalTime.of(11, 0));
+        shiftConflictIndex.scheduleSaved(schedule);
+
+        GuardAvailability availability = availabilityService.rankGuards(List.of(free), start, start.plusDays(3),
+                DAY_START, DAY_END).get(0);
+        assertThat(availability.isFree()).isFalse();
+        assertThat(availability.getFirstConflictDate()).isEqualTo(start.plusDays(2));
+        verify(scheduleRepository, times(1)).findAllSlots();
+    }
+
+    @Test
+    void rankGuards_ShouldRejectInvalidPeriod() {
+        assertThatThrownBy(() -> availabilityService.rankGuards(List.of(free), start, start.minusDays(1),
+                DAY_START, DAY_END)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Employee employee(Long id, String lastName) {
+        Employee employee = new Employee();
+        employee.setId(id);
+        employee.setLastName(lastName);
+        employee.setFirstName("Охранник");
+        employee.setPosition("Охранник");
+        return employee;
+    }
+}
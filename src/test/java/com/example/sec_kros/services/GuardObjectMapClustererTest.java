@@ -0,0 +1,104 @@
+package com.example.sec_kros.services;
+
+import com.example.sec_kros.DTO.GuardObjectLocation;
+import com.example.sec_kros.DTO.MapMarker;
+import com.example.sec_kros.Services.GuardObjectMapClusterer;
+import com.example.sec_kros.Services.GuardObjectSpatialIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GuardObjectMapClustererTest {
+
+    @Mock
+    private GuardObjectSpatialIndex spatialIndex;
+
+    @InjectMocks
+    private GuardObjectMapClusterer clusterer;
+
+    // Три объекта в центре Москвы, один в Химках, один в Санкт-Петербурге
+    private final List<GuardObjectLocation> locations = List.of(
+            location(1L, 55.7520, 37.6300),
+            location(2L, 55.7530, 37.6310),
+            location(3L, 55.7540, 37.6320),
+            location(4L, 55.8890, 37.4450),
+            location(5L, 59.9343, 30.3351));
+
+    @Test
+    void getMarkers_ShouldClusterNearbyObjects() {
+        when(spatialIndex.getVersion()).thenReturn(1L);
+        when(spatialIndex.getLocations()).thenReturn(locations);
+
+        List<MapMarker> markers = clusterer.getMarkers(55.0, 36.0, 57.0, 39.0, 10);
+
+        MapMarker center = markers.stream().filter(MapMarker::isCluster).findFirst().orElseThrow();
+        assertThat(center.getCount()).isEqualTo(3);
+        assertThat(center.getLatitude()).isCloseTo(55.7530, within(1e-9));
+        assertThat(center.getLongitude()).isCloseTo(37.6310, within(1e-9));
+        // Химки в отдельной ячейке, Санкт-Петербург вне окна
+        assertThat(markers).filteredOn(marker -> !marker.isCluster())
+                .extracting(marker -> marker.getObject().getId()).containsExactly(4L);
+    }
+
+    @Test
+    void getMarkers_ShouldMergeEverythingAtWorldZoom() {
+        when(spatialIndex.getVersion()).thenReturn(1L);
+        when(spatialIndex.getLocations()).thenReturn(locations);
+
+        List<MapMarker> markers = clusterer.getMarkers(-90, -200, 90, 200, 0);
+
+        assertThat(markers).hasSize(1);
+        assertThat(markers.get(0).getCount()).isEqualTo(5);
+    }
+
+    @Test
+    void getMarkers_ShouldReuseGridUntilIndexChanges() {
+        when(spatialIndex.getVersion()).thenReturn(1L, 1L, 2L);
+        when(spatialIndex.getLocations()).thenReturn(locations).thenReturn(locations.subList(0, 2));
+
+        clusterer.getMarkers(55.0, 36.0, 57.0, 39.0, 10);
+        clusterer.getMarkers(55.5, 37.0, 56.0, 38.0, 10);
+        List<MapMarker> afterChange = clusterer.getMarkers(55.0, 36.0, 57.0, 39.0, 10);
+
+        verify(spatialIndex, times(2)).getLocations();
+        assertThat(afterChange).hasSize(1);
+        assertThat(afterChange.get(0).getCount()).isEqualTo(2);
+    }
+
+    @Test
+    void getMarkers_ShouldReturnSingleObjectsAboveClusterZoom() {
+        when(spatialIndex.findInBox(55.75, 37.61, 55.76, 37.62)).thenReturn(locations.subList(0, 3));
+
+        List<MapMarker> markers = clusterer.getMarkers(55.75, 37.61, 55.76, 37.62,
+                GuardObjectMapClusterer.MAX_CLUSTER_ZOOM + 1);
+
+        assertThat(markers).extracting(marker -> marker.getObject().getId()).containsExactly(1L, 2L, 3L);
+        assertThat(markers).allMatch(marker -> marker.getCount() == 1);
+        verify(spatialIndex, never()).getLocations();
+    }
+
+    @Test
+    void getMarkers_ShouldRejectInvalidZoomAndBox() {
+        assertThatThrownBy(() -> clusterer.getMarkers(55.0, 36.0, 57.0, 39.0, -1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> clusterer.getMarkers(55.0, 36.0, 57.0, 39.0, GuardObjectMapClusterer.MAX_ZOOM + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> clusterer.getMarkers(57.0, 36.0, 55.0, 39.0, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(spatialIndex);
+    }
+
+    private static GuardObjectLocation location(Long id, double latitude, double longitude) {
+        return new GuardObjectLocation(id, "Объект " + id, "ул. Ленина, " + id, latitude, longitude);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.sec_kros.services;
 
 import com.example.sec_kros.DTO.GuardObjectDTO;
+import com.example.sec_kros.DTO.KeysetPage;
 import com.example.sec_kros.Entities.Client;
 import com.example.sec_kros.Entities.Contract;
 import com.example.sec_kros.Entities.GuardObject;
@@ -12,12 +13,16 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -40,6 +45,9 @@ class GuardObjectServiceTest {
     @Mock
     private ScheduleRepository scheduleRepository;
 
+    @Mock
+    private RecurringShiftRepository recurringShiftRepository;
+
     @InjectMocks
     private GuardObjectService guardObjectService;
 
@@ -396,6 +404,85 @@ class GuardObjectServiceTest {
         verify(guardObjectRepository, never()).hasSchedules(anyLong());
     }
 
+    @Test
+    void getGuardObjectsPage_ShouldSeekAfterCursor() {
+        // Arrange
+        List<GuardObject> fetched = Arrays.asList(
+                createGuardObject(4L, "Объект 4"),
+                createGuardObject(3L, "Объект 3"),
+                createGuardObject(2L, "Объект 2")
+        );
+        when(guardObjectRepository.findPageAfter(5L, PageRequest.ofSize(3))).thenReturn(fetched);
+
+        // Act
+        KeysetPage<GuardObject> page = guardObjectService.getGuardObjectsPage("5", 2);
+
+        // Assert
+        assertThat(page.getItems()).extracting(GuardObject::getId).containsExactly(4L, 3L);
+        assertThat(page.getNextCursor()).isEqualTo("3");
+        verify(guardObjectRepository, never()).findAll();
+    }
+
+    @Test
+    void getDeletableMap_ShouldUseSingleBulkQuery() {
+        // Arrange
+        List<GuardObject> guardObjects = Arrays.asList(
+                createGuardObject(1L, "Объект 1"),
+                createGuardObject(2L, "Объект 2"),
+                createGuardObject(3L, "Объект 3")
+        );
+        when(guardObjectRepository.findIdsWithSchedules(Set.of(1L, 2L, 3L))).thenReturn(Set.of(2L));
+
+        // Act
+        Map<Long, Boolean> result = guardObjectService.getDeletableMap(guardObjects);
+
+        // Assert
+        assertThat(result).containsExactlyInAnyOrderEntriesOf(Map.of(1L, true, 2L, false, 3L, true));
+        verify(guardObjectRepository).findIdsWithSchedules(Set.of(1L, 2L, 3L));
+        verify(guardObjectRepository, never()).findById(anyLong());
+        verify(guardObjectRepository, never()).hasSchedules(anyLong());
+    }
+
+    @Test
+    void getDeletableMap_ShouldNotQuery_WhenListEmpty() {
+        // Act
+        Map<Long, Boolean> result = guardObjectService.getDeletableMap(Collections.emptyList());
+
+        // Assert
+        assertThat(result).isEmpty();
+        verifyNoInteractions(guardObjectRepository);
+    }
+
+    @Test
+    void getDeletableMap_ShouldForbidDeletion_WhenObjectHasRecurringShift() {
+        // Arrange
+        List<GuardObject> guardObjects = Arrays.asList(
+                createGuardObject(1L, "Объект 1"),
+                createGuardObject(2L, "Объект 2")
+        );
+        when(guardObjectRepository.findIdsWithSchedules(Set.of(1L, 2L))).thenReturn(Collections.emptySet());
+        when(recurringShiftRepository.findGuardObjectIdsWithShifts(Set.of(1L, 2L))).thenReturn(Set.of(1L));
+
+        // Act
+        Map<Long, Boolean> result = guardObjectService.getDeletableMap(guardObjects);
+
+        // Assert
+        assertThat(result).containsExactlyInAnyOrderEntriesOf(Map.of(1L, false, 2L, true));
+    }
+
+    @Test
+    void getDeletableMap_ShouldAllowDeletion_WhenNoSchedules() {
+        // Arrange
+        List<GuardObject> guardObjects = List.of(createGuardObject(1L, "Объект"));
+        when(guardObjectRepository.findIdsWithSchedules(Set.of(1L))).thenReturn(Collections.emptySet());
+
+        // Act
+        Map<Long, Boolean> result = guardObjectService.getDeletableMap(guardObjects);
+
+        // Assert
+        assertThat(result).containsEntry(1L, true);
+    }
+
     @Test
     void getGuardObjectsByClientId_ShouldReturnObjects() {
         // Arrange
@@ -0,0 +1,160 @@
+package com.example.sec_kros.services;
+
+import com.example.sec_kros.DTO.GuardObjectLocation;
+import com.example.sec_kros.DTO.NearbyGuardObject;
+import com.example.sec_kros.Entities.GuardObject;
+import com.example.sec_kros.Repositories.GuardObjectRepository;
+import com.example.sec_kros.Services.GuardObjectSpatialIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GuardObjectSpatialIndexTest {
+
+    @Mock
+    private GuardObjectRepository guardObjectRepository;
+
+    @InjectMocks
+    private GuardObjectSpatialIndex index;
+
+    @Test
+    void findInBox_ShouldMatchFullScan() {
+        List<GuardObjectLocation> points = randomPoints(2000, new Random(7));
+        warm(points);
+
+        // Небольшая область (обход ячеек) и почти вся область (обход непустых ячеек)
+        double[][] boxes = {{55.70, 37.50, 55.80, 37.70}, {54.0, 35.0, 58.0, 41.0}, {55.75, 37.60, 55.75, 37.60}};
+        for (double[] box : boxes) {
+            List<Long> expected = points.stream()
+                    .filter(point -> point.getLatitude() >= box[0] && point.getLatitude() <= box[2]
+                            && point.getLongitude() >= box[1] && point.getLongitude() <= box[3])
+                    .map(GuardObjectLocation::getId).toList();
+
+            assertThat(index.findInBox(box[0], box[1], box[2], box[3]))
+                    .extracting(GuardObjectLocation::getId)
+                    .containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    @Test
+    void findNearest_ShouldMatchFullScan() {
+        Random random = new Random(11);
+        List<GuardObjectLocation> points = randomPoints(3000, random);
+        warm(points);
+
+        // Точки внутри облака объектов и далеко от него (Санкт-Петербург)
+        double[][] queries = {{55.7558, 37.6173}, {55.0, 36.0}, {56.9, 40.9}, {59.9343, 30.3351}};
+        for (double[] query : queries) {
+            List<Long> expected = points.stream()
+                    .sorted(Comparator.comparingDouble(point -> GuardObjectSpatialIndex.distanceKm(
+                            query[0], query[1], point.getLatitude(), point.getLongitude())))
+                    .limit(10)
+                    .map(GuardObjectLocation::getId).toList();
+
+            List<NearbyGuardObject> nearest = index.findNearest(query[0], query[1], 10);
+
+            assertThat(nearest).extracting(found -> found.getLocation().getId()).containsExactlyElementsOf(expected);
+            assertThat(nearest).extracting(NearbyGuardObject::getDistanceKm).isSorted();
+        }
+    }
+
+    @Test
+    void findNearest_ShouldReturnAllObjects_WhenFewerThanK() {
+        warm(List.of(location(1L, 55.75, 37.61), location(2L, 43.11, 131.88)));
+
+        List<NearbyGuardObject> nearest = index.findNearest(55.76, 37.62, 5);
+
+        assertThat(nearest).extracting(found -> found.getLocation().getId()).containsExactly(1L, 2L);
+        assertThat(nearest.get(0).getDistanceKm()).isLessThan(2.0);
+        assertThat(index.findNearest(55.76, 37.62, 0)).isEmpty();
+    }
+
+    @Test
+    void guardObjectSaved_ShouldMoveAndRemoveObjects() {
+        warm(List.of(location(1L, 55.75, 37.61)));
+        GuardObject guardObject = guardObject(2L, "59.93", "30.33");
+
+        index.guardObjectSaved(guardObject);
+        assertThat(index.findInBox(59.9, 30.3, 60.0, 30.4)).extracting(GuardObjectLocation::getId).containsExactly(2L);
+
+        // Объект перенесен в Москву, затем у него стерты координаты
+        guardObject.setLatitude(new BigDecimal("55.76"));
+        guardObject.setLongitude(new BigDecimal("37.62"));
+        index.guardObjectSaved(guardObject);
+        assertThat(index.findInBox(59.9, 30.3, 60.0, 30.4)).isEmpty();
+        assertThat(index.findInBox(55.7, 37.6, 55.8, 37.7)).extracting(GuardObjectLocation::getId)
+                .containsExactlyInAnyOrder(1L, 2L);
+
+        guardObject.setLatitude(null);
+        index.guardObjectSaved(guardObject);
+        assertThat(index.size()).isEqualTo(1);
+
+        index.guardObjectRemoved(guardObject(1L, "55.75", "37.61"));
+        assertThat(index.size()).isZero();
+        assertThat(index.findNearest(55.75, 37.61, 3)).isEmpty();
+        verify(guardObjectRepository, times(1)).findAllLocations();
+    }
+
+    @Test
+    void findInBox_ShouldRejectInvertedBox() {
+        assertThatThrownBy(() -> index.findInBox(56.0, 37.0, 55.0, 38.0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.findInBox(Double.NaN, 37.0, 55.0, 38.0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.findInBox(55.0, Double.NEGATIVE_INFINITY, 56.0, 38.0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void findInBox_ShouldClampHugeBoxToWorld() {
+        List<GuardObjectLocation> points = randomPoints(50, new Random(3));
+        warm(points);
+
+        // Без ограничения произведение числа ячеек переполнялось и обход шел по ~10^11 ячейкам
+        assertThat(index.findInBox(-1e12, -1e12, 1e12, 1e12)).hasSize(50);
+        assertThat(index.findInBox(-1e12, 37.0, 1e12, 1e12)).hasSameSizeAs(
+                points.stream().filter(point -> point.getLongitude() >= 37.0).toList());
+        // Окно целиком за пределами допустимых координат ничего не находит
+        assertThat(index.findInBox(100, 200, 1e12, 1e12)).isEmpty();
+    }
+
+    private void warm(List<GuardObjectLocation> points) {
+        when(guardObjectRepository.findAllLocations()).thenReturn(points);
+        index.rebuild();
+    }
+
+    // Объекты Московской и соседних областей
+    private static List<GuardObjectLocation> randomPoints(int count, Random random) {
+        List<GuardObjectLocation> points = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            points.add(location(id, 54.5 + random.nextDouble() * 2.5, 35.5 + random.nextDouble() * 5.5));
+        }
+        return points;
+    }
+
+    private static GuardObjectLocation location(Long id, double latitude, double longitude) {
+        return new GuardObjectLocation(id, "Объект " + id, "ул. Ленина, " + id, latitude, longitude);
+    }
+
+    private static GuardObject guardObject(Long id, String latitude, String longitude) {
+        GuardObject guardObject = new GuardObject();
+        guardObject.setId(id);
+        guardObject.setName("Объект " + id);
+        guardObject.setLatitude(new BigDecimal(latitude));
+        guardObject.setLongitude(new BigDecimal(longitude));
+        return guardObject;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.sec_kros.services;
+
+import com.example.sec_kros.Services.LoginThrottleService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginThrottleServiceTest {
+
+    private final LoginThrottleService loginThrottleService = new LoginThrottleService();
+
+    private final AtomicLong now = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(loginThrottleService, "clock", (LongSupplier) now::get);
+    }
+
+    @Test
+    void tryAcquire_ShouldRejectEmailAfterBurstAndRefillOverTime() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(loginThrottleService.tryAcquire("10.0.0." + i, "client@example.com")).isTrue();
+        }
+
+        // Разные адреса, один email: перебор паролей к одной учетной записи
+        assertThat(loginThrottleService.tryAcquire("10.0.0.99", "Client@Example.com ")).isFalse();
+        assertThat(loginThrottleService.getRejectedByEmail()).isEqualTo(1);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertThat(loginThrottleService.tryAcquire("10.0.0.99", "client@example.com")).isTrue();
+        assertThat(loginThrottleService.tryAcquire("10.0.0.99", "client@example.com")).isFalse();
+    }
+
+    @Test
+    void tryAcquire_ShouldRejectAddressAfterBurstAcrossEmails() {
+        for (int i = 0; i < 20; i++) {
+            assertThat(loginThrottleService.tryAcquire("10.0.0.1", "user" + i + "@example.com")).isTrue();
+        }
+
+        assertThat(loginThrottleService.tryAcquire("10.0.0.1", "other@example.com")).isFalse();
+        assertThat(loginThrottleService.tryAcquire("10.0.0.2", "other@example.com")).isTrue();
+        assertThat(loginThrottleService.getRejectedByIp()).isEqualTo(1);
+        assertThat(loginThrottleService.getRejectedByEmail()).isZero();
+    }
+
+    @Test
+    void tryAcquire_ShouldNotSpendTokensOnRejectedAttempts() {
+        for (int i = 0; i < 5; i++) {
+            loginThrottleService.tryAcquire("10.0.0.1", "guard@example.com");
+        }
+        for (int i = 0; i < 10; i++) {
+            assertThat(loginThrottleService.tryAcquire("10.0.0.1", "guard@example.com")).isFalse();
+        }
+
+        // Отказы не отодвигают восстановление: через один период снова можно попробовать
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertThat(loginThrottleService.tryAcquire("10.0.0.1", "guard@example.com")).isTrue();
+        assertThat(loginThrottleService.getRejectedTotal()).isEqualTo(10);
+    }
+
+    @Test
+    void evictIdleBuckets_ShouldRemoveOnlyRefilledBuckets() {
+        loginThrottleService.tryAcquire("10.0.0.1", "first@example.com");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        loginThrottleService.tryAcquire("10.0.0.2", "second@example.com");
+        assertThat(loginThrottleService.getBucketCount()).isEqualTo(4);
+
+        // Ведро адреса восстанавливается за 3 секунды, ведро email - за 30
+        now.addAndGet(TimeUnit.SECONDS.toNanos(25));
+        loginThrottleService.evictIdleBuckets();
+
+        assertThat(loginThrottleService.getBucketCount()).isEqualTo(1);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        loginThrottleService.evictIdleBuckets();
+        assertThat(loginThrottleService.getBucketCount()).isZero();
+    }
+
+    @Test
+    void tryAcquire_ShouldAllowExactlyCapacityUnderConcurrentAttempts() throws InterruptedException {
+        AtomicLong allowed = new AtomicLong();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    if (loginThrottleService.tryAcquire(null, "shared@example.com")) {
+                        allowed.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(allowed.get()).isEqualTo(5);
+        assertThat(loginThrottleService.getRejectedByEmail()).isEqualTo(395);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.sec_kros.services;
+
+import com.example.sec_kros.Services.PasswordHashingMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PasswordHashingMetricsTest {
+
+    @Test
+    void record_ShouldAccumulateHashLatencyAndQueueWait() {
+        PasswordHashingMetrics metrics = new PasswordHashingMetrics();
+
+        metrics.recordHash(TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(80));
+        metrics.recordMatch(TimeUnit.MILLISECONDS.toNanos(30), TimeUnit.MILLISECONDS.toNanos(60));
+        metrics.recordRejection();
+
+        assertThat(metrics.getHashes()).isEqualTo(1);
+        assertThat(metrics.getMatches()).isEqualTo(1);
+        assertThat(metrics.getRejections()).isEqualTo(1);
+        assertThat(metrics.getAverageHashMs()).isEqualTo(70);
+        assertThat(metrics.getMaxHashMs()).isEqualTo(80);
+        assertThat(metrics.getAverageQueueWaitMs()).isEqualTo(20);
+        assertThat(metrics.getMaxQueueWaitMs()).isEqualTo(30);
+    }
+
+    @Test
+    void averages_ShouldBeZero_WhenNothingRecorded() {
+        PasswordHashingMetrics metrics = new PasswordHashingMetrics();
+
+        assertThat(metrics.getAverageHashMs()).isZero();
+        assertThat(metrics.getAverageQueueWaitMs()).isZero();
+        assertThat(metrics.getRejections()).isZero();
+    }
+}
@@ -1,9 +1,14 @@
 package com.example.sec_kros.services;
 
+import com.example.sec_kros.Services.PasswordHashingMetrics;
 import com.example.sec_kros.Services.PasswordService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -208,4 +213,68 @@ class PasswordServiceTest {
         // Assert
         assertThat(result).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    void hashPassword_ShouldRunOnHashingExecutorAndRecordMetrics() {
+        // Arrange
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("bcrypt-test-");
+        executor.initialize();
+        PasswordHashingMetrics metrics = new PasswordHashingMetrics();
+        PasswordService passwordService = new PasswordService();
+        ReflectionTestUtils.setField(passwordService, "hashingExecutor", executor);
+        ReflectionTestUtils.setField(passwordService, "metrics", metrics);
+
+        try {
+            // Act
+            String hashedPassword = passwordService.hashPassword("pooledPassword");
+            boolean matches = passwordService.matches("pooledPassword", hashedPassword);
+
+            // Assert
+            assertThat(matches).isTrue();
+            assertThat(metrics.getHashes()).isEqualTo(1);
+            assertThat(metrics.getMatches()).isEqualTo(1);
+            assertThat(metrics.getMaxHashMs()).isPositive();
+            assertThat(metrics.getRejections()).isZero();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void hashPassword_ShouldFailFast_WhenHashingQueueIsFull() {
+        // Arrange
+        PasswordHashingMetrics metrics = new PasswordHashingMetrics();
+        PasswordService passwordService = new PasswordService();
+        ReflectionTestUtils.setField(passwordService, "hashingExecutor", (TaskExecutor) task -> {
+            throw new TaskRejectedException("queue is full");
+        });
+        ReflectionTestUtils.setField(passwordService, "metrics", metrics);
+
+        // Act & Assert
+        assertThatThrownBy(() -> passwordService.hashPassword("password"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Сервер перегружен");
+        assertThatThrownBy(() -> passwordService.matches("password", "$2a$10$hash"))
+                .hasMessageContaining("Сервер перегружен");
+        assertThat(metrics.getRejections()).isEqualTo(2);
+        assertThat(metrics.getHashes()).isZero();
+    }
+
+    @Test
+    void hashPassword_ShouldValidateBeforeSubmittingToExecutor() {
+        // Arrange
+        PasswordService passwordService = new PasswordService();
+        ReflectionTestUtils.setField(passwordService, "hashingExecutor", (TaskExecutor) task -> {
+            throw new AssertionError("Некорректный пароль не должен попадать в очередь");
+        });
+
+        // Act & Assert
+        assertThatThrownBy(() -> passwordService.hashPassword("a".repeat(73)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(passwordService.matches(null, "$2a$10$hash")).isFalse();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.sec_kros.services;
+
+import com.example.sec_kros.DTO.PrincipalRow;
+import com.example.sec_kros.DTO.UserAccount;
+import com.example.sec_kros.Repositories.EmployeeRepository;
+import com.example.sec_kros.Services.PrincipalLookupService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PrincipalLookupServiceTest {
+
+    @Mock
+    private EmployeeRepository employeeRepository;
+
+    @InjectMocks
+    private PrincipalLookupService principalLookupService;
+
+    private final AtomicLong now = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(principalLookupService, "clock", (LongSupplier) now::get);
+    }
+
+    @Test
+    void findByEmail_ShouldQueryOnceAndServeRepeatedLookupsFromCache() {
+        when(employeeRepository.findPrincipalByEmail("admin@example.com"))
+                .thenReturn(Optional.of(row(1L, "admin@example.com", "hash", "admin")));
+
+        Optional<UserAccount> first = principalLookupService.findByEmail("admin@example.com");
+        Optional<UserAccount> second = principalLookupService.findByEmail("admin@example.com");
+
+        assertThat(first).isPresent();
+        assertThat(first.get().getUserType()).isEqualTo("admin");
+        assertThat(first.get().getAuthority()).isEqualTo("ROLE_ADMIN");
+        assertThat(second).containsSame(first.get());
+        verify(employeeRepository, times(1)).findPrincipalByEmail("admin@example.com");
+        assertThat(principalLookupService.getHitCount()).isEqualTo(1);
+        assertThat(principalLookupService.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findByEmail_ShouldReloadAfterTtl() {
+        when(employeeRepository.findPrincipalByEmail("client@example.com"))
+                .thenReturn(Optional.of(row(3L, "client@example.com", "old", "client")),
+                        Optional.of(row(3L, "client@example.com", "new", "client")));
+
+        principalLookupService.findByEmail("client@example.com");
+        now.addAndGet(TimeUnit.MINUTES.toNanos(11));
+
+        assertThat(principalLookupService.findByEmail("client@example.com").get().getPasswordHash()).isEqualTo("new");
+        verify(employeeRepository, times(2)).findPrincipalByEmail("client@example.com");
+    }
+
+    @Test
+    void findByEmail_ShouldNotCacheUnknownOrNullEmail() {
+        when(employeeRepository.findPrincipalByEmail("new@example.com")).thenReturn(Optional.empty());
+
+        assertThat(principalLookupService.findByEmail("new@example.com")).isEmpty();
+        assertThat(principalLookupService.findByEmail("new@example.com")).isEmpty();
+        assertThat(principalLookupService.findByEmail(null)).isEmpty();
+
+        verify(employeeRepository, times(2)).findPrincipalByEmail(anyString());
+        assertThat(principalLookupService.size()).isZero();
+    }
+
+    @Test
+    void clientChanged_ShouldEvictEntryCachedUnderOldEmail() {
+        when(employeeRepository.findPrincipalByEmail("old@example.com"))
+                .thenReturn(Optional.of(row(3L, "old@example.com", "hash", "client")));
+        when(employeeRepository.findPrincipalByEmail("other@example.com"))
+                .thenReturn(Optional.of(row(4L, "other@example.com", "hash", "client")));
+        principalLookupService.findByEmail("old@example.com");
+        principalLookupService.findByEmail("other@example.com");
+
+        // Клиент 3 сменил email: в кэше он лежит под старым адресом
+        principalLookupService.clientChanged(3L, "new@example.com");
+        when(employeeRepository.findPrincipalByEmail("old@example.com")).thenReturn(Optional.empty());
+
+        assertThat(principalLookupService.findByEmail("old@example.com")).isEmpty();
+        assertThat(principalLookupService.findByEmail("other@example.com")).isPresent();
+        verify(employeeRepository, times(2)).findPrincipalByEmail("old@example.com");
+        verify(employeeRepository, times(1)).findPrincipalByEmail("other@example.com");
+    }
+
+    @Test
+    void employeeChanged_ShouldDiscardLoadStartedBeforeInvalidation() {
+        // Повышение до администратора коммитится, пока загрузка старой записи еще идет
+        when(employeeRepository.findPrincipalByEmail("guard@example.com")).thenAnswer(invocation -> {
+            principalLookupService.employeeChanged(2L, "guard@example.com");
+            return Optional.of(row(2L, "guard@example.com", "hash", "employee"));
+        }).thenReturn(Optional.of(row(2L, "guard@example.com", "hash", "admin")));
+
+        assertThat(principalLookupService.findByEmail("guard@example.com").get().getUserType()).isEqualTo("employee");
+        assertThat(principalLookupService.findByEmail("guard@example.com").get().getUserType()).isEqualTo("admin");
+        verify(employeeRepository, times(2)).findPrincipalByEmail("guard@example.com");
+    }
+
+    @Test
+    void findByEmail_ShouldEvictOldestEntriesWhenFull() {
+        when(employeeRepository.findPrincipalByEmail(anyString())).thenAnswer(invocation -> {
+            String email = invocation.getArgument(0);
+            return Optional.of(row((long) email.hashCode(), email, "hash", "client"));
+        });
+
+        for (int i = 0; i <= 10_000; i++) {
+            principalLookupService.findByEmail("client" + i + "@example.com");
+        }
+
+        assertThat(principalLookupService.size()).isEqualTo(10_000);
+        principalLookupService.findByEmail("client0@example.com");
+        verify(employeeRepository, times(2)).findPrincipalByEmail("client0@example.com");
+    }
+
+    private static PrincipalRow row(Long id, String email, String password, String role) {
+        return new PrincipalRow() {
+            public Long getId() { return id; }
+            public String getEmail() { return email; }
+            public String getPassword() { return password; }
+            public String getRole() { return role; }
+            public String getFirstName() { return "Иван"; }
+            public String getLastName() { return "Петров"; }
+        };
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.sec_kros.services;
+
+import com.example.sec_kros.Services.RecurrenceRule;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecurrenceRuleTest {
+
+    @Test
+    void parse_ShouldReadRuleAndPrintCanonicalForm() {
+        RecurrenceRule rule = RecurrenceRule.parse("RRULE:freq=weekly;interval=2;byday=fr,mo");
+
+        assertThat(rule.getFrequency()).isEqualTo(RecurrenceRule.WEEKLY);
+        assertThat(rule.getInterval()).isEqualTo(2);
+        assertThat(rule.getByDays()).containsExactly(DayOfWeek.MONDAY, DayOfWeek.FRIDAY);
+        assertThat(rule.toString()).isEqualTo("FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,FR");
+        assertThat(RecurrenceRule.daily().toString()).isEqualTo("FREQ=DAILY");
+    }
+
+    @Test
+    void parse_ShouldRejectUnsupportedRules() {
+        assertThatThrownBy(() -> RecurrenceRule.parse(null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RecurrenceRule.parse("FREQ=MONTHLY")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RecurrenceRule.parse("FREQ=DAILY;INTERVAL=0")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RecurrenceRule.parse("FREQ=WEEKLY;BYDAY=XX")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RecurrenceRule.parse("INTERVAL=2")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RecurrenceRule.parse("FREQ=DAILY;COUNT=5")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void occurrences_ShouldClipToSeriesAndWindow() {
+        RecurrenceRule rule = RecurrenceRule.daily();
+
+        List<LocalDate> dates = rule.occurrences(LocalDate.of(2025, 1, 10), LocalDate.of(2025, 1, 12),
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31)).toList();
+
+        assertThat(dates).containsExactly(LocalDate.of(2025, 1, 10), LocalDate.of(2025, 1, 11),
+                LocalDate.of(2025, 1, 12));
+    }
+
+    @Test
+    void occurrences_ShouldAlignIntervalToSeriesStart() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=DAILY;INTERVAL=3");
+
+        // Серия с 1 января: 1, 4, 7, 10, 13 ... - окно начинается со 2-го
+        List<LocalDate> dates = rule.occurrences(LocalDate.of(2025, 1, 1), null,
+                LocalDate.of(2025, 1, 2), LocalDate.of(2025, 1, 10)).toList();
+
+        assertThat(dates).containsExactly(LocalDate.of(2025, 1, 4), LocalDate.of(2025, 1, 7),
+                LocalDate.of(2025, 1, 10));
+    }
+
+    @Test
+    void occurrences_ShouldFollowWeeklyDaysAndInterval() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,TH");
+
+        // Серия начинается в среду 1 января 2025, неделя серии - с понедельника 30 декабря
+        List<LocalDate> dates = rule.occurrences(LocalDate.of(2025, 1, 1), null,
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31)).toList();
+
+        assertThat(dates).containsExactly(LocalDate.of(2025, 1, 2), LocalDate.of(2025, 1, 13),
+                LocalDate.of(2025, 1, 16), LocalDate.of(2025, 1, 27), LocalDate.of(2025, 1, 30));
+    }
+
+    @Test
+    void occurrences_ShouldBeLazyForOpenEndedSeries() {
+        RecurrenceRule rule = RecurrenceRule.daily();
+
+        List<LocalDate> dates = rule.occurrences(LocalDate.of(2000, 1, 1), null,
+                LocalDate.of(2000, 1, 1), LocalDate.MAX).limit(3).toList();
+
+        assertThat(dates).hasSize(3);
+        assertThat(rule.occursOn(LocalDate.of(2000, 1, 1), LocalDate.of(1999, 12, 31))).isFalse();
+    }
+}
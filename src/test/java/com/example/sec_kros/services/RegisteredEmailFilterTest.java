@@ -0,0 +1,135 @@
+package com.example.sec_kros.services;
+
+import com.example.sec_kros.Repositories.ClientRepository;
+import com.example.sec_kros.Repositories.EmployeeRepository;
+import com.example.sec_kros.Services.RegisteredEmailFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RegisteredEmailFilterTest {
+
+    @Mock
+    private ClientRepository clientRepository;
+
+    @Mock
+    private EmployeeRepository employeeRepository;
+
+    @InjectMocks
+    private RegisteredEmailFilter registeredEmailFilter;
+
+    @Test
+    void mightContain_ShouldAlwaysAnswerMaybe_BeforeWarmUp() {
+        assertThat(registeredEmailFilter.isWarmedUp()).isFalse();
+        assertThat(registeredEmailFilter.mightContain("anyone@example.com")).isTrue();
+        assertThat(registeredEmailFilter.getDatabaseChecks()).isEqualTo(1);
+    }
+
+    @Test
+    void rebuild_ShouldContainEveryRegisteredEmailAndRejectMostUnknown() {
+        List<String> clients = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            clients.add("client" + i + "@example.com");
+        }
+        when(clientRepository.count()).thenReturn((long) clients.size());
+        when(employeeRepository.count()).thenReturn(1L);
+        when(clientRepository.findAllEmails()).thenReturn(clients);
+        when(employeeRepository.findAllEmails()).thenReturn(List.of("Guard@Example.com"));
+
+        registeredEmailFilter.rebuild();
+
+        assertThat(clients).allMatch(registeredEmailFilter::mightContain);
+        assertThat(registeredEmailFilter.mightContain(" guard@example.com")).isTrue();
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (registeredEmailFilter.mightContain("new" + i + "@example.com")) {
+                falsePositives++;
+            }
+        }
+        // Фильтр рассчитан с запасом в два раза, ложных срабатываний заметно меньше 1%
+        assertThat(falsePositives).isLessThan(100);
+        assertThat(registeredEmailFilter.getSkippedChecks()).isGreaterThan(9_900);
+    }
+
+    @Test
+    void add_ShouldMakeNewEmailVisibleImmediately() {
+        when(clientRepository.findAllEmails()).thenReturn(List.of());
+        when(employeeRepository.findAllEmails()).thenReturn(List.of());
+        registeredEmailFilter.rebuild();
+        assertThat(registeredEmailFilter.mightContain("fresh@example.com")).isFalse();
+
+        registeredEmailFilter.add("Fresh@example.com");
+
+        assertThat(registeredEmailFilter.mightContain("fresh@example.com")).isTrue();
+    }
+
+    @Test
+    void add_ShouldNotBeLost_WhenItHappensDuringRebuild() {
+        // Регистрация коммитится, пока перестройка читает таблицу клиентов
+        when(clientRepository.findAllEmails()).thenAnswer(invocation -> {
+            registeredEmailFilter.add("during-rebuild@example.com");
+            return List.of("old@example.com");
+        });
+        when(employeeRepository.findAllEmails()).thenReturn(List.of());
+
+        registeredEmailFilter.rebuild();
+
+        assertThat(registeredEmailFilter.mightContain("during-rebuild@example.com")).isTrue();
+        assertThat(registeredEmailFilter.mightContain("old@example.com")).isTrue();
+    }
+
+    @Test
+    void add_ShouldNotBeLost_WhenItRacesWithFilterSwap() throws InterruptedException {
+        // Перестройки идут одна за другой, а регистрации коммитятся и добавляются параллельно:
+        // добавление, попавшее между публикацией нового фильтра и обнулением building, не должно теряться
+        List<String> committed = new CopyOnWriteArrayList<>();
+        when(clientRepository.findAllEmails()).thenAnswer(invocation -> List.copyOf(committed));
+        when(employeeRepository.findAllEmails()).thenReturn(List.of());
+        registeredEmailFilter.rebuild();
+
+        AtomicBoolean registering = new AtomicBoolean(true);
+        Thread rebuilder = new Thread(() -> {
+            while (registering.get()) {
+                registeredEmailFilter.rebuild();
+            }
+        });
+        rebuilder.start();
+        List<String> lost = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            String email = "racer" + i + "@example.com";
+            committed.add(email);
+            registeredEmailFilter.add(email);
+            if (!registeredEmailFilter.mightContain(email)) {
+                lost.add(email);
+            }
+        }
+        registering.set(false);
+        rebuilder.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertThat(lost).isEmpty();
+        assertThat(committed).allMatch(registeredEmailFilter::mightContain);
+    }
+
+    @Test
+    void rebuild_ShouldKeepAnsweringMaybe_WhenDatabaseFails() {
+        when(clientRepository.count()).thenThrow(new RuntimeException("connection refused"));
+
+        registeredEmailFilter.rebuild();
+
+        assertThat(registeredEmailFilter.isWarmedUp()).isFalse();
+        assertThat(registeredEmailFilter.mightContain("client@example.com")).isTrue();
+    }
+}
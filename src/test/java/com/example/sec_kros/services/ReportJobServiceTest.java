@@ -0,0 +1,189 @@
+package com.example.sec_kros.services;
+
+import com.example.sec_kros.Entities.Employee;
+import com.example.sec_kros.Entities.Report;
+import com.example.sec_kros.Repositories.ReportRepository;
+import com.example.sec_kros.Services.ReportJobService;
+import com.example.sec_kros.Services.ReportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReportJobServiceTest {
+
+    @Mock
+    private ReportRepository reportRepository;
+
+    @Mock
+    private ReportService reportService;
+
+    @Mock
+    private TaskExecutor reportExecutor;
+
+    @InjectMocks
+    private ReportJobService reportJobService;
+
+    @TempDir
+    Path storageDir;
+
+    private Employee admin;
+    private Report storedReport;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reportJobService, "storageDir", storageDir.toString());
+
+        admin = new Employee();
+        admin.setId(1L);
+        admin.setEmail("admin@test.ru");
+
+        startDate = LocalDate.of(2024, 1, 1);
+        endDate = LocalDate.of(2024, 12, 31);
+    }
+
+    private void mockRepositoryStorage() {
+        when(reportRepository.save(any(Report.class))).thenAnswer(invocation -> {
+            Report report = invocation.getArgument(0);
+            if (report.getId() == null) {
+                report.setId(10L);
+            }
+            storedReport = report;
+            return report;
+        });
+        lenient().when(reportRepository.findById(10L)).thenAnswer(invocation -> Optional.ofNullable(storedReport));
+    }
+
+    private void runTasksSynchronously() {
+        doAnswer(invocation -> {
+            Runnable task = invocation.getArgument(0);
+            task.run();
+            return null;
+        }).when(reportExecutor).execute(any(Runnable.class));
+    }
+
+    @Test
+    void submitReport_ShouldPersistQueuedReportAndSchedule() {
+        mockRepositoryStorage();
+
+        Report result = reportJobService.submitReport("revenue", startDate, endDate, admin);
+
+        assertThat(result.getId()).isEqualTo(10L);
+        assertThat(result.getStatus()).isEqualTo(ReportJobService.STATUS_QUEUED);
+        assertThat(result.getGeneratedBy()).isEqualTo(admin);
+        assertThat(result.getPeriodStart()).isEqualTo(startDate);
+        assertThat(result.getPeriodEnd()).isEqualTo(endDate);
+        verify(reportExecutor).execute(any(Runnable.class));
+    }
+
+    @Test
+    void submitReport_ShouldWriteFileAndComplete() throws IOException {
+        mockRepositoryStorage();
+        runTasksSynchronously();
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(2);
+            outputStream.write(new byte[]{1, 2, 3});
+            return null;
+        }).when(reportService).writeContractsReport(eq(startDate), eq(endDate), any(OutputStream.class));
+
+        reportJobService.submitReport("contracts", startDate, endDate, admin);
+
+        assertThat(storedReport.getStatus()).isEqualTo(ReportJobService.STATUS_COMPLETED);
+        assertThat(storedReport.getCompletedAt()).isNotNull();
+        assertThat(Path.of(storedReport.getFilePath())).exists().hasSize(3);
+        assertThat(reportJobService.getReportFile(10L)).isPresent();
+    }
+
+    @Test
+    void submitReport_ShouldMarkFailed_WhenGenerationFails() throws IOException {
+        mockRepositoryStorage();
+        runTasksSynchronously();
+        doThrow(new IOException("disk full")).when(reportService)
+                .writeClientsReport(any(), any(), any(OutputStream.class));
+
+        reportJobService.submitReport("clients", startDate, endDate, admin);
+
+        assertThat(storedReport.getStatus()).isEqualTo(ReportJobService.STATUS_FAILED);
+        assertThat(storedReport.getErrorMessage()).isEqualTo("disk full");
+        assertThat(storedReport.getFilePath()).isNull();
+        try (var files = Files.list(storageDir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void submitReport_ShouldRejectFast_WhenQueueIsFull() {
+        mockRepositoryStorage();
+        doThrow(new TaskRejectedException("full")).when(reportExecutor).execute(any(Runnable.class));
+
+        assertThatThrownBy(() -> reportJobService.submitReport("revenue", startDate, endDate, admin))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Очередь отчетов переполнена");
+
+        assertThat(storedReport.getStatus()).isEqualTo(ReportJobService.STATUS_FAILED);
+    }
+
+    @Test
+    void submitReport_ShouldThrow_WhenTypeUnknown() {
+        assertThatThrownBy(() -> reportJobService.submitReport("unknown", startDate, endDate, admin))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verify(reportRepository, never()).save(any());
+        verify(reportExecutor, never()).execute(any(Runnable.class));
+    }
+
+    @Test
+    void submitReport_ShouldThrow_WhenPeriodInverted() {
+        assertThatThrownBy(() -> reportJobService.submitReport("revenue", endDate, startDate, admin))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verify(reportRepository, never()).save(any());
+    }
+
+    @Test
+    void getReportFile_ShouldReturnEmpty_WhenNotCompleted() {
+        Report running = new Report();
+        running.setId(5L);
+        running.setStatus(ReportJobService.STATUS_RUNNING);
+        when(reportRepository.findById(5L)).thenReturn(Optional.of(running));
+
+        assertThat(reportJobService.getReportFile(5L)).isEmpty();
+    }
+
+    @Test
+    void failInterruptedReports_ShouldMarkPendingJobsFailed() {
+        Report queued = new Report();
+        queued.setStatus(ReportJobService.STATUS_QUEUED);
+        Report running = new Report();
+        running.setStatus(ReportJobService.STATUS_RUNNING);
+        when(reportRepository.findByStatusIn(anyCollection())).thenReturn(List.of(queued, running));
+
+        reportJobService.failInterruptedReports();
+
+        assertThat(queued.getStatus()).isEqualTo(ReportJobService.STATUS_FAILED);
+        assertThat(running.getStatus()).isEqualTo(ReportJobService.STATUS_FAILED);
+        verify(reportRepository, times(2)).save(any(Report.class));
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.sec_kros.services;
+
+import com.example.sec_kros.DTO.RevenueReportRow;
+import com.example.sec_kros.Entities.Contract;
+import com.example.sec_kros.Entities.RevenueDailyRollup;
+import com.example.sec_kros.Entities.ServiceEntity;
+import com.example.sec_kros.Repositories.ContractRepository;
+import com.example.sec_kros.Repositories.RevenueRollupRepository;
+import com.example.sec_kros.Repositories.ServiceRepository;
+import com.example.sec_kros.Services.RevenueRollupService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RevenueRollupServiceTest {
+
+    @Mock
+    private RevenueRollupRepository revenueRollupRepository;
+
+    @Mock
+    private ContractRepository contractRepository;
+
+    @Mock
+    private ServiceRepository serviceRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private RevenueRollupService revenueRollupService;
+
+    private ServiceEntity testService;
+    private Contract testContract;
+    private LocalDate day;
+
+    @BeforeEach
+    void setUp() {
+        testService = new ServiceEntity();
+        testService.setId(1L);
+        testService.setName("Охрана офиса");
+
+        day = LocalDate.of(2024, 3, 10);
+
+        testContract = new Contract();
+        testContract.setId(1L);
+        testContract.setService(testService);
+        testContract.setTotalAmount(BigDecimal.valueOf(30000));
+        testContract.setStatus("inactive");
+        testContract.setCreatedAt(day.atTime(12, 0));
+    }
+
+    @Test
+    void contractCreated_ShouldIncrementExistingRow() {
+        when(revenueRollupRepository.increment(day, 1L, "inactive", 1, BigDecimal.valueOf(30000))).thenReturn(1);
+
+        revenueRollupService.contractCreated(testContract);
+
+        verify(revenueRollupRepository, never()).saveAndFlush(any());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void contractCreated_ShouldCreateEmptyRowInNewTransaction_WhenDayIsNew() {
+        when(revenueRollupRepository.increment(day, 1L, "inactive", 1, BigDecimal.valueOf(30000))).thenReturn(0, 1);
+        when(serviceRepository.getReferenceById(1L)).thenReturn(testService);
+
+        revenueRollupService.contractCreated(testContract);
+
+        ArgumentCaptor<RevenueDailyRollup> captor = ArgumentCaptor.forClass(RevenueDailyRollup.class);
+        verify(revenueRollupRepository).saveAndFlush(captor.capture());
+        RevenueDailyRollup row = captor.getValue();
+        assertThat(row.getRevenueDate()).isEqualTo(day);
+        assertThat(row.getStatus()).isEqualTo("inactive");
+        assertThat(row.getContractsCount()).isZero();
+        assertThat(row.getTotalAmount()).isEqualByComparingTo("0");
+        verify(transactionManager).commit(any());
+        verify(revenueRollupRepository, times(2)).increment(day, 1L, "inactive", 1, BigDecimal.valueOf(30000));
+    }
+
+    @Test
+    void contractCreated_ShouldIncrementRowOfConcurrentTransaction_WhenInsertLosesRace() {
+        when(revenueRollupRepository.increment(day, 1L, "inactive", 1, BigDecimal.valueOf(30000))).thenReturn(0, 1);
+        when(revenueRollupRepository.saveAndFlush(any()))
+                .thenThrow(new DataIntegrityViolationException("uk_revenue_rollup_day_service_status"));
+
+        revenueRollupService.contractCreated(testContract);
+
+        verify(transactionManager).rollback(any());
+        verify(revenueRollupRepository, times(2)).increment(day, 1L, "inactive", 1, BigDecimal.valueOf(30000));
+    }
+
+    @Test
+    void contractChanged_ShouldMoveAmountBetweenStatuses() {
+        RevenueRollupService.ContractSnapshot before = RevenueRollupService.ContractSnapshot.of(testContract);
+        testContract.setStatus("active");
+        when(revenueRollupRepository.increment(any(), anyLong(), anyString(), anyLong(), any())).thenReturn(1);
+
+        revenueRollupService.contractChanged(before, testContract);
+
+        verify(revenueRollupRepository).increment(day, 1L, "inactive", -1, BigDecimal.valueOf(-30000));
+        verify(revenueRollupRepository).deleteIfEmpty(day, 1L, "inactive");
+        verify(revenueRollupRepository).increment(day, 1L, "active", 1, BigDecimal.valueOf(30000));
+    }
+
+    @Test
+    void contractChanged_ShouldDoNothing_WhenAggregatedFieldsUnchanged() {
+        RevenueRollupService.ContractSnapshot before = RevenueRollupService.ContractSnapshot.of(testContract);
+        testContract.setEndDate(LocalDate.of(2024, 12, 31));
+        testContract.setTotalAmount(new BigDecimal("30000.00"));
+
+        revenueRollupService.contractChanged(before, testContract);
+
+        verifyNoInteractions(revenueRollupRepository);
+    }
+
+    @Test
+    void contractDeleted_ShouldDecrementAndDropEmptyRow() {
+        revenueRollupService.contractDeleted(testContract);
+
+        verify(revenueRollupRepository).increment(day, 1L, "inactive", -1, BigDecimal.valueOf(-30000));
+        verify(revenueRollupRepository).deleteIfEmpty(day, 1L, "inactive");
+        verify(revenueRollupRepository, never()).save(any());
+    }
+
+    @Test
+    void contractCreated_ShouldCountNullAmountAsZero() {
+        testContract.setTotalAmount(null);
+        when(revenueRollupRepository.increment(any(), anyLong(), anyString(), anyLong(), any())).thenReturn(1);
+
+        revenueRollupService.contractCreated(testContract);
+
+        verify(revenueRollupRepository).increment(day, 1L, "inactive", 1, BigDecimal.ZERO);
+    }
+
+    @Test
+    void rebuild_ShouldReplaceRowsWithAggregates() {
+        RevenueReportRow aggregate = new RevenueReportRow(day, 1L, "Охрана офиса", "active",
+                3L, BigDecimal.valueOf(90000));
+        when(contractRepository.aggregateDailyRevenue()).thenReturn(List.of(aggregate));
+        when(serviceRepository.getReferenceById(1L)).thenReturn(testService);
+
+        int rows = revenueRollupService.rebuild();
+
+        assertThat(rows).isEqualTo(1);
+        var inOrder = inOrder(revenueRollupRepository);
+        inOrder.verify(revenueRollupRepository).deleteAllInBatch();
+        inOrder.verify(revenueRollupRepository).saveAll(argThat(saved -> {
+            RevenueDailyRollup row = ((List<RevenueDailyRollup>) saved).get(0);
+            return row.getContractsCount() == 3 && row.getTotalAmount().compareTo(BigDecimal.valueOf(90000)) == 0;
+        }));
+    }
+
+    @Test
+    void rebuildIfEmpty_ShouldSkip_WhenRollupAlreadyFilled() {
+        when(revenueRollupRepository.count()).thenReturn(10L);
+
+        revenueRollupService.rebuildIfEmpty();
+
+        verify(revenueRollupRepository, never()).deleteAllInBatch();
+        verifyNoInteractions(contractRepository);
+    }
+
+    @Test
+    void getTotalRevenue_ShouldReadRollup() {
+        LocalDate start = LocalDate.of(2024, 3, 1);
+        LocalDate end = LocalDate.of(2024, 3, 31);
+        when(revenueRollupRepository.sumTotalAmount(start, end)).thenReturn(BigDecimal.valueOf(120000));
+
+        assertThat(revenueRollupService.getTotalRevenue(start, end)).isEqualByComparingTo("120000");
+        verifyNoInteractions(contractRepository);
+    }
+}
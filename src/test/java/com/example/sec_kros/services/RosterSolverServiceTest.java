@@ -0,0 +1,245 @@
+package com.example.sec_kros.services;
+
+import com.example.sec_kros.DTO.RosterAssignment;
+import com.example.sec_kros.DTO.RosterPlan;
+import com.example.sec_kros.DTO.ShiftOccurrence;
+import com.example.sec_kros.DTO.ShiftRequirement;
+import com.example.sec_kros.DTO.ShiftSlot;
+import com.example.sec_kros.Entities.Contract;
+import com.example.sec_kros.Entities.Employee;
+import com.example.sec_kros.Entities.GuardObject;
+import com.example.sec_kros.Repositories.GuardObjectRepository;
+import com.example.sec_kros.Repositories.RecurringShiftRepository;
+import com.example.sec_kros.Repositories.ScheduleRepository;
+import com.example.sec_kros.Services.RosterSolverService;
+import com.example.sec_kros.Services.ScheduleService;
+import com.example.sec_kros.Services.ShiftConflictIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RosterSolverServiceTest {
+
+    private static final LocalTime DAY_START = LocalTime.of(8, 0);
+    private static final LocalTime DAY_END = LocalTime.of(20, 0);
+
+    @Mock
+    private ScheduleRepository scheduleRepository;
+
+    @Mock
+    private RecurringShiftRepository recurringShiftRepository;
+
+    @Mock
+    private GuardObjectRepository guardObjectRepository;
+
+    @Mock
+    private ScheduleService scheduleService;
+
+    @InjectMocks
+    private ShiftConflictIndex shiftConflictIndex;
+
+    private RosterSolverService rosterSolverService;
+    private ForkJoinPool pool;
+
+    private LocalDate monday;
+    private GuardObject center;
+    private GuardObject suburb;
+    private GuardObject farAway;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(2);
+        rosterSolverService = new RosterSolverService();
+        ReflectionTestUtils.setField(rosterSolverService, "shiftConflictIndex", shiftConflictIndex);
+        ReflectionTestUtils.setField(rosterSolverService, "guardObjectRepository", guardObjectRepository);
+        ReflectionTestUtils.setField(rosterSolverService, "scheduleService", scheduleService);
+        ReflectionTestUtils.setField(rosterSolverService, "rosterPool", pool);
+
+        monday = LocalDate.of(2030, 1, 7);
+        center = guardObject(1L, "Центр", "55.7558", "37.6173");
+        suburb = guardObject(2L, "Химки", "55.8970", "37.4297");
+        farAway = guardObject(3L, "Санкт-Петербург", "59.9343", "30.3351");
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void solve_ShouldAssignEveryShiftWithoutOverlaps() {
+        indexWith(List.of());
+        List<Employee> guards = List.of(employee(1L, "Первый"), employee(2L, "Второй"), employee(3L, "Третий"));
+        List<ShiftRequirement> requirements = new ArrayList<>();
+        for (int day = 0; day < 7; day++) {
+            requirements.add(new ShiftRequirement(center, monday.plusDays(day), DAY_START, DAY_END));
+            requirements.add(new ShiftRequirement(suburb, monday.plusDays(day), DAY_START, DAY_END));
+        }
+
+        RosterPlan plan = rosterSolverService.solve(requirements, guards);
+
+        assertThat(plan.getUnassigned()).isEmpty();
+        assertThat(plan.getAssignments()).hasSize(14);
+        Set<String> busy = new HashSet<>();
+        for (RosterAssignment assignment : plan.getAssignments()) {
+            assertThat(busy.add(assignment.getEmployee().getId() + "@" + assignment.getRequirement().getDate()))
+                    .as("охранник назначен дважды в один день").isTrue();
+        }
+    }
+
+    @Test
+    void solve_ShouldSpreadShiftsToAvoidOvertime() {
+        indexWith(List.of());
+        List<Employee> guards = List.of(employee(1L, "Первый"), employee(2L, "Второй"), employee(3L, "Третий"));
+        List<ShiftRequirement> requirements = new ArrayList<>();
+        for (int day = 0; day < 7; day++) {
+            requirements.add(new ShiftRequirement(center, monday.plusDays(day), DAY_START, DAY_END));
+        }
+
+        RosterPlan plan = rosterSolverService.solve(requirements, guards);
+
+        // 7 смен по 12 часов на троих укладываются в 40 часов в неделю у каждого
+        assertThat(plan.getOvertimeMinutes()).isZero();
+        assertThat(plan.getGuardLoads()).hasSize(3)
+                .allSatisfy(load -> assertThat(load.getMinutes()).isLessThanOrEqualTo(40 * 60));
+    }
+
+    @Test
+    void solve_ShouldPreferGuardWorkingNearby() {
+        Employee nearby = employee(1L, "Ближний");
+        Employee distant = employee(2L, "Дальний");
+        // Вчера ближний работал в Химках, дальний - в Санкт-Петербурге
+        indexWith(List.of(
+                new ShiftSlot(10L, 1L, 2L, null, monday.minusDays(1), DAY_START, DAY_END),
+                new ShiftSlot(11L, 2L, 3L, null, monday.minusDays(1), DAY_START, DAY_END)));
+        when(guardObjectRepository.findAllById(anyCollection())).thenReturn(List.of(suburb, farAway));
+
+        RosterPlan plan = rosterSolverService.solve(
+                List.of(new ShiftRequirement(center, monday, DAY_START, DAY_END)), List.of(distant, nearby));
+
+        assertThat(plan.getAssignments()).singleElement()
+                .satisfies(assignment -> assertThat(assignment.getEmployee()).isEqualTo(nearby));
+        assertThat(plan.getTravelKm()).isBetween(15.0, 25.0);
+    }
+
+    @Test
+    void solve_ShouldKeepRestBetweenShifts() {
+        indexWith(List.of());
+        Employee guard = employee(1L, "Единственный");
+
+        // Ночная смена сразу после дневной не оставляет отдыха
+        RosterPlan plan = rosterSolverService.solve(List.of(
+                new ShiftRequirement(center, monday, DAY_START, DAY_END),
+                new ShiftRequirement(suburb, monday, DAY_END, DAY_START)), List.of(guard));
+
+        assertThat(plan.getAssignments()).hasSize(1);
+        assertThat(plan.getUnassigned()).singleElement()
+                .satisfies(requirement -> assertThat(requirement.getGuardObject()).isEqualTo(suburb));
+    }
+
+    @Test
+    void solve_ShouldLeaveShiftUnassigned_WhenGuardAlreadyBusy() {
+        indexWith(List.of(new ShiftSlot(10L, 1L, 1L, null, monday, LocalTime.of(10, 0), LocalTime.of(14, 0))));
+
+        RosterPlan plan = rosterSolverService.solve(
+                List.of(new ShiftRequirement(center, monday, DAY_START, DAY_END)), List.of(employee(1L, "Занятый")));
+
+        assertThat(plan.getAssignments()).isEmpty();
+        assertThat(plan.getUnassigned()).hasSize(1);
+    }
+
+    @Test
+    void solve_ShouldReturnSamePlanOnEveryRun() {
+        indexWith(List.of());
+        List<Employee> guards = new ArrayList<>();
+        for (long id = 1; id <= 6; id++) {
+            guards.add(employee(id, "Охранник" + id));
+        }
+        List<ShiftRequirement> requirements = new ArrayList<>();
+        for (int day = 0; day < 14; day++) {
+            for (GuardObject guardObject : List.of(center, suburb, farAway)) {
+                requirements.add(new ShiftRequirement(guardObject, monday.plusDays(day), DAY_START, DAY_END));
+            }
+        }
+
+        RosterPlan first = rosterSolverService.solve(requirements, guards);
+        RosterPlan second = rosterSolverService.solve(requirements, guards);
+
+        assertThat(second.getAssignments()).extracting(assignment -> assignment.getEmployee().getId())
+                .containsExactlyElementsOf(first.getAssignments().stream()
+                        .map(assignment -> assignment.getEmployee().getId()).toList());
+        assertThat(second.getCost()).isEqualTo(first.getCost());
+    }
+
+    @Test
+    void buildRequirements_ShouldSkipCoveredShiftsAndDaysOutsideContract() {
+        // Договор заканчивается на третий день недели, а в первый день объект уже закрыт сменой
+        center.getContract().setStartDate(monday.minusDays(30));
+        center.getContract().setEndDate(monday.plusDays(2));
+        when(guardObjectRepository.findActiveBetween(monday, monday.plusDays(6))).thenReturn(List.of(center));
+        when(scheduleService.getOccurrences(monday, monday.plusDays(6))).thenReturn(List.of(
+                new ShiftOccurrence(monday, LocalTime.of(9, 0), LocalTime.of(18, 0), employee(1L, "Петров"),
+                        center, null, 10L, null)));
+
+        List<ShiftRequirement> requirements = rosterSolverService.buildRequirements(monday, monday.plusDays(6),
+                DAY_START, DAY_END);
+
+        assertThat(requirements).extracting(ShiftRequirement::getDate)
+                .containsExactly(monday.plusDays(1), monday.plusDays(2));
+    }
+
+    @Test
+    void buildRequirements_ShouldRejectTooLongPeriod() {
+        assertThatThrownBy(() -> rosterSolverService.buildRequirements(monday, monday.plusDays(100),
+                DAY_START, DAY_END))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Период планирования");
+        verifyNoInteractions(guardObjectRepository);
+    }
+
+    private void indexWith(List<ShiftSlot> slots) {
+        when(scheduleRepository.findAllSlots()).thenReturn(slots);
+        when(recurringShiftRepository.findAllWithExceptions()).thenReturn(List.of());
+        shiftConflictIndex.rebuild();
+    }
+
+    private static GuardObject guardObject(Long id, String name, String latitude, String longitude) {
+        Contract contract = new Contract();
+        contract.setStatus("active");
+        GuardObject guardObject = new GuardObject();
+        guardObject.setId(id);
+        guardObject.setName(name);
+        guardObject.setContract(contract);
+        guardObject.setLatitude(new BigDecimal(latitude));
+        guardObject.setLongitude(new BigDecimal(longitude));
+        return guardObject;
+    }
+
+    private static Employee employee(Long id, String lastName) {
+        Employee employee = new Employee();
+        employee.setId(id);
+        employee.setLastName(lastName);
+        employee.setFirstName("Иван");
+        employee.setPosition("Охранник");
+        return employee;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.sec_kros.services;
+
+import com.example.sec_kros.Services.ScheduleMaterializationMetrics;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScheduleMaterializationMetricsTest {
+
+    @Test
+    void record_ShouldAccumulatePlannedShiftsAndElapsedTime() {
+        ScheduleMaterializationMetrics metrics = new ScheduleMaterializationMetrics();
+
+        metrics.record(1L, 365, 120);
+        metrics.record(2L, 31, 40);
+
+        assertThat(metrics.getApprovals()).isEqualTo(2);
+        assertThat(metrics.getPlannedShifts()).isEqualTo(396);
+        assertThat(metrics.getLastPlannedShifts()).isEqualTo(31);
+        assertThat(metrics.getLastElapsedMs()).isEqualTo(40);
+        assertThat(metrics.getMaxElapsedMs()).isEqualTo(120);
+        assertThat(metrics.getAverageElapsedMs()).isEqualTo(80);
+    }
+
+    @Test
+    void getAverageElapsedMs_ShouldBeZero_WhenNothingRecorded() {
+        ScheduleMaterializationMetrics metrics = new ScheduleMaterializationMetrics();
+
+        assertThat(metrics.getApprovals()).isZero();
+        assertThat(metrics.getAverageElapsedMs()).isZero();
+    }
+}
@@ -2,34 +2,48 @@ package com.example.sec_kros.services;
 
 import com.example.sec_kros.Entities.Employee;
 import com.example.sec_kros.Entities.GuardObject;
+import com.example.sec_kros.Entities.RecurringShift;
 import com.example.sec_kros.Entities.Schedule;
+import com.example.sec_kros.DTO.KeysetPage;
 import com.example.sec_kros.DTO.ScheduleDTO;
+import com.example.sec_kros.DTO.ShiftOccurrence;
+import com.example.sec_kros.DTO.ShiftSlot;
+import com.example.sec_kros.Repositories.RecurringShiftRepository;
 import com.example.sec_kros.Repositories.ScheduleRepository;
 import com.example.sec_kros.Repositories.EmployeeRepository;
 import com.example.sec_kros.Repositories.GuardObjectRepository;
 import com.example.sec_kros.Services.ScheduleService;
+import com.example.sec_kros.Services.ShiftConflictIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class ScheduleServiceTest {
 
+    private static final LocalDate WEEK_START = LocalDate.of(2024, 1, 15);
+    private static final LocalDate WEEK_END = LocalDate.of(2024, 1, 21);
+
     @Mock
     private ScheduleRepository scheduleRepository;
 
@@ -39,6 +53,12 @@ class ScheduleServiceTest {
     @Mock
     private GuardObjectRepository guardObjectRepository;
 
+    @Mock
+    private RecurringShiftRepository recurringShiftRepository;
+
+    @Mock
+    private ShiftConflictIndex shiftConflictIndex;
+
     @InjectMocks
     private ScheduleService scheduleService;
 
@@ -553,4 +573,276 @@ class ScheduleServiceTest {
         assertThat(result.get(1).getId()).isEqualTo(2L); // 15 января
         assertThat(result.get(2).getId()).isEqualTo(3L); // 17 января
     }
-}
\ No newline at end of file
+
+    @Test
+    void getSchedulesPage_ShouldPageOverSchedulesAndSeriesOccurrences() {
+        // Arrange - разовая смена и серия 15-го в 08:00: при равном времени вхождение серии идет первым
+        RecurringShift shift = createRecurringShift(WEEK_START, WEEK_START.plusDays(1));
+        when(recurringShiftRepository.findActiveBetween(WEEK_START, WEEK_END)).thenReturn(List.of(shift));
+        when(scheduleRepository.findBetween(WEEK_START, WEEK_END)).thenReturn(List.of(testSchedule));
+        when(scheduleRepository.findOverridesBetween(Set.of(7L), WEEK_START, WEEK_END)).thenReturn(List.of());
+
+        // Act
+        KeysetPage<ShiftOccurrence> page = scheduleService.getSchedulesPage(WEEK_START, WEEK_END, null, 2);
+
+        // Assert
+        assertThat(page.getItems()).extracting(ShiftOccurrence::getRecurringShiftId).containsExactly(7L, null);
+        assertThat(page.getNextCursor()).isEqualTo("2024-01-15_08:00_s0000000000000000001");
+        assertThat(page.isHasNext()).isTrue();
+    }
+
+    @Test
+    void getSchedulesPage_ShouldSeekAfterCursor() {
+        // Arrange
+        RecurringShift shift = createRecurringShift(WEEK_START, WEEK_START.plusDays(1));
+        when(recurringShiftRepository.findActiveBetween(WEEK_START, WEEK_END)).thenReturn(List.of(shift));
+        when(scheduleRepository.findBetween(WEEK_START, WEEK_END)).thenReturn(List.of(testSchedule));
+        when(scheduleRepository.findOverridesBetween(Set.of(7L), WEEK_START, WEEK_END)).thenReturn(List.of());
+
+        // Act
+        KeysetPage<ShiftOccurrence> page = scheduleService.getSchedulesPage(WEEK_START, WEEK_END,
+                "2024-01-15_08:00_s0000000000000000001", 2);
+
+        // Assert - осталось вхождение серии 16 января
+        assertThat(page.getItems()).extracting(ShiftOccurrence::getDate).containsExactly(WEEK_START.plusDays(1));
+        assertThat(page.getItems().get(0).isRecurring()).isTrue();
+        assertThat(page.isHasNext()).isFalse();
+        assertThat(page.getCursor()).isEqualTo("2024-01-15_08:00_s0000000000000000001");
+    }
+
+    @Test
+    void getSchedulesPage_ShouldThrow_WhenCursorOrWindowInvalid() {
+        assertThatThrownBy(() -> scheduleService.getSchedulesPage(WEEK_START, WEEK_END, "2024-01-15_7", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> scheduleService.getSchedulesPage(WEEK_START, WEEK_END, "bad_1", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> scheduleService.getSchedulesPage(WEEK_END, WEEK_START, null, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        // Страница режется в памяти, поэтому окно списка короче окна разворачивания серий
+        assertThatThrownBy(() -> scheduleService.getSchedulesPage(WEEK_START, WEEK_START.plusDays(32), null, 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("31");
+        verifyNoInteractions(scheduleRepository);
+    }
+
+    @Test
+    void weekStart_ShouldReturnMondayOfTheWeek() {
+        assertThat(ScheduleService.weekStart(LocalDate.of(2024, 1, 18))).isEqualTo(WEEK_START);
+        assertThat(ScheduleService.weekStart(WEEK_START)).isEqualTo(WEEK_START);
+        assertThat(ScheduleService.weekStart(WEEK_END)).isEqualTo(WEEK_START);
+    }
+
+    @Test
+    void getContractOccurrences_ShouldQueryContractWindow() {
+        // Arrange
+        when(recurringShiftRepository.findActiveByContractBetween(1L, WEEK_START, WEEK_END)).thenReturn(List.of());
+        when(scheduleRepository.findByContractBetween(1L, WEEK_START, WEEK_END)).thenReturn(List.of(testSchedule));
+
+        // Act
+        List<ShiftOccurrence> occurrences = scheduleService.getContractOccurrences(1L, WEEK_START, WEEK_END);
+
+        // Assert
+        assertThat(occurrences).singleElement()
+                .satisfies(occurrence -> assertThat(occurrence.getScheduleId()).isEqualTo(testSchedule.getId()));
+        verify(scheduleRepository, never()).findByGuardObject_Contract_Id(any());
+    }
+
+    @Test
+    void getOccurrences_ShouldExpandSeriesOnlyInsideWindow() {
+        // Arrange - ежедневная серия на три года, запрашиваем одну неделю
+        RecurringShift shift = createRecurringShift(LocalDate.of(2024, 1, 1), LocalDate.of(2026, 12, 31));
+        LocalDate from = LocalDate.of(2025, 3, 10);
+        LocalDate to = LocalDate.of(2025, 3, 16);
+        when(recurringShiftRepository.findActiveBetween(from, to)).thenReturn(List.of(shift));
+        when(scheduleRepository.findBetween(from, to)).thenReturn(List.of());
+
+        // Act
+        List<ShiftOccurrence> result = scheduleService.getOccurrences(from, to);
+
+        // Assert
+        assertThat(result).hasSize(7);
+        assertThat(result).allMatch(ShiftOccurrence::isRecurring);
+        assertThat(result.get(0).getDate()).isEqualTo(from);
+        assertThat(result.get(6).getDate()).isEqualTo(to);
+        verify(scheduleRepository, never()).findAll();
+    }
+
+    @Test
+    void getOccurrences_ShouldSkipExceptionsAndUseOverrides() {
+        // Arrange
+        RecurringShift shift = createRecurringShift(LocalDate.of(2025, 3, 1), null);
+        shift.getExceptionDates().add(LocalDate.of(2025, 3, 11));
+
+        Schedule override = new Schedule();
+        override.setId(5L);
+        override.setRecurringShift(shift);
+        override.setEmployee(testEmployee);
+        override.setGuardObject(testGuardObject);
+        override.setDate(LocalDate.of(2025, 3, 12));
+        override.setStartTime(LocalTime.of(10, 0));
+        override.setEndTime(LocalTime.of(18, 0));
+
+        LocalDate from = LocalDate.of(2025, 3, 10);
+        LocalDate to = LocalDate.of(2025, 3, 13);
+        when(recurringShiftRepository.findActiveBetween(from, to)).thenReturn(List.of(shift));
+        when(scheduleRepository.findBetween(from, to)).thenReturn(List.of(override));
+        when(scheduleRepository.findOverridesBetween(Set.of(7L), from, to)).thenReturn(List.of(override));
+
+        // Act
+        List<ShiftOccurrence> result = scheduleService.getOccurrences(from, to);
+
+        // Assert - 10 и 13 марта по серии, 11-го отменено, 12-го замена
+        assertThat(result).extracting(ShiftOccurrence::getDate).containsExactly(
+                LocalDate.of(2025, 3, 10), LocalDate.of(2025, 3, 12), LocalDate.of(2025, 3, 13));
+        assertThat(result.get(1).isOverride()).isTrue();
+        assertThat(result.get(1).getStartTime()).isEqualTo(LocalTime.of(10, 0));
+    }
+
+    @Test
+    void getOccurrences_ShouldRejectTooLongWindow() {
+        assertThatThrownBy(() -> scheduleService.getOccurrences(LocalDate.of(2024, 1, 1), LocalDate.of(2026, 1, 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(recurringShiftRepository);
+    }
+
+    @Test
+    void getRecurringShiftOccurrences_ShouldExpandOnlyThatSeries() {
+        // Arrange
+        RecurringShift shift = createRecurringShift(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 11));
+        LocalDate from = LocalDate.of(2025, 3, 10);
+        LocalDate to = LocalDate.of(2025, 3, 16);
+        when(recurringShiftRepository.findWithExceptionsById(7L)).thenReturn(Optional.of(shift));
+        when(scheduleRepository.findOverridesBetween(Set.of(7L), from, to)).thenReturn(List.of());
+
+        // Act
+        List<ShiftOccurrence> result = scheduleService.getRecurringShiftOccurrences(7L, from, to);
+
+        // Assert - серия заканчивается 11 марта
+        assertThat(result).extracting(ShiftOccurrence::getDate)
+                .containsExactly(LocalDate.of(2025, 3, 10), LocalDate.of(2025, 3, 11));
+        assertThat(result).allMatch(ShiftOccurrence::isRecurring);
+        verify(recurringShiftRepository, never()).findActiveBetween(any(), any());
+    }
+
+    @Test
+    void getRecurringShiftOccurrences_ShouldThrow_WhenSeriesNotFound() {
+        when(recurringShiftRepository.findWithExceptionsById(99L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> scheduleService.getRecurringShiftOccurrences(99L,
+                LocalDate.of(2025, 3, 10), LocalDate.of(2025, 3, 16)))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Повторяющаяся смена не найдена");
+    }
+
+    @Test
+    void createRecurringShift_ShouldStoreCanonicalRule() {
+        // Arrange
+        when(employeeRepository.findById(1L)).thenReturn(Optional.of(testEmployee));
+        when(guardObjectRepository.findById(1L)).thenReturn(Optional.of(testGuardObject));
+        when(recurringShiftRepository.save(any(RecurringShift.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        RecurringShift result = scheduleService.createRecurringShift(testScheduleDTO, "rrule:freq=weekly;byday=fr,mo", null);
+
+        // Assert
+        assertThat(result.getRecurrenceRule()).isEqualTo("FREQ=WEEKLY;BYDAY=MO,FR");
+        assertThat(result.getStartDate()).isEqualTo(testScheduleDTO.getDate());
+        assertThat(result.getEndDate()).isNull();
+    }
+
+    @Test
+    void addException_ShouldRemoveOverrideForThatDate() {
+        // Arrange
+        RecurringShift shift = createRecurringShift(LocalDate.of(2025, 3, 1), null);
+        Schedule override = new Schedule();
+        override.setId(5L);
+        when(recurringShiftRepository.findById(7L)).thenReturn(Optional.of(shift));
+        when(scheduleRepository.findByRecurringShiftIdAndDate(7L, LocalDate.of(2025, 3, 5)))
+                .thenReturn(Optional.of(override));
+        when(recurringShiftRepository.save(shift)).thenReturn(shift);
+
+        // Act
+        scheduleService.addException(7L, LocalDate.of(2025, 3, 5));
+
+        // Assert
+        assertThat(shift.getExceptionDates()).containsExactly(LocalDate.of(2025, 3, 5));
+        verify(scheduleRepository).delete(override);
+    }
+
+    @Test
+    void overrideOccurrence_ShouldRejectDateOutsideSeries() {
+        // Arrange
+        RecurringShift shift = createRecurringShift(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31));
+        when(recurringShiftRepository.findById(7L)).thenReturn(Optional.of(shift));
+
+        // Act & Assert
+        assertThatThrownBy(() -> scheduleService.overrideOccurrence(7L, LocalDate.of(2025, 4, 1), testScheduleDTO))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(scheduleRepository, never()).save(any());
+    }
+
+    @Test
+    void createSchedule_ShouldReject_WhenShiftOverlapsAnother() {
+        // Arrange
+        when(employeeRepository.findById(1L)).thenReturn(Optional.of(testEmployee));
+        when(guardObjectRepository.findById(1L)).thenReturn(Optional.of(testGuardObject));
+        doThrow(new RuntimeException("Смена пересекается с другой сменой сотрудника"))
+                .when(shiftConflictIndex).checkNoConflicts(eq(1L), eq(LocalDateTime.of(2024, 1, 15, 8, 0)),
+                        eq(LocalDateTime.of(2024, 1, 15, 20, 0)), any());
+
+        // Act & Assert
+        assertThatThrownBy(() -> scheduleService.createSchedule(testScheduleDTO))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("пересекается");
+        verify(scheduleRepository, never()).save(any());
+    }
+
+    @Test
+    void updateSchedule_ShouldIgnoreUpdatedScheduleItself() {
+        // Arrange
+        when(scheduleRepository.findById(1L)).thenReturn(Optional.of(testSchedule));
+        when(employeeRepository.findById(1L)).thenReturn(Optional.of(testEmployee));
+        when(guardObjectRepository.findById(1L)).thenReturn(Optional.of(testGuardObject));
+        when(scheduleRepository.save(testSchedule)).thenReturn(testSchedule);
+
+        // Act
+        scheduleService.updateSchedule(1L, testScheduleDTO);
+
+        // Assert - сама изменяемая строка не считается пересечением, другие строки считаются
+        ArgumentCaptor<Predicate<ShiftSlot>> ignored = ArgumentCaptor.captor();
+        verify(shiftConflictIndex).checkNoConflicts(eq(1L), any(), any(), ignored.capture());
+        LocalDateTime start = LocalDateTime.of(2024, 1, 15, 8, 0);
+        assertThat(ignored.getValue().test(new ShiftSlot(1L, 1L, 1L, null, start, start.plusHours(12)))).isTrue();
+        assertThat(ignored.getValue().test(new ShiftSlot(2L, 1L, 1L, null, start, start.plusHours(12)))).isFalse();
+    }
+
+    @Test
+    void createSchedule_ShouldRollNightShiftEndToNextDay() {
+        // Arrange
+        testScheduleDTO.setStartTime(LocalTime.of(20, 0));
+        testScheduleDTO.setEndTime(LocalTime.of(8, 0));
+        when(employeeRepository.findById(1L)).thenReturn(Optional.of(testEmployee));
+        when(guardObjectRepository.findById(1L)).thenReturn(Optional.of(testGuardObject));
+        when(scheduleRepository.save(any(Schedule.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        scheduleService.createSchedule(testScheduleDTO);
+
+        // Assert
+        verify(shiftConflictIndex).checkNoConflicts(eq(1L), eq(LocalDateTime.of(2024, 1, 15, 20, 0)),
+                eq(LocalDateTime.of(2024, 1, 16, 8, 0)), any());
+    }
+
+    private RecurringShift createRecurringShift(LocalDate startDate, LocalDate endDate) {
+        RecurringShift shift = new RecurringShift();
+        shift.setId(7L);
+        shift.setEmployee(testEmployee);
+        shift.setGuardObject(testGuardObject);
+        shift.setRecurrenceRule("FREQ=DAILY");
+        shift.setStartDate(startDate);
+        shift.setEndDate(endDate);
+        shift.setStartTime(LocalTime.of(8, 0));
+        shift.setEndTime(LocalTime.of(20, 0));
+        return shift;
+    }
+}
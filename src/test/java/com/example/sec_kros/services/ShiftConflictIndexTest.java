@@ -0,0 +1,285 @@
+package com.example.sec_kros.services;
+
+import com.example.sec_kros.DTO.ShiftSlot;
+import com.example.sec_kros.Entities.Employee;
+import com.example.sec_kros.Entities.GuardObject;
+import com.example.sec_kros.Entities.RecurringShift;
+import com.example.sec_kros.Entities.Schedule;
+import com.example.sec_kros.Repositories.RecurringShiftRepository;
+import com.example.sec_kros.Repositories.ScheduleRepository;
+import com.example.sec_kros.Services.ShiftConflictIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShiftConflictIndexTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 10);
+
+    @Mock
+    private ScheduleRepository scheduleRepository;
+
+    @Mock
+    private RecurringShiftRepository recurringShiftRepository;
+
+    @InjectMocks
+    private ShiftConflictIndex index;
+
+    private Employee employee;
+    private GuardObject guardObject;
+
+    @BeforeEach
+    void setUp() {
+        employee = new Employee();
+        employee.setId(1L);
+        guardObject = new GuardObject();
+        guardObject.setId(3L);
+    }
+
+    @Test
+    void findConflicts_ShouldFindOverlapsFromWarmedIndex() {
+        // Arrange - дневная смена 10-го и ночная смена 9-го, заканчивающаяся утром 10-го
+        when(scheduleRepository.findAllSlots()).thenReturn(List.of(
+                new ShiftSlot(10L, 1L, 3L, null, DAY, LocalTime.of(8, 0), LocalTime.of(20, 0)),
+                new ShiftSlot(11L, 1L, 3L, null, DAY.minusDays(1), LocalTime.of(22, 0), LocalTime.of(6, 0)),
+                new ShiftSlot(12L, 2L, 3L, null, DAY, LocalTime.of(8, 0), LocalTime.of(20, 0))));
+        when(recurringShiftRepository.findAllWithExceptions()).thenReturn(List.of());
+        index.rebuild();
+
+        // Act & Assert
+        assertThat(index.findConflicts(1L, DAY.atTime(5, 0), DAY.atTime(9, 0)))
+                .extracting(ShiftSlot::getScheduleId).containsExactly(11L, 10L);
+        // Смежные смены не пересекаются
+        assertThat(index.isFree(1L, DAY.atTime(20, 0), DAY.atTime(23, 0))).isTrue();
+        assertThat(index.isFree(1L, DAY.atTime(6, 0), DAY.atTime(8, 0))).isTrue();
+        assertThat(index.isFree(1L, DAY.atTime(19, 0), DAY.atTime(21, 0))).isFalse();
+        assertThat(index.isFree(3L, DAY.atTime(8, 0), DAY.atTime(20, 0))).isTrue();
+    }
+
+    @Test
+    void scheduleSaved_ShouldMoveShiftBetweenEmployees() {
+        // Arrange
+        warmEmpty();
+        Schedule schedule = schedule(10L, DAY, LocalTime.of(8, 0), LocalTime.of(20, 0));
+        index.scheduleSaved(schedule);
+
+        Employee other = new Employee();
+        other.setId(2L);
+        schedule.setEmployee(other);
+
+        // Act
+        index.scheduleSaved(schedule);
+
+        // Assert
+        assertThat(index.isFree(1L, DAY.atTime(8, 0), DAY.atTime(20, 0))).isTrue();
+        assertThat(index.isFree(2L, DAY.atTime(8, 0), DAY.atTime(20, 0))).isFalse();
+
+        index.scheduleRemoved(schedule);
+        assertThat(index.isFree(2L, DAY.atTime(8, 0), DAY.atTime(20, 0))).isTrue();
+    }
+
+    @Test
+    void scheduleSaved_ShouldAdvanceVersionAndChangeTimeOfEmployeeOnly() {
+        // Arrange
+        warmEmpty();
+        long version = index.getVersion(1L);
+        long otherVersion = index.getVersion(2L);
+        long rebuiltAt = index.getChangedAt(1L);
+
+        // Act
+        index.scheduleSaved(schedule(10L, DAY, LocalTime.of(8, 0), LocalTime.of(20, 0)));
+
+        // Assert
+        assertThat(index.getVersion(1L)).isGreaterThan(version);
+        assertThat(index.getChangedAt(1L)).isGreaterThanOrEqualTo(rebuiltAt);
+        assertThat(index.getVersion(2L)).isEqualTo(otherVersion);
+        assertThat(index.getChangedAt(2L)).isEqualTo(rebuiltAt);
+    }
+
+    @Test
+    void findConflicts_ShouldCheckRecurringShiftsWithExceptionsAndOverrides() {
+        // Arrange - ежедневная серия, 11-е отменено, 12-е заменено другой сменой
+        warmEmpty();
+        RecurringShift shift = recurringShift(7L, DAY, null);
+        shift.getExceptionDates().add(DAY.plusDays(1));
+        index.recurringShiftSaved(shift);
+
+        Schedule override = schedule(20L, DAY.plusDays(2), LocalTime.of(12, 0), LocalTime.of(14, 0));
+        override.setRecurringShift(shift);
+        index.scheduleSaved(override);
+
+        // Act & Assert
+        assertThat(index.findConflicts(1L, DAY.atTime(9, 0), DAY.atTime(10, 0)))
+                .singleElement().extracting(ShiftSlot::getRecurringShiftId).isEqualTo(7L);
+        assertThat(index.isFree(1L, DAY.plusDays(1).atTime(9, 0), DAY.plusDays(1).atTime(10, 0))).isTrue();
+        assertThat(index.isFree(1L, DAY.plusDays(2).atTime(9, 0), DAY.plusDays(2).atTime(10, 0))).isTrue();
+        assertThat(index.isFree(1L, DAY.plusDays(2).atTime(13, 0), DAY.plusDays(2).atTime(15, 0))).isFalse();
+        assertThat(index.isFree(1L, DAY.minusDays(1).atTime(9, 0), DAY.minusDays(1).atTime(10, 0))).isTrue();
+
+        index.recurringShiftRemoved(shift);
+        assertThat(index.isFree(1L, DAY.atTime(9, 0), DAY.atTime(10, 0))).isTrue();
+    }
+
+    @Test
+    void checkNoConflicts_ShouldRejectSeriesOverlappingExistingShift() {
+        // Arrange
+        warmEmpty();
+        index.scheduleSaved(schedule(10L, DAY.plusDays(20), LocalTime.of(19, 0), LocalTime.of(23, 0)));
+
+        // Act & Assert
+        assertThatThrownBy(() -> index.checkNoConflicts(recurringShift(null, DAY, DAY.plusDays(30))))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("30.03.2025 19:00");
+        index.checkNoConflicts(recurringShift(null, DAY, DAY.plusDays(19)));
+    }
+
+    @Test
+    void findConflicts_ShouldStayCheapForLargeRoster() {
+        // Arrange - год смен одного сотрудника по три в день
+        List<ShiftSlot> slots = new ArrayList<>();
+        for (int day = 0; day < 365; day++) {
+            for (int shift = 0; shift < 3; shift++) {
+                slots.add(new ShiftSlot((long) day * 3 + shift, 1L, 3L, null, DAY.plusDays(day),
+                        LocalTime.of(shift * 8, 0), LocalTime.of(shift * 8 + 7, 0)));
+            }
+        }
+        when(scheduleRepository.findAllSlots()).thenReturn(slots);
+        when(recurringShiftRepository.findAllWithExceptions()).thenReturn(List.of());
+        index.rebuild();
+
+        // Act & Assert - просматриваются только смены последних суток перед интервалом
+        LocalDateTime start = DAY.plusDays(200).atTime(7, 30);
+        assertThat(index.isFree(1L, start, start.plusMinutes(30))).isTrue();
+        assertThat(index.findConflicts(1L, start, start.plusHours(1))).hasSize(1);
+        verify(scheduleRepository, times(1)).findAllSlots();
+    }
+
+    @Test
+    void checkNoConflicts_ShouldHoldEmployeeUntilTransactionCompletes() throws Exception {
+        // Arrange - первая транзакция проверила время сотрудника и сохраняет смену
+        warmEmpty();
+        ReflectionTestUtils.setField(index, "lockTimeoutMillis", 100L);
+        ExecutorService secondTransaction = Executors.newSingleThreadExecutor();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.checkNoConflicts(1L, DAY.atTime(8, 0), DAY.atTime(20, 0), slot -> false);
+            index.scheduleSaved(schedule(10L, DAY, LocalTime.of(8, 0), LocalTime.of(20, 0)));
+
+            // Act & Assert - до коммита вторая транзакция не может проверить того же сотрудника,
+            // а другого - может
+            assertThat(secondTransaction.submit(() -> checkInTransaction(1L)).get())
+                    .isEqualTo("График сотрудника сейчас изменяется, повторите попытку");
+            assertThat(secondTransaction.submit(() -> checkInTransaction(2L)).get()).isNull();
+
+            // После коммита смена уже в индексе, и вторая транзакция видит пересечение
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+            TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations,
+                    TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        Future<String> afterCommit = secondTransaction.submit(() -> checkInTransaction(1L));
+        assertThat(afterCommit.get()).startsWith("Смена пересекается");
+        secondTransaction.shutdown();
+    }
+
+    @Test
+    void checkNoConflicts_ShouldReleaseEmployeeBeforeOtherAfterCompletionCallbacks() throws Exception {
+        // Arrange - действие после коммита (например, отправка писем) зарегистрировано позже блокировки
+        warmEmpty();
+        ReflectionTestUtils.setField(index, "lockTimeoutMillis", 100L);
+        ExecutorService secondTransaction = Executors.newSingleThreadExecutor();
+        List<String> seenBySecondTransaction = new ArrayList<>();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.checkNoConflicts(1L, DAY.atTime(8, 0), DAY.atTime(20, 0), slot -> false);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    try {
+                        seenBySecondTransaction.add(secondTransaction.submit(() -> checkInTransaction(1L)).get());
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+
+            // Act
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                    TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        secondTransaction.shutdown();
+
+        // Assert - к моменту позднего колбэка сотрудник уже свободен
+        assertThat(seenBySecondTransaction).containsExactly((String) null);
+    }
+
+    // Проверка в отдельной транзакции; возвращает текст ошибки или null
+    private String checkInTransaction(Long employeeId) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.checkNoConflicts(employeeId, DAY.atTime(9, 0), DAY.atTime(12, 0), slot -> false);
+            return null;
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        } finally {
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                    TransactionSynchronization.STATUS_ROLLED_BACK);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void warmEmpty() {
+        when(scheduleRepository.findAllSlots()).thenReturn(List.of());
+        when(recurringShiftRepository.findAllWithExceptions()).thenReturn(List.of());
+        index.rebuild();
+    }
+
+    private Schedule schedule(Long id, LocalDate date, LocalTime start, LocalTime end) {
+        Schedule schedule = new Schedule();
+        schedule.setId(id);
+        schedule.setEmployee(employee);
+        schedule.setGuardObject(guardObject);
+        schedule.setDate(date);
+        schedule.setStartTime(start);
+        schedule.setEndTime(end);
+        return schedule;
+    }
+
+    private RecurringShift recurringShift(Long id, LocalDate startDate, LocalDate endDate) {
+        RecurringShift shift = new RecurringShift();
+        shift.setId(id);
+        shift.setEmployee(employee);
+        shift.setGuardObject(guardObject);
+        shift.setRecurrenceRule("FREQ=DAILY");
+        shift.setStartDate(startDate);
+        shift.setEndDate(endDate);
+        shift.setStartTime(LocalTime.of(8, 0));
+        shift.setEndTime(LocalTime.of(20, 0));
+        return shift;
+    }
+}